@@ -94,6 +94,10 @@ export LANG=en_US.UTF-8
 # export HADOOP_OPTS="-Djava.net.preferIPv4Stack=true"
 # For Kerberos debugging, an extended option set logs more information
 # export HADOOP_OPTS="-Djava.net.preferIPv4Stack=true -Dsun.security.krb5.debug=true -Dsun.security.spnego.debug"
+# To start faster, the configuration files can be cached in a binary form in
+# a local directory only writable by the user, instead of being parsed by
+# every command
+# export HADOOP_OPTS="-Djava.net.preferIPv4Stack=true -Dhadoop.conf.resource.cache.dir=${HOME}/.hadoop/conf-cache"
 
 # Some parts of the shell code may do special things dependent upon
 # the operating system.  We have to set this here. See the next
@@ -26,6 +26,7 @@
 import com.fasterxml.jackson.core.JsonGenerator;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.File;
@@ -66,6 +67,7 @@
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
+import java.util.zip.CRC32;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -221,6 +223,17 @@
  * <p> Properties marked with tags can be retrieved with <tt>conf
  * .getAllPropertiesByTag("HDFS")</tt> or <tt>conf.getAllPropertiesByTags
  * (Arrays.asList("YARN","SECURITY"))</tt>.</p>
+ *
+ * <h4 id="ResourceCache">Resource Cache</h4>
+ *
+ * <p>Parsing the XML of the resources takes a noticeable part of the startup
+ * of short-lived JVMs. When the system property
+ * <tt>hadoop.conf.resource.cache.dir</tt> is set to a local directory only
+ * writable by its owner, the properties parsed from the file and classpath
+ * resources are cached there in binary form, and later loads read them back
+ * as long as the checksums of the resources are unchanged. Resources with
+ * includes or a DTD, and the ones loaded with the restricted parser, are
+ * always parsed.</p>
  */
 @InterfaceAudience.Public
 @InterfaceStability.Stable
@@ -804,7 +817,12 @@ private void handleDeprecation() {
   }
 
   private Properties properties;
-  private Properties overlay;
+  /**
+   * The properties once loaded, published for get() and set() to use them
+   * without taking the lock of the configuration.
+   */
+  private volatile Properties loadedProperties;
+  private volatile Properties overlay;
   private ClassLoader classLoader;
   {
     classLoader = Thread.currentThread().getContextClassLoader();
@@ -847,6 +865,7 @@ public Configuration(Configuration other) {
       this.resources = (ArrayList<Resource>) other.resources.clone();
       if (other.properties != null) {
         this.properties = (Properties)other.properties.clone();
+        this.loadedProperties = this.properties;
       }
 
       if (other.overlay!=null) {
@@ -1026,6 +1045,7 @@ public void addResource(Configuration conf) {
    */
   public synchronized void reloadConfiguration() {
     properties = null;                            // trigger reload
+    loadedProperties = null;
     finalParameters.clear();                      // clear site-limits
   }
 
@@ -1500,11 +1520,17 @@ public synchronized void setIfUnset(String name, String value) {
     }
   }
   
-  private synchronized Properties getOverlay() {
-    if (overlay==null){
-      overlay=new Properties();
+  private Properties getOverlay() {
+    Properties props = overlay;
+    if (props != null) {
+      return props;
+    }
+    synchronized (this) {
+      if (overlay == null) {
+        overlay = new Properties();
+      }
+      return overlay;
     }
-    return overlay;
   }
 
   /** 
@@ -2921,12 +2947,19 @@ public Set<String> getFinalParameters() {
     return setFinalParams;
   }
 
-  protected synchronized Properties getProps() {
-    if (properties == null) {
-      properties = new Properties();
-      loadProps(properties, 0, true);
+  protected Properties getProps() {
+    Properties props = loadedProperties;
+    if (props != null) {
+      return props;
+    }
+    synchronized (this) {
+      if (properties == null) {
+        properties = new Properties();
+        loadProps(properties, 0, true);
+        loadedProperties = properties;
+      }
+      return properties;
     }
-    return properties;
   }
 
   /**
@@ -3031,13 +3064,17 @@ private XMLStreamReader parse(URL url, boolean restricted)
       return null;
     }
 
+    return parse(openStream(url), url.toString(), restricted);
+  }
+
+  private static InputStream openStream(URL url) throws IOException {
     URLConnection connection = url.openConnection();
     if (connection instanceof JarURLConnection) {
       // Disable caching for JarURLConnection to avoid sharing JarFile
       // with other users.
       connection.setUseCaches(false);
     }
-    return parse(connection.getInputStream(), url.toString(), restricted);
+    return connection.getInputStream();
   }
 
   private XMLStreamReader parse(InputStream is, String systemIdStr,
@@ -3091,24 +3128,27 @@ private Resource loadResource(Properties properties,
         overlay(properties, (Properties)resource);
       }
 
-      XMLStreamReader2 reader = getStreamReader(wrapper, quiet);
-      if (reader == null) {
-        if (quiet) {
-          return null;
+      List<ParsedItem> items = parseCached(wrapper, quiet);
+      if (items == null) {
+        XMLStreamReader2 reader = getStreamReader(wrapper, quiet);
+        if (reader == null) {
+          if (quiet) {
+            return null;
+          }
+          throw new RuntimeException(resource + " not found");
         }
-        throw new RuntimeException(resource + " not found");
+        items = new Parser(reader, wrapper, quiet).parse();
+        reader.close();
       }
       Properties toAddTo = properties;
       if(returnCachedProperties) {
         toAddTo = new Properties();
       }
 
-      List<ParsedItem> items = new Parser(reader, wrapper, quiet).parse();
       for (ParsedItem item : items) {
         loadProperty(toAddTo, item.name, item.key, item.value,
             item.isFinal, item.sources);
       }
-      reader.close();
 
       if (returnCachedProperties) {
         overlay(properties, toAddTo);
@@ -3124,6 +3164,66 @@ private Resource loadResource(Properties properties,
     }
   }
 
+  /**
+   * Parse a file or classpath resource through the {@link ResourceCache},
+   * if it is enabled.
+   *
+   * @param wrapper the resource.
+   * @param quiet whether to log the resources parsed.
+   * @return the items of the resource, or null if it is not cacheable.
+   */
+  private List<ParsedItem> parseCached(Resource wrapper, boolean quiet)
+      throws XMLStreamException, IOException {
+    if (wrapper.isParserRestricted()) {
+      return null;
+    }
+    ResourceCache cache = ResourceCache.get();
+    if (cache == null) {
+      return null;
+    }
+    Object resource = wrapper.getResource();
+    URL url = null;
+    if (resource instanceof URL) {
+      url = (URL) resource;
+    } else if (resource instanceof String) {
+      url = getResource((String) resource);
+    } else if (resource instanceof Path) {
+      File file = new File(((Path) resource).toUri().getPath())
+          .getAbsoluteFile();
+      if (file.exists()) {
+        url = file.toURI().toURL();
+      }
+    }
+    if (url == null) {
+      return null;
+    }
+
+    byte[] content = ResourceCache.readFully(openStream(url));
+    CRC32 crc = new CRC32();
+    crc.update(content, 0, content.length);
+    String key = url.toString();
+    List<ResourceCache.Property> cached =
+        cache.read(key, content.length, crc.getValue());
+    if (cached != null) {
+      if (!quiet) {
+        LOG.debug("loading cached configuration of " + url);
+      }
+      return new Parser(wrapper, quiet).replay(cached);
+    }
+
+    XMLStreamReader2 reader = (XMLStreamReader2) parse(
+        new ByteArrayInputStream(content), key, false);
+    Parser parser = new Parser(reader, wrapper, quiet);
+    parser.cacheProperties();
+    List<ParsedItem> items = parser.parse();
+    reader.close();
+    List<ResourceCache.Property> parsed = parser.getCacheableProperties();
+    if (parsed != null) {
+      cache.write(key, content.length, crc.getValue(), parsed);
+    }
+    return items;
+  }
+
   private XMLStreamReader2 getStreamReader(Resource wrapper, boolean quiet)
       throws XMLStreamException, IOException {
     Object resource = wrapper.getResource();
@@ -3195,6 +3295,11 @@ private class Parser {
     private boolean parseToken = false;
     private List<String> confSource = new ArrayList<>();
     private List<ParsedItem> results = new ArrayList<>();
+    /**
+     * The properties as written in the resource, for the ResourceCache, or
+     * null if they are not collected or depend on other resources.
+     */
+    private List<ResourceCache.Property> cacheable = null;
 
     Parser(XMLStreamReader2 reader,
            Resource wrapper,
@@ -3208,6 +3313,11 @@ private class Parser {
 
     }
 
+    /** A parser of the properties of a resource in the ResourceCache. */
+    Parser(Resource wrapper, boolean quiet) {
+      this(null, wrapper, quiet);
+    }
+
     List<ParsedItem> parse() throws IOException, XMLStreamException {
       while (reader.hasNext()) {
         parseNext();
@@ -3215,6 +3325,32 @@ List<ParsedItem> parse() throws IOException, XMLStreamException {
       return results;
     }
 
+    /** Collect the properties parsed for the ResourceCache. */
+    void cacheProperties() {
+      cacheable = new ArrayList<>();
+    }
+
+    List<ResourceCache.Property> getCacheableProperties() {
+      return cacheable;
+    }
+
+    /**
+     * Handle the properties of the resource read back from the
+     * ResourceCache as if they were parsed.
+     */
+    List<ParsedItem> replay(List<ResourceCache.Property> properties) {
+      for (ResourceCache.Property property : properties) {
+        confName = property.getName();
+        confValue = property.getValue();
+        confFinal = property.isFinal();
+        confTag = property.getTag();
+        confSource.clear();
+        confSource.addAll(property.getSources());
+        handleEndProperty();
+      }
+      return results;
+    }
+
     private void handleStartElement() throws XMLStreamException, IOException {
       switch (reader.getLocalName()) {
       case "property":
@@ -3230,6 +3366,8 @@ private void handleStartElement() throws XMLStreamException, IOException {
         token.setLength(0);
         break;
       case "include":
+        // The included resources are not checked by the ResourceCache.
+        cacheable = null;
         handleInclude();
         break;
       case "fallback":
@@ -3394,6 +3532,10 @@ void handleEndProperty() {
       if (confName == null || (!fallbackAllowed && fallbackEntered)) {
         return;
       }
+      if (cacheable != null) {
+        cacheable.add(new ResourceCache.Property(confName, confValue,
+            confFinal, confTag, new ArrayList<>(confSource)));
+      }
       String[] confSourceArray;
       if (confSource.isEmpty()) {
         confSourceArray = nameSingletonArray;
@@ -3438,6 +3580,11 @@ void parseNext() throws IOException, XMLStreamException {
       case XMLStreamConstants.END_ELEMENT:
         handleEndElement();
         break;
+      case XMLStreamConstants.DTD:
+      case XMLStreamConstants.ENTITY_REFERENCE:
+        // Entities may come from other resources.
+        cacheable = null;
+        break;
       default:
         break;
       }
@@ -0,0 +1,265 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.conf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.io.MD5Hash;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.util.StringInterner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache of the properties parsed from the XML of configuration resources,
+ * in binary files of a local directory, for new JVMs to read them back
+ * instead of parsing the resources again. An entry is used only if the
+ * length and the CRC32 of the resource are the ones it was parsed from.
+ *
+ * The properties are cached as they are written in the resources, before
+ * deprecation and tags are handled, so that loading them from the cache
+ * behaves the same as parsing them.
+ *
+ * The cache is enabled by setting the system property
+ * {@value #CACHE_DIR_PROPERTY} to a directory only writable by its owner.
+ */
+final class ResourceCache {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ResourceCache.class);
+
+  /** The system property of the directory of the cache. */
+  static final String CACHE_DIR_PROPERTY = "hadoop.conf.resource.cache.dir";
+
+  private static final int MAGIC = 0x48435243; // HCRC
+  private static final int VERSION = 1;
+  private static final String SUFFIX = ".conf";
+
+  /** A property as it is written in a resource. */
+  static final class Property {
+    private final String name;
+    private final String value;
+    private final boolean isFinal;
+    private final String tag;
+    private final List<String> sources;
+
+    Property(String name, String value, boolean isFinal, String tag,
+        List<String> sources) {
+      this.name = name;
+      this.value = value;
+      this.isFinal = isFinal;
+      this.tag = tag;
+      this.sources = sources;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    String getValue() {
+      return value;
+    }
+
+    boolean isFinal() {
+      return isFinal;
+    }
+
+    String getTag() {
+      return tag;
+    }
+
+    List<String> getSources() {
+      return sources;
+    }
+  }
+
+  private final File dir;
+
+  ResourceCache(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * @return the cache of the directory of {@value #CACHE_DIR_PROPERTY}, or
+   *         null if it is not set or the directory can't be used.
+   */
+  static ResourceCache get() {
+    String path = System.getProperty(CACHE_DIR_PROPERTY);
+    if (path == null || path.isEmpty()) {
+      return null;
+    }
+    File dir = new File(path);
+    if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+      LOG.debug("Cannot create the configuration cache directory {}", dir);
+      return null;
+    }
+    try {
+      Set<PosixFilePermission> permissions =
+          Files.getPosixFilePermissions(dir.toPath());
+      if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+          || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+        LOG.warn("Not using the configuration cache directory {} as it is "
+            + "writable by other users", dir);
+        return null;
+      }
+    } catch (UnsupportedOperationException | IOException e) {
+      LOG.debug("Cannot check the permissions of {}", dir, e);
+    }
+    return new ResourceCache(dir);
+  }
+
+  File getFile(String resource) {
+    return new File(dir, MD5Hash.digest(resource).toString() + SUFFIX);
+  }
+
+  /**
+   * Read the properties of a resource.
+   *
+   * @param resource the URL of the resource.
+   * @param length the length of the resource.
+   * @param checksum the CRC32 of the resource.
+   * @return the properties, or null if they are not cached for this content
+   *         of the resource.
+   */
+  List<Property> read(String resource, int length, long checksum) {
+    File file = getFile(resource);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION
+          || !resource.equals(WritableUtils.readString(in))
+          || in.readInt() != length || in.readLong() != checksum) {
+        return null;
+      }
+      int n = in.readInt();
+      List<Property> properties = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        String name = StringInterner.weakIntern(WritableUtils.readString(in));
+        String value =
+            StringInterner.weakIntern(WritableUtils.readString(in));
+        boolean isFinal = in.readBoolean();
+        String tag = StringInterner.weakIntern(WritableUtils.readString(in));
+        int numSources = in.readInt();
+        List<String> sources = new ArrayList<>(numSources);
+        for (int j = 0; j < numSources; j++) {
+          sources.add(StringInterner.weakIntern(WritableUtils.readString(in)));
+        }
+        properties.add(new Property(name, value, isFinal, tag, sources));
+      }
+      return properties;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Cannot read the cached configuration {} of {}", file,
+          resource, e);
+      return null;
+    }
+  }
+
+  /**
+   * Write the properties of a resource, replacing the ones cached for it.
+   * Failures are only logged.
+   *
+   * @param resource the URL of the resource.
+   * @param length the length of the resource.
+   * @param checksum the CRC32 of the resource.
+   * @param properties the properties parsed from the resource.
+   */
+  void write(String resource, int length, long checksum,
+      List<Property> properties) {
+    File file = getFile(resource);
+    File tmp = null;
+    try {
+      tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp")
+          .toFile();
+      try (OutputStream os = Files.newOutputStream(tmp.toPath());
+           DataOutputStream out =
+               new DataOutputStream(new BufferedOutputStream(os))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        WritableUtils.writeString(out, resource);
+        out.writeInt(length);
+        out.writeLong(checksum);
+        out.writeInt(properties.size());
+        for (Property property : properties) {
+          WritableUtils.writeString(out, property.name);
+          WritableUtils.writeString(out, property.value);
+          out.writeBoolean(property.isFinal);
+          WritableUtils.writeString(out, property.tag);
+          out.writeInt(property.sources.size());
+          for (String source : property.sources) {
+            WritableUtils.writeString(out, source);
+          }
+        }
+      }
+      try {
+        Files.move(tmp.toPath(), file.toPath(),
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), file.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+      tmp = null;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Cannot cache the configuration of {} in {}", resource,
+          file, e);
+    } finally {
+      if (tmp != null && !tmp.delete()) {
+        LOG.debug("Cannot delete {}", tmp);
+      }
+    }
+  }
+
+  /**
+   * Read a resource entirely.
+   *
+   * @param in the stream of the resource, which is closed.
+   * @return the content of the resource.
+   * @throws IOException if the resource cannot be read.
+   */
+  static byte[] readFully(InputStream in) throws IOException {
+    try (InputStream is = in) {
+      byte[] buf = new byte[8192];
+      int n = 0;
+      for (int read; (read = is.read(buf, n, buf.length - n)) != -1;) {
+        n += read;
+        if (n == buf.length) {
+          byte[] larger = new byte[buf.length * 2];
+          System.arraycopy(buf, 0, larger, 0, n);
+          buf = larger;
+        }
+      }
+      byte[] content = new byte[n];
+      System.arraycopy(buf, 0, content, 0, n);
+      return content;
+    }
+  }
+}
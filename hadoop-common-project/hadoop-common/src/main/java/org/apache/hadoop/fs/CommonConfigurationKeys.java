@@ -184,6 +184,16 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final boolean IO_COMPRESSION_CODEC_LZ4_USELZ4HC_DEFAULT =
       false;
 
+  /**
+   * Maximum number of idle compressors, and of idle decompressors, which
+   * {@link org.apache.hadoop.io.compress.CodecPool} keeps for each class.
+   */
+  public static final String IO_COMPRESSION_CODEC_POOL_MAX_IDLE_KEY =
+      "io.compression.codec.pool.max.idle";
+
+  /** Default value for IO_COMPRESSION_CODEC_POOL_MAX_IDLE_KEY. */
+  public static final int IO_COMPRESSION_CODEC_POOL_MAX_IDLE_DEFAULT = 256;
+
 
 
   /**
@@ -280,6 +280,24 @@ public class CommonConfigurationKeysPublic {
     "io.seqfile.compress.blocksize";
   /** Default value for IO_SEQFILE_COMPRESS_BLOCKSIZE_KEY */
   public static final int     IO_SEQFILE_COMPRESS_BLOCKSIZE_DEFAULT = 1000000;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String  IO_SEQFILE_COMPRESS_THREADS_KEY =
+    "io.seqfile.compress.threads";
+  /** Default value for IO_SEQFILE_COMPRESS_THREADS_KEY */
+  public static final int     IO_SEQFILE_COMPRESS_THREADS_DEFAULT = 0;
+  /**
+   * @see
+   * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
+   * core-default.xml</a>
+   */
+  public static final String  IO_SEQFILE_DECOMPRESS_READAHEAD_KEY =
+    "io.seqfile.decompress.readahead";
+  /** Default value for IO_SEQFILE_DECOMPRESS_READAHEAD_KEY */
+  public static final boolean IO_SEQFILE_DECOMPRESS_READAHEAD_DEFAULT = false;
   /**
    * @see
    * <a href="{@docRoot}/../hadoop-project-dist/hadoop-common/core-default.xml">
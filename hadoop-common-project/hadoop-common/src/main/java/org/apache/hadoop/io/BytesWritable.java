@@ -220,7 +220,8 @@ public String toString() {
   }
 
   /** A Comparator optimized for BytesWritable. */ 
-  public static class Comparator extends WritableComparator {
+  public static class Comparator extends WritableComparator
+      implements NormalizedKeyComparator {
     public Comparator() {
       super(BytesWritable.class);
     }
@@ -234,6 +235,16 @@ public int compare(byte[] b1, int s1, int l1,
       return compareBytes(b1, s1 + LENGTH_BYTES, l1 - LENGTH_BYTES,
                           b2, s2 + LENGTH_BYTES, l2 - LENGTH_BYTES);
     }
+
+    @Override
+    public boolean hasNormalizedKey() {
+      return getClass() == Comparator.class;
+    }
+
+    @Override
+    public long getNormalizedKey(byte[] b, int s, int l) {
+      return normalizeBytes(b, s + LENGTH_BYTES, l - LENGTH_BYTES);
+    }
   }
 
   static {                                        // register this comparator
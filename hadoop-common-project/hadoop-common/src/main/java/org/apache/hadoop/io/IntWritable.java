@@ -86,7 +86,8 @@ public String toString() {
   }
 
   /** A Comparator optimized for IntWritable. */ 
-  public static class Comparator extends WritableComparator {
+  public static class Comparator extends WritableComparator
+      implements NormalizedKeyComparator {
     public Comparator() {
       super(IntWritable.class);
     }
@@ -98,6 +99,16 @@ public int compare(byte[] b1, int s1, int l1,
       int thatValue = readInt(b2, s2);
       return (thisValue<thatValue ? -1 : (thisValue==thatValue ? 0 : 1));
     }
+
+    @Override
+    public boolean hasNormalizedKey() {
+      return getClass() == Comparator.class;
+    }
+
+    @Override
+    public long getNormalizedKey(byte[] b, int s, int l) {
+      return normalizeInt(readInt(b, s));
+    }
   }
 
   static {                                        // register this comparator
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * <p>
+ * A {@link RawComparator} that can also summarize a key in binary as a
+ * fixed-width prefix, its normalized key.
+ * </p>
+ * <p>
+ * Normalized keys, compared as unsigned longs, never order two keys
+ * differently from {@link #compare(byte[], int, int, byte[], int, int)}:
+ * when the key in b1 compares less than the key in b2, the normalized key of
+ * b1 is less than or equal to the one of b2. Sorters can thus keep the
+ * normalized key of each record, compare those first and compare the keys
+ * themselves only when the normalized keys are equal.
+ * </p>
+ * <p>
+ * See {@link WritableComparator#normalizeLong(long)} and its siblings for
+ * the normalized keys of common fields. A composite key may combine the
+ * normalized keys of its leading fields, as long as the combination orders
+ * the same way, for example
+ * <code>normalizeInt(first) | (normalizeInt(second) &gt;&gt;&gt; 32)</code>
+ * for a key of two ints.
+ * </p>
+ * @param <T> generic type.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface NormalizedKeyComparator<T> extends RawComparator<T> {
+
+  /**
+   * Whether {@link #getNormalizedKey(byte[], int, int)} may be used with this
+   * comparator. Comparators that inherit the normalized keys of a comparator
+   * they reorder should return false.
+   *
+   * @return true if the normalized keys agree with this comparator.
+   */
+  boolean hasNormalizedKey();
+
+  /**
+   * Get the normalized key of an object in binary.
+   * b[s:l] is the object, as passed to
+   * {@link #compare(byte[], int, int, byte[], int, int)}.
+   *
+   * @param b The byte array.
+   * @param s The position index in b. The object's starting index.
+   * @param l The length of the object in b.
+   * @return the normalized key, to be compared as an unsigned long.
+   */
+  long getNormalizedKey(byte[] b, int s, int l);
+
+}
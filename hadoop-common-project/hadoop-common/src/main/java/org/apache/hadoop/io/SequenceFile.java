@@ -23,6 +23,10 @@
 import java.util.*;
 import java.rmi.server.UID;
 import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.util.Options;
@@ -36,6 +40,7 @@
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.io.serializer.Deserializer;
 import org.apache.hadoop.io.serializer.Serializer;
 import org.apache.hadoop.io.serializer.SerializationFactory;
@@ -48,6 +53,8 @@
 import org.apache.hadoop.util.MergeSort;
 import org.apache.hadoop.util.PriorityQueue;
 import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,6 +62,10 @@
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SEQFILE_COMPRESS_BLOCKSIZE_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SEQFILE_COMPRESS_BLOCKSIZE_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SEQFILE_COMPRESS_THREADS_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SEQFILE_COMPRESS_THREADS_KEY;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SEQFILE_DECOMPRESS_READAHEAD_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SEQFILE_DECOMPRESS_READAHEAD_KEY;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SKIP_CHECKSUM_ERRORS_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_SKIP_CHECKSUM_ERRORS_KEY;
 import static org.apache.hadoop.fs.Options.OpenFileOptions.FS_OPTION_OPENFILE_BUFFER_SIZE;
@@ -107,7 +118,9 @@
  * <ul>
  *   <li>
  *   version - 3 bytes of magic header <b>SEQ</b>, followed by 1 byte of actual 
- *             version number (e.g. SEQ4 or SEQ6)
+ *             version number (e.g. SEQ4 or SEQ6). Files whose blocks are
+ *             compressed with a dictionary are SEQ7, so that older readers
+ *             reject them.
  *   </li>
  *   <li>
  *   keyClassName -key class
@@ -129,7 +142,9 @@
  *                       enabled).
  *   </li>
  *   <li>
- *   metadata - {@link Metadata} for this file.
+ *   metadata - {@link Metadata} for this file. A SEQ7 file keeps the
+ *              zStandard dictionary its blocks are compressed with, base64
+ *              encoded, under {@link #COMPRESSION_DICTIONARY_KEY}.
  *   </li>
  *   <li>
  *   sync - A sync marker to denote end of the header.
@@ -214,6 +229,7 @@ private SequenceFile() {}                         // no public ctor
   private static final byte BLOCK_COMPRESS_VERSION = (byte)4;
   private static final byte CUSTOM_COMPRESS_VERSION = (byte)5;
   private static final byte VERSION_WITH_METADATA = (byte)6;
+  private static final byte VERSION_WITH_DICTIONARY = (byte)7;
   private static byte[] VERSION = new byte[] {
     (byte)'S', (byte)'E', (byte)'Q', VERSION_WITH_METADATA
   };
@@ -228,6 +244,29 @@ private SequenceFile() {}                         // no public ctor
    */
   public static final int SYNC_INTERVAL = 5 * 1024 * SYNC_SIZE; // 5KB*(16+4)
 
+  /**
+   * The {@link Metadata} key of the compression dictionary of a file. It is
+   * only used by files of version 7, the one files with a dictionary are
+   * written with.
+   * @see Writer#compressionDictionary(byte[])
+   */
+  public static final String COMPRESSION_DICTIONARY_KEY =
+      "SequenceFile.compression.dictionary";
+
+  /**
+   * @return the compression dictionary stored in the metadata, or null if
+   * the file has none or its blocks are not compressed with zStandard.
+   */
+  private static byte[] getCompressionDictionary(Metadata metadata,
+      CompressionCodec codec, boolean blockCompressed) {
+    Text dictionary = metadata.get(new Text(COMPRESSION_DICTIONARY_KEY));
+    if (dictionary == null || !blockCompressed
+        || !(codec instanceof ZStandardCodec)) {
+      return null;
+    }
+    return Base64.getDecoder().decode(dictionary.toString());
+  }
+
   /** 
    * The compression type used to compress key/value pairs in the 
    * {@link SequenceFile}.
@@ -857,6 +896,8 @@ public static class Writer implements java.io.Closeable, Syncable,
     DataOutputStream deflateOut = null;
     Metadata metadata = null;
     Compressor compressor = null;
+    private boolean withDictionary = false;
+    private byte[] compressionDictionary;
 
     private boolean appendMode = false;
 
@@ -1062,6 +1103,32 @@ public static Option syncInterval(int value) {
       return new SyncIntervalOption(value);
     }
 
+    /**
+     * Compress the blocks with a zStandard dictionary, for example one trained
+     * by {@link ZStandardCodec#trainDictionary(List, int)}. Small blocks of
+     * similar records compress much better with a dictionary. The dictionary
+     * is stored in the metadata of the file, so readers find it there, and
+     * the file is written as version 7, which older readers do not read. It
+     * needs BLOCK compression with the {@link ZStandardCodec} and a libzstd
+     * with {@link ZStandardCodec#isDictionarySupported() dictionary support},
+     * and is ignored when appending, which keeps the dictionary of the file.
+     * @param value the dictionary.
+     * @return the option.
+     */
+    public static Option compressionDictionary(byte[] value) {
+      return new CompressionDictionaryOption(value);
+    }
+
+    private static class CompressionDictionaryOption implements Option {
+      private final byte[] value;
+      CompressionDictionaryOption(byte[] value) {
+        this.value = value;
+      }
+      byte[] getValue() {
+        return value;
+      }
+    }
+
     /**
      * Construct a uncompressed writer from a set of options.
      * @param conf the configuration to use
@@ -1093,7 +1160,19 @@ public static Option syncInterval(int value) {
         Options.getOption(CompressionOption.class, opts);
       SyncIntervalOption syncIntervalOption =
           Options.getOption(SyncIntervalOption.class, opts);
+      CompressionDictionaryOption dictionaryOption =
+          Options.getOption(CompressionDictionaryOption.class, opts);
       // check consistency of options
+      if (dictionaryOption != null
+          && (compressionTypeOption.getValue() != CompressionType.BLOCK
+              || !(compressionTypeOption.getCodec()
+                  instanceof ZStandardCodec))) {
+        throw new IllegalArgumentException("A compression dictionary needs "
+            + "BLOCK compression with the ZStandardCodec");
+      }
+      if (dictionaryOption != null) {
+        ZStandardCodec.checkDictionarySupported();
+      }
       if ((fileOption == null) == (streamOption == null)) {
         throw new IllegalArgumentException("file or stream must be specified");
       }
@@ -1139,7 +1218,8 @@ public static Option syncInterval(int value) {
                   "Key/value class provided does not match the file");
             }
 
-            if (reader.getVersion() != VERSION[3]) {
+            if (reader.getVersion() != VERSION[3]
+                && reader.getVersion() != VERSION_WITH_DICTIONARY) {
               throw new VersionMismatchException(VERSION[3],
                   reader.getVersion());
             }
@@ -1147,6 +1227,12 @@ public static Option syncInterval(int value) {
             if (metadataOption != null) {
               LOG.info("MetaData Option is ignored during append");
             }
+            if (dictionaryOption != null) {
+              LOG.info("Compression dictionary Option is ignored during "
+                  + "append");
+              dictionaryOption = null;
+            }
+            withDictionary = reader.getVersion() == VERSION_WITH_DICTIONARY;
             metadataOption = (MetadataOption) SequenceFile.Writer
                 .metadata(reader.getMetadata());
 
@@ -1184,6 +1270,12 @@ public static Option syncInterval(int value) {
           Object.class : valueClassOption.getValue();
       Metadata metadata = metadataOption == null ?
           new Metadata() : metadataOption.getValue();
+      if (dictionaryOption != null) {
+        withDictionary = true;
+        metadata = new Metadata(metadata.getMetadata());
+        metadata.set(new Text(COMPRESSION_DICTIONARY_KEY), new Text(
+            Base64.getEncoder().encodeToString(dictionaryOption.getValue())));
+      }
       this.compress = compressionTypeOption.getValue();
       final CompressionCodec codec = compressionTypeOption.getCodec();
       this.syncInterval = (syncIntervalOption == null) ?
@@ -1273,7 +1365,9 @@ public Writer(FileSystem fs, Configuration conf, Path name,
     /** Write and flush the file header. */
     private void writeFileHeader() 
       throws IOException {
-      out.write(VERSION);
+      out.write(VERSION, 0, VERSION.length - 1);
+      out.write(compressionDictionary == null ?
+          VERSION[3] : VERSION_WITH_DICTIONARY);
       Text.writeString(out, keyClass.getName());
       Text.writeString(out, valClass.getName());
       
@@ -1302,6 +1396,9 @@ void init(Configuration config, FSDataOutputStream outStream,
       this.valClass = val;
       this.codec = compCodec;
       this.metadata = meta;
+      this.compressionDictionary = withDictionary ?
+          getCompressionDictionary(meta, compCodec, isBlockCompressed()) :
+          null;
       this.syncInterval = syncIntervalVal;
       SerializationFactory serializationFactory =
           new SerializationFactory(config);
@@ -1329,7 +1426,7 @@ void init(Configuration config, FSDataOutputStream outStream,
       this.uncompressedValSerializer.open(buffer);
       if (this.codec != null) {
         ReflectionUtils.setConf(this.codec, this.conf);
-        this.compressor = CodecPool.getCompressor(this.codec);
+        this.compressor = newCompressor();
         this.deflateFilter = this.codec.createOutputStream(buffer, compressor);
         this.deflateOut = 
           new DataOutputStream(new BufferedOutputStream(deflateFilter));
@@ -1353,6 +1450,26 @@ void init(Configuration config, FSDataOutputStream outStream,
       }
     }
     
+    /**
+     * @return a compressor of the codec. It compresses with the dictionary of
+     * the file, if it has one, and then does not come from the
+     * {@link CodecPool}.
+     */
+    Compressor newCompressor() {
+      if (compressionDictionary != null) {
+        return ((ZStandardCodec) codec).createCompressor(compressionDictionary);
+      }
+      return CodecPool.getCompressor(codec);
+    }
+
+    void releaseCompressor(Compressor c) {
+      if (compressionDictionary == null) {
+        CodecPool.returnCompressor(c);
+      } else if (c != null) {
+        c.end();
+      }
+    }
+
     /** @return Returns the class of keys in this file. */
     public Class getKeyClass() { return keyClass; }
 
@@ -1427,7 +1544,7 @@ public synchronized void close() throws IOException {
         compressedValSerializer.close();
       }
 
-      CodecPool.returnCompressor(compressor);
+      releaseCompressor(compressor);
       compressor = null;
       
       if (out != null) {
@@ -1605,7 +1722,53 @@ static class BlockCompressWriter extends Writer {
     private DataOutputBuffer valBuffer = new DataOutputBuffer();
 
     private final int compressionBlockSize;
-    
+
+    /**
+     * The threads compressing the blocks in the background, or null if the
+     * blocks are compressed in {@link #sync()}.
+     */
+    private ExecutorService compressionThreads;
+    /** The blocks being compressed, in the order they are written. */
+    private final Deque<Future<CompressedBlock>> pendingBlocks =
+        new ArrayDeque<>();
+    private int maxPendingBlocks;
+    /** The idle compressors of the compression threads. */
+    private final Queue<BlockDeflater> idleDeflaters =
+        new ConcurrentLinkedQueue<>();
+
+    /** The compressed buffers of a block. */
+    private static final class CompressedBlock {
+      private final int noRecords;
+      private final byte[][] buffers;
+
+      private CompressedBlock(int noRecords, byte[][] buffers) {
+        this.noRecords = noRecords;
+        this.buffers = buffers;
+      }
+    }
+
+    /** A compressor of the compression threads. */
+    private final class BlockDeflater {
+      private final Compressor compressor = newCompressor();
+      private final DataOutputBuffer compressed = new DataOutputBuffer();
+      private final CompressionOutputStream filter;
+      private final DataOutputStream filterOut;
+
+      private BlockDeflater() throws IOException {
+        filter = codec.createOutputStream(compressed, compressor);
+        filterOut = new DataOutputStream(new BufferedOutputStream(filter));
+      }
+
+      private byte[] compress(byte[] data) throws IOException {
+        filter.resetState();
+        compressed.reset();
+        filterOut.write(data);
+        filterOut.flush();
+        filter.finish();
+        return Arrays.copyOf(compressed.getData(), compressed.getLength());
+      }
+    }
+
     BlockCompressWriter(Configuration conf,
                         Option... options) throws IOException {
       super(conf, options);
@@ -1613,6 +1776,15 @@ static class BlockCompressWriter extends Writer {
         conf.getInt(IO_SEQFILE_COMPRESS_BLOCKSIZE_KEY,
             IO_SEQFILE_COMPRESS_BLOCKSIZE_DEFAULT
         );
+      int threads = conf.getInt(IO_SEQFILE_COMPRESS_THREADS_KEY,
+          IO_SEQFILE_COMPRESS_THREADS_DEFAULT);
+      if (threads > 0) {
+        compressionThreads = HadoopExecutors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("SequenceFile compressor #%d").build());
+        // Buffer as many blocks as are compressed at a time
+        maxPendingBlocks = 2 * threads;
+      }
       keySerializer.close();
       keySerializer.open(keyBuffer);
       uncompressedValSerializer.close();
@@ -1633,26 +1805,88 @@ void writeBuffer(DataOutputBuffer uncompressedDataBuffer)
       WritableUtils.writeVInt(out, buffer.getLength());
       out.write(buffer.getData(), 0, buffer.getLength());
     }
-    
+
+    /** Compress the buffers of a block in a compression thread. */
+    private CompressedBlock compressBlock(int noRecords, byte[][] buffers)
+        throws IOException {
+      BlockDeflater deflater = idleDeflaters.poll();
+      if (deflater == null) {
+        deflater = new BlockDeflater();
+      }
+      try {
+        byte[][] compressed = new byte[buffers.length][];
+        for (int i = 0; i < buffers.length; i++) {
+          compressed[i] = deflater.compress(buffers[i]);
+        }
+        return new CompressedBlock(noRecords, compressed);
+      } finally {
+        idleDeflaters.add(deflater);
+      }
+    }
+
+    /**
+     * Write the blocks which have been compressed, in order. If
+     * <code>all</code>, or if too many blocks are buffered, wait for the
+     * blocks which are still compressed.
+     */
+    private synchronized void writeCompressedBlocks(boolean all)
+        throws IOException {
+      while (!pendingBlocks.isEmpty()
+          && (all || pendingBlocks.size() > maxPendingBlocks
+              || pendingBlocks.peekFirst().isDone())) {
+        CompressedBlock block;
+        try {
+          block = pendingBlocks.pollFirst().get();
+        } catch (InterruptedException e) {
+          throw (IOException) new InterruptedIOException(
+              "Interrupted while compressing a block").initCause(e);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException("Failed to compress a block", e.getCause());
+        }
+        super.sync();
+        WritableUtils.writeVInt(out, block.noRecords);
+        for (byte[] compressed : block.buffers) {
+          WritableUtils.writeVInt(out, compressed.length);
+          out.write(compressed);
+        }
+        out.flush();
+      }
+    }
+
     /** Compress and flush contents to dfs */
     @Override
     public synchronized void sync() throws IOException {
       if (noBufferedRecords > 0) {
-        super.sync();
-        
-        // No. of records
-        WritableUtils.writeVInt(out, noBufferedRecords);
-        
-        // Write 'keys' and lengths
-        writeBuffer(keyLenBuffer);
-        writeBuffer(keyBuffer);
-        
-        // Write 'values' and lengths
-        writeBuffer(valLenBuffer);
-        writeBuffer(valBuffer);
-        
-        // Flush the file-stream
-        out.flush();
+        if (compressionThreads != null) {
+          final int noRecords = noBufferedRecords;
+          final byte[][] buffers = {
+              Arrays.copyOf(keyLenBuffer.getData(), keyLenBuffer.getLength()),
+              Arrays.copyOf(keyBuffer.getData(), keyBuffer.getLength()),
+              Arrays.copyOf(valLenBuffer.getData(), valLenBuffer.getLength()),
+              Arrays.copyOf(valBuffer.getData(), valBuffer.getLength())};
+          pendingBlocks.add(compressionThreads.submit(
+              () -> compressBlock(noRecords, buffers)));
+          writeCompressedBlocks(false);
+        } else {
+          super.sync();
+
+          // No. of records
+          WritableUtils.writeVInt(out, noBufferedRecords);
+
+          // Write 'keys' and lengths
+          writeBuffer(keyLenBuffer);
+          writeBuffer(keyBuffer);
+
+          // Write 'values' and lengths
+          writeBuffer(valLenBuffer);
+          writeBuffer(valBuffer);
+
+          // Flush the file-stream
+          out.flush();
+        }
         
         // Reset internal states
         keyLenBuffer.reset();
@@ -1663,12 +1897,56 @@ public synchronized void sync() throws IOException {
       }
       
     }
+
+    @Override
+    public synchronized long getLength() throws IOException {
+      writeCompressedBlocks(true);
+      return super.getLength();
+    }
+
+    @Override
+    @Deprecated
+    public synchronized void syncFs() throws IOException {
+      writeCompressedBlocks(true);
+      super.syncFs();
+    }
+
+    @Override
+    public synchronized void hsync() throws IOException {
+      writeCompressedBlocks(true);
+      super.hsync();
+    }
+
+    @Override
+    public synchronized void hflush() throws IOException {
+      writeCompressedBlocks(true);
+      super.hflush();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+      writeCompressedBlocks(true);
+      super.flush();
+    }
     
     /** Close the file. */
     @Override
     public synchronized void close() throws IOException {
-      if (out != null) {
-        sync();
+      try {
+        if (out != null) {
+          sync();
+          writeCompressedBlocks(true);
+        }
+      } finally {
+        if (compressionThreads != null) {
+          compressionThreads.shutdownNow();
+          compressionThreads = null;
+          pendingBlocks.clear();
+          for (BlockDeflater deflater : idleDeflaters) {
+            releaseCompressor(deflater.compressor);
+          }
+          idleDeflaters.clear();
+        }
       }
       super.close();
     }
@@ -1766,6 +2044,7 @@ public static class Reader implements java.io.Closeable {
 
     private boolean decompress;
     private boolean blockCompressed;
+    private byte[] compressionDictionary;
     
     private Configuration conf;
 
@@ -1797,6 +2076,38 @@ public static class Reader implements java.io.Closeable {
     private Deserializer keyDeserializer;
     private Deserializer valDeserializer;
 
+    /**
+     * Reads and decompresses the next block in the background, or null if
+     * the blocks are read when their first record is read.
+     */
+    private ExecutorService readAheadThread;
+    /** The next block, while it is read ahead. */
+    private Future<DecompressedBlock> nextBlock;
+    /** The position of the next block, while it is read ahead. */
+    private long nextBlockPos;
+    private Decompressor readAheadDecompressor;
+    private DataInputBuffer readAheadBuffer;
+    private CompressionInputStream readAheadInFilter;
+    private final byte[] readAheadSyncCheck = new byte[SYNC_HASH_SIZE];
+    /**
+     * Two sets of buffers for the decompressed key lengths, keys, value
+     * lengths and values; one for the current block, one for the next.
+     */
+    private DataOutputBuffer[][] decompressedBuffers;
+    private int nextDecompressedBuffers;
+    private DataInputBuffer[] decompressedIn;
+
+    /** The decompressed buffers of a block. */
+    private static final class DecompressedBlock {
+      private final int noRecords;
+      private final DataOutputBuffer[] buffers;
+
+      private DecompressedBlock(int noRecords, DataOutputBuffer[] buffers) {
+        this.noRecords = noRecords;
+        this.buffers = buffers;
+      }
+    }
+
     /**
      * A tag interface for all of the Reader options
      */
@@ -2038,8 +2349,8 @@ private void init(boolean tempReader) throws IOException {
 
       // Set 'version'
       version = versionBlock[3];
-      if (version > VERSION[3]) {
-        throw new VersionMismatchException(VERSION[3], version);
+      if (version > VERSION_WITH_DICTIONARY) {
+        throw new VersionMismatchException(VERSION_WITH_DICTIONARY, version);
       }
 
       if (version < BLOCK_COMPRESS_VERSION) {
@@ -2090,6 +2401,10 @@ private void init(boolean tempReader) throws IOException {
       if (version >= VERSION_WITH_METADATA) {    // if version >= 6
         this.metadata.readFields(in);
       }
+      if (version >= VERSION_WITH_DICTIONARY) {  // if version >= 7
+        this.compressionDictionary = getCompressionDictionary(metadata,
+            codec, blockCompressed);
+      }
       
       if (version > 1) {                          // if version > 1
         in.readFully(sync);                       // read sync bytes
@@ -2100,7 +2415,7 @@ private void init(boolean tempReader) throws IOException {
       if (!tempReader) {
         valBuffer = new DataInputBuffer();
         if (decompress) {
-          valDecompressor = CodecPool.getDecompressor(codec);
+          valDecompressor = newDecompressor();
           valInFilter = codec.createInputStream(valBuffer, valDecompressor);
           valIn = new DataInputStream(valInFilter);
         } else {
@@ -2112,19 +2427,24 @@ private void init(boolean tempReader) throws IOException {
           keyBuffer = new DataInputBuffer();
           valLenBuffer = new DataInputBuffer();
 
-          keyLenDecompressor = CodecPool.getDecompressor(codec);
+          keyLenDecompressor = newDecompressor();
           keyLenInFilter = codec.createInputStream(keyLenBuffer, 
                                                    keyLenDecompressor);
           keyLenIn = new DataInputStream(keyLenInFilter);
 
-          keyDecompressor = CodecPool.getDecompressor(codec);
+          keyDecompressor = newDecompressor();
           keyInFilter = codec.createInputStream(keyBuffer, keyDecompressor);
           keyIn = new DataInputStream(keyInFilter);
 
-          valLenDecompressor = CodecPool.getDecompressor(codec);
+          valLenDecompressor = newDecompressor();
           valLenInFilter = codec.createInputStream(valLenBuffer, 
                                                    valLenDecompressor);
           valLenIn = new DataInputStream(valLenInFilter);
+
+          if (conf.getBoolean(IO_SEQFILE_DECOMPRESS_READAHEAD_KEY,
+              IO_SEQFILE_DECOMPRESS_READAHEAD_DEFAULT)) {
+            initReadAhead();
+          }
         }
         
         SerializationFactory serializationFactory =
@@ -2160,6 +2480,52 @@ private void init(boolean tempReader) throws IOException {
       }
     }
     
+    /**
+     * Set up reading the next block ahead. The records are then read from
+     * decompressed buffers instead of the decompression streams.
+     */
+    private void initReadAhead() throws IOException {
+      readAheadDecompressor = newDecompressor();
+      readAheadBuffer = new DataInputBuffer();
+      readAheadInFilter = codec.createInputStream(readAheadBuffer,
+          readAheadDecompressor);
+      decompressedBuffers = new DataOutputBuffer[2][4];
+      decompressedIn = new DataInputBuffer[4];
+      for (int i = 0; i < 4; i++) {
+        decompressedBuffers[0][i] = new DataOutputBuffer();
+        decompressedBuffers[1][i] = new DataOutputBuffer();
+        decompressedIn[i] = new DataInputBuffer();
+      }
+      keyLenIn = decompressedIn[0];
+      keyIn = decompressedIn[1];
+      valLenIn = decompressedIn[2];
+      valIn = decompressedIn[3];
+      readAheadThread = HadoopExecutors.newSingleThreadExecutor(
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("SequenceFile read-ahead").build());
+    }
+
+    /**
+     * @return a decompressor of the codec. It decompresses with the
+     * dictionary of the file, if it has one, and then does not come from the
+     * {@link CodecPool}.
+     */
+    private Decompressor newDecompressor() {
+      if (compressionDictionary != null) {
+        return ((ZStandardCodec) codec).createDecompressor(
+            compressionDictionary);
+      }
+      return CodecPool.getDecompressor(codec);
+    }
+
+    private void releaseDecompressor(Decompressor d) {
+      if (compressionDictionary == null) {
+        CodecPool.returnDecompressor(d);
+      } else if (d != null) {
+        d.end();
+      }
+    }
+
     @SuppressWarnings("unchecked")
     private Deserializer getDeserializer(SerializationFactory sf, Class c) {
       return sf.getDeserializer(c);
@@ -2168,11 +2534,17 @@ private Deserializer getDeserializer(SerializationFactory sf, Class c) {
     /** Close the file. */
     @Override
     public synchronized void close() throws IOException {
+      if (readAheadThread != null) {
+        cancelReadAhead();
+        readAheadThread.shutdown();
+        releaseDecompressor(readAheadDecompressor);
+        readAheadDecompressor = null;
+      }
       // Return the decompressors to the pool
-      CodecPool.returnDecompressor(keyLenDecompressor);
-      CodecPool.returnDecompressor(keyDecompressor);
-      CodecPool.returnDecompressor(valLenDecompressor);
-      CodecPool.returnDecompressor(valDecompressor);
+      releaseDecompressor(keyLenDecompressor);
+      releaseDecompressor(keyDecompressor);
+      releaseDecompressor(valLenDecompressor);
+      releaseDecompressor(valDecompressor);
       keyLenDecompressor = keyDecompressor = null;
       valLenDecompressor = valDecompressor = null;
       
@@ -2290,8 +2662,106 @@ private synchronized void readBuffer(DataInputBuffer buffer,
       filter.resetState();
     }
     
+    /**
+     * Read and decompress a block. This is called by the read-ahead thread,
+     * while the reader does not use the input stream.
+     */
+    private DecompressedBlock readAndDecompressBlock(
+        DataOutputBuffer[] buffers) throws IOException {
+      //Process sync
+      if (sync != null) {
+        in.readInt();
+        in.readFully(readAheadSyncCheck);
+        if (!Arrays.equals(sync, readAheadSyncCheck))
+          throw new IOException("File is corrupt!");
+      }
+
+      int noRecords = WritableUtils.readVInt(in);
+      DataOutputBuffer compressed = new DataOutputBuffer();
+      byte[] chunk = new byte[4096];
+      for (DataOutputBuffer buffer : buffers) {
+        compressed.reset();
+        compressed.write(in, WritableUtils.readVInt(in));
+        readAheadBuffer.reset(compressed.getData(), 0, compressed.getLength());
+        readAheadInFilter.resetState();
+        buffer.reset();
+        int n;
+        while ((n = readAheadInFilter.read(chunk, 0, chunk.length)) > 0) {
+          buffer.write(chunk, 0, n);
+        }
+      }
+      return new DecompressedBlock(noRecords, buffers);
+    }
+
+    /** Read the next block, and start reading the block after it. */
+    private synchronized void readAheadBlock() throws IOException {
+      noBufferedKeys = 0; noBufferedValues = 0; noBufferedRecords = 0;
+
+      DecompressedBlock block;
+      if (nextBlock != null) {
+        Future<DecompressedBlock> future = nextBlock;
+        nextBlock = null;
+        try {
+          block = future.get();
+        } catch (InterruptedException e) {
+          throw (IOException) new InterruptedIOException(
+              "Interrupted while reading ahead").initCause(e);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException("Failed to read ahead", e.getCause());
+        }
+      } else {
+        block = readAndDecompressBlock(
+            decompressedBuffers[nextDecompressedBuffers]);
+        nextDecompressedBuffers ^= 1;
+      }
+      syncSeen = true;
+
+      for (int i = 0; i < decompressedIn.length; i++) {
+        decompressedIn[i].reset(block.buffers[i].getData(),
+            block.buffers[i].getLength());
+      }
+      noBufferedRecords = block.noRecords;
+      noBufferedKeys = noBufferedRecords;
+      noBufferedValues = noBufferedRecords;
+      valuesDecompressed = true;
+
+      if (in.getPos() < end) {
+        final DataOutputBuffer[] buffers =
+            decompressedBuffers[nextDecompressedBuffers];
+        nextDecompressedBuffers ^= 1;
+        nextBlockPos = in.getPos();
+        nextBlock = readAheadThread.submit(
+            () -> readAndDecompressBlock(buffers));
+      }
+    }
+
+    /**
+     * Wait until the block read ahead, if any, is read, and drop it, so that
+     * the input stream can be used.
+     */
+    private synchronized void cancelReadAhead() {
+      if (nextBlock != null) {
+        try {
+          nextBlock.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+          LOG.debug("Dropped a failed read ahead", e);
+        }
+        nextBlock = null;
+      }
+    }
+
     /** Read the next 'compressed' block */
     private synchronized void readBlock() throws IOException {
+      if (readAheadThread != null) {
+        readAheadBlock();
+        return;
+      }
+
       // Check if we need to throw away a whole block of 
       // 'values' due to 'lazy decompression' 
       if (lazyDecompress && !valuesDecompressed) {
@@ -2625,7 +3095,7 @@ public synchronized int nextRaw(DataOutputBuffer key, ValueBytes val)
         
         // Read 'key'
         if (noBufferedKeys == 0) {
-          if (in.getPos() >= end) 
+          if (getPosition() >= end) 
             return -1;
 
           try { 
@@ -2675,7 +3145,7 @@ public synchronized int nextRawKey(DataOutputBuffer key)
         
         // Read 'key'
         if (noBufferedKeys == 0) {
-          if (in.getPos() >= end) 
+          if (getPosition() >= end) 
             return -1;
 
           try { 
@@ -2816,6 +3286,7 @@ synchronized void ignoreSync() {
      * @throws IOException raised on errors performing I/O.
      */
     public synchronized void seek(long position) throws IOException {
+      cancelReadAhead();
       in.seek(position);
       if (blockCompressed) {                      // trigger block read
         noBufferedKeys = 0;
@@ -2829,6 +3300,7 @@ public synchronized void seek(long position) throws IOException {
      * @throws IOException raised on errors performing I/O.
      */
     public synchronized void sync(long position) throws IOException {
+      cancelReadAhead();
       if (position+SYNC_SIZE >= end) {
         seek(end);
         return;
@@ -2871,7 +3343,8 @@ public synchronized void sync(long position) throws IOException {
      * @throws IOException raised on errors performing I/O.
      */
     public synchronized long getPosition() throws IOException {
-      return in.getPos();
+      // While the next block is read ahead, the position is its start
+      return nextBlock != null ? nextBlockPos : in.getPos();
     }
 
     /** Returns the name of the file. */
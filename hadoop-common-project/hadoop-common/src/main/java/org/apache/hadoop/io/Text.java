@@ -425,7 +425,8 @@ public int hashCode() {
   }
 
   /** A WritableComparator optimized for Text keys. */
-  public static class Comparator extends WritableComparator {
+  public static class Comparator extends WritableComparator
+      implements NormalizedKeyComparator {
     public Comparator() {
       super(Text.class);
     }
@@ -437,6 +438,17 @@ public int compare(byte[] b1, int s1, int l1,
       int n2 = WritableUtils.decodeVIntSize(b2[s2]);
       return compareBytes(b1, s1 + n1, l1 - n1, b2, s2 + n2, l2 - n2);
     }
+
+    @Override
+    public boolean hasNormalizedKey() {
+      return getClass() == Comparator.class;
+    }
+
+    @Override
+    public long getNormalizedKey(byte[] b, int s, int l) {
+      int n = WritableUtils.decodeVIntSize(b[s]);
+      return normalizeBytes(b, s + n, l - n);
+    }
   }
 
   static {
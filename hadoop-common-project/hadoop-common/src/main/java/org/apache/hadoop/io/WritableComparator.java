@@ -232,6 +232,46 @@ public static int compareBytes(byte[] b1, int s1, int l1,
     return FastByteComparisons.compareTo(b1, s1, l1, b2, s2, l2);
   }
 
+  /**
+   * Normalized key of binary data in lexicographic order: its first eight
+   * bytes, padded with zeros.
+   * @param bytes bytes.
+   * @param start start.
+   * @param length length.
+   * @return normalized key of binary data.
+   * @see NormalizedKeyComparator
+   */
+  public static long normalizeBytes(byte[] bytes, int start, int length) {
+    if (length >= 8) {
+      return readLong(bytes, start);
+    }
+    long key = 0;
+    for (int i = 0; i < 8; i++) {
+      key = (key << 8) | (i < length ? bytes[start + i] & 0xff : 0);
+    }
+    return key;
+  }
+
+  /**
+   * Normalized key of a long.
+   * @param value value.
+   * @return normalized key of a long.
+   * @see NormalizedKeyComparator
+   */
+  public static long normalizeLong(long value) {
+    return value ^ Long.MIN_VALUE;
+  }
+
+  /**
+   * Normalized key of an integer, in the high half of the long.
+   * @param value value.
+   * @return normalized key of an integer.
+   * @see NormalizedKeyComparator
+   */
+  public static long normalizeInt(int value) {
+    return ((value ^ Integer.MIN_VALUE) & 0xFFFFFFFFL) << 32;
+  }
+
   /**
    * Compute hash for binary data.
    * @param bytes bytes.
@@ -59,7 +59,8 @@
  */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
-public class BZip2Codec implements Configurable, SplittableCompressionCodec {
+public class BZip2Codec implements Configurable, SplittableCompressionCodec,
+    DirectCompressionCodec, DirectDecompressionCodec {
 
   private static final String HEADER = "BZ";
   private static final int HEADER_LEN = HEADER.length();
@@ -230,6 +231,22 @@ public Decompressor createDecompressor() {
     return Bzip2Factory.getBzip2Decompressor(conf);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    return Bzip2Factory.getBzip2DirectCompressor(conf);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectDecompressor createDirectDecompressor() {
+    return Bzip2Factory.getBzip2DirectDecompressor(conf);
+  }
+
   /**
   * .bz2 is recognized as the default extension for compressed BZip2 files
   *
@@ -17,123 +17,224 @@
  */
 package org.apache.hadoop.io.compress;
 
-import java.util.HashSet;
-import java.util.HashMap;
-import java.util.Set;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsException;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.Interns;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.Time;
 
-import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
-import org.apache.hadoop.thirdparty.com.google.common.cache.CacheLoader;
-import org.apache.hadoop.thirdparty.com.google.common.cache.LoadingCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A global compressor/decompressor pool used to save and reuse 
  * (possibly native) compression/decompression codecs.
+ * <p>
+ * The pool does not take locks: the idle codecs of each class are kept in a
+ * concurrent stack, so the most recently returned, and most likely still
+ * cached, codec is reused first. At most io.compression.codec.pool.max.idle
+ * codecs of a class are kept idle; codecs returned beyond that are ended.
+ * The number of leased codecs of each class, which keeps growing when
+ * codecs are not returned, and the latency of getting and returning codecs
+ * are published in the CodecPool metrics source.
  */
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
 public class CodecPool {
   private static final Logger LOG = LoggerFactory.getLogger(CodecPool.class);
-  
+
+  /** The idle and leased codecs of one class. */
+  private static final class Pool<T> {
+    /** The idle codecs, the most recently returned first. */
+    private final ConcurrentLinkedDeque<T> idle =
+        new ConcurrentLinkedDeque<>();
+    /** The idle codecs, to detect a codec which is returned twice. */
+    private final Set<T> idleSet = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger leaseCount = new AtomicInteger();
+    private final int maxIdle;
+
+    private Pool(int maxIdle) {
+      this.maxIdle = maxIdle;
+    }
+
+    private T borrow() {
+      T codec = idle.pollFirst();
+      if (codec != null) {
+        idleSet.remove(codec);
+        idleCount.decrementAndGet();
+      }
+      return codec;
+    }
+
+    /**
+     * @return false if the codec is already idle in the pool
+     */
+    private boolean payback(T codec, Consumer<? super T> end) {
+      if (!idleSet.add(codec)) {
+        return false;
+      }
+      if (idleCount.incrementAndGet() > maxIdle) {
+        idleCount.decrementAndGet();
+        idleSet.remove(codec);
+        end.accept(codec);
+        METRICS.discarded.incr();
+      } else {
+        idle.offerFirst(codec);
+      }
+      return true;
+    }
+  }
+
   /**
    * A global compressor pool used to save the expensive 
    * construction/destruction of (possibly native) decompression codecs.
    */
-  private static final Map<Class<Compressor>, Set<Compressor>> compressorPool =
-    new HashMap<Class<Compressor>, Set<Compressor>>();
+  private static final ConcurrentMap<Class<Compressor>, Pool<Compressor>>
+      compressorPool = new ConcurrentHashMap<>();
   
   /**
    * A global decompressor pool used to save the expensive 
    * construction/destruction of (possibly native) decompression codecs.
    */
-  private static final Map<Class<Decompressor>, Set<Decompressor>> decompressorPool =
-    new HashMap<Class<Decompressor>, Set<Decompressor>>();
-
-  private static <T> LoadingCache<Class<T>, AtomicInteger> createCache(
-      Class<T> klass) {
-    return CacheBuilder.newBuilder().build(
-        new CacheLoader<Class<T>, AtomicInteger>() {
-          @Override
-          public AtomicInteger load(Class<T> key) throws Exception {
-            return new AtomicInteger();
-          }
-        });
-  }
+  private static final ConcurrentMap<Class<Decompressor>, Pool<Decompressor>>
+      decompressorPool = new ConcurrentHashMap<>();
 
   /**
-   * Map to track the number of leased compressors
+   * The number and total time of one kind of pool operation. Unlike a
+   * {@link org.apache.hadoop.metrics2.lib.MutableRate}, adding to it takes
+   * no lock, so that concurrent borrows and returns do not contend on it.
    */
-  private static final LoadingCache<Class<Compressor>, AtomicInteger> compressorCounts =
-      createCache(Compressor.class);
+  private static final class OpTime {
+    private final String name;
+    private final String description;
+    private final LongAdder ops = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
 
-   /**
-   * Map to tracks the number of leased decompressors
-   */
-  private static final LoadingCache<Class<Decompressor>, AtomicInteger> decompressorCounts =
-      createCache(Decompressor.class);
+    private OpTime(String name, String description) {
+      this.name = name;
+      this.description = description;
+    }
 
-  private static <T> T borrow(Map<Class<T>, Set<T>> pool,
-                             Class<? extends T> codecClass) {
-    T codec = null;
-    
-    // Check if an appropriate codec is available
-    Set<T> codecSet;
-    synchronized (pool) {
-      codecSet = pool.get(codecClass);
+    private void add(long elapsedNanos) {
+      ops.increment();
+      nanos.add(elapsedNanos);
     }
 
-    if (codecSet != null) {
-      synchronized (codecSet) {
-        if (!codecSet.isEmpty()) {
-          codec = codecSet.iterator().next();
-          codecSet.remove(codec);
-        }
-      }
+    private void snapshot(MetricsRecordBuilder rb) {
+      rb.addCounter(Interns.info(name + "NumOps",
+          "Number of " + description), ops.sum());
+      rb.addCounter(Interns.info(name + "TotalNanos",
+          "Total time of " + description + " in nanoseconds"), nanos.sum());
     }
-    
-    return codec;
   }
 
-  private static <T> boolean payback(Map<Class<T>, Set<T>> pool, T codec) {
-    if (codec != null) {
-      Class<T> codecClass = ReflectionUtils.getClass(codec);
-      Set<T> codecSet;
-      synchronized (pool) {
-        codecSet = pool.get(codecClass);
-        if (codecSet == null) {
-          codecSet = new HashSet<>();
-          pool.put(codecClass, codecSet);
-        }
-      }
+  /** Publishes the lease counts and the latency of the pool. */
+  private static final class PoolMetrics implements MetricsSource {
+    private final MetricsRegistry registry = new MetricsRegistry("CodecPool");
+    private final OpTime getCompressor =
+        new OpTime("GetCompressor", "compressor gets");
+    private final OpTime returnCompressor =
+        new OpTime("ReturnCompressor", "compressor returns");
+    private final OpTime getDecompressor =
+        new OpTime("GetDecompressor", "decompressor gets");
+    private final OpTime returnDecompressor =
+        new OpTime("ReturnDecompressor", "decompressor returns");
+    private final MutableCounterLong created = registry.newCounter(
+        "Created", "Number of compressors and decompressors created", 0L);
+    private final MutableCounterLong discarded = registry.newCounter(
+        "Discarded", "Number of returned compressors and decompressors " +
+        "ended because the pool was full", 0L);
 
-      synchronized (codecSet) {
-        return codecSet.add(codec);
+    @Override
+    public void getMetrics(MetricsCollector collector, boolean all) {
+      MetricsRecordBuilder rb = collector.addRecord(registry.info())
+          .setContext("codec");
+      registry.snapshot(rb, all);
+      getCompressor.snapshot(rb);
+      returnCompressor.snapshot(rb);
+      getDecompressor.snapshot(rb);
+      returnDecompressor.snapshot(rb);
+      addPoolMetrics(rb, compressorPool);
+      addPoolMetrics(rb, decompressorPool);
+    }
+
+    private static <T> void addPoolMetrics(MetricsRecordBuilder rb,
+        Map<Class<T>, Pool<T>> pools) {
+      for (Map.Entry<Class<T>, Pool<T>> e : pools.entrySet()) {
+        String name = e.getKey().getSimpleName();
+        rb.addGauge(Interns.info(name + "Leased",
+            "Number of leased " + name), e.getValue().leaseCount.get());
+        rb.addGauge(Interns.info(name + "Idle",
+            "Number of idle " + name), e.getValue().idleCount.get());
       }
     }
-    return false;
   }
-  
+
+  private static final PoolMetrics METRICS = new PoolMetrics();
+
+  static {
+    try {
+      DefaultMetricsSystem.instance().register("CodecPool",
+          "Compressor and decompressor pool", METRICS);
+    } catch (MetricsException e) {
+      LOG.debug("Failed to register the CodecPool metrics", e);
+    }
+  }
+
+  /**
+   * Get the pool of a codec class. A new pool keeps as many idle codecs as
+   * the configuration of the given codec allows.
+   */
   @SuppressWarnings("unchecked")
-  private static <T> int getLeaseCount(
-      LoadingCache<Class<T>, AtomicInteger> usageCounts,
+  private static <T> Pool<T> getPool(ConcurrentMap<Class<T>, Pool<T>> pools,
+      Class<? extends T> codecClass, CompressionCodec codec) {
+    Pool<T> pool = pools.get(codecClass);
+    if (pool == null) {
+      int maxIdle =
+          CommonConfigurationKeys.IO_COMPRESSION_CODEC_POOL_MAX_IDLE_DEFAULT;
+      if (codec instanceof Configurable
+          && ((Configurable) codec).getConf() != null) {
+        maxIdle = ((Configurable) codec).getConf().getInt(
+            CommonConfigurationKeys.IO_COMPRESSION_CODEC_POOL_MAX_IDLE_KEY,
+            maxIdle);
+      }
+      final int poolMaxIdle = maxIdle;
+      pool = pools.computeIfAbsent((Class<T>) codecClass,
+          k -> new Pool<>(poolMaxIdle));
+    }
+    return pool;
+  }
+
+  private static <T> T borrow(Map<Class<T>, Pool<T>> pools,
       Class<? extends T> codecClass) {
-    return usageCounts.getUnchecked((Class<T>) codecClass).get();
+    Pool<T> pool = pools.get(codecClass);
+    return pool == null ? null : pool.borrow();
   }
 
-  private static <T> void updateLeaseCount(
-      LoadingCache<Class<T>, AtomicInteger> usageCounts, T codec, int delta) {
-    if (codec != null) {
-      Class<T> codecClass = ReflectionUtils.getClass(codec);
-      usageCounts.getUnchecked(codecClass).addAndGet(delta);
-    }
+  private static <T> int getLeaseCount(Map<Class<T>, Pool<T>> pools,
+      Class<? extends T> codecClass) {
+    Pool<T> pool = pools.get(codecClass);
+    return pool == null ? 0 : pool.leaseCount.get();
   }
 
   /**
@@ -147,9 +248,11 @@ private static <T> void updateLeaseCount(
    *         <code>CompressionCodec</code> from the pool or a new one
    */
   public static Compressor getCompressor(CompressionCodec codec, Configuration conf) {
+    long startNanos = Time.monotonicNowNanos();
     Compressor compressor = borrow(compressorPool, codec.getCompressorType());
     if (compressor == null) {
       compressor = codec.createCompressor();
+      METRICS.created.incr();
       LOG.info("Got brand-new compressor ["+codec.getDefaultExtension()+"]");
     } else {
       compressor.reinit(conf);
@@ -159,8 +262,10 @@ public static Compressor getCompressor(CompressionCodec codec, Configuration con
     }
     if (compressor != null &&
         !compressor.getClass().isAnnotationPresent(DoNotPool.class)) {
-      updateLeaseCount(compressorCounts, compressor, 1);
+      getPool(compressorPool, ReflectionUtils.getClass(compressor), codec)
+          .leaseCount.incrementAndGet();
     }
+    METRICS.getCompressor.add(Time.monotonicNowNanos() - startNanos);
     return compressor;
   }
   
@@ -178,9 +283,11 @@ public static Compressor getCompressor(CompressionCodec codec) {
    *         <code>CompressionCodec</code> the pool or a new one
    */
   public static Decompressor getDecompressor(CompressionCodec codec) {
+    long startNanos = Time.monotonicNowNanos();
     Decompressor decompressor = borrow(decompressorPool, codec.getDecompressorType());
     if (decompressor == null) {
       decompressor = codec.createDecompressor();
+      METRICS.created.incr();
       LOG.info("Got brand-new decompressor ["+codec.getDefaultExtension()+"]");
     } else {
       if(LOG.isDebugEnabled()) {
@@ -189,8 +296,10 @@ public static Decompressor getDecompressor(CompressionCodec codec) {
     }
     if (decompressor != null &&
         !decompressor.getClass().isAnnotationPresent(DoNotPool.class)) {
-      updateLeaseCount(decompressorCounts, decompressor, 1);
+      getPool(decompressorPool, ReflectionUtils.getClass(decompressor), codec)
+          .leaseCount.incrementAndGet();
     }
+    METRICS.getDecompressor.add(Time.monotonicNowNanos() - startNanos);
     return decompressor;
   }
   
@@ -208,10 +317,14 @@ public static void returnCompressor(Compressor compressor) {
       compressor.end();
       return;
     }
+    long startNanos = Time.monotonicNowNanos();
     compressor.reset();
-    if (payback(compressorPool, compressor)) {
-      updateLeaseCount(compressorCounts, compressor, -1);
+    Pool<Compressor> pool =
+        getPool(compressorPool, ReflectionUtils.getClass(compressor), null);
+    if (pool.payback(compressor, Compressor::end)) {
+      pool.leaseCount.decrementAndGet();
     }
+    METRICS.returnCompressor.add(Time.monotonicNowNanos() - startNanos);
   }
   
   /**
@@ -229,10 +342,14 @@ public static void returnDecompressor(Decompressor decompressor) {
       decompressor.end();
       return;
     }
+    long startNanos = Time.monotonicNowNanos();
     decompressor.reset();
-    if (payback(decompressorPool, decompressor)) {
-      updateLeaseCount(decompressorCounts, decompressor, -1);
+    Pool<Decompressor> pool = getPool(decompressorPool,
+        ReflectionUtils.getClass(decompressor), null);
+    if (pool.payback(decompressor, Decompressor::end)) {
+      pool.leaseCount.decrementAndGet();
     }
+    METRICS.returnDecompressor.add(Time.monotonicNowNanos() - startNanos);
   }
 
   /**
@@ -243,7 +360,7 @@ public static void returnDecompressor(Decompressor decompressor) {
    * @return the number of leased.
    */
   public static int getLeasedCompressorsCount(CompressionCodec codec) {
-    return (codec == null) ? 0 : getLeaseCount(compressorCounts,
+    return (codec == null) ? 0 : getLeaseCount(compressorPool,
         codec.getCompressorType());
   }
 
@@ -255,7 +372,7 @@ public static int getLeasedCompressorsCount(CompressionCodec codec) {
    * @return the number of leased
    */
   public static int getLeasedDecompressorsCount(CompressionCodec codec) {
-    return (codec == null) ? 0 : getLeaseCount(decompressorCounts,
+    return (codec == null) ? 0 : getLeaseCount(decompressorPool,
         codec.getDecompressorType());
   }
 }
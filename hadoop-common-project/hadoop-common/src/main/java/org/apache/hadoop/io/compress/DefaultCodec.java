@@ -35,7 +35,8 @@
 
 @InterfaceAudience.Public
 @InterfaceStability.Evolving
-public class DefaultCodec implements Configurable, CompressionCodec, DirectDecompressionCodec {
+public class DefaultCodec implements Configurable, CompressionCodec,
+    DirectCompressionCodec, DirectDecompressionCodec {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultCodec.class);
   
   Configuration conf;
@@ -102,6 +103,14 @@ public Decompressor createDecompressor() {
     return ZlibFactory.getZlibDecompressor(conf);
   }
   
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    return ZlibFactory.getZlibDirectCompressor(conf);
+  }
+
   /**
    * {@inheritDoc}
    */
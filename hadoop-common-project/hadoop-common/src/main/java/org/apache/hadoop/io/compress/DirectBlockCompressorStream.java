@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A {@link CompressionOutputStream} which compresses with a
+ * {@link DirectCompressor}, in the block format of
+ * {@link BlockCompressorStream}: each block is the uncompressed length
+ * followed by the length-prefixed compressed data.
+ * <p>
+ * The data are buffered in a direct buffer and compressed block by block,
+ * directly from the buffers given to {@link #write(ByteBuffer)} when they
+ * hold at least a whole block. The streams of the block codecs, like
+ * {@link SnappyCodec} and {@link Lz4Codec}, read the output of this stream
+ * if their buffer size is at least
+ * {@link DirectCompressor#maxCompressedLength} of the bufferSize of this
+ * stream.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class DirectBlockCompressorStream extends CompressionOutputStream {
+  private final DirectCompressor compressor;
+  private final int bufferSize;
+  private final ByteBuffer uncompressed;
+  private final ByteBuffer compressed;
+  private final byte[] buffer;
+  private final byte[] oneByte = new byte[1];
+  private boolean closed;
+
+  /**
+   * Create a {@link DirectBlockCompressorStream}.
+   *
+   * @param out stream
+   * @param compressor compressor to be used
+   * @param bufferSize the uncompressed size of the blocks
+   */
+  public DirectBlockCompressorStream(OutputStream out,
+      DirectCompressor compressor, int bufferSize) {
+    super(out);
+    if (out == null || compressor == null) {
+      throw new NullPointerException();
+    } else if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Illegal bufferSize");
+    }
+    this.compressor = compressor;
+    this.bufferSize = bufferSize;
+    uncompressed = ByteBuffer.allocateDirect(bufferSize);
+    int maxCompressedLength = compressor.maxCompressedLength(bufferSize);
+    compressed = ByteBuffer.allocateDirect(maxCompressedLength);
+    buffer = new byte[maxCompressedLength];
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    oneByte[0] = (byte) (b & 0xff);
+    write(oneByte, 0, oneByte.length);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      int n = Math.min(len, uncompressed.remaining());
+      uncompressed.put(b, off, n);
+      off += n;
+      len -= n;
+      if (!uncompressed.hasRemaining()) {
+        compressBlock();
+      }
+    }
+  }
+
+  /**
+   * Write the remaining bytes of a buffer. Whole blocks of a direct buffer
+   * are compressed without copying them.
+   *
+   * @param src the data
+   * @throws IOException raised on errors performing I/O.
+   */
+  public void write(ByteBuffer src) throws IOException {
+    while (src.hasRemaining()) {
+      if (uncompressed.position() == 0 && src.isDirect()
+          && src.remaining() >= bufferSize) {
+        ByteBuffer block = src.slice();
+        block.limit(bufferSize);
+        writeBlock(block);
+        src.position(src.position() + bufferSize);
+        continue;
+      }
+      int n = Math.min(src.remaining(), uncompressed.remaining());
+      ByteBuffer part = src.slice();
+      part.limit(n);
+      uncompressed.put(part);
+      src.position(src.position() + n);
+      if (!uncompressed.hasRemaining()) {
+        compressBlock();
+      }
+    }
+  }
+
+  private void compressBlock() throws IOException {
+    uncompressed.flip();
+    try {
+      if (uncompressed.hasRemaining()) {
+        writeBlock(uncompressed);
+      }
+    } finally {
+      uncompressed.clear();
+    }
+  }
+
+  private void writeBlock(ByteBuffer block) throws IOException {
+    int rawLen = block.remaining();
+    compressed.clear();
+    compressor.compress(block, compressed);
+    compressed.flip();
+    int len = compressed.remaining();
+    compressed.get(buffer, 0, len);
+    rawWriteInt(rawLen);
+    rawWriteInt(len);
+    out.write(buffer, 0, len);
+  }
+
+  private void rawWriteInt(int v) throws IOException {
+    out.write((v >>> 24) & 0xFF);
+    out.write((v >>> 16) & 0xFF);
+    out.write((v >>>  8) & 0xFF);
+    out.write((v >>>  0) & 0xFF);
+  }
+
+  /**
+   * Compress and write the buffered data as a block, which may be shorter
+   * than the bufferSize.
+   */
+  @Override
+  public void finish() throws IOException {
+    compressBlock();
+  }
+
+  @Override
+  public void resetState() throws IOException {
+    uncompressed.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      try {
+        super.close();
+      } finally {
+        closed = true;
+      }
+    }
+  }
+}
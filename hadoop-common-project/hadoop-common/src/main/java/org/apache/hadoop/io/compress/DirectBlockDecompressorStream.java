@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.ByteBufferReadable;
+import org.apache.hadoop.fs.StreamCapabilities;
+
+/**
+ * A {@link CompressionInputStream} which decompresses the block format of
+ * {@link BlockCompressorStream} and {@link DirectBlockCompressorStream}
+ * with a {@link DirectDecompressor}.
+ * <p>
+ * A block is decompressed directly into the buffer given to
+ * {@link #read(ByteBuffer)} when the buffer is direct and has room for the
+ * whole block. The compressed data are read directly into a direct buffer
+ * when the underlying stream supports
+ * {@link StreamCapabilities#READBYTEBUFFER}.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class DirectBlockDecompressorStream extends CompressionInputStream
+    implements ByteBufferReadable {
+  private final DirectDecompressor decompressor;
+  private final boolean readByteBuffer;
+  private ByteBuffer compressed;
+  private ByteBuffer uncompressed;
+  private byte[] buffer;
+  private final byte[] oneByte = new byte[1];
+  private boolean eof;
+  private boolean closed;
+
+  /**
+   * Create a {@link DirectBlockDecompressorStream}.
+   *
+   * @param in input stream
+   * @param decompressor decompressor to use
+   * @param bufferSize the expected uncompressed size of the blocks; larger
+   *                   blocks are read as well
+   * @throws IOException raised on errors performing I/O.
+   */
+  public DirectBlockDecompressorStream(InputStream in,
+      DirectDecompressor decompressor, int bufferSize) throws IOException {
+    super(in);
+    if (decompressor == null) {
+      throw new NullPointerException();
+    } else if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Illegal bufferSize");
+    }
+    this.decompressor = decompressor;
+    this.readByteBuffer = in instanceof ByteBufferReadable
+        && in instanceof StreamCapabilities
+        && ((StreamCapabilities) in).hasCapability(
+            StreamCapabilities.READBYTEBUFFER);
+    compressed = ByteBuffer.allocateDirect(bufferSize);
+    uncompressed = ByteBuffer.allocateDirect(bufferSize);
+    uncompressed.limit(0);
+    if (!readByteBuffer) {
+      buffer = new byte[bufferSize];
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    return read(oneByte, 0, oneByte.length) == -1 ? -1 : (oneByte[0] & 0xff);
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    checkStream();
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    } else if (len == 0) {
+      return 0;
+    }
+    if (!uncompressed.hasRemaining()) {
+      int rawLen = readBlockHeader();
+      if (rawLen < 0) {
+        return -1;
+      }
+      decompressBlock(rawLen, null);
+    }
+    int n = Math.min(len, uncompressed.remaining());
+    uncompressed.get(b, off, n);
+    return n;
+  }
+
+  @Override
+  public int read(ByteBuffer buf) throws IOException {
+    checkStream();
+    if (!buf.hasRemaining()) {
+      return 0;
+    }
+    if (!uncompressed.hasRemaining()) {
+      int rawLen = readBlockHeader();
+      if (rawLen < 0) {
+        return -1;
+      }
+      if (buf.isDirect() && buf.remaining() >= rawLen) {
+        // Decompress without copying
+        decompressBlock(rawLen, buf);
+        return rawLen;
+      }
+      decompressBlock(rawLen, null);
+    }
+    int n = Math.min(buf.remaining(), uncompressed.remaining());
+    ByteBuffer part = uncompressed.slice();
+    part.limit(n);
+    buf.put(part);
+    uncompressed.position(uncompressed.position() + n);
+    return n;
+  }
+
+  /**
+   * @return the uncompressed length of the next block, or -1 at the end of
+   *         the stream
+   */
+  private int readBlockHeader() throws IOException {
+    if (eof) {
+      return -1;
+    }
+    int rawLen;
+    try {
+      rawLen = rawReadInt();
+    } catch (EOFException e) {
+      rawLen = 0;
+    }
+    // A block of length 0 marks the end of an empty stream
+    if (rawLen == 0) {
+      eof = true;
+      return -1;
+    }
+    return rawLen;
+  }
+
+  /**
+   * Decompress a block, which may consist of several compressed chunks,
+   * into dst, or into the internal buffer if dst is null.
+   */
+  private void decompressBlock(int rawLen, ByteBuffer dst)
+      throws IOException {
+    ByteBuffer out = dst;
+    if (out == null) {
+      if (uncompressed.capacity() < rawLen) {
+        uncompressed = ByteBuffer.allocateDirect(rawLen);
+      }
+      uncompressed.clear();
+      out = uncompressed;
+    }
+    int start = out.position();
+    int limit = out.limit();
+    out.limit(start + rawLen);
+    try {
+      while (out.hasRemaining()) {
+        readChunk();
+        if (decompressor instanceof Decompressor) {
+          ((Decompressor) decompressor).reset();
+        }
+        while (compressed.hasRemaining()) {
+          if (!out.hasRemaining()) {
+            throw new IOException("Compressed block longer than its length "
+                + rawLen);
+          }
+          int position = out.position();
+          decompressor.decompress(compressed, out);
+          if (out.position() == position && compressed.hasRemaining()) {
+            throw new IOException("Decompressor made no progress");
+          }
+        }
+      }
+    } finally {
+      out.limit(limit);
+    }
+    if (dst == null) {
+      uncompressed.flip();
+    }
+  }
+
+  private void readChunk() throws IOException {
+    int len = rawReadInt();
+    if (compressed.capacity() < len) {
+      compressed = ByteBuffer.allocateDirect(len);
+    }
+    compressed.clear();
+    compressed.limit(len);
+    if (readByteBuffer) {
+      while (compressed.hasRemaining()) {
+        if (((ByteBufferReadable) in).read(compressed) < 0) {
+          throw new EOFException("Unexpected end of block in input stream");
+        }
+      }
+    } else {
+      if (buffer.length < len) {
+        buffer = new byte[len];
+      }
+      int n = 0;
+      while (n < len) {
+        int count = in.read(buffer, n, len - n);
+        if (count < 0) {
+          throw new EOFException("Unexpected end of block in input stream");
+        }
+        n += count;
+      }
+      compressed.put(buffer, 0, len);
+    }
+    compressed.flip();
+  }
+
+  private int rawReadInt() throws IOException {
+    int b1 = in.read();
+    int b2 = in.read();
+    int b3 = in.read();
+    int b4 = in.read();
+    if ((b1 | b2 | b3 | b4) < 0) {
+      throw new EOFException();
+    }
+    return ((b1 << 24) + (b2 << 16) + (b3 << 8) + (b4 << 0));
+  }
+
+  private void checkStream() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  @Override
+  public void resetState() throws IOException {
+    uncompressed.limit(0);
+    eof = false;
+    if (decompressor instanceof Decompressor) {
+      ((Decompressor) decompressor).reset();
+    }
+  }
+
+  @Override
+  public int available() throws IOException {
+    checkStream();
+    return uncompressed.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      try {
+        super.close();
+      } finally {
+        closed = true;
+      }
+    }
+  }
+}
@@ -106,6 +106,15 @@ public Class<? extends Decompressor> getDecompressorType() {
       : BuiltInGzipDecompressor.class;
   }
     
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    return ZlibFactory.isNativeZlibLoaded(conf)
+        ? new ZlibCompressor.ZlibDirectCompressor(
+          ZlibFactory.getCompressionLevel(conf),
+          ZlibFactory.getCompressionStrategy(conf),
+          ZlibCompressor.CompressionHeader.GZIP_FORMAT) : null;
+  }
+
   @Override
   public DirectDecompressor createDirectDecompressor() {
     return ZlibFactory.isNativeZlibLoaded(conf) 
@@ -31,7 +31,8 @@
 /**
  * This class creates lz4 compressors/decompressors.
  */
-public class Lz4Codec implements Configurable, CompressionCodec {
+public class Lz4Codec implements Configurable, CompressionCodec,
+    DirectCompressionCodec, DirectDecompressionCodec {
 
   Configuration conf;
 
@@ -175,6 +176,25 @@ public Decompressor createDecompressor() {
     return new Lz4Decompressor(bufferSize);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    boolean useLz4HC = conf.getBoolean(
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_LZ4_USELZ4HC_KEY,
+        CommonConfigurationKeys.IO_COMPRESSION_CODEC_LZ4_USELZ4HC_DEFAULT);
+    return new Lz4Compressor.Lz4DirectCompressor(useLz4HC);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectDecompressor createDirectDecompressor() {
+    return new Lz4Decompressor.Lz4DirectDecompressor();
+  }
+
   /**
    * Get the default filename extension for this kind of compression.
    *
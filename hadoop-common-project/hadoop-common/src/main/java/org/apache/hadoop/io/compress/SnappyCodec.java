@@ -25,6 +25,7 @@
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.snappy.SnappyCompressor;
+import org.apache.hadoop.io.compress.snappy.SnappyCompressor.SnappyDirectCompressor;
 import org.apache.hadoop.io.compress.snappy.SnappyDecompressor;
 import org.apache.hadoop.io.compress.snappy.SnappyDecompressor.SnappyDirectDecompressor;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
@@ -32,7 +33,8 @@
 /**
  * This class creates snappy compressors/decompressors.
  */
-public class SnappyCodec implements Configurable, CompressionCodec, DirectDecompressionCodec {
+public class SnappyCodec implements Configurable, CompressionCodec,
+    DirectCompressionCodec, DirectDecompressionCodec {
   Configuration conf;
 
   /**
@@ -172,6 +174,14 @@ public Decompressor createDecompressor() {
     return new SnappyDecompressor(bufferSize);
   }
   
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    return new SnappyDirectCompressor();
+  }
+
   /**
    * {@inheritDoc}
    */
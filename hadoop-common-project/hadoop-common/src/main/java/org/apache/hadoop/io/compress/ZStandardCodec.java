@@ -28,6 +28,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.List;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_BUFFER_SIZE_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_BUFFER_SIZE_KEY;
@@ -36,7 +37,8 @@
  * This class creates zstd compressors/decompressors.
  */
 public class ZStandardCodec implements
-    Configurable, CompressionCodec, DirectDecompressionCodec  {
+    Configurable, CompressionCodec, DirectCompressionCodec,
+    DirectDecompressionCodec {
   private Configuration conf;
 
   /**
@@ -81,10 +83,47 @@ public static boolean isNativeCodeLoaded() {
         && ZStandardDecompressor.isNativeCodeLoaded();
   }
 
+  /**
+   * Check that the native libzstd supports dictionaries, which needs zstd
+   * 1.4.0 or later.
+   *
+   * @throws RuntimeException if it does not.
+   */
+  public static void checkDictionarySupported() {
+    checkNativeCodeLoaded();
+    if (!ZStandardCompressor.isDictionarySupported() ||
+        !ZStandardDecompressor.isDictionarySupported()) {
+      throw new UnsupportedOperationException("native zStandard library "
+          + ZStandardCompressor.getLibraryName()
+          + " does not support dictionaries");
+    }
+  }
+
+  public static boolean isDictionarySupported() {
+    return isNativeCodeLoaded()
+        && ZStandardCompressor.isDictionarySupported()
+        && ZStandardDecompressor.isDictionarySupported();
+  }
+
   public static String getLibraryName() {
     return ZStandardCompressor.getLibraryName();
   }
 
+  /**
+   * Trains a zStandard dictionary from samples of the data to compress.
+   * Small blocks of similar records compress much better with a dictionary.
+   *
+   * @param samples the samples.
+   * @param maxDictionarySize the maximum size of the dictionary.
+   * @return the dictionary.
+   * @see ZStandardCompressor#trainDictionary(List, int)
+   */
+  public static byte[] trainDictionary(List<byte[]> samples,
+      int maxDictionarySize) {
+    checkDictionarySupported();
+    return ZStandardCompressor.trainDictionary(samples, maxDictionarySize);
+  }
+
   public static int getCompressionLevel(Configuration conf) {
     return conf.getInt(
         CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_LEVEL_KEY,
@@ -166,6 +205,19 @@ public Compressor createCompressor() {
         getCompressionLevel(conf), getCompressionBufferSize(conf));
   }
 
+  /**
+   * Create a new {@link Compressor} which compresses with the given
+   * dictionary. It keeps the dictionary when it is reset, so it should be
+   * ended rather than returned to the {@link CodecPool}.
+   *
+   * @param dictionary the dictionary.
+   * @return a new compressor for use by this codec
+   */
+  public Compressor createCompressor(byte[] dictionary) {
+    Compressor compressor = createCompressor();
+    compressor.setDictionary(dictionary, 0, dictionary.length);
+    return compressor;
+  }
 
   /**
    * Create a {@link CompressionInputStream} that will read from the given
@@ -223,6 +275,20 @@ public Decompressor createDecompressor() {
     return new ZStandardDecompressor(getDecompressionBufferSize(conf));
   }
 
+  /**
+   * Create a new {@link Decompressor} for data compressed with the given
+   * dictionary. It keeps the dictionary when it is reset, so it should be
+   * ended rather than returned to the {@link CodecPool}.
+   *
+   * @param dictionary the dictionary.
+   * @return a new decompressor for use by this codec
+   */
+  public Decompressor createDecompressor(byte[] dictionary) {
+    Decompressor decompressor = createDecompressor();
+    decompressor.setDictionary(dictionary, 0, dictionary.length);
+    return decompressor;
+  }
+
   /**
    * Get the default filename extension for this kind of compression.
    *
@@ -233,6 +299,13 @@ public String getDefaultExtension() {
     return CodecConstants.ZSTANDARD_CODEC_EXTENSION;
   }
 
+  @Override
+  public DirectCompressor createDirectCompressor() {
+    checkNativeCodeLoaded();
+    return new ZStandardCompressor.ZStandardDirectCompressor(
+        getCompressionLevel(conf));
+  }
+
   @Override
   public DirectDecompressor createDirectDecompressor() {
     return new ZStandardDecompressor.ZStandardDirectDecompressor(
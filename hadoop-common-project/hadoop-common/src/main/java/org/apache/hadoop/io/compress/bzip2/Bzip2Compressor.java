@@ -20,10 +20,12 @@
 
 import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -298,4 +300,77 @@ private void checkStream() {
   private native static void end(long strm);
 
   public native static String getLibraryName();
+
+  synchronized int deflateDirect(ByteBuffer src, ByteBuffer dst) {
+    assert (this instanceof Bzip2DirectCompressor);
+
+    reset();
+    Buffer originalCompressed = compressedDirectBuf;
+    Buffer originalUncompressed = uncompressedDirectBuf;
+    int originalBufferSize = directBufferSize;
+    uncompressedDirectBuf = src;
+    uncompressedDirectBufOff = src.position();
+    uncompressedDirectBufLen = src.remaining();
+    finish = true;
+    int n = 0;
+    try {
+      while (!finished) {
+        compressedDirectBuf = dst.slice();
+        directBufferSize = dst.remaining();
+        int written = deflateBytesDirect();
+        if (written == 0 && !finished) {
+          throw new BufferOverflowException();
+        }
+        dst.position(dst.position() + written);
+        n += written;
+      }
+      src.position(src.limit());
+    } finally {
+      compressedDirectBuf = originalCompressed;
+      uncompressedDirectBuf = originalUncompressed;
+      uncompressedDirectBufOff = 0;
+      uncompressedDirectBufLen = 0;
+      directBufferSize = originalBufferSize;
+    }
+    return n;
+  }
+
+  public static class Bzip2DirectCompressor extends Bzip2Compressor
+      implements DirectCompressor {
+
+    public Bzip2DirectCompressor(Configuration conf) {
+      super(Bzip2Factory.getBlockSize(conf), Bzip2Factory.getWorkFactor(conf),
+          0);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      if (dst.remaining() < maxCompressedLength(src.remaining())) {
+        throw new BufferOverflowException();
+      }
+      this.deflateDirect(src, dst);
+    }
+
+    /**
+     * The bound which libbzip2 documents for BZ2_bzBuffToBuffCompress.
+     */
+    @Override
+    public int maxCompressedLength(int len) {
+      return len + len / 100 + 600;
+    }
+
+    @Override
+    public synchronized void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public synchronized int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
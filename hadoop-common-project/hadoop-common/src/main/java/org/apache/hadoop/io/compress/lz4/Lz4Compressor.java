@@ -20,6 +20,7 @@
 
 import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 import net.jpountz.lz4.LZ4Factory;
@@ -27,6 +28,7 @@
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -324,4 +326,58 @@ private int compressDirectBuf() {
       return size;
     }
   }
+
+  synchronized int compressDirect(ByteBuffer src, ByteBuffer dst) {
+    assert (this instanceof Lz4DirectCompressor);
+
+    int position = dst.position();
+    // lz4 consumes the whole buffer and moves both positions
+    lz4Compressor.compress(src, dst);
+    return dst.position() - position;
+  }
+
+  int maxCompressedLength(int len) {
+    return lz4Compressor.maxCompressedLength(len);
+  }
+
+  public static class Lz4DirectCompressor extends Lz4Compressor
+      implements DirectCompressor {
+
+    /**
+     * Creates a new direct compressor.
+     *
+     * @param useLz4HC use high compression ratio version of lz4,
+     *                 which trades CPU for compression ratio.
+     */
+    public Lz4DirectCompressor(boolean useLz4HC) {
+      super(0, useLz4HC);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      if (dst.remaining() < maxCompressedLength(src.remaining())) {
+        throw new BufferOverflowException();
+      }
+      this.compressDirect(src, dst);
+    }
+
+    @Override
+    public int maxCompressedLength(int len) {
+      return super.maxCompressedLength(len);
+    }
+
+    @Override
+    public synchronized void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public synchronized int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
@@ -20,10 +20,12 @@
 
 import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.Snappy;
@@ -285,4 +287,52 @@ private int compressDirectBuf() throws IOException {
       return size;
     }
   }
+
+  int compressDirect(ByteBuffer src, ByteBuffer dst) throws IOException {
+    assert (this instanceof SnappyDirectCompressor);
+
+    // Snappy sets the limit of dst to the end of the compressed data
+    int dstLimit = dst.limit();
+    int n = Snappy.compress(src, dst);
+    dst.limit(dstLimit);
+    dst.position(dst.position() + n);
+    // SNAPPY always consumes the whole buffer or throws an exception
+    src.position(src.limit());
+    return n;
+  }
+
+  public static class SnappyDirectCompressor extends SnappyCompressor
+      implements DirectCompressor {
+
+    public SnappyDirectCompressor() {
+      super(0);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      if (dst.remaining() < maxCompressedLength(src.remaining())) {
+        throw new BufferOverflowException();
+      }
+      this.compressDirect(src, dst);
+    }
+
+    @Override
+    public int maxCompressedLength(int len) {
+      return Snappy.maxCompressedLength(len);
+    }
+
+    @Override
+    public void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
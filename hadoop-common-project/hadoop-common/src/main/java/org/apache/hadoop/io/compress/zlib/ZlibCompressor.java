@@ -20,10 +20,12 @@
 
 import java.io.IOException;
 import java.nio.Buffer;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.apache.hadoop.util.NativeCodeLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -484,4 +486,83 @@ private native static void setDictionary(long strm, byte[] b, int off,
   private native static void end(long strm);
 
   public native static String getLibraryName();
+
+  int deflateDirect(ByteBuffer src, ByteBuffer dst) throws IOException {
+    assert (this instanceof ZlibDirectCompressor);
+
+    reset();
+    Buffer originalCompressed = compressedDirectBuf;
+    Buffer originalUncompressed = uncompressedDirectBuf;
+    int originalBufferSize = directBufferSize;
+    uncompressedDirectBuf = src;
+    uncompressedDirectBufOff = src.position();
+    uncompressedDirectBufLen = src.remaining();
+    finish = true;
+    int n = 0;
+    try {
+      while (!finished) {
+        compressedDirectBuf = dst.slice();
+        directBufferSize = dst.remaining();
+        int written = deflateBytesDirect();
+        if (written == 0 && !finished) {
+          throw new BufferOverflowException();
+        }
+        dst.position(dst.position() + written);
+        n += written;
+      }
+      src.position(src.limit());
+    } finally {
+      compressedDirectBuf = originalCompressed;
+      uncompressedDirectBuf = originalUncompressed;
+      uncompressedDirectBufOff = 0;
+      uncompressedDirectBufLen = 0;
+      directBufferSize = originalBufferSize;
+    }
+    return n;
+  }
+
+  public static class ZlibDirectCompressor
+      extends ZlibCompressor implements DirectCompressor {
+    public ZlibDirectCompressor() {
+      this(CompressionLevel.DEFAULT_COMPRESSION,
+          CompressionStrategy.DEFAULT_STRATEGY,
+          CompressionHeader.DEFAULT_HEADER);
+    }
+
+    public ZlibDirectCompressor(CompressionLevel level,
+        CompressionStrategy strategy, CompressionHeader header) {
+      super(level, strategy, header, 0);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      if (dst.remaining() < maxCompressedLength(src.remaining())) {
+        throw new BufferOverflowException();
+      }
+      this.deflateDirect(src, dst);
+    }
+
+    /**
+     * The bound of deflateBound() for non-default memory levels, plus the
+     * longest (gzip) header and trailer.
+     */
+    @Override
+    public int maxCompressedLength(int len) {
+      return len + ((len + 7) >> 3) + ((len + 63) >> 6) + 5 + 18;
+    }
+
+    @Override
+    public void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
@@ -21,6 +21,7 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.apache.hadoop.io.compress.DirectDecompressor;
 import org.apache.hadoop.io.compress.zlib.ZlibCompressor.CompressionLevel;
 import org.apache.hadoop.io.compress.zlib.ZlibCompressor.CompressionStrategy;
@@ -135,6 +136,19 @@ public static Decompressor getZlibDecompressor(Configuration conf) {
       new ZlibDecompressor() : new BuiltInZlibInflater(); 
   }
   
+  /**
+   * Return the appropriate implementation of the zlib direct compressor.
+   *
+   * @param conf configuration
+   * @return the zlib direct compressor, or null if native-zlib is not loaded.
+   */
+  public static DirectCompressor getZlibDirectCompressor(Configuration conf) {
+    return (isNativeZlibLoaded(conf)) ?
+      new ZlibCompressor.ZlibDirectCompressor(getCompressionLevel(conf),
+          getCompressionStrategy(conf),
+          ZlibCompressor.CompressionHeader.DEFAULT_HEADER) : null;
+  }
+
   /**
    * Return the appropriate implementation of the zlib direct decompressor. 
    * 
@@ -23,13 +23,17 @@
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
 import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.DirectCompressor;
 import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.util.NativeCodeLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A {@link Compressor} based on the zStandard compression algorithm.
@@ -42,6 +46,7 @@ public class ZStandardCompressor implements Compressor {
 
   private long stream;
   private int level;
+  private byte[] dictionary;
   private int directBufferSize;
   private byte[] userBuf = null;
   private int userBufOff = 0, userBufLen = 0;
@@ -54,6 +59,7 @@ public class ZStandardCompressor implements Compressor {
   private long bytesWritten = 0;
 
   private static boolean nativeZStandardLoaded = false;
+  private static boolean dictionarySupported = false;
 
   static {
     if (NativeCodeLoader.isNativeCodeLoaded()) {
@@ -61,6 +67,7 @@ public class ZStandardCompressor implements Compressor {
         // Initialize the native library
         initIDs();
         nativeZStandardLoaded = true;
+        dictionarySupported = isDictionarySupportedNative();
       } catch (Throwable t) {
         LOG.warn("Error loading zstandard native libraries: " + t);
       }
@@ -71,10 +78,53 @@ public static boolean isNativeCodeLoaded() {
     return nativeZStandardLoaded;
   }
 
+  /**
+   * @return whether the native libzstd can train dictionaries and compress
+   * with them, which needs zstd 1.4.0 or later.
+   */
+  public static boolean isDictionarySupported() {
+    return dictionarySupported;
+  }
+
   public static int getRecommendedBufferSize() {
     return getStreamSize();
   }
 
+  /**
+   * Trains a dictionary from samples of the data to compress, such as
+   * typical records or small files. Zstandard needs a few hundred samples,
+   * about a hundred times the size of the dictionary in total, to train a
+   * useful one.
+   *
+   * @param samples the samples.
+   * @param maxDictionarySize the maximum size of the dictionary.
+   * @return the dictionary.
+   * @throws IllegalArgumentException if no dictionary can be trained from
+   * the samples, for example because there are too few of them.
+   * @throws UnsupportedOperationException if the native libzstd does not
+   * support dictionaries.
+   */
+  public static byte[] trainDictionary(List<byte[]> samples,
+      int maxDictionarySize) {
+    checkDictionarySupported();
+    int total = 0;
+    int[] sampleSizes = new int[samples.size()];
+    for (int i = 0; i < sampleSizes.length; i++) {
+      sampleSizes[i] = samples.get(i).length;
+      total = Math.addExact(total, sampleSizes[i]);
+    }
+    byte[] buffer = new byte[total];
+    int off = 0;
+    for (byte[] sample : samples) {
+      System.arraycopy(sample, 0, buffer, off, sample.length);
+      off += sample.length;
+    }
+    byte[] dictionary = new byte[maxDictionarySize];
+    int size = trainDictionary(buffer, sampleSizes, dictionary);
+    return size == dictionary.length ?
+        dictionary : Arrays.copyOf(dictionary, size);
+  }
+
   @VisibleForTesting
   ZStandardCompressor() {
     this(CommonConfigurationKeys.IO_COMPRESSION_CODEC_ZSTD_LEVEL_DEFAULT,
@@ -105,7 +155,8 @@ public ZStandardCompressor(int level, int bufferSize) {
   /**
    * Prepare the compressor to be used in a new stream with settings defined in
    * the given Configuration. It will reset the compressor's compression level
-   * and compression strategy.
+   * and compression strategy, and drop the dictionary set by
+   * {@link #setDictionary(byte[], int, int)}.
    *
    * @param conf Configuration storing new settings
    */
@@ -115,6 +166,7 @@ public void reinit(Configuration conf) {
       return;
     }
     level = ZStandardCodec.getCompressionLevel(conf);
+    dictionary = null;
     reset();
     LOG.debug("Reinit compressor with new compression configuration");
   }
@@ -147,10 +199,28 @@ private void setInputFromSavedData() {
     uncompressedDirectBufLen = uncompressedDirectBuf.position();
   }
 
+  /**
+   * Sets the dictionary used to compress the following frames, for example
+   * one trained by {@link ZStandardCodec#trainDictionary(java.util.List, int)}.
+   * The data can only be decompressed by a {@link ZStandardDecompressor} with
+   * the same dictionary. The dictionary is kept across {@link #reset()}, so a
+   * compressor with a dictionary should be ended rather than returned to the
+   * {@link org.apache.hadoop.io.compress.CodecPool}.
+   *
+   * @throws UnsupportedOperationException if the native libzstd does not
+   * support dictionaries.
+   */
   @Override
   public void setDictionary(byte[] b, int off, int len) {
-    throw new UnsupportedOperationException(
-        "Dictionary support is not enabled");
+    checkDictionarySupported();
+    if (b == null) {
+      throw new NullPointerException();
+    }
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    dictionary = Arrays.copyOfRange(b, off, off + len);
+    reset();
   }
 
   @Override
@@ -268,6 +338,9 @@ public long getBytesRead() {
   public void reset() {
     checkStream();
     init(level, stream);
+    if (dictionary != null) {
+      loadDictionary(dictionary, stream);
+    }
     finish = false;
     finished = false;
     bytesRead = 0;
@@ -290,6 +363,13 @@ public void end() {
     }
   }
 
+  private static void checkDictionarySupported() {
+    if (!dictionarySupported) {
+      throw new UnsupportedOperationException(
+          "Dictionary support is not enabled");
+    }
+  }
+
   private void checkStream() {
     if (stream == 0) {
       throw new NullPointerException();
@@ -298,10 +378,79 @@ private void checkStream() {
 
   private native static long create();
   private native static void init(int level, long stream);
+  private native static boolean isDictionarySupportedNative();
+  private native static void loadDictionary(byte[] dictionary, long stream);
+  private native static int trainDictionary(byte[] samples,
+      int[] sampleSizes, byte[] dictionary);
   private native int deflateBytesDirect(ByteBuffer src, int srcOffset,
       int srcLen, ByteBuffer dst, int dstLen);
   private native static int getStreamSize();
   private native static void end(long strm);
   private native static void initIDs();
   public native static String getLibraryName();
+
+  int compressDirect(ByteBuffer src, ByteBuffer dst) throws IOException {
+    assert (this instanceof ZStandardDirectCompressor);
+
+    reset();
+    finish = true;
+    uncompressedDirectBufOff = src.position();
+    int n = 0;
+    try {
+      while (!finished) {
+        int written = deflateBytesDirect(src, uncompressedDirectBufOff,
+            src.limit(), dst.slice(), dst.remaining());
+        if (written == 0 && !finished) {
+          throw new BufferOverflowException();
+        }
+        dst.position(dst.position() + written);
+        n += written;
+      }
+      src.position(src.limit());
+    } finally {
+      uncompressedDirectBufOff = 0;
+      uncompressedDirectBufLen = 0;
+    }
+    return n;
+  }
+
+  public static class ZStandardDirectCompressor
+      extends ZStandardCompressor implements DirectCompressor {
+
+    public ZStandardDirectCompressor(int level) {
+      super(level, 0, 0);
+    }
+
+    @Override
+    public void compress(ByteBuffer src, ByteBuffer dst) throws IOException {
+      assert dst.isDirect() : "dst.isDirect()";
+      assert src.isDirect() : "src.isDirect()";
+      if (dst.remaining() < maxCompressedLength(src.remaining())) {
+        throw new BufferOverflowException();
+      }
+      this.compressDirect(src, dst);
+    }
+
+    /**
+     * ZSTD_COMPRESSBOUND of zstd.h.
+     */
+    @Override
+    public int maxCompressedLength(int len) {
+      int blockSize = 128 * 1024;
+      return len + (len >> 8)
+          + (len < blockSize ? (blockSize - len) >> 11 : 0);
+    }
+
+    @Override
+    public void setInput(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+
+    @Override
+    public int compress(byte[] b, int off, int len) {
+      throw new UnsupportedOperationException(
+          "byte[] arrays are not supported for DirectCompressor");
+    }
+  }
 }
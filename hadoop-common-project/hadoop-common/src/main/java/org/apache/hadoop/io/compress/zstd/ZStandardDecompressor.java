@@ -26,6 +26,7 @@
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * A {@link Decompressor} based on the zStandard compression algorithm.
@@ -36,6 +37,7 @@ public class ZStandardDecompressor implements Decompressor {
       LoggerFactory.getLogger(ZStandardDecompressor.class);
 
   private long stream;
+  private byte[] dictionary;
   private int directBufferSize;
   private ByteBuffer compressedDirectBuf = null;
   private int compressedDirectBufOff, bytesInCompressedBuffer;
@@ -46,6 +48,7 @@ public class ZStandardDecompressor implements Decompressor {
   private int remaining = 0;
 
   private static boolean nativeZStandardLoaded = false;
+  private static boolean dictionarySupported = false;
 
   static {
     if (NativeCodeLoader.isNativeCodeLoaded()) {
@@ -53,6 +56,7 @@ public class ZStandardDecompressor implements Decompressor {
         // Initialize the native library
         initIDs();
         nativeZStandardLoaded = true;
+        dictionarySupported = isDictionarySupportedNative();
       } catch (Throwable t) {
         LOG.warn("Error loading zstandard native libraries: " + t);
       }
@@ -63,6 +67,14 @@ public static boolean isNativeCodeLoaded() {
     return nativeZStandardLoaded;
   }
 
+  /**
+   * @return whether the native libzstd can decompress with dictionaries,
+   * which needs zstd 1.4.0 or later.
+   */
+  public static boolean isDictionarySupported() {
+    return dictionarySupported;
+  }
+
   public static int getRecommendedBufferSize() {
     return getStreamSize();
   }
@@ -124,11 +136,31 @@ private void setInputFromSavedData() {
     userBufferBytesToConsume -= bytesInCompressedBuffer;
   }
 
-  // dictionary is not supported
+  /**
+   * Sets the dictionary the following frames were compressed with. Zstandard
+   * frames do not ask for their dictionary, so it has to be set before the
+   * input; {@link #needsDictionary()} is always false. The dictionary is kept
+   * across {@link #reset()}, so a decompressor with a dictionary should be
+   * ended rather than returned to the
+   * {@link org.apache.hadoop.io.compress.CodecPool}.
+   *
+   * @throws UnsupportedOperationException if the native libzstd does not
+   * support dictionaries.
+   */
   @Override
   public void setDictionary(byte[] b, int off, int len) {
-    throw new UnsupportedOperationException(
-        "Dictionary support is not enabled");
+    if (!dictionarySupported) {
+      throw new UnsupportedOperationException(
+          "Dictionary support is not enabled");
+    }
+    if (b == null) {
+      throw new NullPointerException();
+    }
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    dictionary = Arrays.copyOfRange(b, off, off + len);
+    reset();
   }
 
   @Override
@@ -227,6 +259,9 @@ public int getRemaining() {
   public void reset() {
     checkStream();
     init(stream);
+    if (dictionary != null) {
+      loadDictionary(dictionary, stream);
+    }
     remaining = 0;
     finished = false;
     compressedDirectBufOff = 0;
@@ -265,6 +300,8 @@ private int populateUncompressedBuffer(byte[] b, int off, int len, int n) {
   private native static void initIDs();
   private native static long create();
   private native static void init(long stream);
+  private native static boolean isDictionarySupportedNative();
+  private native static void loadDictionary(byte[] dictionary, long stream);
   private native int inflateBytesDirect(ByteBuffer src, int srcOffset,
       int srcLen, ByteBuffer dst, int dstOffset, int dstLen);
   private native static void free(long strm);
@@ -80,7 +80,7 @@ protected void doDecode(ByteBufferDecodingState decodingState) {
     for (int i = 0; i < getNumDataUnits(); i++) {
       realInputs[i] = decodingState.inputs[validIndexes[i]];
     }
-    RSUtil.encodeData(gfTables, realInputs, decodingState.outputs);
+    encodeData(gfTables, realInputs, decodingState.outputs);
   }
 
   @Override
@@ -96,7 +96,7 @@ protected void doDecode(ByteArrayDecodingState decodingState) {
       realInputs[i] = decodingState.inputs[validIndexes[i]];
       realInputOffsets[i] = decodingState.inputOffsets[validIndexes[i]];
     }
-    RSUtil.encodeData(gfTables, dataLen, realInputs, realInputOffsets,
+    encodeData(gfTables, dataLen, realInputs, realInputOffsets,
         decodingState.outputs, decodingState.outputOffsets);
   }
 
@@ -174,4 +174,34 @@ private void generateDecodeMatrix(int[] erasedIndexes) {
       }
     }
   }
+
+  /**
+   * Multiply the inputs by the coding matrix of the tables into the outputs.
+   * Subclasses may do it faster.
+   *
+   * @param tables the tables generated from the coding matrix.
+   * @param inputs the inputs.
+   * @param outputs the outputs, reset to zeros.
+   */
+  protected void encodeData(byte[] tables, ByteBuffer[] inputs,
+      ByteBuffer[] outputs) {
+    RSUtil.encodeData(tables, inputs, outputs);
+  }
+
+  /**
+   * Multiply the inputs by the coding matrix of the tables into the outputs.
+   * Subclasses may do it faster.
+   *
+   * @param tables the tables generated from the coding matrix.
+   * @param dataLen the length of the data to multiply.
+   * @param inputs the inputs.
+   * @param inputOffsets the offsets of the data in the inputs.
+   * @param outputs the outputs, reset to zeros.
+   * @param outputOffsets the offsets of the data in the outputs.
+   */
+  protected void encodeData(byte[] tables, int dataLen, byte[][] inputs,
+      int[] inputOffsets, byte[][] outputs, int[] outputOffsets) {
+    RSUtil.encodeData(tables, dataLen, inputs, inputOffsets, outputs,
+        outputOffsets);
+  }
 }
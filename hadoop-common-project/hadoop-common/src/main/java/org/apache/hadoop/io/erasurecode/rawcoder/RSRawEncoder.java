@@ -23,6 +23,8 @@
 import org.apache.hadoop.io.erasurecode.rawcoder.util.DumpUtil;
 import org.apache.hadoop.io.erasurecode.rawcoder.util.RSUtil;
 
+import java.nio.ByteBuffer;
+
 /**
  * A raw erasure encoder in RS code scheme in pure Java in case native one
  * isn't available in some environment. Please always use native implementations
@@ -64,7 +66,7 @@ public RSRawEncoder(ErasureCoderOptions coderOptions) {
   protected void doEncode(ByteBufferEncodingState encodingState) {
     CoderUtil.resetOutputBuffers(encodingState.outputs,
         encodingState.encodeLength);
-    RSUtil.encodeData(gfTables, encodingState.inputs, encodingState.outputs);
+    encodeData(gfTables, encodingState.inputs, encodingState.outputs);
   }
 
   @Override
@@ -72,9 +74,39 @@ protected void doEncode(ByteArrayEncodingState encodingState) {
     CoderUtil.resetOutputBuffers(encodingState.outputs,
         encodingState.outputOffsets,
         encodingState.encodeLength);
-    RSUtil.encodeData(gfTables, encodingState.encodeLength,
+    encodeData(gfTables, encodingState.encodeLength,
         encodingState.inputs,
         encodingState.inputOffsets, encodingState.outputs,
         encodingState.outputOffsets);
   }
+
+  /**
+   * Multiply the inputs by the coding matrix of the tables into the outputs.
+   * Subclasses may do it faster.
+   *
+   * @param tables the tables generated from the coding matrix.
+   * @param inputs the inputs.
+   * @param outputs the outputs, reset to zeros.
+   */
+  protected void encodeData(byte[] tables, ByteBuffer[] inputs,
+      ByteBuffer[] outputs) {
+    RSUtil.encodeData(tables, inputs, outputs);
+  }
+
+  /**
+   * Multiply the inputs by the coding matrix of the tables into the outputs.
+   * Subclasses may do it faster.
+   *
+   * @param tables the tables generated from the coding matrix.
+   * @param dataLen the length of the data to multiply.
+   * @param inputs the inputs.
+   * @param inputOffsets the offsets of the data in the inputs.
+   * @param outputs the outputs, reset to zeros.
+   * @param outputOffsets the offsets of the data in the outputs.
+   */
+  protected void encodeData(byte[] tables, int dataLen, byte[][] inputs,
+      int[] inputOffsets, byte[][] outputs, int[] outputOffsets) {
+    RSUtil.encodeData(tables, dataLen, inputs, inputOffsets, outputs,
+        outputOffsets);
+  }
 }
@@ -28,7 +28,9 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Queue;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
@@ -36,6 +38,7 @@
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.io.file.tfile.CompareUtils.Scalar;
 import org.apache.hadoop.io.file.tfile.CompareUtils.ScalarComparator;
 import org.apache.hadoop.io.file.tfile.CompareUtils.ScalarLong;
@@ -55,6 +58,9 @@ final class BCFile {
   // enough changes
   static final Version API_VERSION = new Version((short) 1, (short) 0);
   static final Logger LOG = LoggerFactory.getLogger(BCFile.class);
+  // name of the meta block holding the compression dictionary of the data
+  // blocks, if they are compressed with one
+  static final String DICTIONARY_BLOCK_NAME = "BCFile.compression.dictionary";
 
   /**
    * Prevent the instantiation of BCFile objects.
@@ -79,6 +85,8 @@ static public class Writer implements Closeable {
     long errorCount = 0;
     // reusable buffers.
     private BytesWritable fsOutputBuffer;
+    // compression dictionary of the data blocks, or null.
+    private final byte[] dictionary;
 
     /**
      * Call-back interface to register a block after a block is closed.
@@ -104,6 +112,7 @@ private static interface BlockRegister {
      */
     private static final class WBlockState {
       private final Algorithm compressAlgo;
+      private final byte[] dictionary;
       private Compressor compressor; // !null only if using native
       // Hadoop compression
       private final FSDataOutputStream fsOut;
@@ -114,11 +123,15 @@ private static final class WBlockState {
       /**
        * @param compressionAlgo
        *          The compression algorithm to be used to for compression.
+       * @param dictionary
+       *          The compression dictionary, or null.
        * @throws IOException
        */
       public WBlockState(Algorithm compressionAlgo, FSDataOutputStream fsOut,
-          BytesWritable fsOutputBuffer, Configuration conf) throws IOException {
+          BytesWritable fsOutputBuffer, byte[] dictionary, Configuration conf)
+          throws IOException {
         this.compressAlgo = compressionAlgo;
+        this.dictionary = dictionary;
         this.fsOut = fsOut;
         this.posStart = fsOut.getPos();
 
@@ -126,18 +139,27 @@ public WBlockState(Algorithm compressionAlgo, FSDataOutputStream fsOut,
 
         this.fsBufferedOutput =
             new SimpleBufferedOutputStream(this.fsOut, fsOutputBuffer.getBytes());
-        this.compressor = compressAlgo.getCompressor();
+        this.compressor = dictionary == null ? compressAlgo.getCompressor()
+            : compressAlgo.getCompressor(dictionary);
 
         try {
           this.out =
               compressionAlgo.createCompressionStream(fsBufferedOutput,
                   compressor, 0);
         } catch (IOException e) {
-          compressAlgo.returnCompressor(compressor);
+          releaseCompressor();
           throw e;
         }
       }
 
+      private void releaseCompressor() {
+        if (dictionary == null) {
+          compressAlgo.returnCompressor(compressor);
+        } else if (compressor != null) {
+          compressor.end();
+        }
+      }
+
       /**
        * Get the output stream for BlockAppender's consumption.
        * 
@@ -182,7 +204,7 @@ public void finish() throws IOException {
             out = null;
           }
         } finally {
-          compressAlgo.returnCompressor(compressor);
+          releaseCompressor();
           compressor = null;
         }
       }
@@ -284,6 +306,25 @@ public void close() throws IOException {
      */
     public Writer(FSDataOutputStream fout, String compressionName,
         Configuration conf) throws IOException {
+      this(fout, compressionName, null, conf);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param fout
+     *          FS output stream.
+     * @param compressionName
+     *          Name of the compression algorithm, which will be used for all
+     *          data blocks.
+     * @param dictionary
+     *          The compression dictionary of the data blocks, or null. It is
+     *          stored in a meta block, and needs the zstd algorithm.
+     * @throws IOException
+     * @see Compression#getSupportedAlgorithms
+     */
+    public Writer(FSDataOutputStream fout, String compressionName,
+        byte[] dictionary, Configuration conf) throws IOException {
       if (fout.getPos() != 0) {
         throw new IOException("Output file not at zero offset.");
       }
@@ -291,6 +332,15 @@ public Writer(FSDataOutputStream fout, String compressionName,
       this.out = fout;
       this.conf = conf;
       dataIndex = new DataIndex(compressionName);
+      if (dictionary != null
+          && getDefaultCompressionAlgorithm() != Algorithm.ZSTD) {
+        throw new IllegalArgumentException("Compression algorithm "
+            + compressionName + " does not support dictionaries");
+      }
+      if (dictionary != null) {
+        ZStandardCodec.checkDictionarySupported();
+      }
+      this.dictionary = dictionary;
       metaIndex = new MetaIndex();
       fsOutputBuffer = new BytesWritable();
       Magic.write(fout);
@@ -313,6 +363,16 @@ public void close() throws IOException {
                 "Close() called with active block appender.");
           }
 
+          if (dictionary != null) {
+            BlockAppender appender =
+                prepareMetaBlock(DICTIONARY_BLOCK_NAME, Algorithm.NONE);
+            try {
+              appender.write(dictionary);
+            } finally {
+              appender.close();
+            }
+          }
+
           // add metaBCFileIndex to metaIndex as the last meta block
           BlockAppender appender =
               prepareMetaBlock(DataIndex.BLOCK_NAME,
@@ -355,7 +415,7 @@ private BlockAppender prepareMetaBlock(String name, Algorithm compressAlgo)
 
       MetaBlockRegister mbr = new MetaBlockRegister(name, compressAlgo);
       WBlockState wbs =
-          new WBlockState(compressAlgo, out, fsOutputBuffer, conf);
+          new WBlockState(compressAlgo, out, fsOutputBuffer, null, conf);
       BlockAppender ba = new BlockAppender(mbr, wbs);
       blkInProgress = true;
       metaBlkSeen = true;
@@ -429,7 +489,7 @@ public BlockAppender prepareDataBlock() throws IOException {
 
       WBlockState wbs =
           new WBlockState(getDefaultCompressionAlgorithm(), out,
-              fsOutputBuffer, conf);
+              fsOutputBuffer, dictionary, conf);
       BlockAppender ba = new BlockAppender(dbr, wbs);
       blkInProgress = true;
       return ba;
@@ -482,6 +542,46 @@ static public class Reader implements Closeable {
     // Index for meta blocks
     final MetaIndex metaIndex;
     final Version version;
+    // decompressors with the dictionary of the data blocks, or null.
+    private final DictionaryDecompressors dictionaryDecompressors;
+
+    /**
+     * The decompressors of data blocks compressed with a dictionary. They are
+     * not pooled by the CodecPool, and are kept for the following blocks until
+     * the reader is closed.
+     */
+    private static final class DictionaryDecompressors {
+      private final Algorithm compressAlgo;
+      private final byte[] dictionary;
+      private final Queue<Decompressor> idle = new ConcurrentLinkedQueue<>();
+
+      DictionaryDecompressors(Algorithm compressAlgo, byte[] dictionary) {
+        this.compressAlgo = compressAlgo;
+        this.dictionary = dictionary;
+      }
+
+      Decompressor get() throws IOException {
+        Decompressor decompressor = idle.poll();
+        if (decompressor == null) {
+          return compressAlgo.getDecompressor(dictionary);
+        }
+        decompressor.reset();
+        return decompressor;
+      }
+
+      void release(Decompressor decompressor) {
+        if (decompressor != null) {
+          idle.add(decompressor);
+        }
+      }
+
+      void close() {
+        Decompressor decompressor;
+        while ((decompressor = idle.poll()) != null) {
+          decompressor.end();
+        }
+      }
+    }
 
     /**
      * Intermediate class that maintain the state of a Readable Compression
@@ -489,15 +589,24 @@ static public class Reader implements Closeable {
      */
     static private final class RBlockState {
       private final Algorithm compressAlgo;
+      private final DictionaryDecompressors dictionaryDecompressors;
       private Decompressor decompressor;
       private final BlockRegion region;
       private final InputStream in;
 
       public RBlockState(Algorithm compressionAlgo, FSDataInputStream fsin,
           BlockRegion region, Configuration conf) throws IOException {
+        this(compressionAlgo, fsin, region, null, conf);
+      }
+
+      RBlockState(Algorithm compressionAlgo, FSDataInputStream fsin,
+          BlockRegion region, DictionaryDecompressors dictionaryDecompressors,
+          Configuration conf) throws IOException {
         this.compressAlgo = compressionAlgo;
         this.region = region;
-        this.decompressor = compressionAlgo.getDecompressor();
+        this.dictionaryDecompressors = dictionaryDecompressors;
+        this.decompressor = dictionaryDecompressors == null
+            ? compressionAlgo.getDecompressor() : dictionaryDecompressors.get();
 
         try {
           this.in =
@@ -507,11 +616,19 @@ public RBlockState(Algorithm compressionAlgo, FSDataInputStream fsin,
                           .getCompressedSize()), decompressor, TFile
                       .getFSInputBufferSize(conf));
         } catch (IOException e) {
-          compressAlgo.returnDecompressor(decompressor);
+          releaseDecompressor();
           throw e;
         }
       }
 
+      private void releaseDecompressor() {
+        if (dictionaryDecompressors == null) {
+          compressAlgo.returnDecompressor(decompressor);
+        } else {
+          dictionaryDecompressors.release(decompressor);
+        }
+      }
+
       /**
        * Get the output stream for BlockAppender's consumption.
        * 
@@ -533,7 +650,7 @@ public void finish() throws IOException {
         try {
           in.close();
         } finally {
-          compressAlgo.returnDecompressor(decompressor);
+          releaseDecompressor();
           decompressor = null;
         }
       }
@@ -642,6 +759,24 @@ public Reader(FSDataInputStream fin, long fileLength, Configuration conf)
       } finally {
         blockR.close();
       }
+
+      // read the compression dictionary of the data blocks, if any
+      MetaIndexEntry dictionaryEntry =
+          metaIndex.getMetaByName(DICTIONARY_BLOCK_NAME);
+      if (dictionaryEntry != null) {
+        byte[] dictionary =
+            new byte[(int) dictionaryEntry.getRegion().getRawSize()];
+        blockR = getMetaBlock(DICTIONARY_BLOCK_NAME);
+        try {
+          blockR.readFully(dictionary);
+        } finally {
+          blockR.close();
+        }
+        dictionaryDecompressors = new DictionaryDecompressors(
+            dataIndex.getDefaultCompressionAlgorithm(), dictionary);
+      } else {
+        dictionaryDecompressors = null;
+      }
     }
 
     /**
@@ -676,7 +811,9 @@ public Version getAPIVersion() {
      */
     @Override
     public void close() {
-      // nothing to be done now
+      if (dictionaryDecompressors != null) {
+        dictionaryDecompressors.close();
+      }
     }
 
     /**
@@ -724,7 +861,10 @@ public BlockReader getDataBlock(int blockIndex) throws IOException {
       }
 
       BlockRegion region = dataIndex.getBlockRegionList().get(blockIndex);
-      return createReader(dataIndex.getDefaultCompressionAlgorithm(), region);
+      RBlockState rbs =
+          new RBlockState(dataIndex.getDefaultCompressionAlgorithm(), in,
+              region, dictionaryDecompressors, conf);
+      return new BlockReader(rbs);
     }
 
     private BlockReader createReader(Algorithm compressAlgo, BlockRegion region)
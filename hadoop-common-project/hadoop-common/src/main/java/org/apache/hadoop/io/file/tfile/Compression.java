@@ -32,6 +32,7 @@
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -222,6 +223,62 @@ public boolean isSupported() {
       }
     },
 
+    ZSTD(TFile.COMPRESSION_ZSTD) {
+      private transient ZStandardCodec codec;
+
+      @Override
+      synchronized CompressionCodec getCodec() throws IOException {
+        if (!isSupported()) {
+          throw new IOException("native zStandard library not available");
+        }
+        if (codec == null) {
+          codec = new ZStandardCodec();
+          codec.setConf(conf);
+        }
+
+        return codec;
+      }
+
+      @Override
+      public synchronized InputStream createDecompressionStream(
+          InputStream downStream, Decompressor decompressor,
+          int downStreamBufferSize) throws IOException {
+        InputStream bis1 = null;
+        if (downStreamBufferSize > 0) {
+          bis1 = new BufferedInputStream(downStream, downStreamBufferSize);
+        } else {
+          bis1 = downStream;
+        }
+        CompressionInputStream cis =
+            getCodec().createInputStream(bis1, decompressor);
+        BufferedInputStream bis2 = new BufferedInputStream(cis, DATA_IBUF_SIZE);
+        return bis2;
+      }
+
+      @Override
+      public synchronized OutputStream createCompressionStream(
+          OutputStream downStream, Compressor compressor,
+          int downStreamBufferSize) throws IOException {
+        OutputStream bos1 = null;
+        if (downStreamBufferSize > 0) {
+          bos1 = new BufferedOutputStream(downStream, downStreamBufferSize);
+        } else {
+          bos1 = downStream;
+        }
+        CompressionOutputStream cos =
+            getCodec().createOutputStream(bos1, compressor);
+        BufferedOutputStream bos2 =
+            new BufferedOutputStream(new FinishOnFlushCompressionStream(cos),
+                DATA_OBUF_SIZE);
+        return bos2;
+      }
+
+      @Override
+      public boolean isSupported() {
+        return ZStandardCodec.isNativeCodeLoaded();
+      }
+    },
+
     NONE(TFile.COMPRESSION_NONE) {
       @Override
       CompressionCodec getCodec() {
@@ -316,6 +373,44 @@ public void returnCompressor(Compressor compressor) {
       }
     }
 
+    /**
+     * Get a compressor which compresses with the given dictionary. Only
+     * {@link #ZSTD} supports dictionaries. The compressor is not pooled, so
+     * it has to be ended when it is no longer used.
+     *
+     * @param dictionary the dictionary.
+     * @return the compressor.
+     * @throws IOException if the algorithm does not support dictionaries.
+     */
+    Compressor getCompressor(byte[] dictionary) throws IOException {
+      CompressionCodec codec = getCodec();
+      if (!(codec instanceof ZStandardCodec)) {
+        throw new IOException(
+            "Compression algorithm " + compressName
+                + " does not support dictionaries");
+      }
+      return ((ZStandardCodec) codec).createCompressor(dictionary);
+    }
+
+    /**
+     * Get a decompressor for data compressed with the given dictionary. The
+     * decompressor is not pooled, so it has to be ended when it is no longer
+     * used.
+     *
+     * @param dictionary the dictionary.
+     * @return the decompressor.
+     * @throws IOException if the algorithm does not support dictionaries.
+     */
+    Decompressor getDecompressor(byte[] dictionary) throws IOException {
+      CompressionCodec codec = getCodec();
+      if (!(codec instanceof ZStandardCodec)) {
+        throw new IOException(
+            "Compression algorithm " + compressName
+                + " does not support dictionaries");
+      }
+      return ((ZStandardCodec) codec).createDecompressor(dictionary);
+    }
+
     public Decompressor getDecompressor() throws IOException {
       CompressionCodec codec = getCodec();
       if (codec != null) {
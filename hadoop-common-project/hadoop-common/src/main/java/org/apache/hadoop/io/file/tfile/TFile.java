@@ -159,6 +159,8 @@ static int getFSOutputBufferSize(Configuration conf) {
   public static final String COMPRESSION_GZ = "gz";
   /** compression: lzo */
   public static final String COMPRESSION_LZO = "lzo";
+  /** compression: zstd */
+  public static final String COMPRESSION_ZSTD = "zstd";
   /** compression: none */
   public static final String COMPRESSION_NONE = "none";
   /** comparator: memcmp */
@@ -193,6 +195,7 @@ private TFile() {
    *         <li>"none" - No compression.
    *         <li>"lzo" - LZO compression.
    *         <li>"gz" - GZIP compression.
+   *         <li>"zstd" - zStandard compression, with the native library.
    *         </ul>
    */
   public static String[] getSupportedCompressionAlgorithms() {
@@ -281,11 +284,42 @@ private enum State {
     public Writer(FSDataOutputStream fsdos, int minBlockSize,
         String compressName, String comparator, Configuration conf)
         throws IOException {
+      this(fsdos, minBlockSize, compressName, comparator, null, conf);
+    }
+
+    /**
+     * Constructor of a Writer which compresses the data blocks with a
+     * dictionary, for example one trained by
+     * {@link org.apache.hadoop.io.compress.ZStandardCodec#trainDictionary}.
+     * Small blocks of similar keys and values compress much better with a
+     * dictionary. The dictionary is stored in the file, so readers find it
+     * there.
+     *
+     * @param fsdos
+     *          output stream for writing. Must be at position 0.
+     * @param minBlockSize
+     *          Minimum compressed block size in bytes.
+     * @param compressName
+     *          Name of the compression algorithm, which has to be "zstd" if
+     *          there is a dictionary.
+     * @param comparator
+     *          The comparator, see
+     *          {@link #Writer(FSDataOutputStream, int, String, String,
+     *          Configuration)}.
+     * @param dictionary
+     *          The compression dictionary of the data blocks, or null.
+     * @param conf
+     *          The configuration object.
+     * @throws IOException raised on errors performing I/O.
+     */
+    public Writer(FSDataOutputStream fsdos, int minBlockSize,
+        String compressName, String comparator, byte[] dictionary,
+        Configuration conf) throws IOException {
       sizeMinBlock = minBlockSize;
       tfileMeta = new TFileMeta(comparator);
       tfileIndex = new TFileIndex(tfileMeta.getComparator());
 
-      writerBCF = new BCFile.Writer(fsdos, compressName, conf);
+      writerBCF = new BCFile.Writer(fsdos, compressName, dictionary, conf);
       currentKeyBufferOS = new BoundedByteArrayOutputStream(MAX_KEY_SIZE);
       lastKeyBufferOS = new BoundedByteArrayOutputStream(MAX_KEY_SIZE);
       this.conf = conf;
@@ -31,6 +31,7 @@
 import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -65,6 +66,25 @@ public static <R, T extends  Throwable> AsyncGet<R, T> getAsyncReturn() {
     }
   }
 
+  /**
+   * @return the async return value from {@link AsyncCallHandler} as a
+   *         {@link CompletableFuture}. It is completed by the thread which
+   *         processes the async calls, which the IPC client wakes up when a
+   *         response arrives, so no thread waits for the call. Dependent
+   *         actions which are not async run on that thread and must not
+   *         block; callers should hand the result to their own executor.
+   * @param <R> R.
+   */
+  @InterfaceStability.Unstable
+  @SuppressWarnings("unchecked")
+  public static <R> CompletableFuture<R> getCompletableAsyncReturn() {
+    final AsyncGet<Object, Throwable> asyncGet = ASYNC_RETURN.get();
+    Preconditions.checkState(asyncGet instanceof AsyncReturn,
+        "The call was not made through a retry proxy in asynchronous mode");
+    ASYNC_RETURN.set(null);
+    return (CompletableFuture<R>) ((AsyncReturn) asyncGet).future;
+  }
+
   /**
    * For the lower rpc layers to set the async return value.
    * @param asyncReturn asyncReturn.
@@ -142,6 +162,19 @@ long checkCalls() {
       return minWaitTime;
     }
 
+    /**
+     * @return true if the response of a call in the queue has arrived, so
+     *         the calls should be checked again without waiting.
+     */
+    boolean hasResponse() {
+      for (final Iterator<AsyncCall> i = queue.iterator(); i.hasNext();) {
+        if (i.next().isLowerLayerDone()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
     /** Process the async calls in the queue. */
     private class Processor {
       static final long GRACE_PERIOD = 3*1000L;
@@ -164,8 +197,14 @@ public void run() {
                 tryStop(this);
 
                 try {
+                  // The IPC client notifies the handler when a response
+                  // arrives. A response which arrived while the calls were
+                  // checked is found here, since the client notifies
+                  // without holding the lock of the call.
                   synchronized (AsyncCallHandler.this) {
-                    AsyncCallHandler.this.wait(waitTime);
+                    if (!hasResponse()) {
+                      AsyncCallHandler.this.wait(waitTime);
+                    }
                   }
                 } catch (InterruptedException e) {
                   kill(this);
@@ -216,11 +255,16 @@ synchronized V waitAsyncValue(long timeout, TimeUnit unit)
           + timeout + " " + unit);
     }
 
-    synchronized void set(V v) {
-      Preconditions.checkNotNull(v);
-      Preconditions.checkState(value == null);
-      value = v;
-      notify();
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+
+    void set(V v) {
+      synchronized (this) {
+        Preconditions.checkNotNull(v);
+        Preconditions.checkState(value == null);
+        value = v;
+        notify();
+      }
+      future.complete(v);
     }
 
     synchronized boolean isDone() {
@@ -232,7 +276,7 @@ static class AsyncCall extends RetryInvocationHandler.Call {
     private final AsyncCallHandler asyncCallHandler;
 
     private final AsyncValue<CallReturn> asyncCallReturn = new AsyncValue<>();
-    private AsyncGet<?, Exception> lowerLayerAsyncGet;
+    private volatile AsyncGet<?, Exception> lowerLayerAsyncGet;
 
     AsyncCall(Method method, Object[] args, boolean isRpc, int callId,
               RetryInvocationHandler<?> retryInvocationHandler,
@@ -242,6 +286,12 @@ static class AsyncCall extends RetryInvocationHandler.Call {
       this.asyncCallHandler = asyncCallHandler;
     }
 
+    /** @return true if the lower layer async call has returned. */
+    boolean isLowerLayerDone() {
+      final AsyncGet<?, Exception> asyncGet = lowerLayerAsyncGet;
+      return asyncGet != null && asyncGet.isDone();
+    }
+
     /** @return true if the call is done; otherwise, return false. */
     boolean isDone() {
       final CallReturn r = invokeOnce();
@@ -330,26 +380,42 @@ boolean hasSuccessfulCall() {
     return hasSuccessfulCall;
   }
 
+  /** The return value of an async call. */
+  private class AsyncReturn implements AsyncGet<Object, Throwable> {
+    private final AsyncValue<CallReturn> asyncCallReturn;
+    private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+    AsyncReturn(AsyncValue<CallReturn> asyncCallReturn) {
+      this.asyncCallReturn = asyncCallReturn;
+      asyncCallReturn.future.thenAccept(c -> {
+        try {
+          final Object r = c.getReturnValue();
+          hasSuccessfulCall = true;
+          future.complete(r);
+        } catch (Throwable t) {
+          future.completeExceptionally(t);
+        }
+      });
+    }
+
+    @Override
+    public Object get(long timeout, TimeUnit unit) throws Throwable {
+      final CallReturn c = asyncCallReturn.waitAsyncValue(timeout, unit);
+      final Object r = c.getReturnValue();
+      hasSuccessfulCall = true;
+      return r;
+    }
+
+    @Override
+    public boolean isDone() {
+      return asyncCallReturn.isDone();
+    }
+  }
+
   private void initAsyncCall(final AsyncCall asyncCall,
                              final AsyncValue<CallReturn> asyncCallReturn) {
     asyncCalls.addCall(asyncCall);
-
-    final AsyncGet<Object, Throwable> asyncGet
-        = new AsyncGet<Object, Throwable>() {
-      @Override
-      public Object get(long timeout, TimeUnit unit) throws Throwable {
-        final CallReturn c = asyncCallReturn.waitAsyncValue(timeout, unit);
-        final Object r = c.getReturnValue();
-        hasSuccessfulCall = true;
-        return r;
-      }
-
-      @Override
-      public boolean isDone() {
-        return asyncCallReturn.isDone();
-      }
-    };
-    ASYNC_RETURN.set(asyncGet);
+    ASYNC_RETURN.set(new AsyncReturn(asyncCallReturn));
   }
 
   @VisibleForTesting
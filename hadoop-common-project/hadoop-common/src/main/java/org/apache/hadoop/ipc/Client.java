@@ -316,7 +316,14 @@ public String toString() {
     protected synchronized void callComplete() {
       this.done = true;
       notify();                                 // notify caller
+    }
 
+    /**
+     * Notify the external handler that the call is complete. It is done
+     * without the lock of the call, so that the handler may check its calls
+     * while holding its own lock.
+     */
+    private void notifyExternalHandler() {
       if (externalHandler != null) {
         synchronized (externalHandler) {
           externalHandler.notify();
@@ -338,9 +345,12 @@ public synchronized void setAlignmentContext(AlignmentContext ac) {
      * 
      * @param error exception thrown by the call; either local or remote
      */
-    public synchronized void setException(IOException error) {
-      this.error = error;
-      callComplete();
+    public void setException(IOException error) {
+      synchronized (this) {
+        this.error = error;
+        callComplete();
+      }
+      notifyExternalHandler();
     }
     
     /** Set the return value when there is no error. 
@@ -348,9 +358,12 @@ public synchronized void setException(IOException error) {
      * 
      * @param rpcResponse return value of the rpc call.
      */
-    public synchronized void setRpcResponse(Writable rpcResponse) {
-      this.rpcResponse = rpcResponse;
-      callComplete();
+    public void setRpcResponse(Writable rpcResponse) {
+      synchronized (this) {
+        this.rpcResponse = rpcResponse;
+        callComplete();
+      }
+      notifyExternalHandler();
     }
     
     public synchronized Writable getRpcResponse() {
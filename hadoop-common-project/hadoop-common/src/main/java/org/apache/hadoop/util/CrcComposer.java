@@ -37,10 +37,12 @@
 @InterfaceStability.Unstable
 public class CrcComposer {
   private static final int CRC_SIZE_BYTES = 4;
+  private static final int CHECKSUMS_PER_READ = 8192;
   private static final Logger LOG = LoggerFactory.getLogger(CrcComposer.class);
 
   private final int crcPolynomial;
   private final int precomputedMonomialForHint;
+  private int[] monomialTableForHint;
   private final long bytesPerCrcHint;
   private final long stripeLength;
 
@@ -143,9 +145,14 @@ public void update(byte[] crcBuffer, int offset, int length, long bytesPerCrc) {
   public void update(
       DataInputStream checksumIn, long numChecksumsToRead, long bytesPerCrc)
       throws IOException {
-    for (long i = 0; i < numChecksumsToRead; ++i) {
-      int crcB = checksumIn.readInt();
-      update(crcB, bytesPerCrc);
+    // Read the CRCs in bulk rather than one readInt() at a time.
+    byte[] buf = new byte[(int) Math.min(numChecksumsToRead,
+        CHECKSUMS_PER_READ) * CRC_SIZE_BYTES];
+    for (long remaining = numChecksumsToRead; remaining > 0;) {
+      int n = (int) Math.min(remaining, CHECKSUMS_PER_READ);
+      checksumIn.readFully(buf, 0, n * CRC_SIZE_BYTES);
+      update(buf, 0, n * CRC_SIZE_BYTES, bytesPerCrc);
+      remaining -= n;
     }
   }
 
@@ -160,8 +167,13 @@ public void update(int crcB, long bytesPerCrc) {
     if (curCompositeCrc == 0) {
       curCompositeCrc = crcB;
     } else if (bytesPerCrc == bytesPerCrcHint) {
-      curCompositeCrc = CrcUtil.composeWithMonomial(
-          curCompositeCrc, crcB, precomputedMonomialForHint, crcPolynomial);
+      if (monomialTableForHint == null) {
+        // Built on first use, since composers of a single CRC never need it.
+        monomialTableForHint = CrcUtil.newMonomialTable(
+            precomputedMonomialForHint, crcPolynomial);
+      }
+      curCompositeCrc = CrcUtil.composeWithTable(
+          curCompositeCrc, crcB, monomialTableForHint);
     } else {
       curCompositeCrc = CrcUtil.compose(
           curCompositeCrc, crcB, bytesPerCrc, crcPolynomial);
@@ -313,14 +313,30 @@ public boolean compare( byte buf[], int offset ) {
    
   private final Type type;
   private final Checksum summer;
+  /** Whether the chunked sums are better done by summer than NativeCrc32. */
+  private final boolean jdkCrc;
   private final int bytesPerChecksum;
   private int inSum = 0;
   
   private DataChecksum( Type type, Checksum checksum, int chunkSize ) {
     this.type = type;
     summer = checksum;
+    jdkCrc = isJdkCrc(checksum);
     bytesPerChecksum = chunkSize;
   }
+
+  /**
+   * The CRC32 and CRC32C of the JDK are compiled by the JIT to the CRC
+   * instructions of the CPU, and sum many chunks faster than the JNI calls
+   * of NativeCrc32. They also read direct buffers in place.
+   *
+   * @param checksum checksum.
+   * @return true if the checksum is a CRC32 or CRC32C of the JDK.
+   */
+  static boolean isJdkCrc(Checksum checksum) {
+    return checksum instanceof CRC32
+        || checksum.getClass().getName().equals("java.util.zip.CRC32C");
+  }
   
   /** @return the checksum algorithm type. */
   public Type getChecksumType() {
@@ -404,7 +420,7 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
       final int dataOffset = data.arrayOffset() + data.position();
       final int crcsOffset = checksums.arrayOffset() + checksums.position();
 
-      if (NativeCrc32.isAvailable()) {
+      if (NativeCrc32.isAvailable() && !jdkCrc) {
         NativeCrc32.verifyChunkedSumsByteArray(bytesPerChecksum, type.id,
                 checksums.array(), crcsOffset, data.array(), dataOffset,
                 data.remaining(), fileName, basePos);
@@ -415,7 +431,7 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
       }
       return;
     }
-    if (NativeCrc32.isAvailable() && data.isDirect()) {
+    if (NativeCrc32.isAvailable() && data.isDirect() && !jdkCrc) {
       NativeCrc32.verifyChunkedSums(bytesPerChecksum, type.id, checksums, data,
           fileName, basePos);
     } else {
@@ -427,7 +443,7 @@ public void verifyChunkedSums(ByteBuffer data, ByteBuffer checksums,
   static void verifyChunked(final Type type, final Checksum algorithm,
       final ByteBuffer data, final int bytesPerCrc, final ByteBuffer crcs,
       final String filename, final long basePos) throws ChecksumException {
-    final byte[] bytes = new byte[bytesPerCrc];
+    final byte[] bytes = isJdkCrc(algorithm) ? null : new byte[bytesPerCrc];
     final int dataOffset = data.position();
     final int dataLength = data.remaining();
     data.mark();
@@ -436,9 +452,8 @@ static void verifyChunked(final Type type, final Checksum algorithm,
     try {
       int i = 0;
       for(final int n = dataLength - bytesPerCrc + 1; i < n; i += bytesPerCrc) {
-        data.get(bytes);
         algorithm.reset();
-        algorithm.update(bytes, 0, bytesPerCrc);
+        update(algorithm, data, bytes, bytesPerCrc);
         final int computed = (int)algorithm.getValue();
         final int expected = crcs.getInt();
 
@@ -451,9 +466,8 @@ static void verifyChunked(final Type type, final Checksum algorithm,
 
       final int remainder = dataLength - i;
       if (remainder > 0) {
-        data.get(bytes, 0, remainder);
         algorithm.reset();
-        algorithm.update(bytes, 0, remainder);
+        update(algorithm, data, bytes, remainder);
         final int computed = (int)algorithm.getValue();
         final int expected = crcs.getInt();
 
@@ -469,6 +483,30 @@ static void verifyChunked(final Type type, final Checksum algorithm,
     }
   }
 
+  /**
+   * Update the algorithm with the next bytes of the buffer, in place if the
+   * algorithm is a CRC of the JDK, or copying them to an array otherwise.
+   */
+  private static void update(Checksum algorithm, ByteBuffer data,
+      byte[] bytes, int len) {
+    if (bytes != null) {
+      data.get(bytes, 0, len);
+      algorithm.update(bytes, 0, len);
+      return;
+    }
+    final int limit = data.limit();
+    data.limit(data.position() + len);
+    try {
+      if (algorithm instanceof CRC32) {
+        ((CRC32) algorithm).update(data);
+      } else {
+        Java9Crc32CFactory.update(algorithm, data);
+      }
+    } finally {
+      data.limit(limit);
+    }
+  }
+
   /**
    * Implementation of chunked verification specifically on byte arrays. This
    * is to avoid the copy when dealing with ByteBuffers that have array backing.
@@ -538,7 +576,7 @@ public void calculateChunkedSums(ByteBuffer data, ByteBuffer checksums) {
       return;
     }
 
-    if (NativeCrc32.isAvailable()) {
+    if (NativeCrc32.isAvailable() && !jdkCrc) {
       NativeCrc32.calculateChunkedSums(bytesPerChecksum, type.id,
           checksums, data);
       return;
@@ -547,12 +585,11 @@ public void calculateChunkedSums(ByteBuffer data, ByteBuffer checksums) {
     data.mark();
     checksums.mark();
     try {
-      byte[] buf = new byte[bytesPerChecksum];
+      byte[] buf = jdkCrc ? null : new byte[bytesPerChecksum];
       while (data.remaining() > 0) {
         int n = Math.min(data.remaining(), bytesPerChecksum);
-        data.get(buf, 0, n);
         summer.reset();
-        summer.update(buf, 0, n);
+        update(summer, data, buf, n);
         checksums.putInt((int)summer.getValue());
       }
     } finally {
@@ -576,7 +613,7 @@ public void calculateChunkedSums(
       byte[] sums, int sumsOffset) {
     if (type.size == 0) return;
 
-    if (NativeCrc32.isAvailable()) {
+    if (NativeCrc32.isAvailable() && !jdkCrc) {
       NativeCrc32.calculateChunkedSumsByteArray(bytesPerChecksum, type.id,
           sums, sumsOffset, data, dataOffset, dataLength);
       return;
@@ -639,24 +676,31 @@ public void update(int b) {}
   };
 
   /**
-   * Holds constructor handle to let it be initialized on demand.
+   * Holds constructor and update handles to let them be initialized on
+   * demand.
    */
   private static class Java9Crc32CFactory {
     private static final MethodHandle NEW_CRC32C_MH;
+    private static final MethodHandle UPDATE_BUFFER_MH;
 
     static {
       MethodHandle newCRC32C = null;
+      MethodHandle updateBuffer = null;
       try {
         newCRC32C = MethodHandles.publicLookup()
             .findConstructor(
                 Class.forName("java.util.zip.CRC32C"),
                 MethodType.methodType(void.class)
             );
+        updateBuffer = MethodHandles.publicLookup()
+            .findVirtual(Checksum.class, "update",
+                MethodType.methodType(void.class, ByteBuffer.class));
       } catch (ReflectiveOperationException e) {
         // Should not reach here.
         throw new RuntimeException(e);
       }
       NEW_CRC32C_MH = newCRC32C;
+      UPDATE_BUFFER_MH = updateBuffer;
     }
 
     public static Checksum createChecksum() {
@@ -668,5 +712,15 @@ public static Checksum createChecksum() {
             : new RuntimeException(t);
       }
     }
+
+    public static void update(Checksum checksum, ByteBuffer buffer) {
+      try {
+        // Should throw nothing
+        UPDATE_BUFFER_MH.invokeExact(checksum, buffer);
+      } catch (Throwable t) {
+        throw (t instanceof RuntimeException) ? (RuntimeException) t
+            : new RuntimeException(t);
+      }
+    }
   };
 }
@@ -21,6 +21,8 @@
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -54,10 +56,15 @@ public class LineReader implements Closeable, IOStatisticsSource {
   private int bufferLength = 0;
   // the current position in the buffer
   private int bufferPosn = 0;
+  // the buffer read eight bytes at a time, when looking for delimiters
+  private ByteBuffer bufferWords;
 
   private static final byte CR = '\r';
   private static final byte LF = '\n';
 
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+
   // The line delimiter
   private final byte[] recordDelimiterBytes;
 
@@ -230,6 +237,12 @@ private int readDefaultLine(Text str, int maxLineLength, int maxBytesToConsume)
         }
       }
       for (; bufferPosn < bufferLength; ++bufferPosn) { //search for newline
+        if (!prevCharCR) { //skip to the next CR or LF
+          bufferPosn = indexOf(bufferPosn, bufferLength, CR, LF);
+          if (bufferPosn >= bufferLength) {
+            break;
+          }
+        }
         if (buffer[bufferPosn] == LF) {
           newlineLength = (prevCharCR) ? 2 : 1;
           ++bufferPosn; // at next invocation proceed from following byte
@@ -322,6 +335,13 @@ private int readCustomLine(Text str, int maxLineLength, int maxBytesToConsume)
         }
       }
       for (; bufferPosn < bufferLength; ++bufferPosn) {
+        if (delPosn == 0) { // skip to the next start of delimiter
+          bufferPosn = indexOf(bufferPosn, bufferLength,
+              recordDelimiterBytes[0], recordDelimiterBytes[0]);
+          if (bufferPosn >= bufferLength) {
+            break;
+          }
+        }
         if (buffer[bufferPosn] == recordDelimiterBytes[delPosn]) {
           delPosn++;
           if (delPosn >= recordDelimiterBytes.length) {
@@ -370,6 +390,45 @@ private int readCustomLine(Text str, int maxLineLength, int maxBytesToConsume)
     return (int) bytesConsumed; 
   }
 
+  /**
+   * Find the first of two bytes in the buffer. The bytes are compared eight
+   * at a time in long words: a byte of a word equal to b has its high bit
+   * set in ((w ^ b) - ONES) &amp; ~(w ^ b) &amp; HIGHS, and the lowest one
+   * set is exact as the borrows only propagate to the higher bytes.
+   *
+   * @param from the position to start from.
+   * @param to the end of the bytes to look at.
+   * @param a a byte to find.
+   * @param b another byte to find, or a again.
+   * @return the position of the first byte equal to a or b, or to if there
+   *         is none.
+   */
+  private int indexOf(int from, int to, byte a, byte b) {
+    int i = from;
+    if (to - i >= Long.BYTES) {
+      if (bufferWords == null || bufferWords.array() != buffer) {
+        bufferWords = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+      }
+      final long as = (a & 0xffL) * ONES;
+      final long bs = (b & 0xffL) * ONES;
+      for (; i <= to - Long.BYTES; i += Long.BYTES) {
+        long w = bufferWords.getLong(i);
+        long xa = w ^ as;
+        long xb = w ^ bs;
+        long found = ((xa - ONES) & ~xa | (xb - ONES) & ~xb) & HIGHS;
+        if (found != 0) {
+          return i + (Long.numberOfTrailingZeros(found) >>> 3);
+        }
+      }
+    }
+    for (; i < to; i++) {
+      if (buffer[i] == a || buffer[i] == b) {
+        return i;
+      }
+    }
+    return to;
+  }
+
   /**
    * Read from the InputStream into the given Text.
    * @param str the object to store the given line
@@ -52,6 +52,10 @@ static size_t (*dlsym_ZSTD_endStream)(ZSTD_CStream*, ZSTD_outBuffer*);
 static size_t (*dlsym_ZSTD_flushStream)(ZSTD_CStream*, ZSTD_outBuffer*);
 static unsigned (*dlsym_ZSTD_isError)(size_t);
 static const char * (*dlsym_ZSTD_getErrorName)(size_t);
+static size_t (*dlsym_ZSTD_CCtx_loadDictionary)(ZSTD_CCtx*, const void*, size_t);
+static size_t (*dlsym_ZDICT_trainFromBuffer)(void*, size_t, const void*, const size_t*, unsigned);
+static unsigned (*dlsym_ZDICT_isError)(size_t);
+static const char * (*dlsym_ZDICT_getErrorName)(size_t);
 #endif
 
 #ifdef WINDOWS
@@ -65,6 +69,10 @@ typedef size_t (__cdecl *__dlsym_ZSTD_endStream)(ZSTD_CStream*, ZSTD_outBuffer*)
 typedef size_t (__cdecl *__dlsym_ZSTD_flushStream)(ZSTD_CStream*, ZSTD_outBuffer*);
 typedef unsigned (__cdecl *__dlsym_ZSTD_isError)(size_t);
 typedef const char * (__cdecl *__dlsym_ZSTD_getErrorName)(size_t);
+typedef size_t (__cdecl *__dlsym_ZSTD_CCtx_loadDictionary)(ZSTD_CCtx*, const void*, size_t);
+typedef size_t (__cdecl *__dlsym_ZDICT_trainFromBuffer)(void*, size_t, const void*, const size_t*, unsigned);
+typedef unsigned (__cdecl *__dlsym_ZDICT_isError)(size_t);
+typedef const char * (__cdecl *__dlsym_ZDICT_getErrorName)(size_t);
 
 static __dlsym_ZSTD_CStreamInSize dlsym_ZSTD_CStreamInSize;
 static __dlsym_ZSTD_CStreamOutSize dlsym_ZSTD_CStreamOutSize;
@@ -76,6 +84,10 @@ static __dlsym_ZSTD_endStream dlsym_ZSTD_endStream;
 static __dlsym_ZSTD_flushStream dlsym_ZSTD_flushStream;
 static __dlsym_ZSTD_isError dlsym_ZSTD_isError;
 static __dlsym_ZSTD_getErrorName dlsym_ZSTD_getErrorName;
+static __dlsym_ZSTD_CCtx_loadDictionary dlsym_ZSTD_CCtx_loadDictionary;
+static __dlsym_ZDICT_trainFromBuffer dlsym_ZDICT_trainFromBuffer;
+static __dlsym_ZDICT_isError dlsym_ZDICT_isError;
+static __dlsym_ZDICT_getErrorName dlsym_ZDICT_getErrorName;
 #endif
 
 // Load the libzstd.so from disk
@@ -112,6 +124,12 @@ JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompress
     LOAD_DYNAMIC_SYMBOL(dlsym_ZSTD_flushStream, env, libzstd, "ZSTD_flushStream");
     LOAD_DYNAMIC_SYMBOL(dlsym_ZSTD_isError, env, libzstd, "ZSTD_isError");
     LOAD_DYNAMIC_SYMBOL(dlsym_ZSTD_getErrorName, env, libzstd, "ZSTD_getErrorName");
+    // the dictionary symbols are optional, older libzstd lacks them
+    dlsym_ZSTD_CCtx_loadDictionary = dlsym(libzstd, "ZSTD_CCtx_loadDictionary");
+    dlsym_ZDICT_trainFromBuffer = dlsym(libzstd, "ZDICT_trainFromBuffer");
+    dlsym_ZDICT_isError = dlsym(libzstd, "ZDICT_isError");
+    dlsym_ZDICT_getErrorName = dlsym(libzstd, "ZDICT_getErrorName");
+    dlerror();
 #endif
 
 #ifdef WINDOWS
@@ -125,6 +143,11 @@ JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompress
     LOAD_DYNAMIC_SYMBOL(__dlsym_ZSTD_flushStream, dlsym_ZSTD_flushStream, env, libzstd, "ZSTD_flushStream");
     LOAD_DYNAMIC_SYMBOL(__dlsym_ZSTD_isError, dlsym_ZSTD_isError, env, libzstd, "ZSTD_isError");
     LOAD_DYNAMIC_SYMBOL(__dlsym_ZSTD_getErrorName, dlsym_ZSTD_getErrorName, env, libzstd, "ZSTD_getErrorName");
+    // the dictionary symbols are optional, older libzstd lacks them
+    dlsym_ZSTD_CCtx_loadDictionary = (__dlsym_ZSTD_CCtx_loadDictionary) GetProcAddress(libzstd, "ZSTD_CCtx_loadDictionary");
+    dlsym_ZDICT_trainFromBuffer = (__dlsym_ZDICT_trainFromBuffer) GetProcAddress(libzstd, "ZDICT_trainFromBuffer");
+    dlsym_ZDICT_isError = (__dlsym_ZDICT_isError) GetProcAddress(libzstd, "ZDICT_isError");
+    dlsym_ZDICT_getErrorName = (__dlsym_ZDICT_getErrorName) GetProcAddress(libzstd, "ZDICT_getErrorName");
 #endif
 
     // load fields
@@ -157,6 +180,83 @@ JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompress
     }
 }
 
+// Whether libzstd can train and compress with dictionaries
+JNIEXPORT jboolean JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompressor_isDictionarySupportedNative (JNIEnv *env, jclass clazz) {
+    return (dlsym_ZSTD_CCtx_loadDictionary != NULL && dlsym_ZDICT_trainFromBuffer != NULL
+        && dlsym_ZDICT_isError != NULL && dlsym_ZDICT_getErrorName != NULL) ? JNI_TRUE : JNI_FALSE;
+}
+
+// Load a dictionary into the compression stream, for the following frames.
+// ZSTD_initCStream drops the dictionary, so it is loaded after it.
+JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompressor_loadDictionary (JNIEnv *env, jclass clazz, jbyteArray dict, jlong stream) {
+    if (dlsym_ZSTD_CCtx_loadDictionary == NULL) {
+        THROW(env, "java/lang/UnsupportedOperationException", "libzstd does not support dictionaries");
+        return;
+    }
+    jsize dict_len = (*env)->GetArrayLength(env, dict);
+    jbyte *dict_bytes = (*env)->GetByteArrayElements(env, dict, NULL);
+    if (dict_bytes == NULL) {
+        THROW(env, "java/lang/OutOfMemoryError", "Cannot access the dictionary");
+        return;
+    }
+    // The dictionary is copied into the stream
+    size_t result = dlsym_ZSTD_CCtx_loadDictionary((ZSTD_CCtx *) stream, dict_bytes, dict_len);
+    (*env)->ReleaseByteArrayElements(env, dict, dict_bytes, JNI_ABORT);
+    if (dlsym_ZSTD_isError(result)) {
+        THROW(env, "java/lang/InternalError", dlsym_ZSTD_getErrorName(result));
+        return;
+    }
+}
+
+// Train a dictionary from the concatenated samples
+JNIEXPORT jint JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompressor_trainDictionary (JNIEnv *env, jclass clazz, jbyteArray samples, jintArray sample_sizes, jbyteArray dict) {
+    if (dlsym_ZDICT_trainFromBuffer == NULL || dlsym_ZDICT_isError == NULL || dlsym_ZDICT_getErrorName == NULL) {
+        THROW(env, "java/lang/UnsupportedOperationException", "libzstd does not support dictionaries");
+        return (jint) 0;
+    }
+    jsize nb_samples = (*env)->GetArrayLength(env, sample_sizes);
+    jsize dict_capacity = (*env)->GetArrayLength(env, dict);
+    size_t *sizes = (size_t *) malloc(sizeof(size_t) * (nb_samples > 0 ? nb_samples : 1));
+    if (sizes == NULL) {
+        THROW(env, "java/lang/OutOfMemoryError", NULL);
+        return (jint) 0;
+    }
+    jint *jsizes = (*env)->GetIntArrayElements(env, sample_sizes, NULL);
+    if (jsizes == NULL) {
+        free(sizes);
+        THROW(env, "java/lang/OutOfMemoryError", "Cannot access the sample sizes");
+        return (jint) 0;
+    }
+    jsize i;
+    for (i = 0; i < nb_samples; i++) {
+        sizes[i] = (size_t) jsizes[i];
+    }
+    (*env)->ReleaseIntArrayElements(env, sample_sizes, jsizes, JNI_ABORT);
+
+    jbyte *samples_bytes = (*env)->GetByteArrayElements(env, samples, NULL);
+    jbyte *dict_bytes = (*env)->GetByteArrayElements(env, dict, NULL);
+    if (samples_bytes == NULL || dict_bytes == NULL) {
+        if (samples_bytes != NULL) {
+            (*env)->ReleaseByteArrayElements(env, samples, samples_bytes, JNI_ABORT);
+        }
+        if (dict_bytes != NULL) {
+            (*env)->ReleaseByteArrayElements(env, dict, dict_bytes, JNI_ABORT);
+        }
+        free(sizes);
+        THROW(env, "java/lang/OutOfMemoryError", "Cannot access the samples");
+        return (jint) 0;
+    }
+    size_t result = dlsym_ZDICT_trainFromBuffer(dict_bytes, dict_capacity, samples_bytes, sizes, (unsigned) nb_samples);
+    (*env)->ReleaseByteArrayElements(env, samples, samples_bytes, JNI_ABORT);
+    (*env)->ReleaseByteArrayElements(env, dict, dict_bytes, 0);
+    free(sizes);
+    if (dlsym_ZDICT_isError(result)) {
+        THROW(env, "java/lang/IllegalArgumentException", dlsym_ZDICT_getErrorName(result));
+        return (jint) 0;
+    }
+    return (jint) result;
+}
+
 // free the compression stream
 JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardCompressor_end (JNIEnv *env, jclass clazz, jlong stream) {
     size_t result = dlsym_ZSTD_freeCStream((ZSTD_CStream *) stream);
@@ -49,6 +49,7 @@ static size_t (*dlsym_ZSTD_decompressStream)(ZSTD_DStream*, ZSTD_outBuffer*, ZST
 static size_t (*dlsym_ZSTD_flushStream)(ZSTD_CStream*, ZSTD_outBuffer*);
 static unsigned (*dlsym_ZSTD_isError)(size_t);
 static const char * (*dlsym_ZSTD_getErrorName)(size_t);
+static size_t (*dlsym_ZSTD_DCtx_loadDictionary)(ZSTD_DCtx*, const void*, size_t);
 #endif
 
 #ifdef WINDOWS
@@ -62,6 +63,7 @@ typedef size_t (__cdecl *__dlsym_ZSTD_decompressStream)(ZSTD_DStream*, ZSTD_outB
 typedef size_t (__cdecl *__dlsym_ZSTD_flushStream)(ZSTD_CStream*, ZSTD_outBuffer*);
 typedef unsigned (__cdecl *__dlsym_ZSTD_isError)(size_t);
 typedef const char * (__cdecl *__dlsym_ZSTD_getErrorName)(size_t);
+typedef size_t (__cdecl *__dlsym_ZSTD_DCtx_loadDictionary)(ZSTD_DCtx*, const void*, size_t);
 
 static __dlsym_ZSTD_DStreamOutSize dlsym_ZSTD_DStreamOutSize;
 static __dlsym_ZSTD_DStreamInSize dlsym_ZSTD_DStreamInSize;
@@ -73,6 +75,7 @@ static __dlsym_ZSTD_decompressStream dlsym_ZSTD_decompressStream;
 static __dlsym_ZSTD_isError dlsym_ZSTD_isError;
 static __dlsym_ZSTD_getErrorName dlsym_ZSTD_getErrorName;
 static __dlsym_ZSTD_flushStream dlsym_ZSTD_flushStream;
+static __dlsym_ZSTD_DCtx_loadDictionary dlsym_ZSTD_DCtx_loadDictionary;
 #endif
 
 JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompressor_initIDs (JNIEnv *env, jclass clazz) {
@@ -107,6 +110,9 @@ JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompre
     LOAD_DYNAMIC_SYMBOL(dlsym_ZSTD_isError, env, libzstd, "ZSTD_isError");
     LOAD_DYNAMIC_SYMBOL(dlsym_ZSTD_getErrorName, env, libzstd, "ZSTD_getErrorName");
     LOAD_DYNAMIC_SYMBOL(dlsym_ZSTD_flushStream, env, libzstd, "ZSTD_flushStream");
+    // the dictionary symbol is optional, older libzstd lacks it
+    dlsym_ZSTD_DCtx_loadDictionary = dlsym(libzstd, "ZSTD_DCtx_loadDictionary");
+    dlerror();
 #endif
 
 #ifdef WINDOWS
@@ -120,6 +126,8 @@ JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompre
     LOAD_DYNAMIC_SYMBOL(__dlsym_ZSTD_isError, dlsym_ZSTD_isError, env, libzstd, "ZSTD_isError");
     LOAD_DYNAMIC_SYMBOL(__dlsym_ZSTD_getErrorName, dlsym_ZSTD_getErrorName, env, libzstd, "ZSTD_getErrorName");
     LOAD_DYNAMIC_SYMBOL(__dlsym_ZSTD_flushStream, dlsym_ZSTD_flushStream, env, libzstd, "ZSTD_flushStream");
+    // the dictionary symbol is optional, older libzstd lacks it
+    dlsym_ZSTD_DCtx_loadDictionary = (__dlsym_ZSTD_DCtx_loadDictionary) GetProcAddress(libzstd, "ZSTD_DCtx_loadDictionary");
 #endif
 
     ZStandardDecompressor_stream = (*env)->GetFieldID(env, clazz, "stream", "J");
@@ -147,6 +155,32 @@ JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompre
     }
 }
 
+// Whether libzstd can decompress with dictionaries
+JNIEXPORT jboolean JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompressor_isDictionarySupportedNative(JNIEnv *env, jclass clazz) {
+    return dlsym_ZSTD_DCtx_loadDictionary != NULL ? JNI_TRUE : JNI_FALSE;
+}
+
+// Load a dictionary into the decompression stream, for the following frames.
+// ZSTD_initDStream drops the dictionary, so it is loaded after it.
+JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompressor_loadDictionary(JNIEnv *env, jclass clazz, jbyteArray dict, jlong stream) {
+    if (dlsym_ZSTD_DCtx_loadDictionary == NULL) {
+        THROW(env, "java/lang/UnsupportedOperationException", "libzstd does not support dictionaries");
+        return;
+    }
+    jsize dict_len = (*env)->GetArrayLength(env, dict);
+    jbyte *dict_bytes = (*env)->GetByteArrayElements(env, dict, NULL);
+    if (dict_bytes == NULL) {
+        THROW(env, "java/lang/OutOfMemoryError", "Cannot access the dictionary");
+        return;
+    }
+    // The dictionary is copied into the stream
+    size_t result = dlsym_ZSTD_DCtx_loadDictionary((ZSTD_DCtx *) stream, dict_bytes, dict_len);
+    (*env)->ReleaseByteArrayElements(env, dict, dict_bytes, JNI_ABORT);
+    if (dlsym_ZSTD_isError(result)) {
+        THROW(env, "java/lang/InternalError", dlsym_ZSTD_getErrorName(result));
+        return;
+    }
+}
 
 JNIEXPORT void JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompressor_free(JNIEnv *env, jclass clazz, jlong stream) {
     size_t result = dlsym_ZSTD_freeDStream((ZSTD_DStream *) stream);
@@ -193,10 +227,11 @@ JNIEXPORT jint JNICALL Java_org_apache_hadoop_io_compress_zstd_ZStandardDecompre
     int remaining = input.size - input.pos;
     (*env)->SetIntField(env, this, ZStandardDecompressor_remaining, remaining);
 
-    // the entire frame has been decoded
+    // the entire frame has been decoded, ready the stream for the next one
+    // and keep the dictionary, which ZSTD_initDStream would drop
     if (size == 0) {
         (*env)->SetBooleanField(env, this, ZStandardDecompressor_finished, JNI_TRUE);
-        size_t result = dlsym_ZSTD_initDStream(stream);
+        size_t result = dlsym_ZSTD_resetDStream(stream);
         if (dlsym_ZSTD_isError(result)) {
             THROW(env, "java/lang/InternalError", dlsym_ZSTD_getErrorName(result));
             return (jint) 0;
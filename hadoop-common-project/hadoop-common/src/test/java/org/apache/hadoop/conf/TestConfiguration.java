@@ -47,6 +47,7 @@
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 import static java.util.concurrent.TimeUnit.*;
 
@@ -2456,6 +2457,48 @@ public void run() {
     // it's expected behaviour.
   }
 
+  /**
+   * Readers don't take the lock of the configuration, so they must never see
+   * the properties while they are being reloaded.
+   */
+  @Test
+  public void testConcurrentReadsDuringReload() throws Exception {
+    out = new BufferedWriter(new FileWriter(CONFIG));
+    startConfig();
+    appendProperty("some.config", "xyz");
+    endConfig();
+    Configuration conf = new Configuration();
+    conf.addResource(new Path(CONFIG));
+    conf.set("some.set.config", "abc");
+
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicReference<String> failure = new AtomicReference<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      readers.add(new Thread(() -> {
+        while (!done.get()) {
+          String value = conf.get("some.config");
+          String setValue = conf.get("some.set.config");
+          if (!"xyz".equals(value) || !"abc".equals(setValue)) {
+            failure.set(value + ", " + setValue);
+          }
+        }
+      }));
+    }
+    for (Thread t : readers) {
+      t.start();
+    }
+    for (int i = 0; i < 100; i++) {
+      conf.reloadConfiguration();
+      conf.size();
+    }
+    done.set(true);
+    for (Thread t : readers) {
+      t.join();
+    }
+    assertNull(failure.get());
+  }
+
   @Test
   public void testNullValueProperties() throws Exception {
     Configuration conf = new Configuration();
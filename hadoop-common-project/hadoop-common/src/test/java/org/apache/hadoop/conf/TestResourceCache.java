@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.conf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests loading configuration resources through the {@link ResourceCache}.
+ */
+public class TestResourceCache {
+
+  private File testDir;
+  private File cacheDir;
+  private File resource;
+
+  @Before
+  public void setUp() throws IOException {
+    testDir = GenericTestUtils.getRandomizedTestDir();
+    cacheDir = new File(testDir, "cache");
+    assertTrue(cacheDir.mkdirs());
+    setOwnerOnly(cacheDir);
+    resource = new File(testDir, "test-site.xml");
+    System.setProperty(ResourceCache.CACHE_DIR_PROPERTY,
+        cacheDir.getAbsolutePath());
+  }
+
+  @After
+  public void tearDown() {
+    System.clearProperty(ResourceCache.CACHE_DIR_PROPERTY);
+    FileUtil.fullyDelete(testDir);
+  }
+
+  private static void setOwnerOnly(File dir) throws IOException {
+    try {
+      Files.setPosixFilePermissions(dir.toPath(),
+          PosixFilePermissions.fromString("rwx------"));
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system.
+    }
+  }
+
+  private static void write(File file, String... properties)
+      throws IOException {
+    try (Writer out = Files.newBufferedWriter(file.toPath(),
+        StandardCharsets.UTF_8)) {
+      out.write("<?xml version=\"1.0\"?>\n<configuration>\n");
+      for (String property : properties) {
+        out.write(property);
+        out.write('\n');
+      }
+      out.write("</configuration>\n");
+    }
+  }
+
+  private Configuration load() {
+    Configuration conf = new Configuration(false);
+    conf.addResource(new Path(resource.getAbsolutePath()));
+    conf.size();
+    return conf;
+  }
+
+  private File getCacheFile() throws IOException {
+    return new ResourceCache(cacheDir).getFile(
+        resource.getAbsoluteFile().toURI().toURL().toString());
+  }
+
+  @Test
+  public void testCachedResource() throws Exception {
+    Configuration.addDeprecation("test.cache.old", "test.cache.new");
+    write(resource,
+        "<property><name>test.cache.a</name><value>1</value></property>",
+        "<property><name>test.cache.b</name><value>2</value>"
+            + "<final>true</final><tag>DEBUG,CLIENT</tag></property>",
+        "<property><name>test.cache.c</name><value>3</value>"
+            + "<source>generator</source></property>",
+        "<property><name>test.cache.old</name><value>4</value></property>",
+        "<property name=\"test.cache.d\" value=\"5\"/>");
+
+    Configuration parsed = load();
+    assertTrue(getCacheFile().exists());
+    Configuration cached = load();
+
+    for (Configuration conf : Arrays.asList(parsed, cached)) {
+      assertEquals("1", conf.get("test.cache.a"));
+      assertEquals("2", conf.get("test.cache.b"));
+      assertEquals("3", conf.get("test.cache.c"));
+      assertEquals("4", conf.get("test.cache.new"));
+      assertEquals("5", conf.get("test.cache.d"));
+      assertEquals(5, conf.size());
+      assertEquals(Collections.singleton("test.cache.b"),
+          conf.getFinalParameters());
+      assertEquals("2",
+          conf.getAllPropertiesByTag("CLIENT").getProperty("test.cache.b"));
+    }
+    assertArrayEquals(parsed.getPropertySources("test.cache.c"),
+        cached.getPropertySources("test.cache.c"));
+    assertArrayEquals(parsed.getPropertySources("test.cache.new"),
+        cached.getPropertySources("test.cache.new"));
+  }
+
+  @Test
+  public void testChecksumValidation() throws Exception {
+    write(resource,
+        "<property><name>test.cache.a</name><value>1</value></property>");
+    assertEquals("1", load().get("test.cache.a"));
+
+    // A cached entry for the same content is used instead of the resource.
+    byte[] content = Files.readAllBytes(resource.toPath());
+    CRC32 crc = new CRC32();
+    crc.update(content, 0, content.length);
+    List<ResourceCache.Property> properties = Collections.singletonList(
+        new ResourceCache.Property("test.cache.a", "cached", false, null,
+            Collections.emptyList()));
+    new ResourceCache(cacheDir).write(
+        resource.getAbsoluteFile().toURI().toURL().toString(),
+        content.length, crc.getValue(), properties);
+    assertEquals("cached", load().get("test.cache.a"));
+
+    // It is ignored once the resource changes.
+    write(resource,
+        "<property><name>test.cache.a</name><value>2</value></property>");
+    assertEquals("2", load().get("test.cache.a"));
+    assertEquals("2", load().get("test.cache.a"));
+  }
+
+  @Test
+  public void testIncludeNotCached() throws Exception {
+    File included = new File(testDir, "included.xml");
+    write(included,
+        "<property><name>test.cache.a</name><value>1</value></property>");
+    write(resource, "<xi:include href=\"" + included.getAbsolutePath()
+        + "\" xmlns:xi=\"http://www.w3.org/2001/XInclude\"/>");
+    assertEquals("1", load().get("test.cache.a"));
+    assertFalse(getCacheFile().exists());
+
+    write(included,
+        "<property><name>test.cache.a</name><value>2</value></property>");
+    assertEquals("2", load().get("test.cache.a"));
+  }
+
+  @Test
+  public void testCacheDisabled() throws Exception {
+    System.clearProperty(ResourceCache.CACHE_DIR_PROPERTY);
+    write(resource,
+        "<property><name>test.cache.a</name><value>1</value></property>");
+    assertEquals("1", load().get("test.cache.a"));
+    assertEquals(0, cacheDir.list().length);
+  }
+
+  @Test
+  public void testSharedDirectoryNotUsed() throws Exception {
+    try {
+      Files.setPosixFilePermissions(cacheDir.toPath(),
+          PosixFilePermissions.fromString("rwxrwxrwx"));
+    } catch (UnsupportedOperationException e) {
+      assumeTrue("Not a POSIX file system", false);
+    }
+    assertNull(ResourceCache.get());
+    setOwnerOnly(cacheDir);
+    assertNotNull(ResourceCache.get());
+  }
+}
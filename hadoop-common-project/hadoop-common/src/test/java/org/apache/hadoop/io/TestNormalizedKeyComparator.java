@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestNormalizedKeyComparator {
+  private final Random random = new Random(0xa11ce);
+
+  private static byte[] serialize(Writable w) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    w.write(out);
+    byte[] b = new byte[out.getLength() + 3];
+    // leave a byte before and after the key, to check the offsets
+    System.arraycopy(out.getData(), 0, b, 1, out.getLength());
+    return b;
+  }
+
+  /**
+   * Check that the normalized keys of all pairs of keys never contradict the
+   * comparator, and that they decide the order when they are complete.
+   */
+  private static void checkNormalizedKeys(NormalizedKeyComparator<?> cmp,
+      List<byte[]> keys, boolean complete) {
+    assertTrue(cmp.hasNormalizedKey());
+    for (byte[] b1 : keys) {
+      long n1 = cmp.getNormalizedKey(b1, 1, b1.length - 3);
+      for (byte[] b2 : keys) {
+        long n2 = cmp.getNormalizedKey(b2, 1, b2.length - 3);
+        int c = Integer.signum(
+            cmp.compare(b1, 1, b1.length - 3, b2, 1, b2.length - 3));
+        int n = Integer.signum(Long.compareUnsigned(n1, n2));
+        if (complete || n != 0) {
+          assertEquals(c, n);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testText() throws IOException {
+    List<byte[]> keys = new ArrayList<>();
+    keys.add(serialize(new Text("")));
+    keys.add(serialize(new Text("\u0000")));
+    keys.add(serialize(new Text("abcdefgh")));
+    keys.add(serialize(new Text("abcdefgh\u0000")));
+    keys.add(serialize(new Text("abcdefghi")));
+    for (int i = 0; i < 200; i++) {
+      byte[] b = new byte[random.nextInt(12)];
+      for (int j = 0; j < b.length; j++) {
+        b[j] = (byte) "ab\u0000\u00ff\u0080".charAt(random.nextInt(5));
+      }
+      Text t = new Text();
+      t.set(b);
+      keys.add(serialize(t));
+    }
+    checkNormalizedKeys(new Text.Comparator(), keys, false);
+  }
+
+  @Test
+  public void testBytesWritable() throws IOException {
+    List<byte[]> keys = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      byte[] b = new byte[random.nextInt(12)];
+      for (int j = 0; j < b.length; j++) {
+        b[j] = (byte) (random.nextInt(3) - 1);
+      }
+      keys.add(serialize(new BytesWritable(b)));
+    }
+    checkNormalizedKeys(new BytesWritable.Comparator(), keys, false);
+  }
+
+  @Test
+  public void testLongWritable() throws IOException {
+    List<byte[]> keys = new ArrayList<>();
+    for (long l : new long[] {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}) {
+      keys.add(serialize(new LongWritable(l)));
+    }
+    for (int i = 0; i < 100; i++) {
+      keys.add(serialize(new LongWritable(random.nextLong())));
+    }
+    checkNormalizedKeys(new LongWritable.Comparator(), keys, true);
+    checkNormalizedKeys(new LongWritable.DecreasingComparator(), keys, true);
+  }
+
+  @Test
+  public void testIntWritable() throws IOException {
+    List<byte[]> keys = new ArrayList<>();
+    for (int v : new int[] {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE}) {
+      keys.add(serialize(new IntWritable(v)));
+    }
+    for (int i = 0; i < 100; i++) {
+      keys.add(serialize(new IntWritable(random.nextInt())));
+    }
+    checkNormalizedKeys(new IntWritable.Comparator(), keys, true);
+  }
+
+  @Test
+  public void testCompositeKey() {
+    int[] values = {Integer.MIN_VALUE, -2, 0, 3, Integer.MAX_VALUE};
+    for (int a1 : values) {
+      for (int a2 : values) {
+        for (int b1 : values) {
+          for (int b2 : values) {
+            long n1 = WritableComparator.normalizeInt(a1)
+                | (WritableComparator.normalizeInt(a2) >>> 32);
+            long n2 = WritableComparator.normalizeInt(b1)
+                | (WritableComparator.normalizeInt(b2) >>> 32);
+            int c = a1 != b1 ? Integer.compare(a1, b1)
+                : Integer.compare(a2, b2);
+            assertEquals(Integer.signum(c),
+                Integer.signum(Long.compareUnsigned(n1, n2)));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSubclassReordering() {
+    NormalizedKeyComparator<?> cmp = new Text.Comparator() {
+      @Override
+      public int compare(byte[] b1, int s1, int l1,
+          byte[] b2, int s2, int l2) {
+        return super.compare(b2, s2, l2, b1, s1, l1);
+      }
+    };
+    assertFalse(cmp.hasNormalizedKey());
+    assertFalse(new LongWritable.DecreasingComparator() {
+    }.hasNormalizedKey());
+  }
+}
@@ -19,6 +19,7 @@
 package org.apache.hadoop.io;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 import org.apache.hadoop.fs.*;
@@ -26,6 +27,7 @@
 import org.apache.hadoop.io.SequenceFile.Metadata;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.io.serializer.Deserializer;
 import org.apache.hadoop.io.serializer.Serialization;
 import org.apache.hadoop.io.serializer.Serializer;
@@ -41,6 +43,7 @@
 import static org.junit.Assert.fail;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
 import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -202,6 +205,163 @@ public void compressedSeqFileTest(CompressionCodec codec) throws Exception {
     }
   }
 
+  @Test
+  public void testParallelBlockCompression() throws Exception {
+    int count = 1024 * 10;
+    Path file = new Path(GenericTestUtils.getTempPath("test.pbc.seq"));
+    int seed = new Random().nextInt();
+    LOG.info("Seed = " + seed);
+
+    conf.setInt(CommonConfigurationKeys.IO_SEQFILE_COMPRESS_BLOCKSIZE_KEY,
+        4096);
+    conf.setInt(CommonConfigurationKeys.IO_SEQFILE_COMPRESS_THREADS_KEY, 3);
+    FileSystem fs = FileSystem.getLocal(conf);
+    try {
+      writeTest(fs, count, seed, file, CompressionType.BLOCK,
+          new DefaultCodec());
+      readTest(fs, count, seed, file);
+      long length = fs.getFileStatus(file).getLen();
+      int[] splitCounts = {readSplit(file, 0, length / 3),
+          readSplit(file, length / 3, length)};
+      assertEquals(count, splitCounts[0] + splitCounts[1]);
+
+      // Read the blocks ahead
+      conf.setBoolean(
+          CommonConfigurationKeys.IO_SEQFILE_DECOMPRESS_READAHEAD_KEY, true);
+      readTest(fs, count, seed, file);
+      assertEquals(splitCounts[0], readSplit(file, 0, length / 3));
+      assertEquals(splitCounts[1], readSplit(file, length / 3, length));
+
+      sortTest(fs, count, 1, 5, false, file);
+      checkSort(fs, count, seed, file);
+    } finally {
+      fs.close();
+    }
+  }
+
+  @Test
+  public void testCompressionDictionary() throws Exception {
+    assumeTrue(ZStandardCodec.isDictionarySupported());
+    Path file = new Path(GenericTestUtils.getTempPath("test.dict.seq"));
+    List<byte[]> samples = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      samples.add(("key" + i + "\tvalue of the record " + (i % 37))
+          .getBytes(StandardCharsets.UTF_8));
+    }
+    byte[] dictionary = ZStandardCodec.trainDictionary(samples, 4096);
+    conf.setInt(CommonConfigurationKeys.IO_SEQFILE_COMPRESS_BLOCKSIZE_KEY,
+        1024);
+    conf.setInt(CommonConfigurationKeys.IO_SEQFILE_COMPRESS_THREADS_KEY, 2);
+    ZStandardCodec codec = new ZStandardCodec();
+    codec.setConf(conf);
+    try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+        SequenceFile.Writer.file(file),
+        SequenceFile.Writer.keyClass(Text.class),
+        SequenceFile.Writer.valueClass(Text.class),
+        SequenceFile.Writer.compression(CompressionType.BLOCK, codec),
+        SequenceFile.Writer.compressionDictionary(dictionary))) {
+      for (int i = 0; i < 5000; i++) {
+        writer.append(new Text("key" + i),
+            new Text("value of the record " + (i % 37)));
+      }
+    }
+
+    for (boolean readAhead : new boolean[] {false, true}) {
+      conf.setBoolean(
+          CommonConfigurationKeys.IO_SEQFILE_DECOMPRESS_READAHEAD_KEY,
+          readAhead);
+      try (SequenceFile.Reader reader = new SequenceFile.Reader(conf,
+          SequenceFile.Reader.file(file))) {
+        assertNotNull(reader.getMetadata().get(
+            new Text(SequenceFile.COMPRESSION_DICTIONARY_KEY)));
+        Text key = new Text();
+        Text value = new Text();
+        int i = 0;
+        while (reader.next(key, value)) {
+          assertEquals("key" + i, key.toString());
+          assertEquals("value of the record " + (i % 37), value.toString());
+          i++;
+        }
+        assertEquals(5000, i);
+      }
+    }
+    // Older readers reject files with a dictionary.
+    assertEquals(7, readVersion(file));
+  }
+
+  @Test
+  public void testCompressionDictionaryKeyWithoutDictionary()
+      throws Exception {
+    assumeTrue(ZStandardCodec.isNativeCodeLoaded());
+    Path file = new Path(GenericTestUtils.getTempPath("test.dictkey.seq"));
+    ZStandardCodec codec = new ZStandardCodec();
+    codec.setConf(conf);
+    // Only files written with a dictionary use the key.
+    Metadata metadata = new Metadata();
+    metadata.set(new Text(SequenceFile.COMPRESSION_DICTIONARY_KEY),
+        new Text("bm90IGEgZGljdGlvbmFyeQ=="));
+    try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+        SequenceFile.Writer.file(file),
+        SequenceFile.Writer.keyClass(Text.class),
+        SequenceFile.Writer.valueClass(Text.class),
+        SequenceFile.Writer.compression(CompressionType.BLOCK, codec),
+        SequenceFile.Writer.metadata(metadata))) {
+      writer.append(new Text("key"), new Text("value"));
+    }
+    assertEquals(6, readVersion(file));
+
+    try (SequenceFile.Reader reader = new SequenceFile.Reader(conf,
+        SequenceFile.Reader.file(file))) {
+      Text key = new Text();
+      Text value = new Text();
+      assertTrue(reader.next(key, value));
+      assertEquals("value", value.toString());
+    }
+  }
+
+  private int readVersion(Path file) throws IOException {
+    try (FSDataInputStream in = file.getFileSystem(conf).open(file)) {
+      in.seek(3);
+      return in.read();
+    }
+  }
+
+  @Test
+  public void testCompressionDictionaryNeedsBlockCompression()
+      throws Exception {
+    Path file = new Path(GenericTestUtils.getTempPath("test.dictrec.seq"));
+    try {
+      SequenceFile.createWriter(conf,
+          SequenceFile.Writer.file(file),
+          SequenceFile.Writer.keyClass(Text.class),
+          SequenceFile.Writer.valueClass(Text.class),
+          SequenceFile.Writer.compression(CompressionType.RECORD,
+              new ZStandardCodec()),
+          SequenceFile.Writer.compressionDictionary(new byte[16]));
+      fail("A dictionary should need BLOCK compression");
+    } catch (IllegalArgumentException e) {
+      GenericTestUtils.assertExceptionContains("BLOCK compression", e);
+    }
+  }
+
+  /** Count the records of a split, like a record reader of the split. */
+  private int readSplit(Path file, long start, long end) throws IOException {
+    try (SequenceFile.Reader reader = new SequenceFile.Reader(conf,
+        SequenceFile.Reader.file(file))) {
+      reader.sync(start);
+      RandomDatum key = new RandomDatum();
+      RandomDatum value = new RandomDatum();
+      int records = 0;
+      while (true) {
+        long pos = reader.getPosition();
+        if (!reader.next(key, value) || (pos >= end && reader.syncSeen())) {
+          return records;
+        }
+        records++;
+      }
+    }
+  }
+
   @SuppressWarnings("deprecation")
   private void writeTest(FileSystem fs, int count, int seed, Path file, 
                                 CompressionType compressionType, CompressionCodec codec)
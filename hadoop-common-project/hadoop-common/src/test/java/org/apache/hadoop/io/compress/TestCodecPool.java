@@ -17,7 +17,11 @@
  */
 package org.apache.hadoop.io.compress;
 
+import static org.apache.hadoop.test.MetricsAsserts.assertCounterGt;
+import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -30,13 +34,16 @@
 import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.io.compress.zlib.BuiltInGzipCompressor;
 import org.apache.hadoop.io.compress.zlib.BuiltInGzipDecompressor;
 import org.apache.hadoop.test.LambdaTestUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class TestCodecPool {
@@ -248,4 +255,62 @@ public void testDoNotPoolDecompressorNotUseableAfterReturn() throws Exception {
                     "useable after returning to CodecPool",
         () -> inputStream.read());
   }
+
+  /** A compressor class pooled only by {@link #testMaxIdle()}. */
+  public static class MaxIdleCompressor extends BuiltInGzipCompressor {
+    public MaxIdleCompressor(Configuration conf) {
+      super(conf);
+    }
+  }
+
+  /** A codec whose compressors go to a pool of their own. */
+  public static class MaxIdleCodec extends GzipCodec {
+    @Override
+    public Class<? extends Compressor> getCompressorType() {
+      return MaxIdleCompressor.class;
+    }
+
+    @Override
+    public Compressor createCompressor() {
+      return new MaxIdleCompressor(getConf());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testMaxIdle() {
+    // The compressor class is only pooled here, so its pool is created with
+    // this configuration.
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_CODEC_POOL_MAX_IDLE_KEY,
+        2);
+    MaxIdleCodec codec = new MaxIdleCodec();
+    codec.setConf(conf);
+
+    List<Compressor> returned = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      returned.add(CodecPool.getCompressor(codec, conf));
+    }
+    assertGauge("MaxIdleCompressorLeased", 4, getMetrics("CodecPool"));
+    for (Compressor compressor : returned) {
+      CodecPool.returnCompressor(compressor);
+    }
+    assertEquals(LEASE_COUNT_ERR, 0,
+        CodecPool.getLeasedCompressorsCount(codec));
+    assertGauge("MaxIdleCompressorIdle", 2, getMetrics("CodecPool"));
+    assertCounterGt("Discarded", 1, getMetrics("CodecPool"));
+    assertCounterGt("GetCompressorNumOps", 3, getMetrics("CodecPool"));
+    assertCounterGt("ReturnCompressorNumOps", 3, getMetrics("CodecPool"));
+
+    // Only the first two compressors returned were kept, and the most
+    // recently returned one is reused first.
+    Compressor comp1 = CodecPool.getCompressor(codec, conf);
+    Compressor comp2 = CodecPool.getCompressor(codec, conf);
+    Compressor comp3 = CodecPool.getCompressor(codec, conf);
+    assertTrue(comp1 == returned.get(1));
+    assertTrue(comp2 == returned.get(0));
+    assertTrue(!returned.contains(comp3));
+    CodecPool.returnCompressor(comp1);
+    CodecPool.returnCompressor(comp2);
+    CodecPool.returnCompressor(comp3);
+  }
 }
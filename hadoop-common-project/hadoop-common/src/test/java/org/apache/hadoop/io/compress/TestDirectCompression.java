@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DirectCompressor}s of the codecs and the streams which
+ * use them. The codecs whose native libraries are not loaded are skipped.
+ */
+public class TestDirectCompression {
+  private static final int BLOCK_SIZE = 64 * 1024;
+
+  private final Random random = new Random(12345L);
+
+  private byte[] generate(int size) {
+    // Half random, half repeated to give the codecs something to compress
+    byte[] data = new byte[size];
+    random.nextBytes(data);
+    for (int i = size / 2; i < size; i++) {
+      data[i] = (byte) (i % 17);
+    }
+    return data;
+  }
+
+  private static ByteBuffer direct(byte[] data) {
+    ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+    buf.put(data);
+    buf.flip();
+    return buf;
+  }
+
+  private static List<CompressionCodec> getCodecs(Configuration conf) {
+    List<CompressionCodec> codecs = new ArrayList<>(Arrays.asList(
+        new SnappyCodec(), new Lz4Codec(), new DefaultCodec(),
+        new GzipCodec(), new BZip2Codec()));
+    if (ZStandardCodec.isNativeCodeLoaded()) {
+      codecs.add(new ZStandardCodec());
+    }
+    for (CompressionCodec codec : codecs) {
+      ((Configurable) codec).setConf(conf);
+    }
+    return codecs;
+  }
+
+  @Test
+  public void testCompressDecompress() throws IOException {
+    Configuration conf = new Configuration();
+    for (boolean useLz4HC : new boolean[] {false, true}) {
+      conf.setBoolean(
+          CommonConfigurationKeys.IO_COMPRESSION_CODEC_LZ4_USELZ4HC_KEY,
+          useLz4HC);
+      for (CompressionCodec codec : getCodecs(conf)) {
+        DirectCompressor compressor =
+            ((DirectCompressionCodec) codec).createDirectCompressor();
+        if (compressor == null) {
+          continue;
+        }
+        for (int size : new int[] {0, 1, 1000, BLOCK_SIZE}) {
+          testCompressDecompress(codec, compressor, generate(size));
+        }
+      }
+    }
+  }
+
+  private void testCompressDecompress(CompressionCodec codec,
+      DirectCompressor compressor, byte[] data) throws IOException {
+    String name = codec.getClass().getSimpleName() + " " + data.length;
+    ByteBuffer src = direct(data);
+    int maxLength = compressor.maxCompressedLength(data.length);
+    ByteBuffer compressed = ByteBuffer.allocateDirect(maxLength + 10);
+    compressed.position(10);
+    compressor.compress(src, compressed);
+    assertEquals(name, src.limit(), src.position());
+    assertTrue(name, compressed.position() <= maxLength + 10);
+    compressed.flip();
+    compressed.position(10);
+    byte[] compressedBytes = new byte[compressed.remaining()];
+    compressed.duplicate().get(compressedBytes);
+
+    // The regular decompressor of the codec reads the block.
+    Decompressor decompressor = codec.createDecompressor();
+    byte[] result = new byte[data.length];
+    int n = 0;
+    decompressor.setInput(compressedBytes, 0, compressedBytes.length);
+    while (n < data.length && !decompressor.finished()) {
+      n += decompressor.decompress(result, n, data.length - n);
+    }
+    assertEquals(name, data.length, n);
+    assertArrayEquals(name, data, result);
+
+    // So does its direct decompressor, which is available whenever the
+    // direct compressor is.
+    DirectDecompressor directDecompressor =
+        ((DirectDecompressionCodec) codec).createDirectDecompressor();
+    if (data.length > 0) {
+      ByteBuffer dst = ByteBuffer.allocateDirect(data.length);
+      while (compressed.hasRemaining()) {
+        directDecompressor.decompress(compressed, dst);
+      }
+      assertEquals(name, data.length, dst.position());
+      dst.flip();
+      assertEquals(name, ByteBuffer.wrap(data), dst);
+    }
+  }
+
+  @Test
+  public void testBufferOverflow() throws IOException {
+    DirectCompressor compressor = new SnappyCodec().createDirectCompressor();
+    ByteBuffer src = direct(generate(1000));
+    ByteBuffer dst = ByteBuffer.allocateDirect(
+        compressor.maxCompressedLength(1000) - 1);
+    try {
+      compressor.compress(src, dst);
+      fail("compress should fail with too small a buffer");
+    } catch (BufferOverflowException e) {
+      assertEquals(0, src.position());
+      assertEquals(0, dst.position());
+    }
+  }
+
+  @Test
+  public void testStreams() throws IOException {
+    Configuration conf = new Configuration();
+    for (CompressionCodec codec : getCodecs(conf)) {
+      DirectCompressor compressor =
+          ((DirectCompressionCodec) codec).createDirectCompressor();
+      if (compressor == null) {
+        continue;
+      }
+      testStreams(codec, compressor);
+    }
+  }
+
+  private void testStreams(CompressionCodec codec, DirectCompressor compressor)
+      throws IOException {
+    String name = codec.getClass().getSimpleName();
+    byte[] data = generate(5 * BLOCK_SIZE + 1234);
+    ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+    try (DirectBlockCompressorStream out = new DirectBlockCompressorStream(
+        bytesOut, compressor, BLOCK_SIZE)) {
+      // A partial block, then whole blocks of a direct buffer, which are
+      // compressed without copying, and a heap buffer.
+      out.write(data, 0, 1000);
+      out.write(data[1000]);
+      ByteBuffer directBuf = direct(data);
+      directBuf.position(1001).limit(1001 + 2 * BLOCK_SIZE);
+      out.write(directBuf);
+      directBuf.limit(1001 + 3 * BLOCK_SIZE + 100);
+      out.write(directBuf);
+      ByteBuffer heapBuf = ByteBuffer.wrap(data);
+      heapBuf.position(directBuf.position());
+      out.write(heapBuf);
+    }
+    byte[] compressed = bytesOut.toByteArray();
+
+    // Read into heap arrays and direct buffers, some too small for a block.
+    try (DirectBlockDecompressorStream in = new DirectBlockDecompressorStream(
+        new ByteArrayInputStream(compressed),
+        ((DirectDecompressionCodec) codec).createDirectDecompressor(),
+        BLOCK_SIZE)) {
+      ByteBuffer result = ByteBuffer.allocateDirect(data.length);
+      assertEquals(name, data[0], (byte) in.read());
+      byte[] bytes = new byte[1000];
+      assertEquals(name, bytes.length, in.read(bytes, 0, bytes.length));
+      result.put(data[0]).put(bytes);
+      while (result.hasRemaining()) {
+        int limit = result.limit();
+        result.limit(Math.min(limit, result.position() + BLOCK_SIZE * 4 / 3));
+        assertTrue(name, in.read(result) > 0);
+        result.limit(limit);
+      }
+      assertEquals(name, -1, in.read(ByteBuffer.allocateDirect(10)));
+      result.flip();
+      assertEquals(name, ByteBuffer.wrap(data), result);
+    }
+
+    // The streams of the block codecs read the same format.
+    if (codec instanceof SnappyCodec || codec instanceof Lz4Codec) {
+      Configuration conf = new Configuration();
+      conf.setInt(
+          CommonConfigurationKeys.IO_COMPRESSION_CODEC_LZ4_BUFFERSIZE_KEY,
+          compressor.maxCompressedLength(BLOCK_SIZE));
+      conf.setInt(
+          CommonConfigurationKeys.IO_COMPRESSION_CODEC_SNAPPY_BUFFERSIZE_KEY,
+          compressor.maxCompressedLength(BLOCK_SIZE));
+      ((Configurable) codec).setConf(conf);
+      try (InputStream in =
+          codec.createInputStream(new ByteArrayInputStream(compressed))) {
+        byte[] result = new byte[data.length];
+        int n = 0;
+        int count;
+        while ((count = in.read(result, n, result.length - n)) > 0) {
+          n += count;
+        }
+        assertEquals(name, data.length, n);
+        assertEquals(name, -1, in.read());
+        assertArrayEquals(name, data, result);
+      }
+    }
+  }
+}
@@ -42,6 +42,9 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT;
@@ -512,6 +515,73 @@ public void testDecompressReturnsWhenNothingToDecompress() throws Exception {
     assertEquals(0, result);
   }
 
+  @Test
+  public void testCompressionWithDictionary() throws Exception {
+    assumeTrue(ZStandardCodec.isDictionarySupported());
+    List<byte[]> samples = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      samples.add(generateRecord(i));
+    }
+    byte[] dictionary = ZStandardCodec.trainDictionary(samples, 4 * 1024);
+    assertTrue(dictionary.length > 0 && dictionary.length <= 4 * 1024);
+
+    ZStandardCodec codec = new ZStandardCodec();
+    codec.setConf(CONFIGURATION);
+    byte[] record = generateRecord(123456);
+    byte[] plain = compress(codec, codec.createCompressor(), record);
+    Compressor compressor = codec.createCompressor(dictionary);
+    byte[] compressed = compress(codec, compressor, record);
+    assertTrue(compressed.length < plain.length);
+    // The dictionary is kept across resets.
+    assertArrayEquals(compressed, compress(codec, compressor, record));
+    compressor.end();
+
+    Decompressor decompressor = codec.createDecompressor(dictionary);
+    for (int i = 0; i < 2; i++) {
+      decompressor.reset();
+      try (CompressionInputStream cis = codec.createInputStream(
+          new ByteArrayInputStream(compressed), decompressor)) {
+        byte[] result = new byte[record.length];
+        IOUtils.readFully(cis, result, 0, result.length);
+        assertArrayEquals(record, result);
+        assertEquals(-1, cis.read());
+      }
+    }
+    // The dictionary is kept for the frames following the first one.
+    ByteArrayOutputStream frames = new ByteArrayOutputStream();
+    frames.write(compressed);
+    frames.write(compressed);
+    decompressor.reset();
+    try (CompressionInputStream cis = codec.createInputStream(
+        new ByteArrayInputStream(frames.toByteArray()), decompressor)) {
+      byte[] result = new byte[record.length];
+      for (int i = 0; i < 2; i++) {
+        IOUtils.readFully(cis, result, 0, result.length);
+        assertArrayEquals(record, result);
+      }
+      assertEquals(-1, cis.read());
+    }
+    decompressor.end();
+  }
+
+  private static byte[] generateRecord(int i) {
+    return String.format("{\"user\":\"user%d\",\"action\":\"%s\","
+            + "\"page\":\"/catalog/section%d/item%d\",\"status\":200}",
+        i % 97, i % 3 == 0 ? "click" : "view", i % 13, i)
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] compress(ZStandardCodec codec, Compressor compressor,
+      byte[] data) throws IOException {
+    compressor.reset();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (CompressionOutputStream cos =
+        codec.createOutputStream(baos, compressor)) {
+      cos.write(data);
+    }
+    return baos.toByteArray();
+  }
+
   public static byte[] generate(int size) {
     byte[] data = new byte[size];
     for (int i = 0; i < size; i++) {
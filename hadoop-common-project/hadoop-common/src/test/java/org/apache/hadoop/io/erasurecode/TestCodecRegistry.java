@@ -21,6 +21,7 @@
 import org.apache.hadoop.io.erasurecode.rawcoder.NativeXORRawErasureCoderFactory;
 import org.apache.hadoop.io.erasurecode.rawcoder.RSLegacyRawErasureCoderFactory;
 import org.apache.hadoop.io.erasurecode.rawcoder.RSRawErasureCoderFactory;
+import org.apache.hadoop.io.erasurecode.rawcoder.RSWordRawErasureCoderFactory;
 import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureCoderFactory;
 import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureDecoder;
 import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureEncoder;
@@ -52,9 +53,10 @@ public void testGetCodecs() {
   public void testGetCoders() {
     List<RawErasureCoderFactory> coders = CodecRegistry.getInstance().
             getCoders(ErasureCodeConstants.RS_CODEC_NAME);
-    assertEquals(2, coders.size());
+    assertEquals(3, coders.size());
     assertTrue(coders.get(0) instanceof NativeRSRawErasureCoderFactory);
-    assertTrue(coders.get(1) instanceof RSRawErasureCoderFactory);
+    assertTrue(coders.get(1) instanceof RSWordRawErasureCoderFactory);
+    assertTrue(coders.get(2) instanceof RSRawErasureCoderFactory);
 
     coders = CodecRegistry.getInstance().
             getCoders(ErasureCodeConstants.RS_LEGACY_CODEC_NAME);
@@ -79,9 +81,10 @@ public void testGetCodersWrong() {
   public void testGetCoderNames() {
     String[] coderNames = CodecRegistry.getInstance().
         getCoderNames(ErasureCodeConstants.RS_CODEC_NAME);
-    assertEquals(2, coderNames.length);
+    assertEquals(3, coderNames.length);
     assertEquals(NativeRSRawErasureCoderFactory.CODER_NAME, coderNames[0]);
-    assertEquals(RSRawErasureCoderFactory.CODER_NAME, coderNames[1]);
+    assertEquals(RSWordRawErasureCoderFactory.CODER_NAME, coderNames[1]);
+    assertEquals(RSRawErasureCoderFactory.CODER_NAME, coderNames[2]);
 
     coderNames = CodecRegistry.getInstance().
         getCoderNames(ErasureCodeConstants.RS_LEGACY_CODEC_NAME);
@@ -104,6 +107,11 @@ public void testGetCoderByName() {
         RSRawErasureCoderFactory.CODER_NAME);
     assertTrue(coder instanceof RSRawErasureCoderFactory);
 
+    coder = CodecRegistry.getInstance().getCoderByName(
+        ErasureCodeConstants.RS_CODEC_NAME,
+        RSWordRawErasureCoderFactory.CODER_NAME);
+    assertTrue(coder instanceof RSWordRawErasureCoderFactory);
+
     coder = CodecRegistry.getInstance().getCoderByName(
         ErasureCodeConstants.RS_CODEC_NAME,
         NativeRSRawErasureCoderFactory.CODER_NAME);
@@ -159,15 +167,17 @@ public String getCodecName() {
     // check RS coders
     List<RawErasureCoderFactory> rsCoders = CodecRegistry.getInstance().
         getCoders(ErasureCodeConstants.RS_CODEC_NAME);
-    assertEquals(2, rsCoders.size());
+    assertEquals(3, rsCoders.size());
     assertTrue(rsCoders.get(0) instanceof NativeRSRawErasureCoderFactory);
-    assertTrue(rsCoders.get(1) instanceof RSRawErasureCoderFactory);
+    assertTrue(rsCoders.get(1) instanceof RSWordRawErasureCoderFactory);
+    assertTrue(rsCoders.get(2) instanceof RSRawErasureCoderFactory);
 
     // check RS coder names
     String[] rsCoderNames = CodecRegistry.getInstance().
         getCoderNames(ErasureCodeConstants.RS_CODEC_NAME);
-    assertEquals(2, rsCoderNames.length);
+    assertEquals(3, rsCoderNames.length);
     assertEquals(NativeRSRawErasureCoderFactory.CODER_NAME, rsCoderNames[0]);
-    assertEquals(RSRawErasureCoderFactory.CODER_NAME, rsCoderNames[1]);
+    assertEquals(RSWordRawErasureCoderFactory.CODER_NAME, rsCoderNames[1]);
+    assertEquals(RSRawErasureCoderFactory.CODER_NAME, rsCoderNames[2]);
   }
 }
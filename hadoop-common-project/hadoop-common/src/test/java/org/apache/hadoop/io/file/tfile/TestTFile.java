@@ -20,7 +20,9 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 import org.apache.hadoop.conf.Configuration;
@@ -28,6 +30,7 @@
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.ZStandardCodec;
 import org.apache.hadoop.io.file.tfile.TFile.Reader;
 import org.apache.hadoop.io.file.tfile.TFile.Writer;
 import org.apache.hadoop.test.GenericTestUtils;
@@ -38,6 +41,8 @@
 
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * test tfile features.
@@ -282,9 +287,15 @@ private FSDataOutputStream createFSOutput(Path name) throws IOException {
    * test none codecs
    */
   void basicWithSomeCodec(String codec) throws IOException {
+    basicWithSomeCodec(codec, null);
+  }
+
+  void basicWithSomeCodec(String codec, byte[] dictionary)
+      throws IOException {
     Path ncTFile = new Path(ROOT, "basic.tfile");
     FSDataOutputStream fout = createFSOutput(ncTFile);
-    Writer writer = new Writer(fout, minBlockSize, codec, "memcmp", conf);
+    Writer writer =
+        new Writer(fout, minBlockSize, codec, "memcmp", dictionary, conf);
     writeRecords(writer);
     fout.close();
     FSDataInputStream fin = fs.open(ncTFile);
@@ -359,6 +370,28 @@ public void testTFileFeatures() throws IOException {
     basicWithSomeCodec("gz");
   }
 
+  @Test
+  public void testZStandardDictionary() throws IOException {
+    assumeTrue(ZStandardCodec.isDictionarySupported());
+    List<byte[]> samples = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      samples.add(("value" + String.format(localFormatter, i)).getBytes());
+    }
+    basicWithSomeCodec("zstd");
+    basicWithSomeCodec("zstd", ZStandardCodec.trainDictionary(samples, 1024));
+  }
+
+  @Test
+  public void testDictionaryNeedsZStandard() throws IOException {
+    Path file = new Path(ROOT, "dictionary.tfile");
+    try (FSDataOutputStream fout = createFSOutput(file)) {
+      new Writer(fout, minBlockSize, "gz", "memcmp", new byte[16], conf);
+      fail("gz should not support dictionaries");
+    } catch (IllegalArgumentException e) {
+      GenericTestUtils.assertExceptionContains("dictionaries", e);
+    }
+  }
+
   // test unsorted t files.
   @Test
   public void testUnsortedTFileFeatures() throws IOException {
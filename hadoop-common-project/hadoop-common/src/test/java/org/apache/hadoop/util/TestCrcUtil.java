@@ -77,6 +77,24 @@ public void testComposeCrc32cWithMonomial() {
     doTestComposeCrc(data, DataChecksum.Type.CRC32C, 32 * 1024 - 1, true);
   }
 
+  @Test
+  public void testComposeWithTable() {
+    for (int mod : new int[] {
+        CrcUtil.GZIP_POLYNOMIAL, CrcUtil.CASTAGNOLI_POLYNOMIAL}) {
+      for (long length : new long[] {1, 511, 512, 64 * 1024 * 1024}) {
+        int monomial = CrcUtil.getMonomial(length, mod);
+        int[] table = CrcUtil.newMonomialTable(monomial, mod);
+        for (int i = 0; i < 1000; i++) {
+          int crcA = RANDOM.nextInt();
+          int crcB = RANDOM.nextInt();
+          assertEquals(
+              CrcUtil.composeWithMonomial(crcA, crcB, monomial, mod),
+              CrcUtil.composeWithTable(crcA, crcB, table));
+        }
+      }
+    }
+  }
+
   @Test
   public void testComposeCrc32ZeroLength() {
     doTestComposeCrcZerolength(DataChecksum.Type.CRC32);
@@ -20,6 +20,7 @@
 import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 import org.apache.hadoop.fs.ChecksumException;
 import org.junit.Test;
@@ -55,6 +56,55 @@ public void testBulkOps() throws Exception {
     }
   }
 
+  @Test
+  public void testBulkOpsLargeChunks() throws Exception {
+    for (DataChecksum.Type type : CHECKSUM_TYPES) {
+      for (int bytesPerChecksum : new int[]{4096, 65536}) {
+        DataChecksum checksum = DataChecksum.newDataChecksum(
+            type, bytesPerChecksum);
+        for (boolean useDirect : new boolean[]{false, true}) {
+          doBulkTest(checksum, 3 * bytesPerChecksum - 1, useDirect);
+          doBulkTest(checksum, 3 * bytesPerChecksum, useDirect);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testJdkCrc() {
+    assertTrue(DataChecksum.isJdkCrc(new CRC32()));
+    assertFalse(DataChecksum.isJdkCrc(new PureJavaCrc32()));
+    assertFalse(DataChecksum.isJdkCrc(new PureJavaCrc32C()));
+    assertEquals(Shell.isJavaVersionAtLeast(9),
+        DataChecksum.isJdkCrc(DataChecksum.newCrc32C()));
+  }
+
+  /**
+   * The chunks of direct buffers are copied for the checksums which are not
+   * of the JDK; check that they are verified like the JDK ones.
+   */
+  @Test
+  public void testVerifyChunkedByCopy() throws Exception {
+    DataChecksum checksum = DataChecksum.newDataChecksum(
+        DataChecksum.Type.CRC32C, BYTES_PER_CHUNK);
+    Harness h = new Harness(checksum, 1025, true);
+    checksum.calculateChunkedSums(h.dataBuf, h.checksumBuf);
+    DataChecksum.verifyChunked(DataChecksum.Type.CRC32C, new PureJavaCrc32C(),
+        h.dataBuf, BYTES_PER_CHUNK, h.checksumBuf, "fake file", 0);
+
+    corruptBufferOffset(h.dataBuf, DATA_OFFSET_IN_BUFFER + 1024);
+    try {
+      DataChecksum.verifyChunked(DataChecksum.Type.CRC32C,
+          new PureJavaCrc32C(), h.dataBuf, BYTES_PER_CHUNK, h.checksumBuf,
+          "fake file", 0);
+      fail("Did not throw on bad data");
+    } catch (ChecksumException ce) {
+      assertEquals(1024, ce.getPos());
+    }
+    assertEquals(DATA_OFFSET_IN_BUFFER, h.dataBuf.position());
+    assertEquals(SUMS_OFFSET_IN_BUFFER, h.checksumBuf.position());
+  }
+
   private static class Harness {
     final DataChecksum checksum;
     final int dataLength, sumsLength, numSums;
@@ -20,7 +20,10 @@
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.apache.hadoop.io.Text;
 import org.junit.Assert;
@@ -163,4 +166,74 @@ public void testCustomDelimiter3() throws Exception {
 
     lineReader.close();
   }
+
+  /**
+   * Test 4: lines of random bytes, with bytes close to the delimiters, are
+   * split as one byte at a time would, across buffers of many sizes.
+   */
+  @Test
+  public void testRandomLines() throws Exception {
+    final Random random = new Random(0x11e5);
+    final byte[] alphabet = {'a', '\t', '\u000b', '\u000c', '\u000e',
+        (byte) 0x8a, (byte) 0x8d, (byte) 0x0a ^ (byte) 0x80, 'r', 'e'};
+    for (int iteration = 0; iteration < 200; iteration++) {
+      final byte[] data = new byte[random.nextInt(2000)];
+      for (int i = 0; i < data.length; i++) {
+        int r = random.nextInt(40);
+        data[i] = r == 0 ? (byte) '\r' : r == 1 ? (byte) '\n'
+            : alphabet[random.nextInt(alphabet.length)];
+      }
+      final int bufferSize = 1 + random.nextInt(64);
+
+      List<String> expected = new ArrayList<>();
+      int start = 0;
+      for (int i = 0; i < data.length; i++) {
+        if (data[i] == '\n' || data[i] == '\r') {
+          expected.add(new String(data, start, i - start,
+              StandardCharsets.ISO_8859_1));
+          if (data[i] == '\r' && i + 1 < data.length && data[i + 1] == '\n') {
+            i++;
+          }
+          start = i + 1;
+        }
+      }
+      if (start < data.length) {
+        expected.add(new String(data, start, data.length - start,
+            StandardCharsets.ISO_8859_1));
+      }
+      Assert.assertEquals(expected,
+          readLines(new LineReader(new ByteArrayInputStream(data),
+              bufferSize), data.length));
+
+      final byte[] delimiter = {'r', 'e', 'r'};
+      expected = new ArrayList<>();
+      final String text = new String(data, StandardCharsets.ISO_8859_1);
+      start = 0;
+      for (int i = text.indexOf("rer"); i >= 0; i = text.indexOf("rer", start)) {
+        expected.add(text.substring(start, i));
+        start = i + delimiter.length;
+      }
+      if (start < text.length()) {
+        expected.add(text.substring(start));
+      }
+      Assert.assertEquals(expected,
+          readLines(new LineReader(new ByteArrayInputStream(data),
+              bufferSize, delimiter), data.length));
+    }
+  }
+
+  private static List<String> readLines(LineReader reader, int length)
+      throws Exception {
+    final List<String> lines = new ArrayList<>();
+    final Text line = new Text();
+    int consumed = 0;
+    for (int n; (n = reader.readLine(line)) > 0;) {
+      lines.add(new String(line.getBytes(), 0, line.getLength(),
+          StandardCharsets.ISO_8859_1));
+      consumed += n;
+    }
+    reader.close();
+    Assert.assertEquals(length, consumed);
+    return lines;
+  }
 }
@@ -0,0 +1,216 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.util.Preconditions;
+
+/**
+ * Decides when to start a hedged read from the read latencies observed
+ * per DataNode, instead of after a fixed threshold.
+ * <ul>
+ *   <li>The client keeps the latencies of the last reads from every
+ *   DataNode in a sliding window. A hedged read is started once the read
+ *   in flight has taken longer than the configured percentile of the
+ *   latencies of its DataNode. Until a DataNode has enough samples, the
+ *   fixed threshold is used.</li>
+ *   <li>Hedged reads are capped at a percentage of all reads. Reads that
+ *   are over the budget wait for their first request instead.</li>
+ *   <li>Replicas are tried in the order given by the namenode, except that
+ *   replicas on DataNodes which are measured as much slower than the others
+ *   are tried last.</li>
+ * </ul>
+ */
+@InterfaceAudience.Private
+class AdaptiveHedgedReadPolicy {
+
+  /** Reads after which the hedging budget starts over. */
+  private static final long BUDGET_PERIOD_READS = 10000;
+
+  /**
+   * A replica is tried last if its tail latency is more than this many
+   * times the lowest tail latency of the replicas of the block.
+   */
+  @VisibleForTesting
+  static final int SLOW_NODE_FACTOR = 2;
+
+  /** The latencies of the last reads from one DataNode. */
+  private static final class LatencyWindow {
+    private final long[] samples;
+    private final int minSamples;
+    private int next = 0;
+    private int count = 0;
+    /** Samples added since the percentile was last computed. */
+    private int stale = 0;
+    private long percentile = -1;
+
+    LatencyWindow(int size) {
+      this.samples = new long[size];
+      this.minSamples = Math.max(1, size / 4);
+    }
+
+    synchronized void add(long millis) {
+      samples[next] = millis;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+      stale++;
+    }
+
+    /**
+     * @return the given percentile of the latencies in the window, or -1
+     *         if the window does not have enough samples yet.
+     */
+    synchronized long getPercentile(int pct) {
+      if (count < minSamples) {
+        return -1;
+      }
+      // Sorting the window is cheap, but still only do it once the window
+      // has changed noticeably.
+      if (percentile < 0 || stale >= Math.max(1, samples.length / 16)) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(pct / 100.0 * count) - 1;
+        percentile = sorted[Math.max(0, Math.min(count - 1, idx))];
+        stale = 0;
+      }
+      return percentile;
+    }
+  }
+
+  private final long defaultThresholdMillis;
+  private final int percentile;
+  private final int maxHedgePercent;
+  private final int windowSize;
+  private final DFSHedgedReadMetrics metrics;
+
+  private final ConcurrentHashMap<String, LatencyWindow> windows =
+      new ConcurrentHashMap<>();
+  private final AtomicLong reads = new AtomicLong();
+  private final AtomicLong hedges = new AtomicLong();
+
+  AdaptiveHedgedReadPolicy(long defaultThresholdMillis, int percentile,
+      int maxHedgePercent, int windowSize, DFSHedgedReadMetrics metrics) {
+    Preconditions.checkArgument(percentile > 0 && percentile <= 100,
+        "percentile must be in (0, 100]: %s", percentile);
+    Preconditions.checkArgument(maxHedgePercent >= 0 && maxHedgePercent <= 100,
+        "maxHedgePercent must be in [0, 100]: %s", maxHedgePercent);
+    Preconditions.checkArgument(windowSize > 0,
+        "windowSize must be positive: %s", windowSize);
+    this.defaultThresholdMillis = defaultThresholdMillis;
+    this.percentile = percentile;
+    this.maxHedgePercent = maxHedgePercent;
+    this.windowSize = windowSize;
+    this.metrics = metrics;
+  }
+
+  /** Record how long a successful read from a DataNode took. */
+  void addLatency(DatanodeInfo datanode, long millis) {
+    windows.computeIfAbsent(datanode.getDatanodeUuid(),
+        k -> new LatencyWindow(windowSize)).add(millis);
+  }
+
+  /**
+   * @return the tail latency of the DataNode, or -1 if it is not known yet.
+   */
+  long getTailLatencyMillis(DatanodeInfo datanode) {
+    LatencyWindow window = windows.get(datanode.getDatanodeUuid());
+    return window == null ? -1 : window.getPercentile(percentile);
+  }
+
+  /**
+   * @return how long to wait for a read from the DataNode before starting
+   *         a hedged read.
+   */
+  long getThresholdMillis(DatanodeInfo datanode) {
+    long tail = getTailLatencyMillis(datanode);
+    if (tail < 0) {
+      return defaultThresholdMillis;
+    }
+    // A zero threshold would hedge every read.
+    long threshold = Math.max(1, tail);
+    metrics.setHedgedReadThresholdMillis(threshold);
+    return threshold;
+  }
+
+  /** Count a read which may be hedged. */
+  void addRead() {
+    if (reads.incrementAndGet() >= BUDGET_PERIOD_READS) {
+      // Start a new budget period. Concurrent updates may be lost, which
+      // only makes the budget slightly more or less generous.
+      reads.set(0);
+      hedges.set(0);
+    }
+  }
+
+  /**
+   * Take a hedged read from the budget.
+   *
+   * @return false if hedged reads are over the budget.
+   */
+  boolean tryAcquireHedge() {
+    long hedged = hedges.get();
+    if ((hedged + 1) * 100 > Math.max(1, reads.get()) * maxHedgePercent) {
+      metrics.incHedgedReadOpsThrottled();
+      return false;
+    }
+    hedges.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Order the nodes to try them in. The order from the namenode, which
+   * accounts for locality, is kept, except that nodes measured as slow are
+   * moved to the end, fastest first. A node is slow if its tail latency is
+   * more than {@link #SLOW_NODE_FACTOR} times the lowest tail latency of
+   * the nodes. Nodes which have not been measured yet are never slow.
+   *
+   * @return the indices of the nodes in the order to try them.
+   */
+  Integer[] getReadOrder(DatanodeInfo[] nodes) {
+    final long[] tails = new long[nodes.length];
+    long fastest = Long.MAX_VALUE;
+    for (int i = 0; i < nodes.length; i++) {
+      tails[i] = getTailLatencyMillis(nodes[i]);
+      if (tails[i] >= 0) {
+        fastest = Math.min(fastest, tails[i]);
+      }
+    }
+    final long slowMillis = fastest == Long.MAX_VALUE ? Long.MAX_VALUE
+        : SLOW_NODE_FACTOR * Math.max(1, fastest);
+    Integer[] order = new Integer[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      order[i] = i;
+    }
+    // The sort is stable, so the nodes which are not slow keep their order.
+    Arrays.sort(order, (a, b) -> Long.compare(
+        tails[a] > slowMillis ? tails[a] : 0,
+        tails[b] > slowMillis ? tails[b] : 0));
+    return order;
+  }
+
+  @VisibleForTesting
+  long getHedgesInBudgetPeriod() {
+    return hedges.get();
+  }
+}
@@ -0,0 +1,317 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.protocol.ClientProtocol;
+import org.apache.hadoop.hdfs.protocol.DirectoryListing;
+import org.apache.hadoop.hdfs.protocol.HdfsFileStatus;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.io.retry.AsyncCallHandler;
+import org.apache.hadoop.ipc.Client;
+import org.apache.hadoop.ipc.RemoteException;
+
+/**
+ * Runs operations on a {@link DistributedFileSystem} asynchronously. Each
+ * operation returns a {@link CompletableFuture} of its result.
+ * <p>
+ * NameNode operations are sent with the asynchronous mode of the IPC
+ * {@link Client}, so they do not take a thread while they wait for the
+ * NameNode. The number of NameNode operations in flight is limited by
+ * ipc.client.async.calls.max; operations beyond it fail with an
+ * {@link org.apache.hadoop.ipc.AsyncCallLimitExceededException}. Their
+ * futures are completed in the thread pool described below, as soon as the
+ * responses arrive, so dependent actions run there too.
+ * <p>
+ * There is no non-blocking protocol to the DataNodes, so operations which
+ * read from or write to DataNodes, and the creation of streams, run in a
+ * bounded thread pool of the client, sized by
+ * dfs.client.async.io.threadpool.size. Operations on the same stream must
+ * not overlap; compose them instead, for example with
+ * {@link CompletableFuture#thenCompose}.
+ * <p>
+ * Symbolic links are not resolved. Failures of the NameNode are the
+ * exceptions which the synchronous operations would throw.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Unstable
+public class AsyncDistributedFileSystem {
+
+  /** A call which is sent to the NameNode in asynchronous mode. */
+  private interface NamenodeCall {
+    void call(ClientProtocol namenode) throws IOException;
+  }
+
+  /** An operation which runs in the thread pool. */
+  private interface IoCall<T> {
+    T call() throws IOException;
+  }
+
+  private final DistributedFileSystem dfs;
+
+  AsyncDistributedFileSystem(DistributedFileSystem dfs) {
+    this.dfs = dfs;
+  }
+
+  /**
+   * Send a call to the NameNode in asynchronous mode.
+   *
+   * @return the future of the return value of the call
+   */
+  private <T> CompletableFuture<T> callAsync(NamenodeCall call) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final boolean isAsync = Client.isAsynchronousMode();
+    Client.setAsynchronousMode(true);
+    CompletableFuture<T> returned;
+    final Executor executor;
+    try {
+      dfs.getClient().checkOpen();
+      executor = dfs.getClient().getAsyncIoThreadPool();
+      call.call(dfs.getClient().getNamenode());
+      returned = AsyncCallHandler.getCompletableAsyncReturn();
+    } catch (IOException | RuntimeException e) {
+      result.completeExceptionally(unwrap(e));
+      return result;
+    } finally {
+      Client.setAsynchronousMode(isAsync);
+    }
+    // The returned future is completed by the single thread which processes
+    // the calls of the client, which must not run the dependent actions.
+    returned.whenCompleteAsync((value, t) -> {
+      if (t != null) {
+        result.completeExceptionally(unwrap(t));
+      } else {
+        result.complete(value);
+      }
+    }, executor);
+    return result;
+  }
+
+  /** Run an operation in the thread pool. */
+  private <T> CompletableFuture<T> runAsync(IoCall<T> call) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    final Executor executor;
+    try {
+      dfs.getClient().checkOpen();
+      executor = dfs.getClient().getAsyncIoThreadPool();
+    } catch (IOException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    executor.execute(() -> {
+      try {
+        result.complete(call.call());
+      } catch (Throwable t) {
+        result.completeExceptionally(unwrap(t));
+      }
+    });
+    return result;
+  }
+
+  private static Throwable unwrap(Throwable t) {
+    if (t instanceof CompletionException && t.getCause() != null) {
+      t = t.getCause();
+    }
+    if (t instanceof RemoteException) {
+      return ((RemoteException) t).unwrapRemoteException();
+    }
+    return t;
+  }
+
+  private Path absolute(Path p) {
+    return dfs.fixRelativePart(p);
+  }
+
+  /**
+   * Get the status of a path.
+   *
+   * @return the future of the status, which fails with a
+   *         {@link FileNotFoundException} if the path does not exist
+   */
+  public CompletableFuture<FileStatus> getFileStatus(Path f) {
+    final Path absF = absolute(f);
+    final String src = dfs.getPathName(absF);
+    dfs.getFsStatistics().incrementReadOps(1);
+    return this.<HdfsFileStatus>callAsync(nn -> nn.getFileInfo(src))
+        .thenApply(fi -> {
+          if (fi == null) {
+            throw new CompletionException(
+                new FileNotFoundException("File does not exist: " + absF));
+          }
+          return fi.makeQualified(dfs.getUri(), absF);
+        });
+  }
+
+  /**
+   * List the statuses of the entries of a directory. A large directory is
+   * listed in batches, one call to the NameNode after another.
+   *
+   * @return the future of the statuses, which fails with a
+   *         {@link FileNotFoundException} if the directory does not exist
+   */
+  public CompletableFuture<FileStatus[]> listStatus(Path f) {
+    final Path absF = absolute(f);
+    final String src = dfs.getPathName(absF);
+    return listStatus(absF, src, HdfsFileStatus.EMPTY_NAME, new ArrayList<>());
+  }
+
+  private CompletableFuture<FileStatus[]> listStatus(Path absF, String src,
+      byte[] startAfter, List<FileStatus> listing) {
+    dfs.getFsStatistics().incrementReadOps(1);
+    return this.<DirectoryListing>callAsync(
+        nn -> nn.getListing(src, startAfter, false))
+        .thenCompose(thisListing -> {
+          if (thisListing == null) {
+            throw new CompletionException(new FileNotFoundException(
+                "File " + absF + " does not exist."));
+          }
+          for (HdfsFileStatus fileStatus : thisListing.getPartialListing()) {
+            listing.add(fileStatus.makeQualified(dfs.getUri(), absF));
+          }
+          if (thisListing.hasMore()) {
+            return listStatus(absF, src, thisListing.getLastName(), listing);
+          }
+          return CompletableFuture.completedFuture(
+              listing.toArray(new FileStatus[listing.size()]));
+        });
+  }
+
+  /**
+   * Rename a path, like {@link DistributedFileSystem#rename(Path, Path,
+   * Options.Rename...)}.
+   */
+  public CompletableFuture<Void> rename(Path src, Path dst,
+      final Options.Rename... options) {
+    final String srcPath = dfs.getPathName(absolute(src));
+    final String dstPath = dfs.getPathName(absolute(dst));
+    dfs.getFsStatistics().incrementWriteOps(1);
+    return this.<Void>callAsync(nn -> nn.rename2(srcPath, dstPath, options))
+        .whenComplete((v, t) -> {
+          dfs.getClient().invalidateCachedLocatedBlocks(srcPath, true);
+          dfs.getClient().invalidateCachedLocatedBlocks(dstPath, true);
+        });
+  }
+
+  /** Set the permission of a path. */
+  public CompletableFuture<Void> setPermission(Path p,
+      final FsPermission permission) {
+    final String src = dfs.getPathName(absolute(p));
+    dfs.getFsStatistics().incrementWriteOps(1);
+    return callAsync(nn -> nn.setPermission(src, permission));
+  }
+
+  /**
+   * Set the owner of a path. One of the user name and the group name may be
+   * null, to leave it unchanged.
+   */
+  public CompletableFuture<Void> setOwner(Path p, final String username,
+      final String groupname) {
+    if (username == null && groupname == null) {
+      CompletableFuture<Void> result = new CompletableFuture<>();
+      result.completeExceptionally(
+          new IOException("username == null && groupname == null"));
+      return result;
+    }
+    final String src = dfs.getPathName(absolute(p));
+    dfs.getFsStatistics().incrementWriteOps(1);
+    return callAsync(nn -> nn.setOwner(src, username, groupname));
+  }
+
+  /**
+   * Open a file. The locations of its first blocks are fetched from the
+   * NameNode asynchronously, and the stream is created in the thread pool.
+   */
+  public CompletableFuture<FSDataInputStream> open(Path f) {
+    final Path absF = absolute(f);
+    final String src = dfs.getPathName(absF);
+    final DFSClient client = dfs.getClient();
+    final long prefetchSize = client.getConf().getPrefetchSize();
+    dfs.getFsStatistics().incrementReadOps(1);
+    return this.<LocatedBlocks>callAsync(
+        nn -> nn.getBlockLocations(src, 0, prefetchSize))
+        .thenCompose(locatedBlocks -> runAsync(() -> {
+          final DFSInputStream dfsis = client.openInternal(
+              locatedBlocks, src, dfs.getVerifyChecksum());
+          try {
+            return client.createWrappedInputStream(dfsis);
+          } catch (IOException e) {
+            dfsis.close();
+            throw e;
+          }
+        }));
+  }
+
+  /**
+   * Read from a position of a stream, without changing its offset.
+   *
+   * @return the future of the number of bytes read, or -1 at the end of
+   *         the file
+   */
+  public CompletableFuture<Integer> read(final FSDataInputStream in,
+      final long position, final byte[] buffer, final int offset,
+      final int length) {
+    return runAsync(() -> in.read(position, buffer, offset, length));
+  }
+
+  /** Create a file, overwriting it if it exists. */
+  public CompletableFuture<FSDataOutputStream> create(Path f) {
+    return create(f, true);
+  }
+
+  /** Create a file. */
+  public CompletableFuture<FSDataOutputStream> create(final Path f,
+      final boolean overwrite) {
+    return runAsync(() -> dfs.create(f, overwrite));
+  }
+
+  /** Write to a stream. */
+  public CompletableFuture<Void> write(final FSDataOutputStream out,
+      final byte[] buffer, final int offset, final int length) {
+    return runAsync(() -> {
+      out.write(buffer, offset, length);
+      return null;
+    });
+  }
+
+  /**
+   * Close a stream. Closing an output stream waits until its last blocks
+   * are acknowledged and the file is completed on the NameNode.
+   */
+  public CompletableFuture<Void> close(final Closeable stream) {
+    return runAsync(() -> {
+      stream.close();
+      return null;
+    });
+  }
+}
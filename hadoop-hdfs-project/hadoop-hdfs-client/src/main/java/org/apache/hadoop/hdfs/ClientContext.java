@@ -112,6 +112,11 @@ public class ClientContext {
    */
   private volatile boolean disableLegacyBlockReaderLocal = false;
 
+  /**
+   * Caches the block locations of opened files, or null if disabled.
+   */
+  private final LocatedBlocksCache locatedBlocksCache;
+
   /** Creating byte[] for {@link DFSOutputStream}. */
   private final ByteArrayManager byteArrayManager;
 
@@ -178,6 +183,11 @@ private ClientContext(String name, DfsClientConf conf,
     this.useLegacyBlockReaderLocal = scConf.isUseLegacyBlockReaderLocal();
     this.domainSocketFactory = new DomainSocketFactory(scConf);
 
+    this.locatedBlocksCache = conf.getLocatedBlocksCacheSize() > 0
+        ? new LocatedBlocksCache(conf.getLocatedBlocksCacheSize(),
+            conf.getLocatedBlocksCacheExpiryMs())
+        : null;
+
     this.byteArrayManager = ByteArrayManager.newInstance(
         conf.getWriteByteArrayManagerConf());
     this.deadNodeDetectionEnabled = conf.isDeadNodeDetectionEnabled();
@@ -292,6 +302,14 @@ public ByteArrayManager getByteArrayManager() {
     return byteArrayManager;
   }
 
+  /**
+   * @return the cache of the block locations of opened files, or null if it
+   *         is disabled.
+   */
+  public LocatedBlocksCache getLocatedBlocksCache() {
+    return locatedBlocksCache;
+  }
+
   public int getNetworkDistance(DatanodeInfo datanodeInfo) throws IOException {
     // If applications disable the feature or the client machine can't
     // resolve its network location, clientNode will be set to null.
@@ -47,6 +47,7 @@
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -241,11 +242,17 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
   private final CachingStrategy defaultReadCachingStrategy;
   private final CachingStrategy defaultWriteCachingStrategy;
   private final ClientContext clientContext;
+  /** Null unless hedged reads adapt to the observed read latencies. */
+  private final AdaptiveHedgedReadPolicy adaptiveHedgedReadPolicy;
 
   private static final DFSHedgedReadMetrics HEDGED_READ_METRIC =
       new DFSHedgedReadMetrics();
   private static ThreadPoolExecutor HEDGED_READ_THREAD_POOL;
   private static volatile ThreadPoolExecutor STRIPED_READ_THREAD_POOL;
+  private static volatile ThreadPoolExecutor STRIPED_READ_AHEAD_THREAD_POOL;
+  private static volatile ThreadPoolExecutor VECTORED_READ_THREAD_POOL;
+  private static volatile ThreadPoolExecutor ASYNC_IO_THREAD_POOL;
+  private static volatile ThreadPoolExecutor FILE_CHECKSUM_THREAD_POOL;
   private final long serverDefaultsValidityPeriod;
 
   /**
@@ -406,9 +413,25 @@ public DFSClient(URI nameNodeUri, ClientProtocol rpcNamenode,
       this.initThreadsNumForHedgedReads(dfsClientConf.
           getHedgedReadThreadpoolSize());
     }
+    if (dfsClientConf.isAdaptiveHedgedReadEnabled()) {
+      this.adaptiveHedgedReadPolicy = new AdaptiveHedgedReadPolicy(
+          dfsClientConf.getHedgedReadThresholdMillis(),
+          dfsClientConf.getAdaptiveHedgedReadPercentile(),
+          dfsClientConf.getAdaptiveHedgedReadMaxPercent(),
+          dfsClientConf.getAdaptiveHedgedReadWindowSize(),
+          HEDGED_READ_METRIC);
+    } else {
+      this.adaptiveHedgedReadPolicy = null;
+    }
 
     this.initThreadsNumForStripedReads(dfsClientConf.
         getStripedReadThreadpoolSize());
+    if (dfsClientConf.getStripedReadAheadStripes() > 0) {
+      this.initThreadsNumForStripedReadAhead(dfsClientConf.
+          getStripedReadThreadpoolSize());
+    }
+    this.initThreadsNumForVectoredReads(dfsClientConf.
+        getVectoredReadThreadpoolSize());
     this.saslClient = new SaslDataTransferClient(
         conf, DataTransferSaslUtil.getSaslPropertiesResolver(conf),
         TrustedChannelResolver.getInstance(conf), nnFallbackToSimpleAuth);
@@ -1073,11 +1096,42 @@ public DFSInputStream open(String src, int buffersize, boolean verifyChecksum)
     checkOpen();
     //    Get block info from namenode
     try (TraceScope ignored = newPathTraceScope("newDFSInputStream", src)) {
-      LocatedBlocks locatedBlocks = getLocatedBlocks(src, 0);
+      LocatedBlocks locatedBlocks = getLocatedBlocksForOpen(src);
       return openInternal(locatedBlocks, src, verifyChecksum);
     }
   }
 
+  /**
+   * Get the located blocks to open a file with, from the located blocks
+   * cache of the client context if it is enabled.
+   */
+  private LocatedBlocks getLocatedBlocksForOpen(String src)
+      throws IOException {
+    final LocatedBlocksCache cache = clientContext.getLocatedBlocksCache();
+    if (cache == null) {
+      return getLocatedBlocks(src, 0);
+    }
+    final String namespace = String.valueOf(namenodeUri);
+    final String user = ugi.getUserName();
+    LocatedBlocks locatedBlocks = cache.get(namespace, user, src);
+    if (locatedBlocks == null) {
+      locatedBlocks = getLocatedBlocks(src, 0);
+      cache.put(namespace, user, src, locatedBlocks);
+    }
+    return locatedBlocks;
+  }
+
+  /**
+   * Invalidate the cached located blocks of a path, if the located blocks
+   * cache of the client context is enabled.
+   */
+  void invalidateCachedLocatedBlocks(String src, boolean recursive) {
+    final LocatedBlocksCache cache = clientContext.getLocatedBlocksCache();
+    if (cache != null) {
+      cache.invalidate(String.valueOf(namenodeUri), src, recursive);
+    }
+  }
+
   /**
    * Create an input stream from the {@link HdfsPathHandle} if the
    * constraints encoded from {@link
@@ -1103,7 +1157,7 @@ public DFSInputStream open(HdfsPathHandle fd, int buffersize,
     }
   }
 
-  private DFSInputStream openInternal(LocatedBlocks locatedBlocks, String src,
+  DFSInputStream openInternal(LocatedBlocks locatedBlocks, String src,
       boolean verifyChecksum) throws IOException {
     if (locatedBlocks != null) {
       ErasureCodingPolicy ecPolicy = locatedBlocks.getErasureCodingPolicy();
@@ -1297,6 +1351,7 @@ public DFSOutputStream create(String src, FsPermission permission,
     checkOpen();
     final FsPermission masked = applyUMask(permission);
     LOG.debug("{}: masked={}", src, masked);
+    invalidateCachedLocatedBlocks(src, false);
     final DFSOutputStream result = DFSOutputStream.newStreamForCreate(this,
         src, masked, flag, createParent, replication, blockSize, progress,
         dfsClientConf.createChecksum(checksumOpt),
@@ -1351,6 +1406,7 @@ public DFSOutputStream primitiveCreate(String src, FsPermission absPermission,
     CreateFlag.validate(flag);
     DFSOutputStream result = primitiveAppend(src, flag, progress);
     if (result == null) {
+      invalidateCachedLocatedBlocks(src, false);
       DataChecksum checksum = dfsClientConf.createChecksum(checksumOpt);
       result = DFSOutputStream.newStreamForCreate(this, src, absPermission,
           flag, createParent, replication, blockSize, progress, checksum,
@@ -1429,6 +1485,7 @@ private LastBlockWithStatus callAppend(String src,
   private DFSOutputStream callAppend(String src, EnumSet<CreateFlag> flag,
       Progressable progress, String[] favoredNodes) throws IOException {
     CreateFlag.validateForAppend(flag);
+    invalidateCachedLocatedBlocks(src, false);
     try {
       final LastBlockWithStatus blkWithStatus = callAppend(src,
           new EnumSetWritable<>(flag, CreateFlag.class));
@@ -1610,6 +1667,9 @@ public boolean rename(String src, String dst) throws IOException {
           UnresolvedPathException.class,
           SnapshotAccessControlException.class,
           ParentNotDirectoryException.class);
+    } finally {
+      invalidateCachedLocatedBlocks(src, true);
+      invalidateCachedLocatedBlocks(dst, true);
     }
   }
 
@@ -1625,6 +1685,11 @@ public void concat(String trg, String [] srcs) throws IOException {
       throw re.unwrapRemoteException(AccessControlException.class,
           UnresolvedPathException.class,
           SnapshotAccessControlException.class);
+    } finally {
+      invalidateCachedLocatedBlocks(trg, false);
+      for (String src : srcs) {
+        invalidateCachedLocatedBlocks(src, false);
+      }
     }
   }
 
@@ -1648,6 +1713,9 @@ public void rename(String src, String dst, Options.Rename... options)
           NSQuotaExceededException.class,
           UnresolvedPathException.class,
           SnapshotAccessControlException.class);
+    } finally {
+      invalidateCachedLocatedBlocks(src, true);
+      invalidateCachedLocatedBlocks(dst, true);
     }
   }
 
@@ -1666,6 +1734,8 @@ public boolean truncate(String src, long newLength) throws IOException {
     } catch (RemoteException re) {
       throw re.unwrapRemoteException(AccessControlException.class,
           UnresolvedPathException.class);
+    } finally {
+      invalidateCachedLocatedBlocks(src, false);
     }
   }
 
@@ -1697,6 +1767,9 @@ public boolean delete(String src, boolean recursive) throws IOException {
           UnresolvedPathException.class,
           SnapshotAccessControlException.class,
           PathIsNotEmptyDirectoryException.class);
+    } finally {
+      // A non-recursive delete only removes a file or an empty directory.
+      invalidateCachedLocatedBlocks(src, recursive);
     }
   }
 
@@ -3159,6 +3232,98 @@ private void initThreadsNumForStripedReads(int numThreads) {
     }
   }
 
+  /**
+   * Create thread pool for reading ahead the stripes of striped reads,
+   * STRIPED_READ_AHEAD_THREAD_POOL, if it does not already exist. Stripes
+   * which are rejected are not read ahead.
+   * @param numThreads Number of threads for striped read-ahead thread pool.
+   */
+  private void initThreadsNumForStripedReadAhead(int numThreads) {
+    assert numThreads > 0;
+    if (STRIPED_READ_AHEAD_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (STRIPED_READ_AHEAD_THREAD_POOL == null) {
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "StripedReadAhead-", false);
+        threadPool.allowCoreThreadTimeOut(true);
+        STRIPED_READ_AHEAD_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
+  /**
+   * Create thread pool for reading the ranges of vectored reads in parallel,
+   * VECTORED_READ_THREAD_POOL, if it does not already exist. Rejected
+   * reads run in the calling thread.
+   * @param numThreads Number of threads for vectored reads thread pool.
+   */
+  private void initThreadsNumForVectoredReads(int numThreads) {
+    assert numThreads > 0;
+    if (VECTORED_READ_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (VECTORED_READ_THREAD_POOL == null) {
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "VectoredRead-", true);
+        threadPool.allowCoreThreadTimeOut(true);
+        VECTORED_READ_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
+  /**
+   * Get the thread pool which AsyncDistributedFileSystem runs the operations
+   * reading from or writing to DataNodes in, ASYNC_IO_THREAD_POOL, creating
+   * it if it does not already exist. Operations which do not get a thread
+   * wait in the queue of the pool.
+   */
+  ThreadPoolExecutor getAsyncIoThreadPool() {
+    if (ASYNC_IO_THREAD_POOL != null) {
+      return ASYNC_IO_THREAD_POOL;
+    }
+    synchronized (DFSClient.class) {
+      if (ASYNC_IO_THREAD_POOL == null) {
+        final int numThreads = dfsClientConf.getAsyncIoThreadpoolSize();
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(
+            numThreads, numThreads, 60, new LinkedBlockingQueue<>(),
+            "AsyncIo-", false);
+        threadPool.allowCoreThreadTimeOut(true);
+        ASYNC_IO_THREAD_POOL = threadPool;
+      }
+      return ASYNC_IO_THREAD_POOL;
+    }
+  }
+
+  /**
+   * Get the thread pool which the block checksums of file checksums are
+   * requested in, FILE_CHECKSUM_THREAD_POOL, creating it if it does not
+   * already exist. The pool is shared by all clients, and grows to the
+   * largest checksum parallelism of them. Rejected requests run in the
+   * calling thread.
+   */
+  ThreadPoolExecutor getFileChecksumThreadPool() {
+    final int parallelism = dfsClientConf.getChecksumParallelism();
+    ThreadPoolExecutor threadPool = FILE_CHECKSUM_THREAD_POOL;
+    if (threadPool != null && threadPool.getMaximumPoolSize() >= parallelism) {
+      return threadPool;
+    }
+    synchronized (DFSClient.class) {
+      if (FILE_CHECKSUM_THREAD_POOL == null) {
+        threadPool = DFSUtilClient.getThreadPoolExecutor(1, parallelism, 60,
+            "FileChecksum-", true);
+        threadPool.allowCoreThreadTimeOut(true);
+        FILE_CHECKSUM_THREAD_POOL = threadPool;
+      } else if (
+          FILE_CHECKSUM_THREAD_POOL.getMaximumPoolSize() < parallelism) {
+        FILE_CHECKSUM_THREAD_POOL.setMaximumPoolSize(parallelism);
+      }
+      return FILE_CHECKSUM_THREAD_POOL;
+    }
+  }
+
   ThreadPoolExecutor getHedgedReadsThreadPool() {
     return HEDGED_READ_THREAD_POOL;
   }
@@ -3167,6 +3332,14 @@ ThreadPoolExecutor getStripedReadsThreadPool() {
     return STRIPED_READ_THREAD_POOL;
   }
 
+  ThreadPoolExecutor getStripedReadAheadThreadPool() {
+    return STRIPED_READ_AHEAD_THREAD_POOL;
+  }
+
+  ThreadPoolExecutor getVectoredReadsThreadPool() {
+    return VECTORED_READ_THREAD_POOL;
+  }
+
   boolean isHedgedReadsEnabled() {
     return (HEDGED_READ_THREAD_POOL != null) &&
         HEDGED_READ_THREAD_POOL.getMaximumPoolSize() > 0;
@@ -3176,6 +3349,22 @@ DFSHedgedReadMetrics getHedgedReadMetrics() {
     return HEDGED_READ_METRIC;
   }
 
+  /**
+   * @return the located blocks cache of the client context, or null if it
+   *         is disabled.
+   */
+  LocatedBlocksCache getLocatedBlocksCache() {
+    return clientContext.getLocatedBlocksCache();
+  }
+
+  /**
+   * @return the policy of adaptive hedged reads, or null if hedged reads
+   *         use the fixed threshold.
+   */
+  AdaptiveHedgedReadPolicy getAdaptiveHedgedReadPolicy() {
+    return adaptiveHedgedReadPolicy;
+  }
+
   @Override
   public URI getKeyProviderUri() throws IOException {
     return HdfsKMSUtil.getKeyProviderUri(ugi, namenodeUri,
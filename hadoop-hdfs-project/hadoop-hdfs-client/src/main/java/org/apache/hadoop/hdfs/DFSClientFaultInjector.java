@@ -66,6 +66,13 @@ public boolean skipRollingRestartWait() {
 
   public void sleepBeforeHedgedGet() {}
 
+  /**
+   * Called each time a read goes back to the namenode for new locations of
+   * a block it could not read.
+   * @param failures the failures of the read so far, including this one.
+   */
+  public void onBlockAcquireFailure(int failures) {}
+
   public void delayWhenRenewLeaseTimeout() {}
 
   public void onCreateBlockReader(LocatedBlock block, int chunkIndex, long offset, long length) {}
@@ -31,6 +31,9 @@ public class DFSHedgedReadMetrics {
   public final LongAdder hedgedReadOps = new LongAdder();
   public final LongAdder hedgedReadOpsWin = new LongAdder();
   public final LongAdder hedgedReadOpsInCurThread = new LongAdder();
+  public final LongAdder hedgedReadOpsThrottled = new LongAdder();
+  /** The last threshold chosen by adaptive hedged reads. */
+  private volatile long hedgedReadThresholdMillis = 0;
 
   public void incHedgedReadOps() {
     hedgedReadOps.increment();
@@ -44,6 +47,14 @@ public void incHedgedReadWins() {
     hedgedReadOpsWin.increment();
   }
 
+  public void incHedgedReadOpsThrottled() {
+    hedgedReadOpsThrottled.increment();
+  }
+
+  public void setHedgedReadThresholdMillis(long millis) {
+    hedgedReadThresholdMillis = millis;
+  }
+
   public long getHedgedReadOps() {
     return hedgedReadOps.longValue();
   }
@@ -55,4 +66,16 @@ public long getHedgedReadOpsInCurThread() {
   public long getHedgedReadWins() {
     return hedgedReadOpsWin.longValue();
   }
+
+  /**
+   * @return the number of hedged reads which were not started because
+   *         hedged reads were over the budget of adaptive hedged reads.
+   */
+  public long getHedgedReadOpsThrottled() {
+    return hedgedReadOpsThrottled.longValue();
+  }
+
+  public long getHedgedReadThresholdMillis() {
+    return hedgedReadThresholdMillis;
+  }
 }
@@ -33,9 +33,11 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
@@ -44,6 +46,8 @@
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.fs.ByteBufferPositionedReadable;
@@ -56,10 +60,13 @@
 import org.apache.hadoop.fs.FSExceptionMessages;
 import org.apache.hadoop.fs.FSInputStream;
 import org.apache.hadoop.fs.FileEncryptionInfo;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.HasEnhancedByteBufferAccess;
 import org.apache.hadoop.fs.ReadOption;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.fs.VectoredReadUtils;
+import org.apache.hadoop.fs.impl.CombinedFileRange;
 import org.apache.hadoop.hdfs.DFSUtilClient.CorruptedBlocks;
 import org.apache.hadoop.hdfs.client.impl.BlockReaderFactory;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
@@ -123,14 +130,12 @@ public class DFSInputStream extends FSInputStream
   ////
 
   // state shared by stateful and positional read:
-  // (protected by lock on infoLock)
+  // (updated within the lock on infoLock, read without it)
   ////
-  protected LocatedBlocks locatedBlocks = null;
-  private long lastBlockBeingWrittenLength = 0;
-  private FileEncryptionInfo fileEncryptionInfo = null;
-  protected CachingStrategy cachingStrategy;
-  // this is volatile because it will be polled outside the lock,
-  // but still only updated within the lock
+  @VisibleForTesting
+  protected volatile LocatedBlocks locatedBlocks = null;
+  private volatile LocatedBlocksSnapshot locatedBlocksSnapshot = null;
+  protected volatile CachingStrategy cachingStrategy;
   private volatile long lastRefreshedBlocksAt = Time.monotonicNow();
   ////
 
@@ -141,6 +146,29 @@ public class DFSInputStream extends FSInputStream
   //       (it's OK to acquire this lock when the lock on <this> is held)
   protected final Object infoLock = new Object();
 
+  /**
+   * The located blocks of the file together with the length of its last
+   * block if that block is being written. A snapshot is never modified once
+   * it has been published: updates build a new one and swap it in under
+   * infoLock, so that positional reads can work off the current snapshot
+   * without taking any lock. {@link #locatedBlocks} is always the blocks of
+   * the current snapshot.
+   */
+  private static final class LocatedBlocksSnapshot {
+    private final LocatedBlocks blocks;
+    private final long lastBlockBeingWrittenLength;
+
+    LocatedBlocksSnapshot(LocatedBlocks blocks,
+        long lastBlockBeingWrittenLength) {
+      this.blocks = blocks;
+      this.lastBlockBeingWrittenLength = lastBlockBeingWrittenLength;
+    }
+
+    long getFileLength() {
+      return blocks.getFileLength() + lastBlockBeingWrittenLength;
+    }
+  }
+
   /**
    * Track the ByteBuffers that we have handed out to readers.
    *
@@ -167,11 +195,17 @@ public class DFSInputStream extends FSInputStream
    * Specifically this counts the number of times the client has gone
    * back to the namenode to get a new list of block locations, and is
    * capped at maxBlockAcquireFailures
+   *
+   * Only stateful reads use this counter. Every positional read counts its
+   * own failures, so that concurrent preads on the stream neither reset nor
+   * use up each other's retries.
    */
   protected int failures = 0;
 
-  /* XXX Use of ConcurrentHashMap is temp fix. Need to fix
-   * parallel accesses to DFSInputStream (through ptreads) properly */
+  /**
+   * Nodes which failed a read of this stream. Stateful reads and any number
+   * of concurrent positional reads add and remove nodes without locking.
+   */
   private final ConcurrentHashMap<DatanodeInfo, DatanodeInfo> deadNodes =
              new ConcurrentHashMap<>();
 
@@ -205,16 +239,13 @@ protected DFSClient getDFSClient() {
     this.dfsClient = dfsClient;
     this.verifyChecksum = verifyChecksum;
     this.src = src;
-    synchronized (infoLock) {
-      this.cachingStrategy = dfsClient.getDefaultReadCachingStrategy();
-    }
-    this.locatedBlocks = locatedBlocks;
-    openInfo(false);
+    this.cachingStrategy = dfsClient.getDefaultReadCachingStrategy();
+    openInfo(locatedBlocks, false);
   }
 
   @VisibleForTesting
   long getlastBlockBeingWrittenLengthForTesting() {
-    return lastBlockBeingWrittenLength;
+    return locatedBlocksSnapshot.lastBlockBeingWrittenLength;
   }
 
   @VisibleForTesting
@@ -227,6 +258,11 @@ boolean deadNodesContain(DatanodeInfo nodeInfo) {
    * @param refreshLocatedBlocks whether to re-fetch locatedblocks
    */
   void openInfo(boolean refreshLocatedBlocks) throws IOException {
+    openInfo(getLocatedBlocks(), refreshLocatedBlocks);
+  }
+
+  private void openInfo(LocatedBlocks locatedBlocks,
+      boolean refreshLocatedBlocks) throws IOException {
     final DfsClientConf conf = dfsClient.getConf();
     synchronized(infoLock) {
       int retriesForLastBlockLength = conf.getRetryTimesForGetLastBlockLength();
@@ -244,6 +280,7 @@ void openInfo(boolean refreshLocatedBlocks) throws IOException {
           setLocatedBlocksFields(newLocatedBlocks, lastBlockLength);
           return;
         }
+        locatedBlocks = newLocatedBlocks;
 
         // Getting last block length as -1 is a special case. When cluster
         // restarts, DNs may not report immediately. At this time partial block
@@ -267,9 +304,8 @@ void openInfo(boolean refreshLocatedBlocks) throws IOException {
    * Should be called within infoLock.
    */
   private void setLocatedBlocksFields(LocatedBlocks locatedBlocksToSet, long lastBlockLength) {
-    locatedBlocks = locatedBlocksToSet;
-    lastBlockBeingWrittenLength = lastBlockLength;
-    fileEncryptionInfo = locatedBlocks.getFileEncryptionInfo();
+    setLocatedBlocksSnapshot(
+        new LocatedBlocksSnapshot(locatedBlocksToSet, lastBlockLength));
     setLastRefreshedBlocksAt();
   }
 
@@ -285,6 +321,10 @@ private void waitFor(int waitTime) throws IOException {
 
   private LocatedBlocks fetchAndCheckLocatedBlocks(LocatedBlocks existing)
       throws IOException {
+    if (existing != null) {
+      // The cached locations of the file are out of date too.
+      dfsClient.invalidateCachedLocatedBlocks(src, false);
+    }
     LocatedBlocks newInfo = dfsClient.getLocatedBlocks(src, 0);
 
     DFSClient.LOG.debug("newInfo = {}", newInfo);
@@ -414,18 +454,14 @@ private long readBlockLength(LocatedBlock locatedblock) throws IOException {
   }
 
   public long getFileLength() {
-    synchronized(infoLock) {
-      return locatedBlocks == null? 0:
-          locatedBlocks.getFileLength() + lastBlockBeingWrittenLength;
-    }
+    final LocatedBlocksSnapshot snapshot = locatedBlocksSnapshot;
+    return snapshot == null ? 0 : snapshot.getFileLength();
   }
 
   // Short circuit local reads are forbidden for files that are
   // under construction.  See HDFS-2757.
   boolean shortCircuitForbidden() {
-    synchronized(infoLock) {
-      return locatedBlocks.isUnderConstruction();
-    }
+    return locatedBlocksSnapshot.blocks.isUnderConstruction();
   }
 
   /**
@@ -460,6 +496,12 @@ protected LocatedBlocks getLocatedBlocks() {
     return locatedBlocks;
   }
 
+  /** Publish a new snapshot. Must be called with infoLock held. */
+  private void setLocatedBlocksSnapshot(LocatedBlocksSnapshot snapshot) {
+    locatedBlocksSnapshot = snapshot;
+    locatedBlocks = snapshot.blocks;
+  }
+
   /**
    * Get block at the specified position.
    * Fetch it from the namenode if not cached.
@@ -469,33 +511,33 @@ protected LocatedBlocks getLocatedBlocks() {
    * @throws IOException
    */
   protected LocatedBlock getBlockAt(long offset) throws IOException {
-    synchronized(infoLock) {
-      assert (locatedBlocks != null) : "locatedBlocks is null";
+    final LocatedBlocksSnapshot snapshot = locatedBlocksSnapshot;
+    assert (snapshot != null) : "locatedBlocks is null";
 
-      final LocatedBlock blk;
+    final LocatedBlock blk;
 
-      //check offset
-      if (offset < 0 || offset >= getFileLength()) {
-        throw new IOException("offset < 0 || offset >= getFileLength(), offset="
-            + offset
-            + ", locatedBlocks=" + locatedBlocks);
-      }
-      else if (offset >= locatedBlocks.getFileLength()) {
-        // offset to the portion of the last block,
-        // which is not known to the name-node yet;
-        // getting the last block
-        blk = locatedBlocks.getLastLocatedBlock();
-      }
-      else {
-        // search cached blocks first
-        blk = fetchBlockAt(offset, 0, true);
-      }
-      return blk;
+    //check offset
+    if (offset < 0 || offset >= snapshot.getFileLength()) {
+      throw new IOException("offset < 0 || offset >= getFileLength(), offset="
+          + offset
+          + ", locatedBlocks=" + snapshot.blocks);
+    }
+    else if (offset >= snapshot.blocks.getFileLength()) {
+      // offset to the portion of the last block,
+      // which is not known to the name-node yet;
+      // getting the last block
+      blk = snapshot.blocks.getLastLocatedBlock();
+    }
+    else {
+      // search cached blocks first
+      blk = fetchBlockAt(offset, 0, true);
     }
+    return blk;
   }
 
   /** Fetch a block from namenode and cache it */
   protected LocatedBlock fetchBlockAt(long offset) throws IOException {
+    dfsClient.invalidateCachedLocatedBlocks(src, false);
     return fetchBlockAt(offset, 0, false); // don't use cache
   }
 
@@ -503,7 +545,17 @@ protected LocatedBlock fetchBlockAt(long offset) throws IOException {
   private LocatedBlock fetchBlockAt(long offset, long length, boolean useCache)
       throws IOException {
     maybeRegisterBlockRefresh();
+    if (useCache) {
+      // Most lookups hit the current snapshot and need no lock.
+      final LocatedBlocks blocks = locatedBlocksSnapshot.blocks;
+      final int targetBlockIdx = blocks.findBlock(offset);
+      if (targetBlockIdx >= 0) {
+        return blocks.get(targetBlockIdx);
+      }
+    }
     synchronized(infoLock) {
+      // Look again, another reader may have fetched the block meanwhile.
+      LocatedBlocks locatedBlocks = locatedBlocksSnapshot.blocks;
       int targetBlockIdx = locatedBlocks.findBlock(offset);
       if (targetBlockIdx < 0) { // block is not cached
         targetBlockIdx = LocatedBlocks.getInsertIndex(targetBlockIdx);
@@ -519,6 +571,7 @@ private LocatedBlock fetchBlockAt(long offset, long length, boolean useCache)
         // Update the LastLocatedBlock, if offset is for last block.
         if (offset >= locatedBlocks.getFileLength()) {
           setLocatedBlocksFields(newBlocks, getLastBlockLength(newBlocks));
+          locatedBlocks = newBlocks;
           // After updating the locatedBlock, the block to which the offset belongs
           // should be researched like {@link DFSInputStream#getBlockAt(long)}.
           if (offset >= locatedBlocks.getFileLength()) {
@@ -528,14 +581,33 @@ private LocatedBlock fetchBlockAt(long offset, long length, boolean useCache)
             assert targetBlockIdx >= 0 && targetBlockIdx < locatedBlocks.locatedBlockCount();
           }
         } else {
-          locatedBlocks.insertRange(targetBlockIdx,
+          locatedBlocks = insertRange(locatedBlocks, targetBlockIdx,
               newBlocks.getLocatedBlocks());
+          setLocatedBlocksSnapshot(new LocatedBlocksSnapshot(locatedBlocks,
+              locatedBlocksSnapshot.lastBlockBeingWrittenLength));
         }
       }
       return locatedBlocks.get(targetBlockIdx);
     }
   }
 
+  /**
+   * @return a copy of the given located blocks with newBlocks merged in at
+   *         blockIdx. Published located blocks are never modified in place.
+   */
+  private static LocatedBlocks insertRange(LocatedBlocks locatedBlocks,
+      int blockIdx, List<LocatedBlock> newBlocks) {
+    LocatedBlocks copy = new LocatedBlocks(locatedBlocks.getFileLength(),
+        locatedBlocks.isUnderConstruction(),
+        new ArrayList<>(locatedBlocks.getLocatedBlocks()),
+        locatedBlocks.getLastLocatedBlock(),
+        locatedBlocks.isLastBlockComplete(),
+        locatedBlocks.getFileEncryptionInfo(),
+        locatedBlocks.getErasureCodingPolicy());
+    copy.insertRange(blockIdx, newBlocks);
+    return copy;
+  }
+
   /**
    * Get blocks in the specified range.
    * Fetch them from the namenode if not cached. This function
@@ -547,34 +619,33 @@ private LocatedBlock fetchBlockAt(long offset, long length, boolean useCache)
    */
   private List<LocatedBlock> getBlockRange(long offset,
       long length)  throws IOException {
-    // getFileLength(): returns total file length
+    // snapshot.getFileLength(): returns total file length
     // locatedBlocks.getFileLength(): returns length of completed blocks
-    if (offset >= getFileLength()) {
+    final LocatedBlocksSnapshot snapshot = locatedBlocksSnapshot;
+    if (offset >= snapshot.getFileLength()) {
       throw new IOException("Offset: " + offset +
-        " exceeds file length: " + getFileLength());
+        " exceeds file length: " + snapshot.getFileLength());
     }
 
-    synchronized(infoLock) {
-      final List<LocatedBlock> blocks;
-      final long lengthOfCompleteBlk = locatedBlocks.getFileLength();
-      final boolean readOffsetWithinCompleteBlk = offset < lengthOfCompleteBlk;
-      final boolean readLengthPastCompleteBlk = offset + length > lengthOfCompleteBlk;
-
-      if (readOffsetWithinCompleteBlk) {
-        //get the blocks of finalized (completed) block range
-        blocks = getFinalizedBlockRange(offset,
-          Math.min(length, lengthOfCompleteBlk - offset));
-      } else {
-        blocks = new ArrayList<>(1);
-      }
+    final List<LocatedBlock> blocks;
+    final long lengthOfCompleteBlk = snapshot.blocks.getFileLength();
+    final boolean readOffsetWithinCompleteBlk = offset < lengthOfCompleteBlk;
+    final boolean readLengthPastCompleteBlk = offset + length > lengthOfCompleteBlk;
 
-      // get the blocks from incomplete block range
-      if (readLengthPastCompleteBlk) {
-        blocks.add(locatedBlocks.getLastLocatedBlock());
-      }
+    if (readOffsetWithinCompleteBlk) {
+      //get the blocks of finalized (completed) block range
+      blocks = getFinalizedBlockRange(offset,
+        Math.min(length, lengthOfCompleteBlk - offset));
+    } else {
+      blocks = new ArrayList<>(1);
+    }
 
-      return blocks;
+    // get the blocks from incomplete block range
+    if (readLengthPastCompleteBlk) {
+      blocks.add(snapshot.blocks.getLastLocatedBlock());
     }
+
+    return blocks;
   }
 
   /**
@@ -584,22 +655,20 @@ private List<LocatedBlock> getBlockRange(long offset,
    */
   private List<LocatedBlock> getFinalizedBlockRange(
       long offset, long length) throws IOException {
-    synchronized(infoLock) {
-      assert (locatedBlocks != null) : "locatedBlocks is null";
-      List<LocatedBlock> blockRange = new ArrayList<>();
-      // search cached blocks first
-      long remaining = length;
-      long curOff = offset;
-      while(remaining > 0) {
-        LocatedBlock blk = fetchBlockAt(curOff, remaining, true);
-        assert curOff >= blk.getStartOffset() : "Block not found";
-        blockRange.add(blk);
-        long bytesRead = blk.getStartOffset() + blk.getBlockSize() - curOff;
-        remaining -= bytesRead;
-        curOff += bytesRead;
-      }
-      return blockRange;
-    }
+    assert (locatedBlocksSnapshot != null) : "locatedBlocks is null";
+    List<LocatedBlock> blockRange = new ArrayList<>();
+    // search cached blocks first
+    long remaining = length;
+    long curOff = offset;
+    while(remaining > 0) {
+      LocatedBlock blk = fetchBlockAt(curOff, remaining, true);
+      assert curOff >= blk.getStartOffset() : "Block not found";
+      blockRange.add(blk);
+      long bytesRead = blk.getStartOffset() + blk.getBlockSize() - curOff;
+      remaining -= bytesRead;
+      curOff += bytesRead;
+    }
+    return blockRange;
   }
 
   /**
@@ -697,12 +766,8 @@ protected BlockReader getBlockReader(LocatedBlock targetBlock,
       StorageType storageType, DatanodeInfo datanode) throws IOException {
     ExtendedBlock blk = targetBlock.getBlock();
     Token<BlockTokenIdentifier> accessToken = targetBlock.getBlockToken();
-    CachingStrategy curCachingStrategy;
-    boolean shortCircuitForbidden;
-    synchronized (infoLock) {
-      curCachingStrategy = cachingStrategy;
-      shortCircuitForbidden = shortCircuitForbidden();
-    }
+    CachingStrategy curCachingStrategy = cachingStrategy;
+    boolean shortCircuitForbidden = shortCircuitForbidden();
     return new BlockReaderFactory(dfsClient.getConf()).
         setInetSocketAddress(targetAddr).
         setRemotePeerFactory(dfsClient).
@@ -760,7 +825,7 @@ public void accept(ByteBuffer k, Object v) {
        * the DeadNodeDetector#dfsInputStreamNodes. Since user should not use
        * this dfsInputStream anymore.
        */
-      dfsClient.removeNodeFromDeadNodeDetector(this, locatedBlocks);
+      dfsClient.removeNodeFromDeadNodeDetector(this, getLocatedBlocks());
       maybeDeRegisterBlockRefresh();
     }
   }
@@ -887,11 +952,10 @@ protected synchronized int readWithStrategy(ReaderStrategy strategy)
             currentNode = blockSeekTo(pos);
           }
           int realLen = (int) Math.min(len, (blockEnd - pos + 1L));
-          synchronized(infoLock) {
-            if (locatedBlocks.isLastBlockComplete()) {
-              realLen = (int) Math.min(realLen,
-                  locatedBlocks.getFileLength() - pos);
-            }
+          final LocatedBlocks locatedBlocks = getLocatedBlocks();
+          if (locatedBlocks.isLastBlockComplete()) {
+            realLen = (int) Math.min(realLen,
+                locatedBlocks.getFileLength() - pos);
           }
           long beginReadMS = Time.monotonicNow();
           int result = readBuffer(strategy, realLen, corruptedBlocks, exceptionMap);
@@ -986,12 +1050,24 @@ private DNAddrPair chooseDataNode(LocatedBlock block,
   DNAddrPair chooseDataNode(LocatedBlock block,
       Collection<DatanodeInfo> ignoredNodes, boolean refetchIfRequired)
       throws IOException {
+    return chooseDataNode(block, ignoredNodes, refetchIfRequired, null);
+  }
+
+  /**
+   * Choose datanode to read from.
+   *
+   * @param preadFailures     The failures of the calling positional read,
+   *                          or null for a stateful read.
+   */
+  private DNAddrPair chooseDataNode(LocatedBlock block,
+      Collection<DatanodeInfo> ignoredNodes, boolean refetchIfRequired,
+      AtomicInteger preadFailures) throws IOException {
     while (true) {
       DNAddrPair result = getBestNodeDNAddrPair(block, ignoredNodes);
       if (result != null) {
         return result;
       } else if (refetchIfRequired) {
-        block = refetchLocations(block, ignoredNodes);
+        block = refetchLocations(block, ignoredNodes, preadFailures);
       } else {
         return null;
       }
@@ -1003,11 +1079,16 @@ DNAddrPair chooseDataNode(LocatedBlock block,
    * to datanodes. In the hedged read case this means futures should be empty.
    * @param block The locatedBlock to get new datanode locations for.
    * @param ignoredNodes A list of ignored nodes. This list can be null and can be cleared.
+   * @param preadFailures The failures of the calling positional read, or null
+   *                      for a stateful read.
    * @return the locatedBlock with updated datanode locations.
    * @throws IOException
    */
   private LocatedBlock refetchLocations(LocatedBlock block,
-      Collection<DatanodeInfo> ignoredNodes) throws IOException {
+      Collection<DatanodeInfo> ignoredNodes, AtomicInteger preadFailures)
+      throws IOException {
+    final int failures =
+        preadFailures == null ? this.failures : preadFailures.get();
     String errMsg = getBestNodeDNAddrPairErrorString(block.getLocations(),
             dfsClient.getDeadNodes(this), ignoredNodes);
     String blockInfo = block.getBlock() + " file=" + src;
@@ -1053,7 +1134,12 @@ private LocatedBlock refetchLocations(LocatedBlock block,
     clearCachedNodeState(ignoredNodes);
     openInfo(true);
     block = refreshLocatedBlock(block);
-    failures++;
+    if (preadFailures == null) {
+      this.failures++;
+    } else {
+      preadFailures.incrementAndGet();
+    }
+    DFSClientFaultInjector.get().onBlockAcquireFailure(failures + 1);
     return block;
   }
 
@@ -1093,7 +1179,13 @@ protected DNAddrPair getBestNodeDNAddrPair(LocatedBlock block,
     }
 
     if (chosenNode == null && nodes != null) {
-      for (int i = 0; i < nodes.length; i++) {
+      final AdaptiveHedgedReadPolicy adaptivePolicy =
+          dfsClient.getAdaptiveHedgedReadPolicy();
+      // Try the replicas on DataNodes measured as slow last.
+      final Integer[] order = adaptivePolicy == null ? null
+          : adaptivePolicy.getReadOrder(nodes);
+      for (int n = 0; n < nodes.length; n++) {
+        final int i = order == null ? n : order[n];
         if (isValidNode(nodes[i], ignoredNodes)) {
           chosenNode = nodes[i];
           // Storage types are ordered to correspond with nodes, so use the same
@@ -1164,10 +1256,10 @@ private static String getBestNodeDNAddrPairErrorString(
   }
 
   protected void fetchBlockByteRange(LocatedBlock block, long start, long end, ByteBuffer buf,
-      CorruptedBlocks corruptedBlocks, final Map<InetSocketAddress, List<IOException>> exceptionMap)
-      throws IOException {
+      CorruptedBlocks corruptedBlocks, final Map<InetSocketAddress, List<IOException>> exceptionMap,
+      AtomicInteger preadFailures) throws IOException {
     while (true) {
-      DNAddrPair addressPair = chooseDataNode(block, null);
+      DNAddrPair addressPair = chooseDataNode(block, null, true, preadFailures);
       // Latest block, if refreshed internally
       block = addressPair.block;
       try {
@@ -1215,9 +1307,12 @@ void actualGetFromOneDataNode(final DNAddrPair datanode, final long startInBlk,
     int refetchToken = 1; // only need to get a new access token once
     int refetchEncryptionKey = 1; // only need to get a new encryption key once
     final int len = (int) (endInBlk - startInBlk + 1);
+    final AdaptiveHedgedReadPolicy adaptivePolicy =
+        dfsClient.getAdaptiveHedgedReadPolicy();
     LocatedBlock block = datanode.block;
     while (true) {
       BlockReader reader = null;
+      final long beginFetchMS = Time.monotonicNow();
       try {
         DFSClientFaultInjector.get().fetchFromDatanodeException();
         reader = getBlockReader(block, startInBlk, len, datanode.addr,
@@ -1248,6 +1343,10 @@ void actualGetFromOneDataNode(final DNAddrPair datanode, final long startInBlk,
               "excpected " + len + ", got " + nread);
         }
         DFSClientFaultInjector.get().readFromDatanodeDelay();
+        if (adaptivePolicy != null) {
+          adaptivePolicy.addLatency(datanode.info,
+              Time.monotonicNow() - beginFetchMS);
+        }
         return;
       } catch (ChecksumException e) {
         String msg = "fetchBlockByteRange(). Got a checksum exception for "
@@ -1318,8 +1417,14 @@ protected LocatedBlock refreshLocatedBlock(LocatedBlock block)
    */
   private void hedgedFetchBlockByteRange(LocatedBlock block, long start, long end, ByteBuffer buf,
       CorruptedBlocks corruptedBlocks,
-      final Map<InetSocketAddress, List<IOException>> exceptionMap) throws IOException {
+      final Map<InetSocketAddress, List<IOException>> exceptionMap,
+      AtomicInteger preadFailures) throws IOException {
     final DfsClientConf conf = dfsClient.getConf();
+    final AdaptiveHedgedReadPolicy adaptivePolicy =
+        dfsClient.getAdaptiveHedgedReadPolicy();
+    if (adaptivePolicy != null) {
+      adaptivePolicy.addRead();
+    }
     ArrayList<Future<ByteBuffer>> futures = new ArrayList<>();
     CompletionService<ByteBuffer> hedgedService =
         new ExecutorCompletionService<>(dfsClient.getHedgedReadsThreadPool());
@@ -1334,7 +1439,7 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start, long end,
       if (futures.isEmpty()) {
         // chooseDataNode is a commitment. If no node, we go to
         // the NN to reget block locations. Only go here on first read.
-        chosenNode = chooseDataNode(block, ignored);
+        chosenNode = chooseDataNode(block, ignored, true, preadFailures);
         // Latest block, if refreshed internally
         block = chosenNode.block;
         bb = ByteBuffer.allocate(len);
@@ -1344,9 +1449,16 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start, long end,
             .submit(getFromDataNodeCallable);
         futures.add(firstRequest);
         Future<ByteBuffer> future = null;
+        final long thresholdMillis = adaptivePolicy == null
+            ? conf.getHedgedReadThresholdMillis()
+            : adaptivePolicy.getThresholdMillis(chosenNode.info);
         try {
-          future = hedgedService.poll(
-              conf.getHedgedReadThresholdMillis(), TimeUnit.MILLISECONDS);
+          future = hedgedService.poll(thresholdMillis, TimeUnit.MILLISECONDS);
+          if (future == null && adaptivePolicy != null
+              && !adaptivePolicy.tryAcquireHedge()) {
+            // Out of the hedging budget, wait for the read in flight.
+            future = hedgedService.take();
+          }
           if (future != null) {
             ByteBuffer result = future.get();
             result.flip();
@@ -1354,7 +1466,7 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start, long end,
             return;
           }
           DFSClient.LOG.debug("Waited {}ms to read from {}; spawning hedged "
-              + "read", conf.getHedgedReadThresholdMillis(), chosenNode.info);
+              + "read", thresholdMillis, chosenNode.info);
           dfsClient.getHedgedReadMetrics().incHedgedReadOps();
           // continue; no need to refresh block locations
         } catch (ExecutionException e) {
@@ -1373,7 +1485,7 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start, long end,
         // If no nodes to do hedged reads against, pass.
         boolean refetch = false;
         try {
-          chosenNode = chooseDataNode(block, ignored, false);
+          chosenNode = chooseDataNode(block, ignored, false, preadFailures);
           if (chosenNode != null) {
             // Latest block, if refreshed internally
             block = chosenNode.block;
@@ -1408,7 +1520,7 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start, long end,
         // have concurrent requests to the same node.
         // Once all futures are cleared, we can clear the ignoredNodes and retry.
         if (refetch && futures.isEmpty()) {
-          block = refetchLocations(block, ignored);
+          block = refetchLocations(block, ignored, preadFailures);
         }
         // We got here if exception. Ignore this node on next go around IFF
         // we found a chosenNode to hedge read against.
@@ -1513,7 +1625,7 @@ private int pread(long position, ByteBuffer buffer)
     if (closed.get()) {
       throw new IOException("Stream closed");
     }
-    failures = 0;
+    final AtomicInteger preadFailures = new AtomicInteger();
     long filelen = getFileLength();
     if ((position < 0) || (position >= filelen)) {
       return -1;
@@ -1542,10 +1654,10 @@ private int pread(long position, ByteBuffer buffer)
       try {
         if (dfsClient.isHedgedReadsEnabled() && !blk.isStriped()) {
           hedgedFetchBlockByteRange(blk, targetStart,
-              targetEnd, buffer, corruptedBlocks, exceptionMap);
+              targetEnd, buffer, corruptedBlocks, exceptionMap, preadFailures);
         } else {
           fetchBlockByteRange(blk, targetStart, targetEnd,
-              buffer, corruptedBlocks, exceptionMap);
+              buffer, corruptedBlocks, exceptionMap, preadFailures);
         }
       } catch (IOException e) {
         // When we reach here, it means we fail to fetch the current block from all available
@@ -1777,6 +1889,87 @@ public void readFully(long position, final ByteBuffer buf)
     }
   }
 
+  /**
+   * Read the ranges in parallel. Ranges close to each other within the
+   * same block are merged into a single positional read, and the positional
+   * reads are issued concurrently on the vectored read thread pool. Each of
+   * them picks the best replica, reuses cached peers and hedges like any
+   * other positional read. The future of every range is completed as soon
+   * as the read containing it finishes.
+   */
+  @Override
+  public void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    final List<? extends FileRange> sortedRanges =
+        VectoredReadUtils.validateAndSortRanges(ranges,
+            Optional.of(getFileLength()));
+    for (FileRange range : sortedRanges) {
+      range.setData(new CompletableFuture<>());
+    }
+    final List<CombinedFileRange> combinedRanges;
+    try {
+      combinedRanges = mergeRangesInBlocks(sortedRanges);
+    } catch (IOException e) {
+      for (FileRange range : sortedRanges) {
+        range.getData().completeExceptionally(e);
+      }
+      throw e;
+    }
+    for (CombinedFileRange combinedRange : combinedRanges) {
+      // The allocator may not be thread safe, allocate in this thread.
+      final ByteBuffer buffer = allocate.apply(combinedRange.getLength());
+      dfsClient.getVectoredReadsThreadPool().execute(
+          () -> readCombinedRange(combinedRange, buffer));
+    }
+  }
+
+  /**
+   * Merge sorted ranges which are close enough to each other, as long as
+   * the merged range stays within one block.
+   */
+  private List<CombinedFileRange> mergeRangesInBlocks(
+      List<? extends FileRange> sortedRanges) throws IOException {
+    final List<CombinedFileRange> result = new ArrayList<>();
+    CombinedFileRange current = null;
+    long currentBlockEnd = -1;
+    for (FileRange range : sortedRanges) {
+      final long start = range.getOffset();
+      final long end = start + range.getLength();
+      if (current == null || end > currentBlockEnd ||
+          !current.merge(start, end, range, minSeekForVectorReads(),
+              maxReadSizeForVectorReads())) {
+        current = new CombinedFileRange(start, end, range);
+        result.add(current);
+        final LocatedBlock blk = getBlockAt(start);
+        currentBlockEnd = blk.getStartOffset() + blk.getBlockSize();
+      }
+    }
+    return result;
+  }
+
+  private void readCombinedRange(CombinedFileRange combinedRange,
+      ByteBuffer buffer) {
+    try {
+      long position = combinedRange.getOffset();
+      while (buffer.hasRemaining()) {
+        int nread = pread(position, buffer);
+        if (nread < 0) {
+          throw new EOFException(FSExceptionMessages.EOF_IN_READ_FULLY);
+        }
+        position += nread;
+      }
+      buffer.flip();
+      for (FileRange range : combinedRange.getUnderlying()) {
+        range.getData().complete(VectoredReadUtils.sliceTo(buffer,
+            combinedRange.getOffset(), range));
+      }
+    } catch (Throwable t) {
+      for (FileRange range : combinedRange.getUnderlying()) {
+        range.getData().completeExceptionally(t);
+      }
+    }
+  }
+
   /** Utility class to encapsulate data node info and its address. */
   static final class DNAddrPair {
     final DatanodeInfo info;
@@ -1808,9 +2001,9 @@ public void clearReadStatistics() {
   }
 
   public FileEncryptionInfo getFileEncryptionInfo() {
-    synchronized(infoLock) {
-      return fileEncryptionInfo;
-    }
+    final LocatedBlocks locatedBlocks = getLocatedBlocks();
+    return locatedBlocks == null ? null
+        : locatedBlocks.getFileEncryptionInfo();
   }
 
   protected void closeCurrentBlockReaders() {
@@ -1997,6 +2190,7 @@ public boolean hasCapability(String capability) {
     case StreamCapabilities.UNBUFFER:
     case StreamCapabilities.READBYTEBUFFER:
     case StreamCapabilities.PREADBYTEBUFFER:
+    case StreamCapabilities.VECTOREDIO:
       return true;
     default:
       return false;
@@ -2046,10 +2240,7 @@ private void maybeDeRegisterBlockRefresh() {
    * @return whether a refresh was performed or not
    */
   boolean refreshBlockLocations(Map<String, InetSocketAddress> addressCache) {
-    LocatedBlocks blocks;
-    synchronized (infoLock) {
-      blocks = getLocatedBlocks();
-    }
+    LocatedBlocks blocks = getLocatedBlocks();
 
     if (getLocalDeadNodes().isEmpty() && allBlocksLocal(blocks, addressCache)) {
       return false;
@@ -108,6 +108,8 @@ public class DFSOutputStream extends FSOutputSummer
 
   protected final DFSClient dfsClient;
   protected final ByteArrayManager byteArrayManager;
+  /** Whether to build packets in pooled direct buffers. */
+  private final boolean directPackets;
   // closed is accessed by different threads under different locks.
   protected volatile boolean closed = false;
 
@@ -132,13 +134,22 @@ public class DFSOutputStream extends FSOutputSummer
   private int writePacketSize;
   private boolean leaseRecovered = false;
 
-  /** Use {@link ByteArrayManager} to create buffer for non-heartbeat packets.*/
+  /**
+   * Use {@link ByteArrayManager}, or the direct buffer pool if direct
+   * packets are enabled, to create buffer for non-heartbeat packets.
+   */
   protected DFSPacket createPacket(int packetSize, int chunksPerPkt,
       long offsetInBlock, long seqno, boolean lastPacketInBlock)
       throws InterruptedIOException {
     final byte[] buf;
     final int bufferSize = PacketHeader.PKT_MAX_HEADER_LEN + packetSize;
 
+    if (directPackets) {
+      return new DFSPacket(DFSPacket.allocateDirectBuffer(bufferSize),
+          chunksPerPkt, offsetInBlock, seqno, getChecksumSize(),
+          lastPacketInBlock);
+    }
+
     try {
       buf = byteArrayManager.newByteArray(bufferSize);
     } catch (InterruptedException ie) {
@@ -240,6 +251,7 @@ private DFSOutputStream(DFSClient dfsClient, String src,
           blockSize + ").");
     }
     this.byteArrayManager = dfsClient.getClientContext().getByteArrayManager();
+    this.directPackets = dfsClient.getConf().isWriteDirectBufferEnabled();
   }
 
   /**
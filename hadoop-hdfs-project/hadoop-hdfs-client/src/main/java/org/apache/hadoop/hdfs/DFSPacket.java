@@ -22,12 +22,14 @@
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.protocol.datatransfer.PacketHeader;
 import org.apache.hadoop.hdfs.util.ByteArrayManager;
+import org.apache.hadoop.util.DirectBufferPool;
 import org.apache.hadoop.tracing.Span;
 import org.apache.hadoop.tracing.SpanContext;
 
@@ -41,12 +43,23 @@
 public class DFSPacket {
   public static final long HEART_BEAT_SEQNO = -1L;
   private static final SpanContext[] EMPTY = new SpanContext[0];
+  private static final DirectBufferPool DIRECT_BUFFER_POOL =
+      new DirectBufferPool();
+  /**
+   * Used to copy a direct packet to a stream which is not backed by a
+   * channel, a piece at a time.
+   */
+  private static final ThreadLocal<byte[]> COPY_BUFFER =
+      ThreadLocal.withInitial(() -> new byte[8192]);
   private final long seqno; // sequence number of buffer in block
   private final long offsetInBlock; // offset in block
   private boolean syncBlock; // this packet forces the current block to disk
   private int numChunks; // number of chunks currently in packet
   private final int maxChunks; // max chunks in packet
   private byte[] buf;
+  /** The buffer of a direct packet, used instead of buf. */
+  private ByteBuffer directBuf;
+  private final int capacity;
   private final boolean lastPacketInBlock; // is this the last packet in block?
 
   /**
@@ -62,6 +75,9 @@ public class DFSPacket {
    * the actual data, and then insert the header into the buffer immediately
    * preceding the checksum data, so we make sure to keep enough space in
    * front of the checksum data to support the largest conceivable header.
+   * A direct packet keeps the same layout in a direct buffer, so the
+   * contiguous packet can be written to a socket channel without being
+   * copied to a temporary direct buffer by the JDK.
    */
   private int checksumStart;
   private int checksumPos;
@@ -83,12 +99,38 @@ public class DFSPacket {
    */
   public DFSPacket(byte[] buf, int chunksPerPkt, long offsetInBlock, long seqno,
                    int checksumSize, boolean lastPacketInBlock) {
+    this(buf, null, buf.length, chunksPerPkt, offsetInBlock, seqno,
+        checksumSize, lastPacketInBlock);
+  }
+
+  /**
+   * Create a new packet in a direct buffer.
+   *
+   * @param directBuf the direct buffer storing data and checksums, usually
+   *                  from {@link #allocateDirectBuffer(int)}
+   * @param chunksPerPkt maximum number of chunks per packet.
+   * @param offsetInBlock offset in bytes into the HDFS block.
+   * @param seqno the sequence number of this packet
+   * @param checksumSize the size of checksum
+   * @param lastPacketInBlock if this is the last packet
+   */
+  public DFSPacket(ByteBuffer directBuf, int chunksPerPkt, long offsetInBlock,
+      long seqno, int checksumSize, boolean lastPacketInBlock) {
+    this(null, directBuf, directBuf.capacity(), chunksPerPkt, offsetInBlock,
+        seqno, checksumSize, lastPacketInBlock);
+  }
+
+  private DFSPacket(byte[] buf, ByteBuffer directBuf, int capacity,
+      int chunksPerPkt, long offsetInBlock, long seqno, int checksumSize,
+      boolean lastPacketInBlock) {
     this.lastPacketInBlock = lastPacketInBlock;
     this.numChunks = 0;
     this.offsetInBlock = offsetInBlock;
     this.seqno = seqno;
 
     this.buf = buf;
+    this.directBuf = directBuf;
+    this.capacity = capacity;
 
     checksumStart = PacketHeader.PKT_MAX_HEADER_LEN;
     checksumPos = checksumStart;
@@ -97,6 +139,24 @@ public DFSPacket(byte[] buf, int chunksPerPkt, long offsetInBlock, long seqno,
     maxChunks = chunksPerPkt;
   }
 
+  /**
+   * Get a direct buffer for a packet from the pool. The buffer goes back to
+   * the pool when the packet is released.
+   *
+   * @param size the size of the buffer
+   * @return a direct buffer of the given size
+   */
+  static ByteBuffer allocateDirectBuffer(int size) {
+    return DIRECT_BUFFER_POOL.getBuffer(size);
+  }
+
+  /**
+   * @return true if this packet is stored in a direct buffer.
+   */
+  boolean isDirect() {
+    return directBuf != null;
+  }
+
   /**
    * Write data to this packet.
    *
@@ -108,10 +168,14 @@ public DFSPacket(byte[] buf, int chunksPerPkt, long offsetInBlock, long seqno,
   synchronized void writeData(byte[] inarray, int off, int len)
       throws ClosedChannelException {
     checkBuffer();
-    if (dataPos + len > buf.length) {
+    if (dataPos + len > capacity) {
       throw new BufferOverflowException();
     }
-    System.arraycopy(inarray, off, buf, dataPos, len);
+    if (directBuf != null) {
+      directBufAt(dataPos).put(inarray, off, len);
+    } else {
+      System.arraycopy(inarray, off, buf, dataPos, len);
+    }
     dataPos += len;
   }
 
@@ -119,9 +183,17 @@ public synchronized void writeData(ByteBuffer inBuffer, int len)
       throws ClosedChannelException {
     checkBuffer();
     len =  len > inBuffer.remaining() ? inBuffer.remaining() : len;
-    if (dataPos + len > buf.length) {
+    if (dataPos + len > capacity) {
       throw new BufferOverflowException();
     }
+    if (directBuf != null) {
+      ByteBuffer src = inBuffer.duplicate();
+      src.limit(src.position() + len);
+      directBufAt(dataPos).put(src);
+      inBuffer.position(inBuffer.position() + len);
+      dataPos += len;
+      return;
+    }
     for (int i = 0; i < len; i++) {
       buf[dataPos + i] = inBuffer.get();
     }
@@ -145,7 +217,11 @@ public synchronized void writeChecksum(byte[] inarray, int off, int len)
     if (checksumPos + len > dataStart) {
       throw new BufferOverflowException();
     }
-    System.arraycopy(inarray, off, buf, checksumPos, len);
+    if (directBuf != null) {
+      directBufAt(checksumPos).put(inarray, off, len);
+    } else {
+      System.arraycopy(inarray, off, buf, checksumPos, len);
+    }
     checksumPos += len;
   }
 
@@ -155,6 +231,21 @@ public synchronized void writeChecksum(byte[] inarray, int off, int len)
    * @throws IOException
    */
   public synchronized void writeTo(DataOutputStream stm) throws IOException {
+    writeTo(stm, null);
+  }
+
+  /**
+   * Write the full packet, including the header. A direct packet is written
+   * straight to the given channel if there is one, after flushing the
+   * stream; every other packet is written to the stream.
+   *
+   * @param stm the stream to the datanode
+   * @param channel the channel under stm, or null if stm does not write
+   *                straight to a channel
+   * @throws IOException
+   */
+  public synchronized void writeTo(DataOutputStream stm,
+      WritableByteChannel channel) throws IOException {
     checkBuffer();
 
     final int dataLen = dataPos - dataStart;
@@ -167,8 +258,17 @@ public synchronized void writeTo(DataOutputStream stm) throws IOException {
     if (checksumPos != dataStart) {
       // Move the checksum to cover the gap. This can happen for the last
       // packet or during an hflush/hsync call.
-      System.arraycopy(buf, checksumStart, buf,
-          dataStart - checksumLen , checksumLen);
+      if (directBuf != null) {
+        // The ranges may overlap and the checksums move forward, so copy
+        // from the end.
+        final int shift = dataStart - checksumPos;
+        for (int i = checksumPos - 1; i >= checksumStart; i--) {
+          directBuf.put(i + shift, directBuf.get(i));
+        }
+      } else {
+        System.arraycopy(buf, checksumStart, buf,
+            dataStart - checksumLen , checksumLen);
+      }
       checksumPos = dataStart;
       checksumStart = checksumPos - checksumLen;
     }
@@ -180,38 +280,86 @@ public synchronized void writeTo(DataOutputStream stm) throws IOException {
 
     // Copy the header data into the buffer immediately preceding the checksum
     // data.
-    System.arraycopy(header.getBytes(), 0, buf, headerStart,
-        header.getSerializedSize());
+    final int lastByte =
+        headerStart + header.getSerializedSize() + checksumLen + dataLen - 1;
+    if (directBuf != null) {
+      directBufAt(headerStart).put(header.getBytes(), 0,
+          header.getSerializedSize());
+    } else {
+      System.arraycopy(header.getBytes(), 0, buf, headerStart,
+          header.getSerializedSize());
+    }
 
     // corrupt the data for testing.
     if (DFSClientFaultInjector.get().corruptPacket()) {
-      buf[headerStart+header.getSerializedSize() + checksumLen + dataLen-1] ^=
-          0xff;
+      flipByte(lastByte);
     }
 
     // Write the now contiguous full packet to the output stream.
-    stm.write(buf, headerStart,
-        header.getSerializedSize() + checksumLen + dataLen);
+    final int len = header.getSerializedSize() + checksumLen + dataLen;
+    if (directBuf == null) {
+      stm.write(buf, headerStart, len);
+    } else if (channel != null) {
+      stm.flush();
+      ByteBuffer packet = directBuf.duplicate();
+      packet.limit(headerStart + len).position(headerStart);
+      while (packet.hasRemaining()) {
+        channel.write(packet);
+      }
+    } else {
+      ByteBuffer packet = directBufAt(headerStart);
+      byte[] copy = COPY_BUFFER.get();
+      for (int remaining = len; remaining > 0;) {
+        final int n = Math.min(remaining, copy.length);
+        packet.get(copy, 0, n);
+        stm.write(copy, 0, n);
+        remaining -= n;
+      }
+    }
 
     // undo corruption.
     if (DFSClientFaultInjector.get().uncorruptPacket()) {
-      buf[headerStart+header.getSerializedSize() + checksumLen + dataLen-1] ^=
-          0xff;
+      flipByte(lastByte);
+    }
+  }
+
+  /**
+   * @return a view of the direct buffer of this packet, positioned at the
+   *         given offset. Relative puts and gets on the view leave the
+   *         direct buffer itself untouched.
+   */
+  private ByteBuffer directBufAt(int pos) {
+    ByteBuffer view = directBuf.duplicate();
+    view.position(pos);
+    return view;
+  }
+
+  private void flipByte(int pos) {
+    if (directBuf != null) {
+      directBuf.put(pos, (byte) (directBuf.get(pos) ^ 0xff));
+    } else {
+      buf[pos] ^= 0xff;
     }
   }
 
   private synchronized void checkBuffer() throws ClosedChannelException {
-    if (buf == null) {
+    if (buf == null && directBuf == null) {
       throw new ClosedChannelException();
     }
   }
 
   /**
-   * Release the buffer in this packet to ByteArrayManager.
+   * Release the buffer in this packet to ByteArrayManager, or the direct
+   * buffer pool for a direct packet.
    */
   synchronized void releaseBuffer(ByteArrayManager bam) {
-    bam.release(buf);
-    buf = null;
+    if (directBuf != null) {
+      DIRECT_BUFFER_POOL.returnBuffer(directBuf);
+      directBuf = null;
+    } else {
+      bam.release(buf);
+      buf = null;
+    }
   }
 
   /**
@@ -21,9 +21,12 @@
 import java.util.Map;
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.ReadOption;
+import org.apache.hadoop.fs.VectoredReadUtils;
 import org.apache.hadoop.hdfs.protocol.BlockType;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
 import org.apache.hadoop.hdfs.protocol.LocatedBlock;
 import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
 import org.apache.hadoop.hdfs.protocol.LocatedStripedBlock;
@@ -46,6 +49,7 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -54,7 +58,12 @@
 import java.util.Set;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntFunction;
 
 import static org.apache.hadoop.hdfs.util.IOUtilsClient.updateReadStatistics;
 
@@ -94,6 +103,112 @@ public class DFSStripedInputStream extends DFSInputStream {
   private final Set<String> warnedNodes =
       Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+  /**
+   * A stripe read ahead of the current one by a positional read on the
+   * striped read-ahead thread pool, decoding included.
+   */
+  private final class ReadAheadStripe {
+    private final long blockGroupStart;
+    private final int stripeIndex;
+    private final CorruptedBlocks corruptedBlocks = new CorruptedBlocks();
+    private ByteBuffer buf;
+    private Future<Void> future;
+    private boolean started = false;
+    private boolean done = false;
+    private boolean discarded = false;
+
+    private ReadAheadStripe(long blockGroupStart, int stripeIndex,
+        ByteBuffer buf) {
+      this.blockGroupStart = blockGroupStart;
+      this.stripeIndex = stripeIndex;
+      this.buf = buf;
+    }
+
+    private Void read(LocatedStripedBlock blockGroup, long start, long end)
+        throws IOException {
+      synchronized (this) {
+        if (discarded) {
+          // Dropped before it started.
+          done = true;
+          release();
+          return null;
+        }
+        started = true;
+        readingAhead.add(this);
+      }
+      try {
+        ByteBuffer target = buf.duplicate();
+        target.clear();
+        target.limit((int) (end - start + 1));
+        fetchBlockByteRange(blockGroup, start, end, target, corruptedBlocks,
+            null, null);
+      } finally {
+        synchronized (this) {
+          done = true;
+          if (discarded) {
+            release();
+          }
+          readingAhead.remove(this);
+          notifyAll();
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Drop the stripe, releasing its buffer once it is no longer read. A
+     * read in progress is left to finish, since interrupting it would fail
+     * its block readers and log the interrupt as an error. It reads at most
+     * one stripe.
+     */
+    private void discard() {
+      synchronized (this) {
+        discarded = true;
+        if (done || !started) {
+          release();
+        }
+      }
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+
+    /** Wait for a read in progress to end. */
+    private synchronized void awaitDone() {
+      boolean interrupted = false;
+      while (started && !done) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void release() {
+      if (buf != null) {
+        BUFFER_POOL.putBuffer(buf);
+        buf = null;
+      }
+    }
+  }
+
+  /** The number of stripes to read ahead, 0 if read-ahead is disabled. */
+  private final int readAheadStripes;
+  /** The stripes being read ahead, in order. */
+  private final ArrayDeque<ReadAheadStripe> readAhead = new ArrayDeque<>();
+  /** The number of stripes which were read ahead before they were needed. */
+  private final AtomicInteger readAheadHits = new AtomicInteger();
+  /**
+   * The stripes being read ahead right now, including discarded ones. They
+   * use the decoder, so it is released only once they are done.
+   */
+  private final Set<ReadAheadStripe> readingAhead =
+      ConcurrentHashMap.newKeySet();
+
   DFSStripedInputStream(DFSClient dfsClient, String src,
       boolean verifyChecksum, ErasureCodingPolicy ecPolicy,
       LocatedBlocks locatedBlocks) throws IOException {
@@ -112,6 +227,8 @@ public class DFSStripedInputStream extends DFSInputStream {
         dataBlkNum, parityBlkNum);
     decoder = CodecUtil.createRawDecoder(dfsClient.getConfiguration(),
         ecPolicy.getCodecName(), coderOptions);
+    readAheadStripes = dfsClient.getStripedReadAheadThreadPool() == null ? 0
+        : dfsClient.getConf().getStripedReadAheadStripes();
     DFSClient.LOG.debug("Creating an striped input stream for file {}", src);
   }
 
@@ -120,6 +237,9 @@ private boolean useDirectBuffer() {
   }
 
   private void resetCurStripeBuffer(boolean shouldAllocateBuf) {
+    if (!shouldAllocateBuf) {
+      discardReadAhead();
+    }
     if (shouldAllocateBuf && curStripeBuf == null) {
       curStripeBuf = BUFFER_POOL.getBuffer(useDirectBuffer(),
           cellSize * dataBlkNum);
@@ -179,6 +299,11 @@ public synchronized void close() throws IOException {
     try {
       super.close();
     } finally {
+      discardReadAhead();
+      // No stripe starts after it is discarded.
+      for (ReadAheadStripe stripe : readingAhead) {
+        stripe.awaitDone();
+      }
       if (curStripeBuf != null) {
         BUFFER_POOL.putBuffer(curStripeBuf);
         curStripeBuf = null;
@@ -309,23 +434,128 @@ private void readOneStripe(CorruptedBlocks corruptedBlocks)
         new StripeRange(offsetInBlockGroup, stripeLimit - stripeBufOffset);
 
     LocatedStripedBlock blockGroup = (LocatedStripedBlock) currentLocatedBlock;
-    AlignedStripe[] stripes = StripedBlockUtil.divideOneStripe(ecPolicy,
-        cellSize, blockGroup, offsetInBlockGroup,
-        offsetInBlockGroup + stripeRange.getLength() - 1, curStripeBuf);
-    final LocatedBlock[] blks = StripedBlockUtil.parseStripedBlockGroup(
-        blockGroup, cellSize, dataBlkNum, parityBlkNum);
-    // read the whole stripe
-    for (AlignedStripe stripe : stripes) {
-      // Parse group to get chosen DN location
-      StripeReader sreader = new StatefulStripeReader(stripe, ecPolicy, blks,
-          blockReaders, corruptedBlocks, decoder, this);
-      sreader.readStripe();
+    if (!takeReadAheadStripe(stripeIndex, corruptedBlocks)) {
+      AlignedStripe[] stripes = StripedBlockUtil.divideOneStripe(ecPolicy,
+          cellSize, blockGroup, offsetInBlockGroup,
+          offsetInBlockGroup + stripeRange.getLength() - 1, curStripeBuf);
+      final LocatedBlock[] blks = StripedBlockUtil.parseStripedBlockGroup(
+          blockGroup, cellSize, dataBlkNum, parityBlkNum);
+      // read the whole stripe
+      for (AlignedStripe stripe : stripes) {
+        // Parse group to get chosen DN location
+        StripeReader sreader = new StatefulStripeReader(stripe, ecPolicy,
+            blks, blockReaders, corruptedBlocks, decoder, this);
+        sreader.readStripe();
+      }
     }
+    scheduleReadAhead(blockGroup, stripeIndex);
     curStripeBuf.position(stripeBufOffset);
     curStripeBuf.limit(stripeLimit);
     curStripeRange = stripeRange;
   }
 
+  /**
+   * Take the stripe at stripeIndex of the current block group from the
+   * stripes read ahead, replacing {@link #curStripeBuf} with its buffer.
+   * Stripes before it are dropped.
+   *
+   * @return false if the stripe was not read ahead, or its read failed and
+   *         the stripe has to be read again.
+   */
+  private boolean takeReadAheadStripe(int stripeIndex,
+      CorruptedBlocks corruptedBlocks) throws IOException {
+    final long blockGroupStart = currentLocatedBlock.getStartOffset();
+    ReadAheadStripe next;
+    while ((next = readAhead.peekFirst()) != null
+        && (next.blockGroupStart != blockGroupStart
+            || next.stripeIndex < stripeIndex)) {
+      readAhead.pollFirst().discard();
+    }
+    if (next == null || next.stripeIndex != stripeIndex) {
+      return false;
+    }
+    readAhead.pollFirst();
+    try {
+      next.future.get();
+    } catch (InterruptedException e) {
+      next.discard();
+      throw DFSUtilClient.toInterruptedIOException(
+          "Interrupted reading ahead " + src, e);
+    } catch (ExecutionException e) {
+      DFSClient.LOG.debug("Failed to read ahead stripe {} of {}, reading it"
+          + " again", stripeIndex, currentLocatedBlock.getBlock(),
+          e.getCause());
+      next.discard();
+      return false;
+    }
+    Map<ExtendedBlock, Set<DatanodeInfo>> corruptionMap =
+        next.corruptedBlocks.getCorruptionMap();
+    if (corruptionMap != null) {
+      for (Map.Entry<ExtendedBlock, Set<DatanodeInfo>> entry :
+          corruptionMap.entrySet()) {
+        for (DatanodeInfo node : entry.getValue()) {
+          corruptedBlocks.addCorruptedBlock(entry.getKey(), node);
+        }
+      }
+    }
+    BUFFER_POOL.putBuffer(curStripeBuf);
+    curStripeBuf = next.buf;
+    curStripeBuf.clear();
+    next.buf = null;
+    readAheadHits.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Start reading ahead the stripes of the current block group which follow
+   * stripeIndex, up to {@link #readAheadStripes} of them.
+   */
+  private void scheduleReadAhead(LocatedStripedBlock blockGroup,
+      int stripeIndex) {
+    if (readAheadStripes <= 0) {
+      return;
+    }
+    final long stripeLen = (long) cellSize * dataBlkNum;
+    final long blockGroupSize = blockGroup.getBlockSize();
+    final ReadAheadStripe last = readAhead.peekLast();
+    int next = last == null ? stripeIndex + 1 : last.stripeIndex + 1;
+    for (; next <= stripeIndex + readAheadStripes
+        && next * stripeLen < blockGroupSize; next++) {
+      final long start = next * stripeLen;
+      final long end = Math.min(start + stripeLen, blockGroupSize) - 1;
+      final ReadAheadStripe stripe = new ReadAheadStripe(
+          blockGroup.getStartOffset(), next,
+          BUFFER_POOL.getBuffer(useDirectBuffer(), (int) stripeLen));
+      try {
+        stripe.future = dfsClient.getStripedReadAheadThreadPool().submit(
+            () -> stripe.read(blockGroup, start, end));
+      } catch (RejectedExecutionException e) {
+        // The pool is busy, read the stripe when it is needed.
+        stripe.discard();
+        return;
+      }
+      readAhead.addLast(stripe);
+    }
+  }
+
+  /** Drop the stripes being read ahead. */
+  private void discardReadAhead() {
+    ReadAheadStripe stripe;
+    while ((stripe = readAhead.pollFirst()) != null) {
+      stripe.discard();
+    }
+  }
+
+  @VisibleForTesting
+  int getReadAheadHits() {
+    return readAheadHits.get();
+  }
+
+  @VisibleForTesting
+  int getReadingAheadStripes() {
+    return readingAhead.size();
+  }
+
   /**
    * Update read statistics. Note that this has to be done on the thread that
    * initiates the read, rather than inside each async thread, for
@@ -403,11 +633,10 @@ protected synchronized int readWithStrategy(ReaderStrategy strategy)
           blockSeekTo(pos);
         }
         int realLen = (int) Math.min(len, (blockEnd - pos + 1L));
-        synchronized (infoLock) {
-          if (locatedBlocks.isLastBlockComplete()) {
-            realLen = (int) Math.min(realLen,
-                locatedBlocks.getFileLength() - pos);
-          }
+        final LocatedBlocks locatedBlocks = getLocatedBlocks();
+        if (locatedBlocks.isLastBlockComplete()) {
+          realLen = (int) Math.min(realLen,
+              locatedBlocks.getFileLength() - pos);
         }
 
         /** Number of bytes already read into buffer */
@@ -488,8 +717,8 @@ private LocatedStripedBlock getBlockGroupAt(long offset) throws IOException {
   @Override
   protected void fetchBlockByteRange(LocatedBlock block, long start,
       long end, ByteBuffer buf, CorruptedBlocks corruptedBlocks,
-      final Map<InetSocketAddress, List<IOException>> exceptionMap)
-      throws IOException {
+      final Map<InetSocketAddress, List<IOException>> exceptionMap,
+      AtomicInteger preadFailures) throws IOException {
     // Refresh the striped block group
     LocatedStripedBlock blockGroup = getBlockGroupAt(block.getStartOffset());
 
@@ -560,9 +789,20 @@ public synchronized void releaseBuffer(ByteBuffer buffer) {
         "Not support enhanced byte buffer access.");
   }
 
+  /**
+   * Striped positional reads already fan out to the internal blocks of a
+   * block group, so read the ranges one after the other.
+   */
+  @Override
+  public void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    VectoredReadUtils.readVectored(this, ranges, allocate);
+  }
+
   @Override
   public synchronized void unbuffer() {
     super.unbuffer();
+    discardReadAhead();
     if (curStripeBuf != null) {
       BUFFER_POOL.putBuffer(curStripeBuf);
       curStripeBuf = null;
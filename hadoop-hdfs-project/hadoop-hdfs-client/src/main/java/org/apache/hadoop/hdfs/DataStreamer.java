@@ -30,6 +30,7 @@
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -476,6 +477,11 @@ boolean doWaitForRestart() {
   protected final BlockToWrite block; // its length is number of bytes acked
   protected Token<BlockTokenIdentifier> accessToken;
   private DataOutputStream blockStream;
+  /**
+   * The socket channel under blockStream, or null if the stream is wrapped,
+   * e.g. for SASL encryption. Packets in direct buffers are written to it.
+   */
+  private WritableByteChannel blockChannel;
   private DataInputStream blockReplyStream;
   private ResponseProcessor response = null;
   private final Object nodesLock = new Object();
@@ -893,7 +899,7 @@ private void waitForAllAcks() throws IOException {
   private void sendPacket(DFSPacket packet) throws IOException {
     // write out data to remote datanode
     try {
-      packet.writeTo(blockStream);
+      packet.writeTo(blockStream, blockChannel);
       blockStream.flush();
     } catch (IOException e) {
       // HDFS-3398 treat primary DN is down since client is unable to
@@ -1096,6 +1102,7 @@ void closeStream() {
         b.add(e);
       } finally {
         blockStream = null;
+        blockChannel = null;
       }
     }
     if (blockReplyStream != null) {
@@ -1896,6 +1903,7 @@ boolean createBlockOutputStream(DatanodeInfo[] nodes,
         long readTimeout = dfsClient.getDatanodeReadTimeout(nodes.length);
 
         OutputStream unbufOut = NetUtils.getOutputStream(s, writeTimeout);
+        final OutputStream sockOut = unbufOut;
         InputStream unbufIn = NetUtils.getInputStream(s, readTimeout);
         IOStreamPair saslStreams = dfsClient.saslClient.socketSend(s,
             unbufOut, unbufIn, dfsClient, accessToken, nodes[0]);
@@ -1948,6 +1956,9 @@ boolean createBlockOutputStream(DatanodeInfo[] nodes,
 
         assert null == blockStream : "Previous blockStream unclosed";
         blockStream = out;
+        blockChannel = unbufOut == sockOut
+            && unbufOut instanceof WritableByteChannel ?
+            (WritableByteChannel) unbufOut : null;
         result =  true; // success
         errorState.resetInternalError();
         lastException.clear();
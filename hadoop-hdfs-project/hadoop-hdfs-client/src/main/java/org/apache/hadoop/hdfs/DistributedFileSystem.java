@@ -243,6 +243,16 @@ public DFSHedgedReadMetrics getHedgedReadMetrics() {
     return dfs.getHedgedReadMetrics();
   }
 
+  /**
+   * Returns the located blocks cache shared by the clients of this client's
+   * context, with its hit, miss, eviction and invalidation counts.
+   *
+   * @return the cache, or null if it is disabled
+   */
+  public LocatedBlocksCache getLocatedBlocksCache() {
+    return dfs.getLocatedBlocksCache();
+  }
+
   /**
    * Checks that the passed URI belongs to this filesystem and returns
    * just the path component. Expects a URI with an absolute path.
@@ -568,6 +578,14 @@ public FSDataOutputStream doCall(final Path p) throws IOException {
         final DFSOutputStream dfsos = dfs.create(getPathName(p), permission,
             cflags, replication, blockSize, progress, bufferSize,
             checksumOpt);
+        final int parallelBlocks = dfs.getConf().getWriteParallelBlocks();
+        if (parallelBlocks > 1 && canWriteBlocksInParallel(dfsos, cflags)) {
+          // Leave the target empty, the parts are concatenated to it.
+          return new FSDataOutputStream(new ParallelBlockOutputStream(dfs,
+              getPathName(p), dfsos, permission, replication, blockSize,
+              progress, bufferSize, checksumOpt, parallelBlocks),
+              statistics);
+        }
         return safelyCreateWrappedOutputStream(dfsos);
       }
       @Override
@@ -723,6 +741,19 @@ public FSDataOutputStream next(final FileSystem fs, final Path p)
     }.resolve(this, absF);
   }
 
+  /**
+   * @return whether a file may be written by a
+   *         {@link ParallelBlockOutputStream}: concat does not support
+   *         encryption zones, and the parts could not honor other flags.
+   */
+  private static boolean canWriteBlocksInParallel(DFSOutputStream dfsos,
+      EnumSet<CreateFlag> cflags) {
+    return !(dfsos instanceof DFSStripedOutputStream)
+        && dfsos.getFileEncryptionInfo() == null
+        && EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE)
+            .containsAll(cflags);
+  }
+
   // Private helper to ensure the wrapped inner stream is closed safely
   // upon IOException throw during wrap.
   // Assuming the caller owns the inner stream which needs to be closed upon
@@ -1546,6 +1577,22 @@ public DFSClient getClient() {
     return dfs;
   }
 
+  /**
+   * Get an {@link AsyncDistributedFileSystem} which runs operations on this
+   * file system asynchronously. It shares the client of this file system,
+   * so it must not be used after this file system is closed.
+   *
+   * @return an AsyncDistributedFileSystem of this file system
+   */
+  @InterfaceStability.Unstable
+  public AsyncDistributedFileSystem getAsyncDistributedFileSystem() {
+    return new AsyncDistributedFileSystem(this);
+  }
+
+  boolean getVerifyChecksum() {
+    return verifyChecksum;
+  }
+
   @Override
   public FsStatus getStatus(Path p) throws IOException {
     statistics.incrementReadOps(1);
@@ -54,7 +54,12 @@
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 /**
  * Utility classes to compute file checksum for both replicated and striped
@@ -482,6 +487,12 @@ static class ReplicatedFileChecksumComputer extends FileChecksumComputer {
 
     @Override
     void checksumBlocks() throws IOException {
+      final int parallelism = getClient().getConf().getChecksumParallelism();
+      if (parallelism > 1 && getLocatedBlocks().size() > 1) {
+        checksumBlocksInParallel(parallelism);
+        return;
+      }
+
       // get block checksum for each block
       for (blockIdx = 0;
            blockIdx < getLocatedBlocks().size() && getRemaining() >= 0;
@@ -558,10 +569,25 @@ private boolean checksumBlock(LocatedBlock locatedBlock) {
      */
     private void tryDatanode(LocatedBlock locatedBlock,
                              DatanodeInfo datanode) throws IOException {
+      OpBlockChecksumResponseProto checksumData =
+          requestBlockChecksum(locatedBlock, datanode, getTimeout());
+      extractChecksumProperties(
+          checksumData, locatedBlock, datanode, blockIdx);
+      String blockChecksumForDebug = populateBlockChecksumBuf(checksumData);
+      LOG.debug("got reply from {}: blockChecksum={}, blockChecksumType={}",
+          datanode, blockChecksumForDebug, getBlockChecksumType());
+    }
+
+    /**
+     * Request the checksum of a block from one replica or datanode.
+     */
+    private OpBlockChecksumResponseProto requestBlockChecksum(
+        LocatedBlock locatedBlock, DatanodeInfo datanode, int timeout)
+        throws IOException {
 
       ExtendedBlock block = locatedBlock.getBlock();
 
-      try (IOStreamPair pair = getClient().connectToDN(datanode, getTimeout(),
+      try (IOStreamPair pair = getClient().connectToDN(datanode, timeout,
           locatedBlock.getBlockToken())) {
 
         LOG.debug("write to {}: {}, block={}", datanode,
@@ -580,14 +606,157 @@ private void tryDatanode(LocatedBlock locatedBlock,
             datanode;
         DataTransferProtoUtil.checkBlockOpStatus(reply, logInfo);
 
-        OpBlockChecksumResponseProto checksumData =
-            reply.getChecksumResponse();
-        extractChecksumProperties(
-            checksumData, locatedBlock, datanode, blockIdx);
-        String blockChecksumForDebug = populateBlockChecksumBuf(checksumData);
+        return reply.getChecksumResponse();
+      }
+    }
+
+    /**
+     * The checksum of a block, requested in parallel with the others.
+     */
+    private static final class BlockChecksumResult {
+      private final int blockIdx;
+      private OpBlockChecksumResponseProto checksumData;
+      private DatanodeInfo datanode;
+      /** Set if the request should be retried with fresh tokens or keys. */
+      private IOException retriableException;
+
+      private BlockChecksumResult(int blockIdx) {
+        this.blockIdx = blockIdx;
+      }
+    }
+
+    /**
+     * Request the checksums of the blocks from up to {@code parallelism}
+     * datanodes at a time, and combine them in block order once all have
+     * been received. As in the sequential case, blocks failing with an
+     * expired block token or encryption key are retried once, after
+     * refetching the blocks or clearing the key.
+     */
+    private void checksumBlocksInParallel(int parallelism)
+        throws IOException {
+      final int numBlocks = getLocatedBlocks().size();
+      // The number of bytes of each block to checksum.
+      final long[] numBytes = new long[numBlocks];
+      long remaining = getRemaining();
+      for (int i = 0; i < numBlocks; i++) {
+        numBytes[i] = Math.min(remaining,
+            getLocatedBlocks().get(i).getBlock().getNumBytes());
+        remaining -= numBytes[i];
+      }
+      setRemaining(remaining);
+
+      final BlockChecksumResult[] results = new BlockChecksumResult[numBlocks];
+      List<Integer> pending = new ArrayList<>(numBlocks);
+      for (int i = 0; i < numBlocks; i++) {
+        pending.add(i);
+      }
+      for (boolean retry = true; !pending.isEmpty(); retry = false) {
+        if (isRefetchBlocks()) {  // refetch to get fresh tokens
+          refetchBlocks();
+        }
+        List<Integer> toRetry = new ArrayList<>();
+        for (BlockChecksumResult result :
+            requestBlockChecksums(pending, numBytes, parallelism, retry)) {
+          results[result.blockIdx] = result;
+          if (result.retriableException != null) {
+            if (result.retriableException
+                instanceof InvalidEncryptionKeyException) {
+              getClient().clearDataEncryptionKey();
+            } else {
+              setRefetchBlocks(true);
+            }
+            toRetry.add(result.blockIdx);
+          }
+        }
+        pending = toRetry;
+      }
+
+      for (blockIdx = 0; blockIdx < numBlocks; blockIdx++) {
+        BlockChecksumResult result = results[blockIdx];
+        extractChecksumProperties(result.checksumData,
+            getLocatedBlocks().get(blockIdx), result.datanode, blockIdx);
+        String blockChecksumForDebug =
+            populateBlockChecksumBuf(result.checksumData);
         LOG.debug("got reply from {}: blockChecksum={}, blockChecksumType={}",
-            datanode, blockChecksumForDebug, getBlockChecksumType());
+            result.datanode, blockChecksumForDebug, getBlockChecksumType());
+      }
+    }
+
+    private List<BlockChecksumResult> requestBlockChecksums(
+        List<Integer> blockIdxs, long[] numBytes, int parallelism,
+        boolean retry) throws IOException {
+      final CompletionService<BlockChecksumResult> completionService =
+          new ExecutorCompletionService<>(
+              getClient().getFileChecksumThreadPool());
+      final List<Future<BlockChecksumResult>> futures = new ArrayList<>();
+      final List<BlockChecksumResult> results = new ArrayList<>();
+      int next = 0;
+      try {
+        while (results.size() < blockIdxs.size()) {
+          while (next < blockIdxs.size() &&
+              next - results.size() < parallelism) {
+            final int idx = blockIdxs.get(next++);
+            final LocatedBlock locatedBlock = getLocatedBlocks().get(idx);
+            locatedBlock.getBlock().setNumBytes(numBytes[idx]);
+            futures.add(completionService.submit(
+                () -> requestBlockChecksum(idx, locatedBlock, retry)));
+          }
+          results.add(completionService.take().get());
+        }
+        return results;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw DFSUtilClient.toInterruptedIOException(
+            "Interrupted while computing the checksum of " + getSrc(), e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      } finally {
+        for (Future<BlockChecksumResult> future : futures) {
+          future.cancel(true);
+        }
+      }
+    }
+
+    /**
+     * Try each datanode location of a block to get its checksum.
+     *
+     * @param retry whether to stop at an expired block token or encryption
+     *              key, to retry the block with fresh ones
+     */
+    private BlockChecksumResult requestBlockChecksum(int idx,
+        LocatedBlock locatedBlock, boolean retry) throws IOException {
+      final BlockChecksumResult result = new BlockChecksumResult(idx);
+      final DatanodeInfo[] datanodes = locatedBlock.getLocations();
+      final int timeout = 3000 * datanodes.length +
+          getClient().getConf().getSocketTimeout();
+      for (int j = 0; j < datanodes.length; j++) {
+        try {
+          result.checksumData =
+              requestBlockChecksum(locatedBlock, datanodes[j], timeout);
+          result.datanode = datanodes[j];
+          return result;
+        } catch (InvalidBlockTokenException | InvalidEncryptionKeyException e) {
+          if (!retry) {
+            LOG.warn("src={}" + ", datanodes[{}]={}",
+                getSrc(), j, datanodes[j], e);
+            continue;
+          }
+          LOG.debug("Got {} in response to OP_BLOCK_CHECKSUM for file {} for "
+                  + "block {} from datanode {}. Will retry the block once.",
+              e.getClass().getSimpleName(), getSrc(), locatedBlock.getBlock(),
+              datanodes[j]);
+          result.retriableException = e;
+          return result;
+        } catch (IOException ie) {
+          LOG.warn("src={}" + ", datanodes[{}]={}",
+              getSrc(), j, datanodes[j], ie);
+        }
       }
+      throw new PathIOException(
+          getSrc(), "Fail to get block MD5 for " + locatedBlock);
     }
   }
 
@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.thirdparty.com.google.common.cache.RemovalNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the {@link LocatedBlocks} which files were opened with, so that
+ * the DFSClients sharing a {@link ClientContext} can open the same file
+ * again without calling getBlockLocations on the NameNode.
+ * <p>
+ * Entries are kept per NameNode and path, and hold the located blocks of
+ * each user, since the NameNode checks the permissions of the user. Only
+ * files which are not under construction are cached. An entry expires a
+ * fixed time after it was added, and is invalidated when a stream reading
+ * the file fetches its locations again, for example after a read error or
+ * a generation stamp change, and when the file or one of its parents is
+ * modified through a DFSClient of this JVM. The paths of the entries are
+ * also kept sorted, so that the entries under a directory are found
+ * without scanning the cache.
+ * <p>
+ * Cached LocatedBlocks are shared by streams and must not be modified.
+ */
+@InterfaceAudience.Private
+public class LocatedBlocksCache {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(LocatedBlocksCache.class);
+
+  private static final class Key {
+    private static final Comparator<Key> COMPARATOR =
+        Comparator.<Key, String>comparing(k -> k.namespace)
+            .thenComparing(k -> k.src);
+
+    private final String namespace;
+    private final String src;
+
+    private Key(String namespace, String src) {
+      this.namespace = namespace;
+      this.src = src;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return namespace.equals(other.namespace) && src.equals(other.src);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(namespace, src);
+    }
+  }
+
+  /** The located blocks of each cached path, by user. */
+  private final Cache<Key, Map<String, LocatedBlocks>> cache;
+  /**
+   * The keys of the cache, sorted by path. It may briefly hold keys which
+   * were removed from the cache, but never misses a key of the cache.
+   */
+  private final NavigableSet<Key> paths =
+      new ConcurrentSkipListSet<>(Key.COMPARATOR);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  public LocatedBlocksCache(int maxSize, long expiryMs) {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(expiryMs, TimeUnit.MILLISECONDS)
+        .removalListener(this::onRemoval)
+        .build();
+  }
+
+  private void onRemoval(
+      RemovalNotification<Key, Map<String, LocatedBlocks>> notification) {
+    if (notification.wasEvicted()) {
+      evictions.increment();
+    }
+    // The path may have been cached again since the entry was removed.
+    Key key = notification.getKey();
+    paths.remove(key);
+    if (cache.asMap().containsKey(key)) {
+      paths.add(key);
+    }
+  }
+
+  /**
+   * @param namespace the NameNode the file is on
+   * @param user the user opening the file
+   * @param src the path of the file
+   * @return the cached located blocks of the file, or null
+   */
+  public LocatedBlocks get(String namespace, String user, String src) {
+    Map<String, LocatedBlocks> byUser =
+        cache.getIfPresent(new Key(namespace, src));
+    LocatedBlocks blocks = byUser == null ? null : byUser.get(user);
+    if (blocks == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return blocks;
+  }
+
+  /**
+   * Cache the located blocks of a file, unless it is under construction.
+   */
+  public void put(String namespace, String user, String src,
+      LocatedBlocks blocks) {
+    if (blocks == null || blocks.isUnderConstruction()
+        || !blocks.isLastBlockComplete()) {
+      return;
+    }
+    Key key = new Key(namespace, src);
+    cache.asMap().computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+        .put(user, blocks);
+    paths.add(key);
+  }
+
+  /**
+   * Invalidate the entries of a path, for all users.
+   *
+   * @param namespace the NameNode the path is on
+   * @param src the path
+   * @param recursive whether to invalidate the entries of the files under
+   *                  the path too
+   */
+  public void invalidate(String namespace, String src, boolean recursive) {
+    boolean removed = cache.asMap().remove(new Key(namespace, src)) != null;
+    if (recursive) {
+      // The paths under src sort between src + "/" and src + "0".
+      String prefix = src.endsWith("/") ? src : src + "/";
+      String end = prefix.substring(0, prefix.length() - 1) + '0';
+      for (Key key : paths.subSet(new Key(namespace, prefix), true,
+          new Key(namespace, end), false)) {
+        removed |= cache.asMap().remove(key) != null;
+      }
+    }
+    if (removed) {
+      invalidations.increment();
+      LOG.debug("Invalidated cached located blocks of {}", src);
+    }
+  }
+
+  /** Invalidate all entries. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** @return the number of cached files. */
+  public long size() {
+    return cache.size();
+  }
+
+  /** @return the number of opens which found their file in the cache. */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** @return the number of opens which did not find their file. */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** @return the fraction of opens which found their file in the cache. */
+  public double getHitRate() {
+    long hitCount = hits.sum();
+    long requests = hitCount + misses.sum();
+    return requests == 0 ? 1.0 : (double) hitCount / requests;
+  }
+
+  /** @return the number of entries evicted because of size or expiry. */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /** @return the number of invalidations which removed entries. */
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "LocatedBlocksCache(size=" + cache.size()
+        + ", hits=" + hits.sum()
+        + ", misses=" + misses.sum()
+        + ", evictions=" + evictions.sum()
+        + ", invalidations=" + invalidations.sum() + ")";
+  }
+}
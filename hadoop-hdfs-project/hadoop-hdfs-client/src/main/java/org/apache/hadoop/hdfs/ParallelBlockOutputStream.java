@@ -0,0 +1,359 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.Options.ChecksumOpt;
+import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.fs.Syncable;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An output stream which writes the blocks of a file through several
+ * pipelines at once.
+ * <p>
+ * The data is cut into parts of one block each. Every part is written to a
+ * hidden file in the directory of the target by its own
+ * {@link DFSOutputStream}, on a thread of the stream, and the writer only
+ * copies its data to the queue of the current part. The names of the parts
+ * hold the client name and a random id, and they are never overwritten.
+ * When the stream is closed, the parts are appended to the target, which
+ * was created empty, with a single concat call. The target is kept open,
+ * so that the client holds its lease, until right before the concat.
+ * <ul>
+ *   <li>At most the configured number of parts are written at once. A part
+ *   queues at most {@link #MAX_QUEUED_CHUNKS} chunks which its pipeline has
+ *   not taken yet, and the writer blocks while the queue is full.</li>
+ *   <li>The target stays empty until the stream is closed, and
+ *   {@link #hflush()} and {@link #hsync()} throw
+ *   {@link UnsupportedOperationException}.</li>
+ *   <li>If a part fails, the stream fails and the parts are deleted. If the
+ *   client dies before the stream is closed, the parts, named
+ *   {@code .<name>.<client>-<id>.part-<n>}, are left behind next to the
+ *   empty target and have to be deleted by the application.</li>
+ * </ul>
+ */
+@InterfaceAudience.Private
+class ParallelBlockOutputStream extends OutputStream
+    implements Syncable, StreamCapabilities {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(ParallelBlockOutputStream.class);
+
+  /** Size of the buffers queued to the parts. */
+  private static final int CHUNK_SIZE = 1024 * 1024;
+  /** The number of chunks a part queues before the writer blocks. */
+  private static final int MAX_QUEUED_CHUNKS = 4;
+  /** Marks the end of the data of a part. */
+  private static final byte[] END = new byte[0];
+
+  /** A block of the file written to its own file. */
+  private final class Part {
+    private final String path;
+    private final BlockingQueue<byte[]> chunks =
+        new ArrayBlockingQueue<>(MAX_QUEUED_CHUNKS);
+    private long length = 0;
+    private Future<Void> future;
+
+    private Part(String path) {
+      this.path = path;
+    }
+
+    private Void write() throws IOException, InterruptedException {
+      try (DFSOutputStream out = dfsClient.create(path, permission,
+          EnumSet.of(CreateFlag.CREATE), replication, blockSize, progress,
+          bufferSize, checksumOpt)) {
+        for (byte[] chunk = chunks.take(); chunk != END;
+            chunk = chunks.take()) {
+          out.write(chunk, 0, chunk.length);
+        }
+      } finally {
+        activeParts.release();
+      }
+      return null;
+    }
+  }
+
+  private final DFSClient dfsClient;
+  private final String src;
+  /** The empty target, open until the parts are concatenated to it. */
+  private final DFSOutputStream target;
+  private final String partPrefix;
+  private final FsPermission permission;
+  private final short replication;
+  private final long blockSize;
+  private final Progressable progress;
+  private final int bufferSize;
+  private final ChecksumOpt checksumOpt;
+
+  private final ExecutorService executor;
+  private final Semaphore activeParts;
+  private final List<Part> parts = new ArrayList<>();
+  private Part currentPart;
+  private final byte[] chunk;
+  private int chunkPos = 0;
+  private boolean closed = false;
+
+  /**
+   * @param dfsClient the client
+   * @param src the target file
+   * @param target the stream of the target file, which must be empty. It is
+   *               closed by this stream.
+   * @param parallelBlocks the maximum number of parts written at once
+   */
+  ParallelBlockOutputStream(DFSClient dfsClient, String src,
+      DFSOutputStream target, FsPermission permission, short replication,
+      long blockSize, Progressable progress, int bufferSize,
+      ChecksumOpt checksumOpt, int parallelBlocks) {
+    this.dfsClient = dfsClient;
+    this.src = src;
+    this.target = target;
+    this.partPrefix = getPartPrefix(src, dfsClient.getClientName(),
+        Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    this.permission = permission;
+    this.replication = replication;
+    this.blockSize = blockSize;
+    this.progress = progress;
+    this.bufferSize = bufferSize;
+    this.checksumOpt = checksumOpt;
+    this.activeParts = new Semaphore(parallelBlocks);
+    this.executor = HadoopExecutors.newFixedThreadPool(parallelBlocks,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("ParallelBlockOutputStream-" + src + "-%d")
+            .build());
+    this.chunk = new byte[(int) Math.min(CHUNK_SIZE, blockSize)];
+  }
+
+  /**
+   * @return the prefix of the paths of the parts of the target file written
+   *         by the given client, in a stream with the given id.
+   */
+  static String getPartPrefix(String src, String clientName, String id) {
+    int slash = src.lastIndexOf('/');
+    return src.substring(0, slash + 1) + "." + src.substring(slash + 1)
+        + "." + clientName + "-" + id + ".part-";
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len)
+      throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    if (off < 0 || len < 0 || off > b.length - len) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    while (len > 0) {
+      if (currentPart == null) {
+        startPart();
+      }
+      int n = (int) Math.min(Math.min(len, chunk.length - chunkPos),
+          blockSize - currentPart.length);
+      System.arraycopy(b, off, chunk, chunkPos, n);
+      chunkPos += n;
+      currentPart.length += n;
+      off += n;
+      len -= n;
+      if (chunkPos == chunk.length) {
+        queueChunk();
+      }
+      if (currentPart.length == blockSize) {
+        finishPart();
+      }
+    }
+  }
+
+  /** Start the next part, once fewer than the maximum are being written. */
+  private void startPart() throws IOException {
+    checkParts();
+    try {
+      activeParts.acquire();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Interrupted waiting to write " + src);
+    }
+    final Part part = new Part(partPrefix + parts.size());
+    try {
+      part.future = executor.submit(part::write);
+    } catch (RuntimeException e) {
+      activeParts.release();
+      throw e;
+    }
+    parts.add(part);
+    currentPart = part;
+  }
+
+  private void queueChunk() throws IOException {
+    if (chunkPos > 0) {
+      queue(Arrays.copyOf(chunk, chunkPos));
+      chunkPos = 0;
+    }
+  }
+
+  private void finishPart() throws IOException {
+    queueChunk();
+    queue(END);
+    currentPart = null;
+  }
+
+  /**
+   * Queue a chunk to the current part, waiting while its queue is full
+   * unless the part has stopped taking chunks.
+   */
+  private void queue(byte[] c) throws IOException {
+    try {
+      while (!currentPart.chunks.offer(c, 1, TimeUnit.SECONDS)) {
+        if (currentPart.future.isDone()) {
+          waitFor(currentPart);
+          throw new IOException("Stopped writing " + currentPart.path);
+        }
+      }
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Interrupted writing " + src);
+    }
+  }
+
+  /** Fail early if a part has failed. */
+  private void checkParts() throws IOException {
+    for (Part part : parts) {
+      if (part.future.isDone()) {
+        waitFor(part);
+      }
+    }
+  }
+
+  private void waitFor(Part part) throws IOException {
+    try {
+      part.future.get();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException("Interrupted writing " + part.path);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Failed to write " + part.path, cause);
+    }
+  }
+
+  /**
+   * Flushing does not make the data visible before the stream is closed,
+   * so it does nothing.
+   */
+  @Override
+  public void flush() {
+  }
+
+  /**
+   * The data is not visible before the stream is closed.
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void hflush() {
+    throw new UnsupportedOperationException(
+        "hflush is not supported when writing blocks in parallel: " + src);
+  }
+
+  /**
+   * The data is not visible before the stream is closed.
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void hsync() {
+    throw new UnsupportedOperationException(
+        "hsync is not supported when writing blocks in parallel: " + src);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    boolean targetClosed = false;
+    boolean success = false;
+    try {
+      if (currentPart != null) {
+        finishPart();
+      }
+      for (Part part : parts) {
+        waitFor(part);
+      }
+      // concat needs a closed target.
+      targetClosed = true;
+      target.close();
+      if (!parts.isEmpty()) {
+        String[] paths = new String[parts.size()];
+        for (int i = 0; i < paths.length; i++) {
+          paths[i] = parts.get(i).path;
+        }
+        dfsClient.concat(src, paths);
+      }
+      success = true;
+    } finally {
+      executor.shutdownNow();
+      if (!success) {
+        if (!targetClosed) {
+          try {
+            target.close();
+          } catch (IOException e) {
+            LOG.warn("Failed to close {}", src, e);
+          }
+        }
+        for (Part part : parts) {
+          try {
+            dfsClient.delete(part.path, false);
+          } catch (IOException e) {
+            LOG.warn("Failed to delete {}", part.path, e);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean hasCapability(String capability) {
+    return false;
+  }
+}
@@ -135,6 +135,8 @@ public interface HdfsClientConfigKeys {
   int     DFS_BYTES_PER_CHECKSUM_DEFAULT = 512;
   String  DFS_CHECKSUM_COMBINE_MODE_KEY = "dfs.checksum.combine.mode";
   String  DFS_CHECKSUM_COMBINE_MODE_DEFAULT = "MD5MD5CRC";
+  String  DFS_CHECKSUM_PARALLELISM_KEY = "dfs.checksum.parallelism";
+  int     DFS_CHECKSUM_PARALLELISM_DEFAULT = 1;
   String  DFS_CHECKSUM_EC_SOCKET_TIMEOUT_KEY = "dfs.checksum.ec.socket-timeout";
   int     DFS_CHECKSUM_EC_SOCKET_TIMEOUT_DEFAULT = 3000;
   String  DFS_DATANODE_SOCKET_WRITE_TIMEOUT_KEY =
@@ -413,6 +415,10 @@ interface Write {
     String RECOVER_LEASE_ON_CLOSE_EXCEPTION_KEY =
         PREFIX + "recover.lease.on.close.exception";
     boolean RECOVER_LEASE_ON_CLOSE_EXCEPTION_DEFAULT = false;
+    String  DIRECT_BUFFER_ENABLED_KEY = PREFIX + "direct-buffer.enabled";
+    boolean DIRECT_BUFFER_ENABLED_DEFAULT = false;
+    String  PARALLEL_BLOCKS_KEY = PREFIX + "parallel-blocks";
+    int     PARALLEL_BLOCKS_DEFAULT = 1;
 
     interface ByteArrayManager {
       String PREFIX = Write.PREFIX + "byte-array-manager.";
@@ -468,6 +474,13 @@ interface Read {
     String URI_CACHE_KEY = PREFIX + "uri.cache.enabled";
     boolean URI_CACHE_DEFAULT = false;
 
+    String  LOCATED_BLOCKS_CACHE_SIZE_KEY =
+        PREFIX + "located-blocks.cache.size";
+    int     LOCATED_BLOCKS_CACHE_SIZE_DEFAULT = 0;
+    String  LOCATED_BLOCKS_CACHE_EXPIRY_MS_KEY =
+        PREFIX + "located-blocks.cache.expiry.ms";
+    long    LOCATED_BLOCKS_CACHE_EXPIRY_MS_DEFAULT = 30 * MS_PER_SECOND;
+
     interface ShortCircuit {
       String PREFIX = Read.PREFIX + "shortcircuit.";
 
@@ -482,6 +495,8 @@ interface ShortCircuit {
       int     STREAMS_CACHE_SIZE_DEFAULT = 256;
       String  STREAMS_CACHE_EXPIRY_MS_KEY = PREFIX + "streams.cache.expiry.ms";
       long    STREAMS_CACHE_EXPIRY_MS_DEFAULT = 5*MINUTE;
+      String  STREAMS_CACHE_SHARDS_KEY = PREFIX + "streams.cache.shards";
+      int     STREAMS_CACHE_SHARDS_DEFAULT = 1;
 
       String  METRICS_SAMPLING_PERCENTAGE_KEY =
           PREFIX + "metrics.sampling.percentage";
@@ -520,6 +535,14 @@ interface HedgedRead {
     long    THRESHOLD_MILLIS_DEFAULT = 500;
     String  THREADPOOL_SIZE_KEY = PREFIX + "threadpool.size";
     int     THREADPOOL_SIZE_DEFAULT = 0;
+    String  ADAPTIVE_ENABLED_KEY = PREFIX + "adaptive.enabled";
+    boolean ADAPTIVE_ENABLED_DEFAULT = false;
+    String  ADAPTIVE_PERCENTILE_KEY = PREFIX + "adaptive.percentile";
+    int     ADAPTIVE_PERCENTILE_DEFAULT = 95;
+    String  ADAPTIVE_MAX_PERCENT_KEY = PREFIX + "adaptive.max.percent";
+    int     ADAPTIVE_MAX_PERCENT_DEFAULT = 10;
+    String  ADAPTIVE_WINDOW_SIZE_KEY = PREFIX + "adaptive.window.size";
+    int     ADAPTIVE_WINDOW_SIZE_DEFAULT = 128;
   }
 
   /** dfs.client.read.striped configuration properties */
@@ -532,6 +555,25 @@ interface StripedRead {
      * span 6 DNs, so this default value accommodates 3 read streams
      */
     int     THREADPOOL_SIZE_DEFAULT = 18;
+
+    String  READAHEAD_STRIPES_KEY = PREFIX + "readahead.stripes";
+    int     READAHEAD_STRIPES_DEFAULT = 0;
+  }
+
+  /** dfs.client.read.vectored configuration properties */
+  interface VectoredRead {
+    String PREFIX = Read.PREFIX + "vectored.";
+
+    String  THREADPOOL_SIZE_KEY = PREFIX + "threadpool.size";
+    int     THREADPOOL_SIZE_DEFAULT = 16;
+  }
+
+  /** dfs.client.async configuration properties */
+  interface Async {
+    String PREFIX = "dfs.client.async.";
+
+    String  IO_THREADPOOL_SIZE_KEY = PREFIX + "io.threadpool.size";
+    int     IO_THREADPOOL_SIZE_DEFAULT = 16;
   }
 
   /** dfs.http.client configuration properties */
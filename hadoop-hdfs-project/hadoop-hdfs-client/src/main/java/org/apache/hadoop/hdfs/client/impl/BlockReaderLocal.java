@@ -270,7 +270,7 @@ private BlockReaderLocal(Builder builder) {
       metricsInitializationLock.lock();
       try {
         if (metrics == null) {
-          metrics = BlockReaderLocalMetrics.create();
+          metrics = BlockReaderLocalMetrics.get();
         }
       } finally {
         metricsInitializationLock.unlock();
@@ -48,6 +48,8 @@
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_COMBINE_MODE_KEY;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_EC_SOCKET_TIMEOUT_DEFAULT;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_EC_SOCKET_TIMEOUT_KEY;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_PARALLELISM_DEFAULT;
+import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_PARALLELISM_KEY;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_TYPE_DEFAULT;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CHECKSUM_TYPE_KEY;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CLIENT_CACHED_CONN_RETRY_DEFAULT;
@@ -119,9 +121,12 @@ public class DfsClientConf {
   private final int ioBufferSize;
   private final ChecksumOpt defaultChecksumOpt;
   private final ChecksumCombineMode checksumCombineMode;
+  private final int checksumParallelism;
   private final int checksumEcSocketTimeout;
   private final int writePacketSize;
   private final int writeMaxPackets;
+  private final boolean writeDirectBufferEnabled;
+  private final int writeParallelBlocks;
   private final ByteArrayManager.Conf writeByteArrayManagerConf;
   private final int socketTimeout;
   private final int socketSendBufferSize;
@@ -136,6 +141,8 @@ public class DfsClientConf {
   private final long defaultBlockSize;
   private final long prefetchSize;
   private final boolean uriCacheEnabled;
+  private final int locatedBlocksCacheSize;
+  private final long locatedBlocksCacheExpiryMs;
   private final short defaultReplication;
   private final String taskId;
   private final FsPermission uMask;
@@ -155,10 +162,17 @@ public class DfsClientConf {
 
   private final long hedgedReadThresholdMillis;
   private final int hedgedReadThreadpoolSize;
+  private final boolean adaptiveHedgedReadEnabled;
+  private final int adaptiveHedgedReadPercentile;
+  private final int adaptiveHedgedReadMaxPercent;
+  private final int adaptiveHedgedReadWindowSize;
   private final List<Class<? extends ReplicaAccessorBuilder>>
       replicaAccessorBuilderClasses;
 
   private final int stripedReadThreadpoolSize;
+  private final int vectoredReadThreadpoolSize;
+  private final int stripedReadAheadStripes;
+  private final int asyncIoThreadpoolSize;
 
   private final boolean dataTransferTcpNoDelay;
 
@@ -205,6 +219,11 @@ public DfsClientConf(Configuration conf) {
         CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT);
     defaultChecksumOpt = getChecksumOptFromConf(conf);
     checksumCombineMode = getChecksumCombineModeFromConf(conf);
+    checksumParallelism = conf.getInt(DFS_CHECKSUM_PARALLELISM_KEY,
+        DFS_CHECKSUM_PARALLELISM_DEFAULT);
+    Preconditions.checkArgument(checksumParallelism > 0,
+        "The value of " + DFS_CHECKSUM_PARALLELISM_KEY
+        + " must be greater than 0.");
     checksumEcSocketTimeout = conf.getInt(DFS_CHECKSUM_EC_SOCKET_TIMEOUT_KEY,
       DFS_CHECKSUM_EC_SOCKET_TIMEOUT_DEFAULT);
     dataTransferTcpNoDelay = conf.getBoolean(
@@ -221,6 +240,12 @@ public DfsClientConf(Configuration conf) {
     writeMaxPackets = conf.getInt(
         Write.MAX_PACKETS_IN_FLIGHT_KEY,
         Write.MAX_PACKETS_IN_FLIGHT_DEFAULT);
+    writeDirectBufferEnabled = conf.getBoolean(
+        Write.DIRECT_BUFFER_ENABLED_KEY,
+        Write.DIRECT_BUFFER_ENABLED_DEFAULT);
+    writeParallelBlocks = conf.getInt(
+        Write.PARALLEL_BLOCKS_KEY,
+        Write.PARALLEL_BLOCKS_DEFAULT);
 
     writeByteArrayManagerConf = loadWriteByteArrayManagerConf(conf);
 
@@ -237,6 +262,11 @@ public DfsClientConf(Configuration conf) {
 
     uriCacheEnabled = conf.getBoolean(Read.URI_CACHE_KEY,
         Read.URI_CACHE_DEFAULT);
+    locatedBlocksCacheSize = conf.getInt(Read.LOCATED_BLOCKS_CACHE_SIZE_KEY,
+        Read.LOCATED_BLOCKS_CACHE_SIZE_DEFAULT);
+    locatedBlocksCacheExpiryMs = conf.getLong(
+        Read.LOCATED_BLOCKS_CACHE_EXPIRY_MS_KEY,
+        Read.LOCATED_BLOCKS_CACHE_EXPIRY_MS_DEFAULT);
 
     numCachedConnRetry = conf.getInt(DFS_CLIENT_CACHED_CONN_RETRY_KEY,
         DFS_CLIENT_CACHED_CONN_RETRY_DEFAULT);
@@ -284,6 +314,18 @@ public DfsClientConf(Configuration conf) {
     hedgedReadThreadpoolSize = conf.getInt(
         HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_KEY,
         HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_DEFAULT);
+    adaptiveHedgedReadEnabled = conf.getBoolean(
+        HedgedRead.ADAPTIVE_ENABLED_KEY,
+        HedgedRead.ADAPTIVE_ENABLED_DEFAULT);
+    adaptiveHedgedReadPercentile = conf.getInt(
+        HedgedRead.ADAPTIVE_PERCENTILE_KEY,
+        HedgedRead.ADAPTIVE_PERCENTILE_DEFAULT);
+    adaptiveHedgedReadMaxPercent = conf.getInt(
+        HedgedRead.ADAPTIVE_MAX_PERCENT_KEY,
+        HedgedRead.ADAPTIVE_MAX_PERCENT_DEFAULT);
+    adaptiveHedgedReadWindowSize = conf.getInt(
+        HedgedRead.ADAPTIVE_WINDOW_SIZE_KEY,
+        HedgedRead.ADAPTIVE_WINDOW_SIZE_DEFAULT);
 
     deadNodeDetectionEnabled =
         conf.getBoolean(DFS_CLIENT_DEAD_NODE_DETECTION_ENABLED_KEY,
@@ -295,6 +337,21 @@ public DfsClientConf(Configuration conf) {
     Preconditions.checkArgument(stripedReadThreadpoolSize > 0, "The value of " +
         HdfsClientConfigKeys.StripedRead.THREADPOOL_SIZE_KEY +
         " must be greater than 0.");
+    stripedReadAheadStripes = conf.getInt(
+        HdfsClientConfigKeys.StripedRead.READAHEAD_STRIPES_KEY,
+        HdfsClientConfigKeys.StripedRead.READAHEAD_STRIPES_DEFAULT);
+    vectoredReadThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(vectoredReadThreadpoolSize > 0,
+        "The value of " + HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_KEY
+        + " must be greater than 0.");
+    asyncIoThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.Async.IO_THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.Async.IO_THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(asyncIoThreadpoolSize > 0,
+        "The value of " + HdfsClientConfigKeys.Async.IO_THREADPOOL_SIZE_KEY
+        + " must be greater than 0.");
     replicaAccessorBuilderClasses = loadReplicaAccessorBuilderClasses(conf);
 
     leaseHardLimitPeriod =
@@ -494,6 +551,13 @@ public ChecksumCombineMode getChecksumCombineMode() {
     return checksumCombineMode;
   }
 
+  /**
+   * @return the checksumParallelism
+   */
+  public int getChecksumParallelism() {
+    return checksumParallelism;
+  }
+
   /**
    * @return the checksumEcSocketTimeout
    */
@@ -515,6 +579,20 @@ public int getWriteMaxPackets() {
     return writeMaxPackets;
   }
 
+  /**
+   * @return whether packets are written from pooled direct buffers
+   */
+  public boolean isWriteDirectBufferEnabled() {
+    return writeDirectBufferEnabled;
+  }
+
+  /**
+   * @return the number of blocks of a file which may be written at once
+   */
+  public int getWriteParallelBlocks() {
+    return writeParallelBlocks;
+  }
+
   /**
    * @return the writeByteArrayManagerConf
    */
@@ -599,6 +677,21 @@ public boolean isUriCacheEnabled() {
     return uriCacheEnabled;
   }
 
+  /**
+   * @return the maximum number of files in the located blocks cache, 0 if
+   *         the cache is disabled
+   */
+  public int getLocatedBlocksCacheSize() {
+    return locatedBlocksCacheSize;
+  }
+
+  /**
+   * @return the time after which a located blocks cache entry expires
+   */
+  public long getLocatedBlocksCacheExpiryMs() {
+    return locatedBlocksCacheExpiryMs;
+  }
+
   /**
    * @return the defaultReplication
    */
@@ -683,6 +776,34 @@ public int getHedgedReadThreadpoolSize() {
     return hedgedReadThreadpoolSize;
   }
 
+  /**
+   * @return whether hedged reads adapt to the observed read latencies
+   */
+  public boolean isAdaptiveHedgedReadEnabled() {
+    return adaptiveHedgedReadEnabled;
+  }
+
+  /**
+   * @return the adaptiveHedgedReadPercentile
+   */
+  public int getAdaptiveHedgedReadPercentile() {
+    return adaptiveHedgedReadPercentile;
+  }
+
+  /**
+   * @return the adaptiveHedgedReadMaxPercent
+   */
+  public int getAdaptiveHedgedReadMaxPercent() {
+    return adaptiveHedgedReadMaxPercent;
+  }
+
+  /**
+   * @return the adaptiveHedgedReadWindowSize
+   */
+  public int getAdaptiveHedgedReadWindowSize() {
+    return adaptiveHedgedReadWindowSize;
+  }
+
   /**
    * @return the stripedReadThreadpoolSize
    */
@@ -690,6 +811,27 @@ public int getStripedReadThreadpoolSize() {
     return stripedReadThreadpoolSize;
   }
 
+  /**
+   * @return the number of stripes read ahead by striped input streams
+   */
+  public int getStripedReadAheadStripes() {
+    return stripedReadAheadStripes;
+  }
+
+  /**
+   * @return the vectoredReadThreadpoolSize
+   */
+  public int getVectoredReadThreadpoolSize() {
+    return vectoredReadThreadpoolSize;
+  }
+
+  /**
+   * @return the asyncIoThreadpoolSize
+   */
+  public int getAsyncIoThreadpoolSize() {
+    return asyncIoThreadpoolSize;
+  }
+
   /**
    * @return the deadNodeDetectionEnabled
    */
@@ -763,6 +905,7 @@ public static class ShortCircuitConf {
     private final boolean domainSocketDataTraffic;
     private final int shortCircuitStreamsCacheSize;
     private final long shortCircuitStreamsCacheExpiryMs;
+    private final int shortCircuitStreamsCacheShards;
     private final int shortCircuitSharedMemoryWatcherInterruptCheckMs;
 
     // Short Circuit Read Metrics
@@ -834,6 +977,9 @@ public ShortCircuitConf(Configuration conf) {
       shortCircuitStreamsCacheExpiryMs = conf.getLong(
           Read.ShortCircuit.STREAMS_CACHE_EXPIRY_MS_KEY,
           Read.ShortCircuit.STREAMS_CACHE_EXPIRY_MS_DEFAULT);
+      shortCircuitStreamsCacheShards = conf.getInt(
+          Read.ShortCircuit.STREAMS_CACHE_SHARDS_KEY,
+          Read.ShortCircuit.STREAMS_CACHE_SHARDS_DEFAULT);
       shortCircuitMmapEnabled = conf.getBoolean(
           Mmap.ENABLED_KEY,
           Mmap.ENABLED_DEFAULT);
@@ -922,6 +1068,13 @@ public int getShortCircuitStreamsCacheSize() {
       return shortCircuitStreamsCacheSize;
     }
 
+    /**
+     * @return the shortCircuitStreamsCacheShards
+     */
+    public int getShortCircuitStreamsCacheShards() {
+      return shortCircuitStreamsCacheShards;
+    }
+
     /**
      * @return the shortCircuitStreamsCacheExpiryMs
      */
@@ -991,6 +1144,8 @@ public String confAsString() {
           + shortCircuitStreamsCacheSize
           + ", shortCircuitStreamsCacheExpiryMs = "
           + shortCircuitStreamsCacheExpiryMs
+          + ", shortCircuitStreamsCacheShards = "
+          + shortCircuitStreamsCacheShards
           + ", shortCircuitMmapCacheSize = "
           + shortCircuitMmapCacheSize
           + ", shortCircuitMmapCacheExpiryMs = "
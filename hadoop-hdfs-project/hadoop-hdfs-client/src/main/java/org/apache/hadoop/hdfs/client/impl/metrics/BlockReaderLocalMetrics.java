@@ -17,8 +17,13 @@
  */
 package org.apache.hadoop.hdfs.client.impl.metrics;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.hadoop.classification.VisibleForTesting;
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitCache;
 import org.apache.hadoop.metrics2.MetricsSystem;
 import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
@@ -27,7 +32,7 @@
 
 /**
  * This class maintains a metric of rolling average latency for short circuit
- * reads.
+ * reads, and metrics of the shard locks of the short circuit caches.
  */
 @InterfaceAudience.Private
 @Metrics(name="HdfsShortCircuitReads",
@@ -43,6 +48,25 @@ public class BlockReaderLocalMetrics {
   private static final String SHORT_CIRCUIT_LOCAL_READS_METRIC_VALUE_NAME =
       "ShortCircuitLocalReads";
 
+  private static BlockReaderLocalMetrics instance;
+
+  /** The open caches whose lock metrics are published. */
+  private final Set<ShortCircuitCache> caches = ConcurrentHashMap.newKeySet();
+  /** The lock metrics of the caches which were closed. */
+  private final LongAdder closedLockAcquisitions = new LongAdder();
+  private final LongAdder closedLockHoldTimeNanos = new LongAdder();
+
+  /**
+   * @return the metrics shared by the short circuit readers and caches of
+   *         the process, which are registered on first use.
+   */
+  public static synchronized BlockReaderLocalMetrics get() {
+    if (instance == null) {
+      instance = create();
+    }
+    return instance;
+  }
+
   public static BlockReaderLocalMetrics create() {
     MetricsSystem ms = DefaultMetricsSystem.instance();
     BlockReaderLocalMetrics metrics = new BlockReaderLocalMetrics();
@@ -67,6 +91,59 @@ public void collectThreadLocalStates() {
     shortCircuitReadRollingAverages.collectThreadLocalStates();
   }
 
+  /**
+   * Publish the lock metrics of a cache until it is removed.
+   */
+  public void addShortCircuitCache(ShortCircuitCache cache) {
+    caches.add(cache);
+  }
+
+  /**
+   * Stop publishing the lock metrics of a closed cache. The counts of its
+   * locks stay in the totals.
+   */
+  public void removeShortCircuitCache(ShortCircuitCache cache) {
+    if (caches.remove(cache)) {
+      closedLockAcquisitions.add(cache.getLockAcquisitions());
+      closedLockHoldTimeNanos.add(cache.getLockHoldTimeNanos());
+    }
+  }
+
+  @Metric(value = "Number of times the short circuit cache shard locks "
+      + "were taken", type = Metric.Type.COUNTER)
+  public long getShortCircuitCacheLockAcquisitions() {
+    long total = closedLockAcquisitions.sum();
+    for (ShortCircuitCache cache : caches) {
+      total += cache.getLockAcquisitions();
+    }
+    return total;
+  }
+
+  @Metric(value = "Time the short circuit cache shard locks were held in "
+      + "nanoseconds", type = Metric.Type.COUNTER)
+  public long getShortCircuitCacheLockHoldTimeNanos() {
+    long total = closedLockHoldTimeNanos.sum();
+    for (ShortCircuitCache cache : caches) {
+      total += cache.getLockHoldTimeNanos();
+    }
+    return total;
+  }
+
+  /**
+   * @return the longest time a shard lock of a cache was held since the
+   *         metrics were last read, in nanoseconds. Reading it starts a new
+   *         interval.
+   */
+  @Metric(value = "Longest time a short circuit cache shard lock was held "
+      + "in the interval in nanoseconds", type = Metric.Type.GAUGE)
+  public long getShortCircuitCacheMaxLockHoldTimeNanos() {
+    long max = 0;
+    for (ShortCircuitCache cache : caches) {
+      max = Math.max(max, cache.getAndResetMaxLockHoldTimeNanos());
+    }
+    return max;
+  }
+
   /**
    * Get the MutableRollingAverage metric for testing only.
    * @return
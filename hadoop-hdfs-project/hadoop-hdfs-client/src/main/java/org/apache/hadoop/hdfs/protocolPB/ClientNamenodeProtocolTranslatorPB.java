@@ -26,6 +26,7 @@
 
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -337,6 +338,13 @@ public LocatedBlocks getBlockLocations(String src, long offset, long length)
         .setOffset(offset)
         .setLength(length)
         .build();
+    if (Client.isAsynchronousMode()) {
+      ipc(() -> rpcProxy.getBlockLocations(null, req));
+      setAsyncReturnValue((GetBlockLocationsResponseProto resp) ->
+          resp.hasLocations() ?
+              PBHelperClient.convert(resp.getLocations()) : null);
+      return null;
+    }
     GetBlockLocationsResponseProto resp = ipc(() -> rpcProxy.getBlockLocations(null,
         req));
     return resp.hasLocations() ?
@@ -452,6 +460,31 @@ public boolean isDone() {
     AsyncCallHandler.setLowerLayerAsyncReturn(asyncGet);
   }
 
+  /**
+   * Set the return value of an asynchronous call from its response.
+   *
+   * @param converter converts the response to the return value
+   */
+  private <M extends Message, T> void setAsyncReturnValue(
+      Function<M, T> converter) {
+    final AsyncGet<Message, Exception> asyncReturnMessage
+        = ProtobufRpcEngine2.getAsyncReturnMessage();
+    final AsyncGet<T, Exception> asyncGet = new AsyncGet<T, Exception>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public T get(long timeout, TimeUnit unit) throws Exception {
+        Message response = asyncReturnMessage.get(timeout, unit);
+        return response == null ? null : converter.apply((M) response);
+      }
+
+      @Override
+      public boolean isDone() {
+        return asyncReturnMessage.isDone();
+      }
+    };
+    AsyncCallHandler.setLowerLayerAsyncReturn(asyncGet);
+  }
+
   @Override
   public void setOwner(String src, String username, String groupname)
       throws IOException {
@@ -618,6 +651,13 @@ public DirectoryListing getListing(String src, byte[] startAfter,
         .setSrc(src)
         .setStartAfter(ByteString.copyFrom(startAfter))
         .setNeedLocation(needLocation).build();
+    if (Client.isAsynchronousMode()) {
+      ipc(() -> rpcProxy.getListing(null, req));
+      setAsyncReturnValue((GetListingResponseProto result) ->
+          result.hasDirList() ?
+              PBHelperClient.convert(result.getDirList()) : null);
+      return null;
+    }
     GetListingResponseProto result = ipc(() -> rpcProxy.getListing(null, req));
     if (result.hasDirList()) {
       return PBHelperClient.convert(result.getDirList());
@@ -817,6 +857,12 @@ public HdfsFileStatus getFileInfo(String src) throws IOException {
     GetFileInfoRequestProto req = GetFileInfoRequestProto.newBuilder()
         .setSrc(src)
         .build();
+    if (Client.isAsynchronousMode()) {
+      ipc(() -> rpcProxy.getFileInfo(null, req));
+      setAsyncReturnValue((GetFileInfoResponseProto res) ->
+          res.hasFs() ? PBHelperClient.convert(res.getFs()) : null);
+      return null;
+    }
     GetFileInfoResponseProto res = ipc(() -> rpcProxy.getFileInfo(null, req));
     return res.hasFs() ? PBHelperClient.convert(res.getFs()) : null;
   }
@@ -27,18 +27,25 @@
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.commons.collections.MapIterator;
 import org.apache.commons.collections.map.LinkedMap;
 import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hdfs.ExtendedBlockId;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf.ShortCircuitConf;
+import org.apache.hadoop.hdfs.client.impl.metrics.BlockReaderLocalMetrics;
 import org.apache.hadoop.hdfs.net.DomainPeer;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.protocol.datatransfer.Sender;
@@ -68,6 +75,10 @@
  *
  * These things include: memory-mapped regions, file descriptors, and shared
  * memory areas for communicating with the DataNode.
+ *
+ * The replicas are partitioned into shards by the hash of their block id,
+ * each with its own lock and eviction lists, so that readers of different
+ * blocks do not contend on one lock.
  */
 @InterfaceAudience.Private
 public class ShortCircuitCache implements Closeable {
@@ -100,38 +111,28 @@ private class CacheCleaner implements Runnable, Closeable {
      */
     @Override
     public void run() {
-      ShortCircuitCache.this.lock.lock();
-      try {
-        if (ShortCircuitCache.this.closed) return;
-        long curMs = Time.monotonicNow();
-
-        LOG.debug("{}: cache cleaner running at {}", this, curMs);
-
-        int numDemoted = demoteOldEvictableMmaped(curMs);
-        int numPurged = 0;
-        Long evictionTimeNs;
-        while (!evictable.isEmpty()) {
-          Object eldestKey = evictable.firstKey();
-          evictionTimeNs = (Long)eldestKey;
-          long evictionTimeMs =
-              TimeUnit.MILLISECONDS.convert(evictionTimeNs, TimeUnit.NANOSECONDS);
-          if (evictionTimeMs + maxNonMmappedEvictableLifespanMs >= curMs) break;
-          ShortCircuitReplica replica = (ShortCircuitReplica)evictable.get(
-              eldestKey);
-          if (LOG.isTraceEnabled()) {
-            LOG.trace("CacheCleaner: purging " + replica + ": " +
-                StringUtils.getStackTrace(Thread.currentThread()));
-          }
-          purge(replica);
-          numPurged++;
+      if (ShortCircuitCache.this.closed) return;
+      long curMs = Time.monotonicNow();
+
+      LOG.debug("{}: cache cleaner running at {}", this, curMs);
+
+      int numDemoted = 0;
+      int numPurged = 0;
+      for (Shard shard : shards) {
+        shard.lock();
+        try {
+          if (ShortCircuitCache.this.closed) return;
+          int[] cleaned = shard.clean(curMs);
+          numDemoted += cleaned[0];
+          numPurged += cleaned[1];
+        } finally {
+          shard.unlock();
         }
-
-        LOG.debug("{}: finishing cache cleaner run started at {}. Demoted {} "
-                + "mmapped replicas; purged {} replicas.",
-            this, curMs, numDemoted, numPurged);
-      } finally {
-        ShortCircuitCache.this.lock.unlock();
       }
+
+      LOG.debug("{}: finishing cache cleaner run started at {}. Demoted {} "
+              + "mmapped replicas; purged {} replicas.",
+          this, curMs, numDemoted, numPurged);
     }
 
     @Override
@@ -262,11 +263,460 @@ public interface ShortCircuitReplicaCreator {
      */
     ShortCircuitReplicaInfo createShortCircuitReplicaInfo();
   }
+  /**
+   * A partition of the cache. Replicas are assigned to a shard by the hash
+   * of their key, and each shard has its own lock, replica map and
+   * eviction lists, so threads using different replicas rarely contend.
+   * A thread never holds the locks of two shards, except in
+   * {@link #accept(CacheVisitor)}, which takes them in order.
+   */
+  private final class Shard {
+    /**
+     * Lock protecting the shard.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * A map containing all ShortCircuitReplicaInfo objects of the shard,
+     * organized by Key. ShortCircuitReplicaInfo objects may contain a
+     * replica, or an InvalidToken exception.
+     */
+    private final HashMap<ExtendedBlockId, Waitable<ShortCircuitReplicaInfo>>
+        replicaInfoMap = new HashMap<>();
+
+    /**
+     * LinkedMap of evictable elements.
+     *
+     * Maps (unique) insertion time in nanoseconds to the element.
+     */
+    private final LinkedMap evictable = new LinkedMap();
+
+    /**
+     * LinkedMap of mmaped evictable elements.
+     *
+     * Maps (unique) insertion time in nanoseconds to the element.
+     */
+    private final LinkedMap evictableMmapped = new LinkedMap();
+
+    /** When the lock was last taken, in nanoseconds. */
+    private long lockedAtNs;
+
+    /**
+     * The longest time the lock was held since it was last read, in
+     * nanoseconds. Only raised with the lock held.
+     */
+    private final AtomicLong maxLockHoldTimeNs = new AtomicLong();
+
+    private void lock() {
+      lock.lock();
+      if (lock.getHoldCount() == 1) {
+        lockedAtNs = System.nanoTime();
+      }
+    }
+
+    private void unlock() {
+      if (lock.getHoldCount() == 1) {
+        long heldNs = System.nanoTime() - lockedAtNs;
+        lockAcquisitions.increment();
+        lockHoldTimeNs.add(heldNs);
+        if (heldNs > maxLockHoldTimeNs.get()) {
+          maxLockHoldTimeNs.accumulateAndGet(heldNs, Math::max);
+        }
+      }
+      lock.unlock();
+    }
+
+    /**
+     * Do not count the time spent waiting on a condition of the lock as
+     * time the lock was held.
+     *
+     * @param waitStartNs when the wait started, in nanoseconds.
+     */
+    private void waited(long waitStartNs) {
+      lockedAtNs += System.nanoTime() - waitStartNs;
+    }
+
+    /**
+     * Increment the reference count of a replica, and remove it from any free
+     * list it may be in.
+     *
+     * You must hold the shard lock while calling this function.
+     *
+     * @param replica      The replica we're removing.
+     */
+    private void ref(ShortCircuitReplica replica) {
+      lock();
+      try {
+        Preconditions.checkArgument(replica.refCount > 0,
+            "can't ref %s because its refCount reached %d", replica,
+            replica.refCount);
+        Long evictableTimeNs = replica.getEvictableTimeNs();
+        replica.refCount++;
+        if (evictableTimeNs != null) {
+          String removedFrom = removeEvictable(replica);
+          if (LOG.isTraceEnabled()) {
+            LOG.trace(ShortCircuitCache.this + ": " + removedFrom +
+                " no longer contains " + replica + ".  refCount " +
+                (replica.refCount - 1) + " -> " + replica.refCount +
+                StringUtils.getStackTrace(Thread.currentThread()));
+
+          }
+        } else if (LOG.isTraceEnabled()) {
+          LOG.trace(ShortCircuitCache.this + ": replica  refCount " +
+              (replica.refCount - 1) + " -> " + replica.refCount +
+              StringUtils.getStackTrace(Thread.currentThread()));
+        }
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Unreference a replica.
+     *
+     * @param replica   The replica being unreferenced.
+     */
+    private void unref(ShortCircuitReplica replica) {
+      lock();
+      try {
+        // If the replica is stale or unusable, but we haven't purged it yet,
+        // let's do that.  It would be a shame to evict a non-stale replica so
+        // that we could put a stale or unusable one into the cache.
+        if (!replica.purged) {
+          String purgeReason = null;
+          if (!replica.getDataStream().getChannel().isOpen()) {
+            purgeReason = "purging replica because its data channel is closed.";
+          } else if (!replica.getMetaStream().getChannel().isOpen()) {
+            purgeReason = "purging replica because its meta channel is closed.";
+          } else if (replica.isStale()) {
+            purgeReason = "purging replica because it is stale.";
+          }
+          if (purgeReason != null) {
+            LOG.debug("{}: {}", ShortCircuitCache.this, purgeReason);
+            purge(replica);
+          }
+        }
+        String addedString = "";
+        boolean shouldTrimEvictionMaps = false;
+        int newRefCount = --replica.refCount;
+        if (newRefCount == 0) {
+          // Close replica, since there are no remaining references to it.
+          Preconditions.checkArgument(replica.purged,
+              "Replica %s reached a refCount of 0 without being purged",
+              replica);
+          replica.close();
+        } else if (newRefCount == 1) {
+          Preconditions.checkState(null == replica.getEvictableTimeNs(),
+              "Replica %s had a refCount higher than 1, " +
+                  "but was still evictable (evictableTimeNs = %d)",
+              replica, replica.getEvictableTimeNs());
+          if (!replica.purged) {
+            // Add the replica to the end of an eviction list.
+            // Eviction lists are sorted by time.
+            if (replica.hasMmap()) {
+              insertEvictable(System.nanoTime(), replica, evictableMmapped);
+              addedString = "added to evictableMmapped, ";
+            } else {
+              insertEvictable(System.nanoTime(), replica, evictable);
+              addedString = "added to evictable, ";
+            }
+            shouldTrimEvictionMaps = true;
+          }
+        } else {
+          Preconditions.checkArgument(replica.refCount >= 0,
+              "replica's refCount went negative (refCount = %d" +
+                  " for %s)", replica.refCount, replica);
+        }
+        if (LOG.isTraceEnabled()) {
+          LOG.trace(ShortCircuitCache.this + ": unref replica " + replica +
+              ": " + addedString + " refCount " +
+              (newRefCount + 1) + " -> " + newRefCount +
+              StringUtils.getStackTrace(Thread.currentThread()));
+        }
+        if (shouldTrimEvictionMaps) {
+          trimEvictionMaps();
+        }
+      } finally {
+        unlock();
+      }
+    }
+
+    /**
+     * Demote old evictable mmaps into the regular eviction map, and purge
+     * old non-mmaped replicas.
+     *
+     * You must hold the shard lock while calling this function.
+     *
+     * @param curMs   Current time in monotonic milliseconds.
+     * @return        Number of replicas demoted and purged.
+     */
+    private int[] clean(long curMs) {
+      int numDemoted = demoteOldEvictableMmaped(curMs);
+      int numPurged = 0;
+      Long evictionTimeNs;
+      while (!evictable.isEmpty()) {
+        Object eldestKey = evictable.firstKey();
+        evictionTimeNs = (Long)eldestKey;
+        long evictionTimeMs =
+            TimeUnit.MILLISECONDS.convert(evictionTimeNs, TimeUnit.NANOSECONDS);
+        if (evictionTimeMs + maxNonMmappedEvictableLifespanMs >= curMs) break;
+        ShortCircuitReplica replica = (ShortCircuitReplica)evictable.get(
+            eldestKey);
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("CacheCleaner: purging " + replica + ": " +
+              StringUtils.getStackTrace(Thread.currentThread()));
+        }
+        purge(replica);
+        numPurged++;
+      }
+      return new int[] {numDemoted, numPurged};
+    }
+
+    /**
+     * Demote old evictable mmaps into the regular eviction map.
+     *
+     * You must hold the shard lock while calling this function.
+     *
+     * @param now   Current time in monotonic milliseconds.
+     * @return      Number of replicas demoted.
+     */
+    private int demoteOldEvictableMmaped(long now) {
+      int numDemoted = 0;
+      boolean needMoreSpace = false;
+      Long evictionTimeNs;
+      final int maxSize = getShardLimit(maxEvictableMmapedSize);
+
+      while (!evictableMmapped.isEmpty()) {
+        Object eldestKey = evictableMmapped.firstKey();
+        evictionTimeNs = (Long)eldestKey;
+        long evictionTimeMs =
+            TimeUnit.MILLISECONDS.convert(evictionTimeNs, TimeUnit.NANOSECONDS);
+        if (evictionTimeMs + maxEvictableMmapedLifespanMs >= now) {
+          if (evictableMmapped.size() < maxSize) {
+            break;
+          }
+          needMoreSpace = true;
+        }
+        ShortCircuitReplica replica =
+            (ShortCircuitReplica)evictableMmapped.get(eldestKey);
+        if (LOG.isTraceEnabled()) {
+          String rationale = needMoreSpace ? "because we need more space" :
+              "because it's too old";
+          LOG.trace("demoteOldEvictable: demoting " + replica + ": " +
+              rationale + ": " +
+              StringUtils.getStackTrace(Thread.currentThread()));
+        }
+        ShortCircuitCache.removeEvictable(replica, evictableMmapped);
+        munmap(replica);
+        insertEvictable(evictionTimeNs, replica, evictable);
+        numDemoted++;
+      }
+      return numDemoted;
+    }
+
+    /**
+     * Trim the eviction lists.
+     */
+    private void trimEvictionMaps() {
+      long now = Time.monotonicNow();
+      demoteOldEvictableMmaped(now);
+
+      final int maxSize = getShardLimit(maxTotalSize);
+      while (evictable.size() + evictableMmapped.size() > maxSize) {
+        ShortCircuitReplica replica;
+        if (evictable.isEmpty()) {
+          replica = (ShortCircuitReplica) evictableMmapped
+              .get(evictableMmapped.firstKey());
+        } else {
+          replica = (ShortCircuitReplica) evictable.get(evictable.firstKey());
+        }
+
+        if (LOG.isTraceEnabled()) {
+          LOG.trace(ShortCircuitCache.this + ": trimEvictionMaps is purging " +
+              replica + StringUtils.getStackTrace(Thread.currentThread()));
+        }
+        purge(replica);
+      }
+    }
+
+    /**
+     * Remove a replica from an evictable map.
+     *
+     * @param replica   The replica to remove.
+     * @return          The map it was removed from.
+     */
+    private String removeEvictable(ShortCircuitReplica replica) {
+      if (replica.hasMmap()) {
+        ShortCircuitCache.removeEvictable(replica, evictableMmapped);
+        return "evictableMmapped";
+      } else {
+        ShortCircuitCache.removeEvictable(replica, evictable);
+        return "evictable";
+      }
+    }
+
+    /**
+     * Purge a replica from the cache.
+     *
+     * This doesn't necessarily close the replica, since there may be
+     * outstanding references to it.  However, it does mean the cache won't
+     * hand it out to anyone after this.
+     *
+     * You must hold the shard lock while calling this function.
+     *
+     * @param replica   The replica being removed.
+     */
+    private void purge(ShortCircuitReplica replica) {
+      boolean removedFromInfoMap = false;
+      String evictionMapName = null;
+      Preconditions.checkArgument(!replica.purged);
+      replica.purged = true;
+      Waitable<ShortCircuitReplicaInfo> val = replicaInfoMap.get(replica.key);
+      if (val != null) {
+        ShortCircuitReplicaInfo info = val.getVal();
+        if ((info != null) && (info.getReplica() == replica)) {
+          replicaInfoMap.remove(replica.key);
+          removedFromInfoMap = true;
+        }
+      }
+      Long evictableTimeNs = replica.getEvictableTimeNs();
+      if (evictableTimeNs != null) {
+        evictionMapName = removeEvictable(replica);
+      }
+      if (LOG.isTraceEnabled()) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(ShortCircuitCache.this).append(": ").
+            append(": purged ").append(replica).append(" from the cache.");
+        if (removedFromInfoMap) {
+          builder.append("  Removed from the replicaInfoMap.");
+        }
+        if (evictionMapName != null) {
+          builder.append("  Removed from ").append(evictionMapName);
+        }
+        LOG.trace(builder.toString());
+      }
+      unref(replica);
+    }
+
+    /**
+     * Purge all evictable replicas.
+     *
+     * You must hold the shard lock while calling this function.
+     */
+    private void purgeEvictable() {
+      while (!evictable.isEmpty()) {
+        Object eldestKey = evictable.firstKey();
+        purge((ShortCircuitReplica) evictable.get(eldestKey));
+      }
+      while (!evictableMmapped.isEmpty()) {
+        Object eldestKey = evictableMmapped.firstKey();
+        purge((ShortCircuitReplica) evictableMmapped.get(eldestKey));
+      }
+    }
+
+    private ShortCircuitReplicaInfo create(ExtendedBlockId key,
+        ShortCircuitReplicaCreator creator,
+        Waitable<ShortCircuitReplicaInfo> newWaitable) {
+      // Handle loading a new replica.
+      ShortCircuitReplicaInfo info = null;
+      try {
+        LOG.trace("{}: loading {}", ShortCircuitCache.this, key);
+        info = creator.createShortCircuitReplicaInfo();
+      } catch (RuntimeException e) {
+        LOG.warn(ShortCircuitCache.this + ": failed to load " + key, e);
+      }
+      if (info == null) info = new ShortCircuitReplicaInfo();
+      lock();
+      try {
+        if (info.getReplica() != null) {
+          // On success, make sure the cache cleaner thread is running.
+          LOG.trace("{}: successfully loaded {}", ShortCircuitCache.this,
+              info.getReplica());
+          startCacheCleanerThreadIfNeeded();
+          // Note: new ShortCircuitReplicas start with a refCount of 2,
+          // indicating that both this cache and whoever requested the
+          // creation of the replica hold a reference.  So we don't need
+          // to increment the reference count here.
+        } else {
+          // On failure, remove the waitable from the replicaInfoMap.
+          Waitable<ShortCircuitReplicaInfo> waitableInMap =
+              replicaInfoMap.get(key);
+          if (waitableInMap == newWaitable) replicaInfoMap.remove(key);
+          if (info.getInvalidTokenException() != null) {
+            LOG.info(ShortCircuitCache.this + ": could not load " + key +
+                " due to InvalidToken exception.",
+                info.getInvalidTokenException());
+          } else {
+            LOG.warn(ShortCircuitCache.this + ": failed to load " + key);
+          }
+        }
+        newWaitable.provide(info);
+      } finally {
+        unlock();
+      }
+      return info;
+    }
+
+    private ClientMmap getOrCreateClientMmap(ShortCircuitReplica replica,
+        boolean anchored) {
+      Condition newCond;
+      lock();
+      try {
+        while (replica.mmapData != null) {
+          if (replica.mmapData instanceof MappedByteBuffer) {
+            ref(replica);
+            MappedByteBuffer mmap = (MappedByteBuffer)replica.mmapData;
+            return new ClientMmap(replica, mmap, anchored);
+          } else if (replica.mmapData instanceof Long) {
+            long lastAttemptTimeMs = (Long)replica.mmapData;
+            long delta = Time.monotonicNow() - lastAttemptTimeMs;
+            if (delta < mmapRetryTimeoutMs) {
+              LOG.trace("{}: can't create client mmap for {} because we "
+                  + "failed to create one just {}ms ago.",
+                  ShortCircuitCache.this, replica, delta);
+              return null;
+            }
+            LOG.trace("{}: retrying client mmap for {}, {} ms after the "
+                + "previous failure.", ShortCircuitCache.this, replica, delta);
+          } else if (replica.mmapData instanceof Condition) {
+            Condition cond = (Condition)replica.mmapData;
+            long waitStartNs = System.nanoTime();
+            cond.awaitUninterruptibly();
+            waited(waitStartNs);
+          } else {
+            Preconditions.checkState(false, "invalid mmapData type %s",
+                replica.mmapData.getClass().getName());
+          }
+        }
+        newCond = lock.newCondition();
+        replica.mmapData = newCond;
+      } finally {
+        unlock();
+      }
+      MappedByteBuffer map = replica.loadMmapInternal();
+      lock();
+      try {
+        if (map == null) {
+          replica.mmapData = Time.monotonicNow();
+          newCond.signalAll();
+          return null;
+        } else {
+          outstandingMmapCount.incrementAndGet();
+          replica.mmapData = map;
+          ref(replica);
+          newCond.signalAll();
+          return new ClientMmap(replica, map, anchored);
+        }
+      } finally {
+        unlock();
+      }
+    }
+  }
 
   /**
-   * Lock protecting the cache.
+   * The shards of the cache.
    */
-  private final ReentrantLock lock = new ReentrantLock();
+  private final Shard[] shards;
 
   /**
    * The executor service that runs the cacheCleaner.
@@ -284,49 +734,27 @@ public interface ShortCircuitReplicaCreator {
       setDaemon(true).setNameFormat("ShortCircuitCache_SlotReleaser").
       build());
 
-  /**
-   * A map containing all ShortCircuitReplicaInfo objects, organized by Key.
-   * ShortCircuitReplicaInfo objects may contain a replica, or an InvalidToken
-   * exception.
-   */
-  private final HashMap<ExtendedBlockId, Waitable<ShortCircuitReplicaInfo>>
-      replicaInfoMap = new HashMap<>();
-
   /**
    * The CacheCleaner.  We don't create this and schedule it until it becomes
    * necessary.
    */
   private CacheCleaner cacheCleaner;
 
-  /**
-   * LinkedMap of evictable elements.
-   *
-   * Maps (unique) insertion time in nanoseconds to the element.
-   */
-  private final LinkedMap evictable = new LinkedMap();
-
   /**
    * Maximum total size of the cache, including both mmapped and
    * no$-mmapped elements.
    */
-  private int maxTotalSize;
+  private volatile int maxTotalSize;
 
   /**
    * Non-mmaped elements older than this will be closed.
    */
-  private long maxNonMmappedEvictableLifespanMs;
-
-  /**
-   * LinkedMap of mmaped evictable elements.
-   *
-   * Maps (unique) insertion time in nanoseconds to the element.
-   */
-  private final LinkedMap evictableMmapped = new LinkedMap();
+  private volatile long maxNonMmappedEvictableLifespanMs;
 
   /**
    * Maximum number of mmaped evictable elements.
    */
-  private int maxEvictableMmapedSize;
+  private volatile int maxEvictableMmapedSize;
 
   /**
    * Mmaped elements older than this will be closed.
@@ -348,12 +776,24 @@ public interface ShortCircuitReplicaCreator {
   /**
    * True if the ShortCircuitCache is closed.
    */
-  private boolean closed = false;
+  private volatile boolean closed = false;
 
   /**
    * Number of existing mmaps associated with this cache.
    */
-  private int outstandingMmapCount = 0;
+  private final AtomicInteger outstandingMmapCount = new AtomicInteger();
+
+  /**
+   * Statistics of how long the shard locks are held.
+   */
+  private final LongAdder lockAcquisitions = new LongAdder();
+  private final LongAdder lockHoldTimeNs = new LongAdder();
+
+  /**
+   * The metrics which publish the statistics of the locks, or null if short
+   * circuit read metrics are disabled.
+   */
+  private BlockReaderLocalMetrics metrics;
 
   /**
    * Manages short-circuit shared memory segments for the client.
@@ -367,19 +807,38 @@ public interface ShortCircuitReplicaCreator {
   private Map<String, DomainSocket> pathToDomainSocket = new HashMap<>();
 
   public static ShortCircuitCache fromConf(ShortCircuitConf conf) {
-    return new ShortCircuitCache(
+    ShortCircuitCache cache = new ShortCircuitCache(
         conf.getShortCircuitStreamsCacheSize(),
         conf.getShortCircuitStreamsCacheExpiryMs(),
         conf.getShortCircuitMmapCacheSize(),
         conf.getShortCircuitMmapCacheExpiryMs(),
         conf.getShortCircuitMmapCacheRetryTimeout(),
         conf.getShortCircuitCacheStaleThresholdMs(),
-        conf.getShortCircuitSharedMemoryWatcherInterruptCheckMs());
+        conf.getShortCircuitSharedMemoryWatcherInterruptCheckMs(),
+        conf.getShortCircuitStreamsCacheShards());
+    if (conf.isScrMetricsEnabled()) {
+      cache.metrics = BlockReaderLocalMetrics.get();
+      cache.metrics.addShortCircuitCache(cache);
+    }
+    return cache;
   }
 
   public ShortCircuitCache(int maxTotalSize, long maxNonMmappedEvictableLifespanMs,
       int maxEvictableMmapedSize, long maxEvictableMmapedLifespanMs,
       long mmapRetryTimeoutMs, long staleThresholdMs, int shmInterruptCheckMs) {
+    this(maxTotalSize, maxNonMmappedEvictableLifespanMs,
+        maxEvictableMmapedSize, maxEvictableMmapedLifespanMs,
+        mmapRetryTimeoutMs, staleThresholdMs, shmInterruptCheckMs, 1);
+  }
+
+  /**
+   * @param numShards   The number of shards of the cache. The maximum sizes
+   *                    of the eviction lists are divided between them.
+   */
+  public ShortCircuitCache(int maxTotalSize, long maxNonMmappedEvictableLifespanMs,
+      int maxEvictableMmapedSize, long maxEvictableMmapedLifespanMs,
+      long mmapRetryTimeoutMs, long staleThresholdMs, int shmInterruptCheckMs,
+      int numShards) {
     Preconditions.checkArgument(maxTotalSize >= 0,
         "maxTotalSize must be greater than zero.");
     this.maxTotalSize = maxTotalSize;
@@ -394,6 +853,13 @@ public ShortCircuitCache(int maxTotalSize, long maxNonMmappedEvictableLifespanMs
     this.maxEvictableMmapedLifespanMs = maxEvictableMmapedLifespanMs;
     this.mmapRetryTimeoutMs = mmapRetryTimeoutMs;
     this.staleThresholdMs = staleThresholdMs;
+    Preconditions.checkArgument(numShards >= 1,
+        HdfsClientConfigKeys.Read.ShortCircuit.STREAMS_CACHE_SHARDS_KEY
+            + " must be at least 1.");
+    this.shards = new Shard[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shards[i] = new Shard();
+    }
     DfsClientShmManager shmManager = null;
     if ((shmInterruptCheckMs > 0) &&
         (DomainSocketWatcher.getLoadingFailureReason() == null)) {
@@ -415,175 +881,28 @@ public void setMaxTotalSize(int maxTotalSize) {
     this.maxTotalSize = maxTotalSize;
   }
 
-  /**
-   * Increment the reference count of a replica, and remove it from any free
-   * list it may be in.
-   *
-   * You must hold the cache lock while calling this function.
-   *
-   * @param replica      The replica we're removing.
-   */
-  private void ref(ShortCircuitReplica replica) {
-    lock.lock();
-    try {
-      Preconditions.checkArgument(replica.refCount > 0,
-          "can't ref %s because its refCount reached %d", replica,
-          replica.refCount);
-      Long evictableTimeNs = replica.getEvictableTimeNs();
-      replica.refCount++;
-      if (evictableTimeNs != null) {
-        String removedFrom = removeEvictable(replica);
-        if (LOG.isTraceEnabled()) {
-          LOG.trace(this + ": " + removedFrom +
-              " no longer contains " + replica + ".  refCount " +
-              (replica.refCount - 1) + " -> " + replica.refCount +
-              StringUtils.getStackTrace(Thread.currentThread()));
-
-        }
-      } else if (LOG.isTraceEnabled()) {
-        LOG.trace(this + ": replica  refCount " +
-            (replica.refCount - 1) + " -> " + replica.refCount +
-            StringUtils.getStackTrace(Thread.currentThread()));
-      }
-    } finally {
-      lock.unlock();
+  private Shard getShard(ExtendedBlockId key) {
+    if (shards.length == 1) {
+      return shards[0];
     }
+    return shards[Math.floorMod(key.hashCode(), shards.length)];
   }
 
   /**
-   * Unreference a replica.
-   *
-   * You must hold the cache lock while calling this function.
-   *
-   * @param replica   The replica being unreferenced.
+   * @return the part of a limit of the whole cache which applies to one
+   *         shard.
    */
-  void unref(ShortCircuitReplica replica) {
-    lock.lock();
-    try {
-      // If the replica is stale or unusable, but we haven't purged it yet,
-      // let's do that.  It would be a shame to evict a non-stale replica so
-      // that we could put a stale or unusable one into the cache.
-      if (!replica.purged) {
-        String purgeReason = null;
-        if (!replica.getDataStream().getChannel().isOpen()) {
-          purgeReason = "purging replica because its data channel is closed.";
-        } else if (!replica.getMetaStream().getChannel().isOpen()) {
-          purgeReason = "purging replica because its meta channel is closed.";
-        } else if (replica.isStale()) {
-          purgeReason = "purging replica because it is stale.";
-        }
-        if (purgeReason != null) {
-          LOG.debug("{}: {}", this, purgeReason);
-          purge(replica);
-        }
-      }
-      String addedString = "";
-      boolean shouldTrimEvictionMaps = false;
-      int newRefCount = --replica.refCount;
-      if (newRefCount == 0) {
-        // Close replica, since there are no remaining references to it.
-        Preconditions.checkArgument(replica.purged,
-            "Replica %s reached a refCount of 0 without being purged", replica);
-        replica.close();
-      } else if (newRefCount == 1) {
-        Preconditions.checkState(null == replica.getEvictableTimeNs(),
-            "Replica %s had a refCount higher than 1, " +
-                "but was still evictable (evictableTimeNs = %d)",
-            replica, replica.getEvictableTimeNs());
-        if (!replica.purged) {
-          // Add the replica to the end of an eviction list.
-          // Eviction lists are sorted by time.
-          if (replica.hasMmap()) {
-            insertEvictable(System.nanoTime(), replica, evictableMmapped);
-            addedString = "added to evictableMmapped, ";
-          } else {
-            insertEvictable(System.nanoTime(), replica, evictable);
-            addedString = "added to evictable, ";
-          }
-          shouldTrimEvictionMaps = true;
-        }
-      } else {
-        Preconditions.checkArgument(replica.refCount >= 0,
-            "replica's refCount went negative (refCount = %d" +
-                " for %s)", replica.refCount, replica);
-      }
-      if (LOG.isTraceEnabled()) {
-        LOG.trace(this + ": unref replica " + replica +
-            ": " + addedString + " refCount " +
-            (newRefCount + 1) + " -> " + newRefCount +
-            StringUtils.getStackTrace(Thread.currentThread()));
-      }
-      if (shouldTrimEvictionMaps) {
-        trimEvictionMaps();
-      }
-    } finally {
-      lock.unlock();
-    }
+  private int getShardLimit(int limit) {
+    return (limit + shards.length - 1) / shards.length;
   }
 
   /**
-   * Demote old evictable mmaps into the regular eviction map.
-   *
-   * You must hold the cache lock while calling this function.
+   * Unreference a replica.
    *
-   * @param now   Current time in monotonic milliseconds.
-   * @return      Number of replicas demoted.
-   */
-  private int demoteOldEvictableMmaped(long now) {
-    int numDemoted = 0;
-    boolean needMoreSpace = false;
-    Long evictionTimeNs;
-
-    while (!evictableMmapped.isEmpty()) {
-      Object eldestKey = evictableMmapped.firstKey();
-      evictionTimeNs = (Long)eldestKey;
-      long evictionTimeMs =
-          TimeUnit.MILLISECONDS.convert(evictionTimeNs, TimeUnit.NANOSECONDS);
-      if (evictionTimeMs + maxEvictableMmapedLifespanMs >= now) {
-        if (evictableMmapped.size() < maxEvictableMmapedSize) {
-          break;
-        }
-        needMoreSpace = true;
-      }
-      ShortCircuitReplica replica = (ShortCircuitReplica)evictableMmapped.get(
-          eldestKey);
-      if (LOG.isTraceEnabled()) {
-        String rationale = needMoreSpace ? "because we need more space" :
-            "because it's too old";
-        LOG.trace("demoteOldEvictable: demoting " + replica + ": " +
-            rationale + ": " +
-            StringUtils.getStackTrace(Thread.currentThread()));
-      }
-      removeEvictable(replica, evictableMmapped);
-      munmap(replica);
-      insertEvictable(evictionTimeNs, replica, evictable);
-      numDemoted++;
-    }
-    return numDemoted;
-  }
-
-  /**
-   * Trim the eviction lists.
+   * @param replica   The replica being unreferenced.
    */
-  private void trimEvictionMaps() {
-    long now = Time.monotonicNow();
-    demoteOldEvictableMmaped(now);
-
-    while (evictable.size() + evictableMmapped.size() > maxTotalSize) {
-      ShortCircuitReplica replica;
-      if (evictable.isEmpty()) {
-        replica = (ShortCircuitReplica) evictableMmapped
-            .get(evictableMmapped.firstKey());
-      } else {
-        replica = (ShortCircuitReplica) evictable.get(evictable.firstKey());
-      }
-
-      if (LOG.isTraceEnabled()) {
-        LOG.trace(this + ": trimEvictionMaps is purging " + replica +
-            StringUtils.getStackTrace(Thread.currentThread()));
-      }
-      purge(replica);
-    }
+  void unref(ShortCircuitReplica replica) {
+    getShard(replica.key).unref(replica);
   }
 
   /**
@@ -593,23 +912,7 @@ private void trimEvictionMaps() {
    */
   private void munmap(ShortCircuitReplica replica) {
     replica.munmap();
-    outstandingMmapCount--;
-  }
-
-  /**
-   * Remove a replica from an evictable map.
-   *
-   * @param replica   The replica to remove.
-   * @return          The map it was removed from.
-   */
-  private String removeEvictable(ShortCircuitReplica replica) {
-    if (replica.hasMmap()) {
-      removeEvictable(replica, evictableMmapped);
-      return "evictableMmapped";
-    } else {
-      removeEvictable(replica, evictable);
-      return "evictable";
-    }
+    outstandingMmapCount.decrementAndGet();
   }
 
   /**
@@ -618,7 +921,7 @@ private String removeEvictable(ShortCircuitReplica replica) {
    * @param replica   The replica to remove.
    * @param map       The map to remove it from.
    */
-  private void removeEvictable(ShortCircuitReplica replica,
+  private static void removeEvictable(ShortCircuitReplica replica,
       LinkedMap map) {
     Long evictableTimeNs = replica.getEvictableTimeNs();
     Preconditions.checkNotNull(evictableTimeNs);
@@ -639,7 +942,7 @@ private void removeEvictable(ShortCircuitReplica replica,
    * @param replica          The replica to insert.
    * @param map              The map to insert it into.
    */
-  private void insertEvictable(Long evictionTimeNs,
+  private static void insertEvictable(Long evictionTimeNs,
       ShortCircuitReplica replica, LinkedMap map) {
     while (map.containsKey(evictionTimeNs)) {
       evictionTimeNs++;
@@ -649,55 +952,10 @@ private void insertEvictable(Long evictionTimeNs,
     map.put(evictionTimeNs, replica);
   }
 
-  /**
-   * Purge a replica from the cache.
-   *
-   * This doesn't necessarily close the replica, since there may be
-   * outstanding references to it.  However, it does mean the cache won't
-   * hand it out to anyone after this.
-   *
-   * You must hold the cache lock while calling this function.
-   *
-   * @param replica   The replica being removed.
-   */
-  private void purge(ShortCircuitReplica replica) {
-    boolean removedFromInfoMap = false;
-    String evictionMapName = null;
-    Preconditions.checkArgument(!replica.purged);
-    replica.purged = true;
-    Waitable<ShortCircuitReplicaInfo> val = replicaInfoMap.get(replica.key);
-    if (val != null) {
-      ShortCircuitReplicaInfo info = val.getVal();
-      if ((info != null) && (info.getReplica() == replica)) {
-        replicaInfoMap.remove(replica.key);
-        removedFromInfoMap = true;
-      }
-    }
-    Long evictableTimeNs = replica.getEvictableTimeNs();
-    if (evictableTimeNs != null) {
-      evictionMapName = removeEvictable(replica);
-    }
-    if (LOG.isTraceEnabled()) {
-      StringBuilder builder = new StringBuilder();
-      builder.append(this).append(": ").append(": purged ").
-          append(replica).append(" from the cache.");
-      if (removedFromInfoMap) {
-        builder.append("  Removed from the replicaInfoMap.");
-      }
-      if (evictionMapName != null) {
-        builder.append("  Removed from ").append(evictionMapName);
-      }
-      LOG.trace(builder.toString());
-    }
-    unref(replica);
-  }
-
   static final int FETCH_OR_CREATE_RETRY_TIMES = 3;
   /**
    * Fetch or create a replica.
    *
-   * You must hold the cache lock while calling this function.
-   *
    * @param key          Key to use for lookup.
    * @param creator      Replica creator callback.  Will be called without
    *                     the cache lock being held.
@@ -707,8 +965,9 @@ private void purge(ShortCircuitReplica replica) {
    */
   public ShortCircuitReplicaInfo fetchOrCreate(ExtendedBlockId key,
       ShortCircuitReplicaCreator creator) {
+    Shard shard = getShard(key);
     Waitable<ShortCircuitReplicaInfo> newWaitable;
-    lock.lock();
+    shard.lock();
     try {
       ShortCircuitReplicaInfo info = null;
       for (int i = 0; i < FETCH_OR_CREATE_RETRY_TIMES; i++){
@@ -717,7 +976,8 @@ public ShortCircuitReplicaInfo fetchOrCreate(ExtendedBlockId key,
               this, key);
           return null;
         }
-        Waitable<ShortCircuitReplicaInfo> waitable = replicaInfoMap.get(key);
+        Waitable<ShortCircuitReplicaInfo> waitable =
+            shard.replicaInfoMap.get(key);
         if (waitable != null) {
           try {
             info = fetch(key, waitable);
@@ -729,17 +989,20 @@ public ShortCircuitReplicaInfo fetchOrCreate(ExtendedBlockId key,
       }
       if (info != null) return info;
       // We need to load the replica ourselves.
-      newWaitable = new Waitable<>(lock.newCondition());
-      replicaInfoMap.put(key, newWaitable);
+      newWaitable = new Waitable<>(shard.lock.newCondition());
+      shard.replicaInfoMap.put(key, newWaitable);
     } finally {
-      lock.unlock();
+      shard.unlock();
     }
-    return create(key, creator, newWaitable);
+    return shard.create(key, creator, newWaitable);
   }
 
   /**
    * Fetch an existing ReplicaInfo object.
    *
+   * You must hold the lock of the shard of the key while calling this
+   * function.
+   *
    * @param key       The key that we're using.
    * @param waitable  The waitable object to wait on.
    * @return          The existing ReplicaInfo object, or null if there is
@@ -750,9 +1013,11 @@ public ShortCircuitReplicaInfo fetchOrCreate(ExtendedBlockId key,
   @VisibleForTesting // ONLY for testing
   protected ShortCircuitReplicaInfo fetch(ExtendedBlockId key,
       Waitable<ShortCircuitReplicaInfo> waitable) throws RetriableException {
+    final Shard shard = getShard(key);
     // Another thread is already in the process of loading this
     // ShortCircuitReplica.  So we simply wait for it to complete.
     ShortCircuitReplicaInfo info;
+    long waitStartNs = System.nanoTime();
     try {
       LOG.trace("{}: found waitable for {}", this, key);
       info = waitable.await();
@@ -760,6 +1025,8 @@ protected ShortCircuitReplicaInfo fetch(ExtendedBlockId key,
       LOG.info(this + ": interrupted while waiting for " + key);
       Thread.currentThread().interrupt();
       throw new RetriableException("interrupted");
+    } finally {
+      shard.waited(waitStartNs);
     }
     if (info.getInvalidTokenException() != null) {
       LOG.info(this + ": could not get " + key + " due to InvalidToken " +
@@ -783,54 +1050,14 @@ protected ShortCircuitReplicaInfo fetch(ExtendedBlockId key,
           "this replica from the replicaInfoMap and retrying.");
       // Remove the cache's reference to the replica.  This may or may not
       // trigger a close.
-      purge(replica);
+      shard.purge(replica);
       throw new RetriableException("ignoring stale replica " + replica);
     }
-    ref(replica);
-    return info;
-  }
-
-  private ShortCircuitReplicaInfo create(ExtendedBlockId key,
-      ShortCircuitReplicaCreator creator,
-      Waitable<ShortCircuitReplicaInfo> newWaitable) {
-    // Handle loading a new replica.
-    ShortCircuitReplicaInfo info = null;
-    try {
-      LOG.trace("{}: loading {}", this, key);
-      info = creator.createShortCircuitReplicaInfo();
-    } catch (RuntimeException e) {
-      LOG.warn(this + ": failed to load " + key, e);
-    }
-    if (info == null) info = new ShortCircuitReplicaInfo();
-    lock.lock();
-    try {
-      if (info.getReplica() != null) {
-        // On success, make sure the cache cleaner thread is running.
-        LOG.trace("{}: successfully loaded {}", this, info.getReplica());
-        startCacheCleanerThreadIfNeeded();
-        // Note: new ShortCircuitReplicas start with a refCount of 2,
-        // indicating that both this cache and whoever requested the
-        // creation of the replica hold a reference.  So we don't need
-        // to increment the reference count here.
-      } else {
-        // On failure, remove the waitable from the replicaInfoMap.
-        Waitable<ShortCircuitReplicaInfo> waitableInMap = replicaInfoMap.get(key);
-        if (waitableInMap == newWaitable) replicaInfoMap.remove(key);
-        if (info.getInvalidTokenException() != null) {
-          LOG.info(this + ": could not load " + key + " due to InvalidToken " +
-              "exception.", info.getInvalidTokenException());
-        } else {
-          LOG.warn(this + ": failed to load " + key);
-        }
-      }
-      newWaitable.provide(info);
-    } finally {
-      lock.unlock();
-    }
+    shard.ref(replica);
     return info;
   }
 
-  private void startCacheCleanerThreadIfNeeded() {
+  private synchronized void startCacheCleanerThreadIfNeeded() {
     if (cacheCleaner == null) {
       cacheCleaner = new CacheCleaner();
       long rateMs = cacheCleaner.getRateInMs();
@@ -845,54 +1072,7 @@ private void startCacheCleanerThreadIfNeeded() {
 
   ClientMmap getOrCreateClientMmap(ShortCircuitReplica replica,
       boolean anchored) {
-    Condition newCond;
-    lock.lock();
-    try {
-      while (replica.mmapData != null) {
-        if (replica.mmapData instanceof MappedByteBuffer) {
-          ref(replica);
-          MappedByteBuffer mmap = (MappedByteBuffer)replica.mmapData;
-          return new ClientMmap(replica, mmap, anchored);
-        } else if (replica.mmapData instanceof Long) {
-          long lastAttemptTimeMs = (Long)replica.mmapData;
-          long delta = Time.monotonicNow() - lastAttemptTimeMs;
-          if (delta < mmapRetryTimeoutMs) {
-            LOG.trace("{}: can't create client mmap for {} because we failed to"
-                + " create one just {}ms ago.", this, replica, delta);
-            return null;
-          }
-          LOG.trace("{}: retrying client mmap for {}, {} ms after the previous "
-              + "failure.", this, replica, delta);
-        } else if (replica.mmapData instanceof Condition) {
-          Condition cond = (Condition)replica.mmapData;
-          cond.awaitUninterruptibly();
-        } else {
-          Preconditions.checkState(false, "invalid mmapData type %s",
-              replica.mmapData.getClass().getName());
-        }
-      }
-      newCond = lock.newCondition();
-      replica.mmapData = newCond;
-    } finally {
-      lock.unlock();
-    }
-    MappedByteBuffer map = replica.loadMmapInternal();
-    lock.lock();
-    try {
-      if (map == null) {
-        replica.mmapData = Time.monotonicNow();
-        newCond.signalAll();
-        return null;
-      } else {
-        outstandingMmapCount++;
-        replica.mmapData = map;
-        ref(replica);
-        newCond.signalAll();
-        return new ClientMmap(replica, map, anchored);
-      }
-    } finally {
-      lock.unlock();
-    }
+    return getShard(replica.key).getOrCreateClientMmap(replica, anchored);
   }
 
   /**
@@ -900,8 +1080,7 @@ ClientMmap getOrCreateClientMmap(ShortCircuitReplica replica,
    */
   @Override
   public void close() {
-    try {
-      lock.lock();
+    synchronized (this) {
       if (closed) return;
       closed = true;
       LOG.info(this + ": closing");
@@ -909,17 +1088,18 @@ public void close() {
       maxEvictableMmapedSize = 0;
       // Close and join cacheCleaner thread.
       IOUtilsClient.cleanupWithLogger(LOG, cacheCleaner);
-      // Purge all replicas.
-      while (!evictable.isEmpty()) {
-        Object eldestKey = evictable.firstKey();
-        purge((ShortCircuitReplica) evictable.get(eldestKey));
-      }
-      while (!evictableMmapped.isEmpty()) {
-        Object eldestKey = evictableMmapped.firstKey();
-        purge((ShortCircuitReplica) evictableMmapped.get(eldestKey));
+    }
+    if (metrics != null) {
+      metrics.removeShortCircuitCache(this);
+    }
+    // Purge all replicas.
+    for (Shard shard : shards) {
+      shard.lock();
+      try {
+        shard.purgeEvictable();
+      } finally {
+        shard.unlock();
       }
-    } finally {
-      lock.unlock();
     }
 
     releaserExecutor.shutdown();
@@ -961,34 +1141,71 @@ void visit(int numOutstandingMmaps,
         LinkedMap evictableMmapped);
   }
 
+  /**
+   * Visit the cache with the locks of all shards held. The eviction lists of
+   * the shards are merged in eviction time order. Replicas of different
+   * shards may have the same eviction time, so when there are several shards
+   * the merged lists are keyed by pairs of the eviction time and the index of
+   * the shard.
+   */
   @VisibleForTesting // ONLY for testing
   public void accept(CacheVisitor visitor) {
-    lock.lock();
+    for (Shard shard : shards) {
+      shard.lock();
+    }
     try {
       Map<ExtendedBlockId, ShortCircuitReplica> replicas = new HashMap<>();
       Map<ExtendedBlockId, InvalidToken> failedLoads = new HashMap<>();
-      for (Entry<ExtendedBlockId, Waitable<ShortCircuitReplicaInfo>> entry :
-          replicaInfoMap.entrySet()) {
-        Waitable<ShortCircuitReplicaInfo> waitable = entry.getValue();
-        if (waitable.hasVal()) {
-          if (waitable.getVal().getReplica() != null) {
-            replicas.put(entry.getKey(), waitable.getVal().getReplica());
-          } else {
-            // The exception may be null here, indicating a failed load that
-            // isn't the result of an invalid block token.
-            failedLoads.put(entry.getKey(),
-                waitable.getVal().getInvalidTokenException());
+      for (Shard shard : shards) {
+        for (Entry<ExtendedBlockId, Waitable<ShortCircuitReplicaInfo>> entry :
+            shard.replicaInfoMap.entrySet()) {
+          Waitable<ShortCircuitReplicaInfo> waitable = entry.getValue();
+          if (waitable.hasVal()) {
+            if (waitable.getVal().getReplica() != null) {
+              replicas.put(entry.getKey(), waitable.getVal().getReplica());
+            } else {
+              // The exception may be null here, indicating a failed load
+              // that isn't the result of an invalid block token.
+              failedLoads.put(entry.getKey(),
+                  waitable.getVal().getInvalidTokenException());
+            }
           }
         }
       }
+      LinkedMap evictable;
+      LinkedMap evictableMmapped;
+      if (shards.length == 1) {
+        evictable = shards[0].evictable;
+        evictableMmapped = shards[0].evictableMmapped;
+      } else {
+        TreeMap<Pair<Long, Integer>, Object> allEvictable = new TreeMap<>();
+        TreeMap<Pair<Long, Integer>, Object> allEvictableMmapped =
+            new TreeMap<>();
+        for (int i = 0; i < shards.length; i++) {
+          addEvictable(allEvictable, shards[i].evictable, i);
+          addEvictable(allEvictableMmapped, shards[i].evictableMmapped, i);
+        }
+        evictable = new LinkedMap(allEvictable);
+        evictableMmapped = new LinkedMap(allEvictableMmapped);
+      }
       LOG.debug("visiting {} with outstandingMmapCount={}, replicas={}, "
               + "failedLoads={}, evictable={}, evictableMmapped={}",
           visitor.getClass().getName(), outstandingMmapCount, replicas,
           failedLoads, evictable, evictableMmapped);
-      visitor.visit(outstandingMmapCount, replicas, failedLoads,
+      visitor.visit(outstandingMmapCount.get(), replicas, failedLoads,
           evictable, evictableMmapped);
     } finally {
-      lock.unlock();
+      for (int i = shards.length - 1; i >= 0; i--) {
+        shards[i].unlock();
+      }
+    }
+  }
+
+  private static void addEvictable(Map<Pair<Long, Integer>, Object> all,
+      LinkedMap evictable, int shardIndex) {
+    for (MapIterator it = evictable.mapIterator(); it.hasNext();) {
+      Long evictableTimeNs = (Long) it.next();
+      all.put(Pair.of(evictableTimeNs, shardIndex), it.getValue());
     }
   }
 
@@ -998,6 +1215,39 @@ public String toString() {
         Integer.toHexString(System.identityHashCode(this)) + ")";
   }
 
+  /**
+   * @return the number of shards of the cache.
+   */
+  public int getNumShards() {
+    return shards.length;
+  }
+
+  /**
+   * @return how many times the shard locks were taken.
+   */
+  public long getLockAcquisitions() {
+    return lockAcquisitions.sum();
+  }
+
+  /**
+   * @return the total time the shard locks were held, in nanoseconds.
+   */
+  public long getLockHoldTimeNanos() {
+    return lockHoldTimeNs.sum();
+  }
+
+  /**
+   * @return the longest time a shard lock was held since the last call, in
+   *         nanoseconds.
+   */
+  public long getAndResetMaxLockHoldTimeNanos() {
+    long max = 0;
+    for (Shard shard : shards) {
+      max = Math.max(max, shard.maxLockHoldTimeNs.getAndSet(0));
+    }
+    return max;
+  }
+
   /**
    * Allocate a new shared memory slot.
    *
@@ -1061,6 +1311,15 @@ public DfsClientShmManager getDfsClientShmManager() {
    */
   @VisibleForTesting
   public int getReplicaInfoMapSize() {
-    return replicaInfoMap.size();
+    int size = 0;
+    for (Shard shard : shards) {
+      shard.lock();
+      try {
+        size += shard.replicaInfoMap.size();
+      } finally {
+        shard.unlock();
+      }
+    }
+    return size;
   }
 }
@@ -17,6 +17,11 @@
  */
 package org.apache.hadoop.hdfs;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
 import java.util.Random;
 import org.apache.hadoop.hdfs.protocol.datatransfer.PacketHeader;
 import org.apache.hadoop.io.DataOutputBuffer;
@@ -55,6 +60,81 @@ public void testPacket() throws Exception {
 
   }
 
+  @Test
+  public void testDirectPacket() throws Exception {
+    Random r = new Random(12345L);
+    byte[] data = new byte[chunkSize + 100];
+    r.nextBytes(data);
+    byte[] checksum = new byte[2 * checksumSize];
+    r.nextBytes(checksum);
+    int bufferSize = PacketHeader.PKT_MAX_HEADER_LEN
+        + maxChunksPerPacket * (chunkSize + checksumSize);
+
+    // The packet is not full, so the checksums are moved before writing.
+    DataOutputBuffer expected = new DataOutputBuffer();
+    DFSPacket heap = new DFSPacket(new byte[bufferSize], maxChunksPerPacket,
+        0, 0, checksumSize, false);
+    heap.writeData(data, 0, data.length);
+    heap.writeChecksum(checksum, 0, checksum.length);
+    heap.writeTo(expected);
+
+    // Written to the stream, and straight to a channel.
+    for (boolean useChannel : new boolean[] {false, true}) {
+      DFSPacket direct = new DFSPacket(
+          DFSPacket.allocateDirectBuffer(bufferSize), maxChunksPerPacket,
+          0, 0, checksumSize, false);
+      Assert.assertTrue(direct.isDirect());
+      direct.writeData(data, 0, data.length);
+      direct.writeChecksum(checksum, 0, checksum.length);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      direct.writeTo(new DataOutputStream(out),
+          useChannel ? Channels.newChannel(out) : null);
+      Assert.assertArrayEquals(
+          Arrays.copyOf(expected.getData(), expected.getLength()),
+          out.toByteArray());
+      direct.releaseBuffer(null);
+    }
+  }
+
+  @Test
+  public void testLargeDirectPacketToStream() throws Exception {
+    Random r = new Random(54321L);
+    final int chunks = 128;
+    byte[] data = new byte[(chunks - 1) * chunkSize + 7];
+    r.nextBytes(data);
+    // One checksum short of a full packet, so that the checksums move by
+    // less than their own length.
+    byte[] checksum = new byte[chunks * checksumSize];
+    r.nextBytes(checksum);
+    int bufferSize = PacketHeader.PKT_MAX_HEADER_LEN
+        + chunks * (chunkSize + checksumSize);
+    final int half = data.length / 2;
+
+    DataOutputBuffer expected = new DataOutputBuffer();
+    DFSPacket heap = new DFSPacket(new byte[bufferSize], chunks, 0, 0,
+        checksumSize, false);
+    heap.writeData(data, 0, half);
+    heap.writeData(ByteBuffer.wrap(data, half, data.length - half),
+        data.length);
+    heap.writeChecksum(checksum, 0, checksum.length - checksumSize);
+    heap.writeTo(expected);
+
+    DFSPacket direct = new DFSPacket(
+        DFSPacket.allocateDirectBuffer(bufferSize), chunks, 0, 0,
+        checksumSize, false);
+    direct.writeData(data, 0, half);
+    ByteBuffer rest = ByteBuffer.wrap(data, half, data.length - half);
+    direct.writeData(rest, data.length);
+    Assert.assertFalse(rest.hasRemaining());
+    direct.writeChecksum(checksum, 0, checksum.length - checksumSize);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    direct.writeTo(new DataOutputStream(out), null);
+    Assert.assertArrayEquals(
+        Arrays.copyOf(expected.getData(), expected.getLength()),
+        out.toByteArray());
+    direct.releaseBuffer(null);
+  }
+
   public static void assertArrayRegionsEqual(byte []buf1, int off1, byte []buf2,
                                              int off2, int len) {
     for (int i = 0; i < len; i++) {
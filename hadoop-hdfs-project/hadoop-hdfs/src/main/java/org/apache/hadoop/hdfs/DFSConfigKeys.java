@@ -150,6 +150,37 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final boolean DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_DEFAULT = false;
   public static final String  DFS_DATANODE_DROP_CACHE_BEHIND_READS_KEY = "dfs.datanode.drop.cache.behind.reads";
   public static final boolean DFS_DATANODE_DROP_CACHE_BEHIND_READS_DEFAULT = false;
+  public static final String  DFS_DATANODE_READAHEAD_ADAPTIVE_ENABLED_KEY =
+      "dfs.datanode.readahead.adaptive.enabled";
+  public static final boolean DFS_DATANODE_READAHEAD_ADAPTIVE_ENABLED_DEFAULT =
+      false;
+  public static final String  DFS_DATANODE_READAHEAD_ADAPTIVE_MAX_BYTES_KEY =
+      "dfs.datanode.readahead.adaptive.max.bytes";
+  public static final long    DFS_DATANODE_READAHEAD_ADAPTIVE_MAX_BYTES_DEFAULT =
+      16 * 1024 * 1024;
+  public static final String  DFS_DATANODE_READAHEAD_ADAPTIVE_HOT_SCANS_KEY =
+      "dfs.datanode.readahead.adaptive.hot.scans";
+  public static final int     DFS_DATANODE_READAHEAD_ADAPTIVE_HOT_SCANS_DEFAULT =
+      3;
+  public static final String  DFS_DATANODE_READAHEAD_ADAPTIVE_TRACKED_BLOCKS_KEY =
+      "dfs.datanode.readahead.adaptive.tracked.blocks";
+  public static final int     DFS_DATANODE_READAHEAD_ADAPTIVE_TRACKED_BLOCKS_DEFAULT =
+      16384;
+  public static final String  DFS_DATANODE_READ_CACHE_DIR_KEY =
+      "dfs.datanode.read.cache.dir";
+  public static final String  DFS_DATANODE_READ_CACHE_DIR_DEFAULT = "";
+  public static final String  DFS_DATANODE_READ_CACHE_CAPACITY_KEY =
+      "dfs.datanode.read.cache.capacity";
+  public static final long    DFS_DATANODE_READ_CACHE_CAPACITY_DEFAULT =
+      10L * 1024 * 1024 * 1024;
+  public static final String  DFS_DATANODE_READ_CACHE_PROMOTE_READS_KEY =
+      "dfs.datanode.read.cache.promote.reads";
+  public static final int     DFS_DATANODE_READ_CACHE_PROMOTE_READS_DEFAULT =
+      3;
+  public static final String  DFS_DATANODE_BLOCK_CHECKSUM_CACHE_SIZE_KEY =
+      "dfs.datanode.block.checksum.cache.size";
+  public static final int     DFS_DATANODE_BLOCK_CHECKSUM_CACHE_SIZE_DEFAULT =
+      0;
   public static final String  DFS_DATANODE_USE_DN_HOSTNAME = "dfs.datanode.use.datanode.hostname";
   public static final boolean DFS_DATANODE_USE_DN_HOSTNAME_DEFAULT = false;
   public static final String  DFS_DATANODE_MAX_LOCKED_MEMORY_KEY = "dfs.datanode.max.locked.memory";
@@ -994,6 +1025,18 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       false;
   public static final String  DFS_DATANODE_TRANSFERTO_ALLOWED_KEY = "dfs.datanode.transferTo.allowed";
   public static final boolean DFS_DATANODE_TRANSFERTO_ALLOWED_DEFAULT = true;
+  public static final String  DFS_DATANODE_PIPELINED_RECEIVER_ENABLED_KEY =
+      "dfs.datanode.pipelined.receiver.enabled";
+  public static final boolean DFS_DATANODE_PIPELINED_RECEIVER_ENABLED_DEFAULT =
+      false;
+  public static final String  DFS_DATANODE_PIPELINED_RECEIVER_QUEUE_PACKETS_KEY =
+      "dfs.datanode.pipelined.receiver.queue.packets";
+  public static final int     DFS_DATANODE_PIPELINED_RECEIVER_QUEUE_PACKETS_DEFAULT =
+      16;
+  public static final String  DFS_DATANODE_TRANSFERTO_MMAP_CHECKSUM_KEY =
+      "dfs.datanode.transferTo.mmap.checksum.enabled";
+  public static final boolean DFS_DATANODE_TRANSFERTO_MMAP_CHECKSUM_DEFAULT =
+      false;
   public static final String  DFS_HEARTBEAT_INTERVAL_KEY = "dfs.heartbeat.interval";
   public static final long    DFS_HEARTBEAT_INTERVAL_DEFAULT = 3;
   public static final String  DFS_DATANODE_LIFELINE_INTERVAL_SECONDS_KEY =
@@ -1077,6 +1120,21 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       = "dfs.blockreport.incremental.intervalMsec";
   public static final long    DFS_BLOCKREPORT_INCREMENTAL_INTERVAL_MSEC_DEFAULT
       = 0;
+  public static final String
+      DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_DELAY_MSEC_KEY =
+      "dfs.blockreport.incremental.coalesce.max.delay.msec";
+  public static final long
+      DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_DELAY_MSEC_DEFAULT = 0;
+  public static final String
+      DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MIN_DELAY_MSEC_KEY =
+      "dfs.blockreport.incremental.coalesce.min.delay.msec";
+  public static final long
+      DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MIN_DELAY_MSEC_DEFAULT = 100;
+  public static final String
+      DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_BLOCKS_KEY =
+      "dfs.blockreport.incremental.coalesce.max.blocks";
+  public static final int
+      DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_BLOCKS_DEFAULT = 1000;
   public static final String  DFS_BLOCKREPORT_INTERVAL_MSEC_KEY = "dfs.blockreport.intervalMsec";
   public static final long    DFS_BLOCKREPORT_INTERVAL_MSEC_DEFAULT = 6 * 60 * 60 * 1000;
   public static final String  DFS_BLOCKREPORT_INITIAL_DELAY_KEY = "dfs.blockreport.initialDelay";
@@ -178,7 +178,7 @@ public HeartbeatResponse sendHeartbeat(DatanodeRegistration registration,
     }
     return new HeartbeatResponse(cmds, PBHelper.convert(resp.getHaStatus()),
         rollingUpdateStatus, resp.getFullBlockReportLeaseId(),
-        resp.getIsSlownode());
+        resp.getIsSlownode(), resp.getBlockReportQueueLoad());
   }
 
   @Override
@@ -153,6 +153,7 @@ public HeartbeatResponseProto sendHeartbeat(RpcController controller,
 
     builder.setFullBlockReportLeaseId(response.getFullBlockReportLeaseId());
     builder.setIsSlownode(response.getIsSlownode());
+    builder.setBlockReportQueueLoad(response.getBlockReportQueueLoad());
     return builder.build();
   }
 
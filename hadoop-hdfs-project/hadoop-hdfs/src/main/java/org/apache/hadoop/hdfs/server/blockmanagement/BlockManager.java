@@ -5609,6 +5609,18 @@ public int getBlockOpQueueLength() {
     return blockReportThread.queue.size();
   }
 
+  /**
+   * @return how full the queue of pending block report operations is, as a
+   *         percentage of its capacity. DataNodes use this to decide how
+   *         long to coalesce incremental block reports.
+   */
+  public int getBlockOpQueueLoad() {
+    final BlockingQueue<Runnable> queue = blockReportThread.queue;
+    final int size = queue.size();
+    final long capacity = (long) size + queue.remainingCapacity();
+    return capacity == 0 ? 0 : (int) (size * 100L / capacity);
+  }
+
   private class BlockReportProcessingThread extends Thread {
     private long lastFull = 0;
 
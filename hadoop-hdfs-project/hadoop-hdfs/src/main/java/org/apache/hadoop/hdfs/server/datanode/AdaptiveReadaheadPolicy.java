@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.util.Preconditions;
+
+/**
+ * Per-block adaptive read-ahead and drop-behind policy used by
+ * {@link BlockSender}.
+ * <p>
+ * The DataNode creates a new BlockSender for every read request, so the
+ * policy keeps a bounded LRU history of recent accesses per block in order
+ * to tell sequential scans apart from random positional reads:
+ * <ul>
+ *   <li>A request is sequential if it is longer than the long read
+ *   threshold, or if it starts close to where the previous request on the
+ *   same block ended. Everything else is random.</li>
+ *   <li>Sequential requests read ahead by the base read-ahead length, which
+ *   doubles for every consecutive sequential request on the block up to the
+ *   configured maximum. Random requests do not read ahead at all.</li>
+ *   <li>A block becomes hot once it has served a random read, or once it
+ *   has been scanned from scratch a configured number of times. Only
+ *   sequential reads of cold blocks drop their pages from the OS buffer
+ *   cache, so a batch scan does not evict the working set of random
+ *   readers sharing the node.</li>
+ * </ul>
+ * A request that starts inside the window read ahead by the previous
+ * request on the same block counts as a read-ahead hit; any other request
+ * on a block that had read-ahead issued counts as a miss.
+ */
+@InterfaceAudience.Private
+class AdaptiveReadaheadPolicy {
+
+  /**
+   * How far a request may start from the end of the previous request on
+   * the same block and still be treated as its continuation. Requests are
+   * aligned to checksum chunks, so an exact match is too strict.
+   */
+  private static final long CONTINUATION_SLACK_BYTES = 64 * 1024;
+
+  /**
+   * The read-ahead and cache management decision for one read request.
+   */
+  static final class Decision {
+    private final boolean sequential;
+    private final long readaheadLength;
+    private final boolean dropBehind;
+    /** null if no read-ahead was outstanding for the block. */
+    private final Boolean readaheadHit;
+
+    Decision(boolean sequential, long readaheadLength, boolean dropBehind,
+        Boolean readaheadHit) {
+      this.sequential = sequential;
+      this.readaheadLength = readaheadLength;
+      this.dropBehind = dropBehind;
+      this.readaheadHit = readaheadHit;
+    }
+
+    boolean isSequential() {
+      return sequential;
+    }
+
+    long getReadaheadLength() {
+      return readaheadLength;
+    }
+
+    boolean isDropBehind() {
+      return dropBehind;
+    }
+
+    Boolean getReadaheadHit() {
+      return readaheadHit;
+    }
+
+    @Override
+    public String toString() {
+      return "Decision{sequential=" + sequential
+          + ", readaheadLength=" + readaheadLength
+          + ", dropBehind=" + dropBehind
+          + ", readaheadHit=" + readaheadHit + "}";
+    }
+  }
+
+  /**
+   * What we remember about recent reads of a single block.
+   */
+  private static final class AccessHistory {
+    /** Offset at which the last read request on the block started. */
+    private long lastStartOffset = -1;
+    /** Offset at which the last read request on the block stopped. */
+    private long lastEndOffset = -1;
+    /** Number of consecutive sequential requests on the block. */
+    private int sequentialRun;
+    /** Number of requests which did not continue a previous request. */
+    private int scans;
+    /** Whether the block has served any random read. */
+    private boolean randomRead;
+    /** Start and end of the last read-ahead window issued, if any. */
+    private long readaheadStart = -1;
+    private long readaheadEnd = -1;
+  }
+
+  private final long baseReadaheadLength;
+  private final long maxReadaheadLength;
+  private final long longReadThreshold;
+  private final int hotScanThreshold;
+  private final int maxTrackedBlocks;
+  private final Map<Long, AccessHistory> history;
+
+  AdaptiveReadaheadPolicy(long baseReadaheadLength, long maxReadaheadLength,
+      long longReadThreshold, int hotScanThreshold, int maxTrackedBlocks) {
+    Preconditions.checkArgument(maxTrackedBlocks > 0,
+        "maxTrackedBlocks must be positive: %s", maxTrackedBlocks);
+    Preconditions.checkArgument(hotScanThreshold > 0,
+        "hotScanThreshold must be positive: %s", hotScanThreshold);
+    this.baseReadaheadLength = Math.max(0, baseReadaheadLength);
+    this.maxReadaheadLength = Math.max(this.baseReadaheadLength,
+        maxReadaheadLength);
+    this.longReadThreshold = longReadThreshold;
+    this.hotScanThreshold = hotScanThreshold;
+    this.maxTrackedBlocks = maxTrackedBlocks;
+    this.history = new LinkedHashMap<Long, AccessHistory>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<Long, AccessHistory> eldest) {
+        return size() > AdaptiveReadaheadPolicy.this.maxTrackedBlocks;
+      }
+    };
+  }
+
+  /**
+   * Classify a new read request and decide how it should manage the
+   * OS buffer cache.
+   *
+   * @param block the block being read
+   * @param startOffset the chunk aligned offset at which the read starts
+   * @param endOffset the offset at which the read will stop
+   * @return the decision for this request
+   */
+  synchronized Decision onReadStart(ExtendedBlock block, long startOffset,
+      long endOffset) {
+    AccessHistory h = history.get(block.getBlockId());
+    if (h == null) {
+      h = new AccessHistory();
+      history.put(block.getBlockId(), h);
+    }
+
+    Boolean hit = null;
+    if (h.readaheadEnd > h.readaheadStart) {
+      hit = startOffset >= h.readaheadStart && startOffset < h.readaheadEnd;
+    }
+
+    boolean continuation = h.lastEndOffset >= 0 &&
+        startOffset > h.lastStartOffset &&
+        Math.abs(startOffset - h.lastEndOffset) <= CONTINUATION_SLACK_BYTES;
+    boolean sequential = continuation ||
+        (endOffset - startOffset) > longReadThreshold;
+    if (!continuation) {
+      h.scans++;
+    }
+
+    long readaheadLength = 0;
+    if (sequential) {
+      h.sequentialRun = continuation ? h.sequentialRun + 1 : 1;
+      readaheadLength = baseReadaheadLength;
+      for (int i = 1; i < h.sequentialRun &&
+          readaheadLength < maxReadaheadLength; i++) {
+        readaheadLength <<= 1;
+      }
+      readaheadLength = Math.min(readaheadLength, maxReadaheadLength);
+    } else {
+      h.sequentialRun = 0;
+      h.randomRead = true;
+    }
+    boolean hot = h.randomRead || h.scans >= hotScanThreshold;
+    // Record the expected end eagerly, so that concurrent continuations
+    // issued before this request completes are still recognized.
+    h.lastStartOffset = startOffset;
+    h.lastEndOffset = endOffset;
+    return new Decision(sequential, readaheadLength, sequential && !hot, hit);
+  }
+
+  /**
+   * Record where a read request stopped, and the extent of the last
+   * read-ahead window it issued.
+   *
+   * @param block the block that was read
+   * @param stopOffset the offset at which the read stopped
+   * @param readaheadStart start of the last read-ahead window, or -1
+   * @param readaheadEnd end of the last read-ahead window, or -1
+   */
+  synchronized void onReadEnd(ExtendedBlock block, long stopOffset,
+      long readaheadStart, long readaheadEnd) {
+    AccessHistory h = history.get(block.getBlockId());
+    if (h == null) {
+      return;
+    }
+    h.lastEndOffset = stopOffset;
+    if (readaheadEnd > readaheadStart) {
+      h.readaheadStart = readaheadStart;
+      h.readaheadEnd = readaheadEnd;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized int getNumTrackedBlocks() {
+    return history.size();
+  }
+}
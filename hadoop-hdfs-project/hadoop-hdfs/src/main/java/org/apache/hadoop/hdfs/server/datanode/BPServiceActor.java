@@ -140,7 +140,10 @@ enum RunningState {
     this.dnConf = dn.getDnConf();
     this.ibrManager = new IncrementalBlockReportManager(
         dnConf.ibrInterval,
-        dn.getMetrics());
+        dn.getMetrics(),
+        dnConf.ibrCoalesceMinDelay,
+        dnConf.ibrCoalesceMaxDelay,
+        dnConf.ibrCoalesceMaxBlocks);
     prevBlockReportId = ThreadLocalRandom.current().nextLong();
     fullBlockReportLeaseId = 0;
     scheduler = new Scheduler(dnConf.heartBeatInterval,
@@ -742,6 +745,7 @@ private void offerService() throws Exception {
             }
             commandProcessingThread.enqueue(resp.getCommands());
             isSlownode = resp.getIsSlownode();
+            ibrManager.setNameNodeLoad(resp.getBlockReportQueueLoad());
           }
         }
         if (!dn.areIBRDisabledForTests() &&
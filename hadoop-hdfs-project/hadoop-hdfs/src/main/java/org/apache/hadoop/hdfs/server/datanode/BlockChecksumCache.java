@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.util.Objects;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.hdfs.protocol.BlockChecksumOptions;
+import org.apache.hadoop.hdfs.protocol.BlockChecksumType;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.thirdparty.com.google.common.cache.Cache;
+import org.apache.hadoop.thirdparty.com.google.common.cache.CacheBuilder;
+import org.apache.hadoop.util.DataChecksum;
+
+/**
+ * Caches the block checksums computed for OP_BLOCK_CHECKSUM, so that
+ * computing the checksum of a file again, for example by repeated DistCp
+ * -update runs, does not read the meta files of its blocks again.
+ * <p>
+ * Only checksums of finalized replicas are cached. An entry is keyed by the
+ * generation stamp of the replica and the requested length, so appends,
+ * truncates and recoveries, which all change the generation stamp, make
+ * the old entries unreachable until they are evicted.
+ */
+@InterfaceAudience.Private
+class BlockChecksumCache {
+
+  private static final class Key {
+    private final String bpid;
+    private final long blockId;
+    private final long genStamp;
+    private final long length;
+    private final BlockChecksumType type;
+    private final long stripeLength;
+
+    private Key(ExtendedBlock block, long genStamp,
+        BlockChecksumOptions options) {
+      this.bpid = block.getBlockPoolId();
+      this.blockId = block.getBlockId();
+      this.genStamp = genStamp;
+      this.length = block.getNumBytes();
+      this.type = options.getBlockChecksumType();
+      this.stripeLength = options.getStripeLength();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return blockId == other.blockId && genStamp == other.genStamp
+          && length == other.length && stripeLength == other.stripeLength
+          && type == other.type && bpid.equals(other.bpid);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(bpid, blockId, genStamp, length, type,
+          stripeLength);
+    }
+  }
+
+  /** A computed block checksum. */
+  static final class Entry {
+    private final int bytesPerCrc;
+    private final long crcPerBlock;
+    private final DataChecksum.Type crcType;
+    private final byte[] checksum;
+
+    Entry(int bytesPerCrc, long crcPerBlock, DataChecksum.Type crcType,
+        byte[] checksum) {
+      this.bytesPerCrc = bytesPerCrc;
+      this.crcPerBlock = crcPerBlock;
+      this.crcType = crcType;
+      this.checksum = checksum;
+    }
+
+    int getBytesPerCrc() {
+      return bytesPerCrc;
+    }
+
+    long getCrcPerBlock() {
+      return crcPerBlock;
+    }
+
+    DataChecksum.Type getCrcType() {
+      return crcType;
+    }
+
+    byte[] getChecksum() {
+      return checksum;
+    }
+  }
+
+  private final Cache<Key, Entry> cache;
+
+  BlockChecksumCache(int maxSize) {
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * @param block the block, with the requested length
+   * @param genStamp the generation stamp of the finalized replica
+   * @return the cached checksum, or null
+   */
+  Entry get(ExtendedBlock block, long genStamp,
+      BlockChecksumOptions options) {
+    return cache.getIfPresent(new Key(block, genStamp, options));
+  }
+
+  void put(ExtendedBlock block, long genStamp, BlockChecksumOptions options,
+      Entry entry) {
+    cache.put(new Key(block, genStamp, options), entry);
+  }
+
+  @VisibleForTesting
+  long getHitCount() {
+    return cache.stats().hitCount();
+  }
+}
@@ -0,0 +1,357 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.VisibleForTesting;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.StorageType;
+import org.apache.hadoop.hdfs.ExtendedBlockId;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.hdfs.server.datanode.fsdataset.LengthInputStream;
+import org.apache.hadoop.hdfs.server.datanode.metrics.DataNodeMetrics;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An automatic read cache for hot blocks on slow volumes.
+ * <p>
+ * Finalized replicas on DISK or ARCHIVE volumes which are read often are
+ * copied, block and meta file, to a cache directory that is expected to
+ * live on faster storage such as an SSD or a tmpfs. {@link BlockSender}
+ * then serves reads of those blocks from the cached copy. The copies are
+ * kept in a subdirectory of the configured directory which only the cache
+ * writes to. The cache is not persisted and this subdirectory is deleted
+ * when the DataNode starts.
+ * <ul>
+ *   <li>A block is promoted once it has been read a configured number of
+ *   times while not cached. The read counts are kept for a bounded number
+ *   of recently read blocks, so one-off reads are never promoted.</li>
+ *   <li>The cached copies are kept within a byte budget by evicting the
+ *   least recently read ones.</li>
+ *   <li>A cached copy is only used while its generation stamp and length
+ *   match the replica, so appends and recoveries invalidate it. It is
+ *   deleted as soon as its replica is removed from the dataset.</li>
+ * </ul>
+ * Promotions run on a single background thread, so a burst of hot blocks
+ * does not compete with client reads for the bandwidth of the slow disks.
+ */
+@InterfaceAudience.Private
+class BlockReadCache implements Closeable {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(BlockReadCache.class);
+
+  /** The subdirectory of the configured directory holding the copies. */
+  @VisibleForTesting
+  static final String SUBDIR = "hdfs-block-read-cache";
+
+  /** Number of not cached blocks whose read counts are tracked. */
+  private static final int MAX_TRACKED_BLOCKS = 65536;
+
+  /** The streams of a cached copy, opened for one read. */
+  static final class CachedReplica {
+    private final FileInputStream blockIn;
+    private final LengthInputStream metaIn;
+
+    private CachedReplica(FileInputStream blockIn, LengthInputStream metaIn) {
+      this.blockIn = blockIn;
+      this.metaIn = metaIn;
+    }
+
+    FileInputStream getBlockInputStream() {
+      return blockIn;
+    }
+
+    LengthInputStream getMetaInputStream() {
+      return metaIn;
+    }
+  }
+
+  /** A block copied to the cache directory. */
+  private static final class Entry {
+    private final long genStamp;
+    private final long numBytes;
+    private final File blockFile;
+    private final File metaFile;
+    private final long size;
+
+    private Entry(long genStamp, long numBytes, File blockFile,
+        File metaFile) {
+      this.genStamp = genStamp;
+      this.numBytes = numBytes;
+      this.blockFile = blockFile;
+      this.metaFile = metaFile;
+      this.size = blockFile.length() + metaFile.length();
+    }
+  }
+
+  private final File dir;
+  private final long capacity;
+  private final int promoteReads;
+  private final DataNodeMetrics metrics;
+  private final ExecutorService promoter;
+
+  /** The cached blocks, least recently read first. */
+  private final LinkedHashMap<ExtendedBlockId, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  /** Read counts of recently read blocks which are not cached. */
+  private final LinkedHashMap<ExtendedBlockId, Integer> readCounts =
+      new LinkedHashMap<ExtendedBlockId, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<ExtendedBlockId, Integer> eldest) {
+          return size() > MAX_TRACKED_BLOCKS;
+        }
+      };
+  /** Blocks queued for promotion. */
+  private final Set<ExtendedBlockId> promoting = new HashSet<>();
+  /** Blocks queued for promotion whose replica was removed since. */
+  private final Set<ExtendedBlockId> invalidated = new HashSet<>();
+  /** Bytes used by the cached blocks. */
+  private long used = 0;
+
+  BlockReadCache(File dir, long capacity, int promoteReads,
+      DataNodeMetrics metrics) throws IOException {
+    this.dir = new File(dir, SUBDIR);
+    this.capacity = capacity;
+    this.promoteReads = Math.max(1, promoteReads);
+    this.metrics = metrics;
+    // The cache does not survive restarts, clear any leftovers. Only the
+    // subdirectory of the cache is deleted, never the configured directory.
+    if (this.dir.exists() && !FileUtil.fullyDelete(this.dir)) {
+      throw new IOException("Failed to clear read cache directory "
+          + this.dir);
+    }
+    if (!this.dir.mkdirs()) {
+      throw new IOException("Failed to create read cache directory "
+          + this.dir);
+    }
+    this.promoter = HadoopExecutors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("BlockReadCache promoter").build());
+    LOG.info("Read cache of {} bytes in {}, promoting blocks after {} reads",
+        capacity, dir, this.promoteReads);
+  }
+
+  /**
+   * @return whether replicas on the given storage type may be cached.
+   */
+  static boolean isCacheable(StorageType storageType) {
+    return storageType == StorageType.DISK
+        || storageType == StorageType.ARCHIVE;
+  }
+
+  /**
+   * Look up the cached copy of a finalized replica for a read, and count
+   * the read towards promoting the replica if it is not cached.
+   *
+   * @return the opened streams of the cached copy, or null if the replica
+   *         is not cached.
+   */
+  CachedReplica open(ExtendedBlock block, FinalizedReplica replica) {
+    final ExtendedBlockId key = ExtendedBlockId.fromExtendedBlock(block);
+    final Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        countRead(key, replica);
+        return null;
+      }
+      if (entry.genStamp != replica.getGenerationStamp()
+          || entry.numBytes != replica.getNumBytes()) {
+        remove(key);
+        countRead(key, replica);
+        return null;
+      }
+    }
+    // Open the files without holding the lock. If the entry is evicted in
+    // the meantime, its files are gone and the read falls back to the
+    // replica.
+    FileInputStream blockIn = null;
+    try {
+      blockIn = new FileInputStream(entry.blockFile);
+      LengthInputStream metaIn = new LengthInputStream(
+          new FileInputStream(entry.metaFile), entry.metaFile.length());
+      metrics.incrReadCacheHits();
+      return new CachedReplica(blockIn, metaIn);
+    } catch (IOException e) {
+      LOG.warn("Failed to open cached copy of {}", block, e);
+      IOUtils.closeStream(blockIn);
+    }
+    synchronized (this) {
+      if (entries.get(key) == entry) {
+        remove(key);
+      }
+      countRead(key, replica);
+    }
+    return null;
+  }
+
+  /**
+   * Count a read of a replica which is not cached, and queue the replica
+   * for promotion once it has been read often enough.
+   */
+  private void countRead(ExtendedBlockId key, FinalizedReplica replica) {
+    metrics.incrReadCacheMisses();
+    final int reads = readCounts.merge(key, 1, Integer::sum);
+    if (reads >= promoteReads && !promoting.contains(key)
+        && replica.getNumBytes() <= capacity) {
+      readCounts.remove(key);
+      promoting.add(key);
+      try {
+        promoter.execute(() -> promote(key, replica));
+      } catch (RejectedExecutionException e) {
+        promoting.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Drop the cached copy of a replica which is removed from the dataset.
+   */
+  synchronized void invalidate(ExtendedBlockId key) {
+    remove(key);
+    readCounts.remove(key);
+    if (promoting.contains(key)) {
+      invalidated.add(key);
+    }
+  }
+
+  /**
+   * Copy a replica to the cache directory, evicting the least recently
+   * read blocks to make room for it.
+   */
+  private void promote(ExtendedBlockId key, FinalizedReplica replica) {
+    // Read the generation stamp and length before copying: if the replica
+    // changes during the copy, the entry will not match it and is dropped.
+    final long genStamp = replica.getGenerationStamp();
+    final long numBytes = replica.getNumBytes();
+    final String name = key.getBlockPoolId() + "_" + key.getBlockId() + "_"
+        + genStamp;
+    final File blockFile = new File(dir, name);
+    final File metaFile = new File(dir, name + ".meta");
+    boolean success = false;
+    try {
+      copy(replica.getBlockFile(), blockFile);
+      copy(replica.getMetaFile(), metaFile);
+      success = true;
+    } catch (IOException e) {
+      LOG.warn("Failed to promote {} to the read cache", replica, e);
+    } finally {
+      synchronized (this) {
+        promoting.remove(key);
+        if (invalidated.remove(key)) {
+          success = false;
+        }
+        if (success) {
+          Entry entry = new Entry(genStamp, numBytes, blockFile, metaFile);
+          remove(key);
+          evict(capacity - entry.size);
+          entries.put(key, entry);
+          used += entry.size;
+          metrics.incrReadCachePromotions();
+          metrics.setReadCacheUsed(used);
+        }
+      }
+      if (!success) {
+        FileUtil.fullyDelete(blockFile);
+        FileUtil.fullyDelete(metaFile);
+      }
+    }
+  }
+
+  private static void copy(File src, File dst) throws IOException {
+    File tmp = new File(dst.getParentFile(), dst.getName() + ".tmp");
+    Files.copy(src.toPath(), tmp.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+    Files.move(tmp.toPath(), dst.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Evict the least recently read blocks until at most limit are used. */
+  private void evict(long limit) {
+    Iterator<Map.Entry<ExtendedBlockId, Entry>> it =
+        entries.entrySet().iterator();
+    while (used > limit && it.hasNext()) {
+      Entry entry = it.next().getValue();
+      it.remove();
+      delete(entry);
+      metrics.incrReadCacheEvictions();
+    }
+  }
+
+  private void remove(ExtendedBlockId key) {
+    Entry entry = entries.remove(key);
+    if (entry != null) {
+      delete(entry);
+    }
+  }
+
+  /**
+   * Delete the files of an entry. Readers which already opened them keep
+   * reading the unlinked files.
+   */
+  private void delete(Entry entry) {
+    used -= entry.size;
+    if (!entry.blockFile.delete() || !entry.metaFile.delete()) {
+      LOG.warn("Failed to delete cached copy {}", entry.blockFile);
+    }
+    metrics.setReadCacheUsed(used);
+  }
+
+  @VisibleForTesting
+  synchronized long getUsed() {
+    return used;
+  }
+
+  @VisibleForTesting
+  synchronized int getNumCachedBlocks() {
+    return entries.size();
+  }
+
+  @Override
+  public void close() {
+    promoter.shutdownNow();
+    try {
+      promoter.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      evict(0);
+    }
+  }
+}
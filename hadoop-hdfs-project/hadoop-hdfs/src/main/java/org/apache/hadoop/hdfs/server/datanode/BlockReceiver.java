@@ -33,6 +33,8 @@
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Checksum;
 
@@ -102,6 +104,8 @@ class BlockReceiver implements Closeable {
   private String mirrorNameForMetrics;
   private DataOutputStream mirrorOut;
   private Daemon responder = null;
+  /** writes packets to disk in the background, if enabled */
+  private DiskWriter diskWriter = null;
   private DataTransferThrottler throttler;
   private ReplicaOutputStreams streams;
   private DatanodeInfo srcDataNode = null;
@@ -551,7 +555,10 @@ private boolean shouldVerifyChecksum() {
    */
   private int receivePacket() throws IOException {
     // read the next packet
+    final long readStart = System.nanoTime();
     packetReceiver.receiveNextPacket(in);
+    datanode.metrics.addReceivePacketNetworkNanos(
+        System.nanoTime() - readStart);
 
     PacketHeader header = packetReceiver.getHeader();
     long seqno = header.getSeqno();
@@ -584,6 +591,16 @@ private int receivePacket() throws IOException {
       this.dirSyncOnFinalize = true;
     }
 
+    // Only plain data packets are written in the background. Any other
+    // packet waits for the packets queued before it to be written, which
+    // keeps the acks in order and ensures the block is not finalized while
+    // data is still being written.
+    final boolean writeInBackground = diskWriter != null && len > 0
+        && !lastPacketInBlock && !syncBlock;
+    if (diskWriter != null && !writeInBackground) {
+      diskWriter.drain();
+    }
+
     // update received bytes
     final long firstByteInBlock = offsetInBlock;
     offsetInBlock += len;
@@ -610,10 +627,13 @@ private int receivePacket() throws IOException {
     if (mirrorOut != null && !mirrorError) {
       try {
         long begin = Time.monotonicNow();
+        long mirrorStart = System.nanoTime();
         // For testing. Normally no-op.
         DataNodeFaultInjector.get().stopSendingPacketDownstream(mirrorAddr);
         packetReceiver.mirrorPacketTo(mirrorOut);
         mirrorOut.flush();
+        datanode.metrics.addReceivePacketMirrorNanos(
+            System.nanoTime() - mirrorStart);
         long now = Time.monotonicNow();
         this.lastSentTime.set(now);
         long duration = now - begin;
@@ -691,175 +711,20 @@ private int receivePacket() throws IOException {
 
       final boolean shouldNotWriteChecksum = checksumReceivedLen == 0
           && streams.isTransientStorage();
-      try {
-        long onDiskLen = replicaInfo.getBytesOnDisk();
-        if (onDiskLen<offsetInBlock) {
-          // Normally the beginning of an incoming packet is aligned with the
-          // existing data on disk. If the beginning packet data offset is not
-          // checksum chunk aligned, the end of packet will not go beyond the
-          // next chunk boundary.
-          // When a failure-recovery is involved, the client state and the
-          // the datanode state may not exactly agree. I.e. the client may
-          // resend part of data that is already on disk. Correct number of
-          // bytes should be skipped when writing the data and checksum
-          // buffers out to disk.
-          long partialChunkSizeOnDisk = onDiskLen % bytesPerChecksum;
-          long lastChunkBoundary = onDiskLen - partialChunkSizeOnDisk;
-          boolean alignedOnDisk = partialChunkSizeOnDisk == 0;
-          boolean alignedInPacket = firstByteInBlock % bytesPerChecksum == 0;
-
-          // If the end of the on-disk data is not chunk-aligned, the last
-          // checksum needs to be overwritten.
-          boolean overwriteLastCrc = !alignedOnDisk && !shouldNotWriteChecksum;
-          // If the starting offset of the packat data is at the last chunk
-          // boundary of the data on disk, the partial checksum recalculation
-          // can be skipped and the checksum supplied by the client can be used
-          // instead. This reduces disk reads and cpu load.
-          boolean doCrcRecalc = overwriteLastCrc &&
-              (lastChunkBoundary != firstByteInBlock);
-
-          // If this is a partial chunk, then verify that this is the only
-          // chunk in the packet. If the starting offset is not chunk
-          // aligned, the packet should terminate at or before the next
-          // chunk boundary.
-          if (!alignedInPacket && len > bytesPerChecksum) {
-            throw new IOException("Unexpected packet data length for "
-                +  block + " from " + inAddr + ": a partial chunk must be "
-                + " sent in an individual packet (data length = " + len
-                +  " > bytesPerChecksum = " + bytesPerChecksum + ")");
-          }
-
-          // If the last portion of the block file is not a full chunk,
-          // then read in pre-existing partial data chunk and recalculate
-          // the checksum so that the checksum calculation can continue
-          // from the right state. If the client provided the checksum for
-          // the whole chunk, this is not necessary.
-          Checksum partialCrc = null;
-          if (doCrcRecalc) {
-            if (LOG.isDebugEnabled()) {
-              LOG.debug("receivePacket for " + block 
-                  + ": previous write did not end at the chunk boundary."
-                  + " onDiskLen=" + onDiskLen);
-            }
-            long offsetInChecksum = BlockMetadataHeader.getHeaderSize() +
-                onDiskLen / bytesPerChecksum * checksumSize;
-            partialCrc = computePartialChunkCrc(onDiskLen, offsetInChecksum);
-          }
-
-          // The data buffer position where write will begin. If the packet
-          // data and on-disk data have no overlap, this will not be at the
-          // beginning of the buffer.
-          int startByteToDisk = (int)(onDiskLen-firstByteInBlock) 
-              + dataBuf.arrayOffset() + dataBuf.position();
-
-          // Actual number of data bytes to write.
-          int numBytesToDisk = (int)(offsetInBlock-onDiskLen);
-          
-          // Write data to disk.
-          long begin = Time.monotonicNow();
-          streams.writeDataToDisk(dataBuf.array(),
-              startByteToDisk, numBytesToDisk);
-          // no-op in prod
-          DataNodeFaultInjector.get().delayWriteToDisk();
-          long duration = Time.monotonicNow() - begin;
-          if (duration > datanodeSlowLogThresholdMs) {
-            datanode.metrics.incrPacketsSlowWriteToDisk();
-            if (LOG.isWarnEnabled()) {
-              LOG.warn("Slow BlockReceiver write data to disk cost: {}ms " +
-                      "(threshold={}ms), volume={}, blockId={}, seqno={}",
-                  duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
-                  replicaInfo.getBlockId(), seqno);
-            }
-          }
-
-          if (duration > maxWriteToDiskMs) {
-            maxWriteToDiskMs = duration;
-          }
-
-          final byte[] lastCrc;
-          if (shouldNotWriteChecksum) {
-            lastCrc = null;
-          } else {
-            int skip = 0;
-            byte[] crcBytes = null;
-
-            // First, prepare to overwrite the partial crc at the end.
-            if (overwriteLastCrc) { // not chunk-aligned on disk
-              // prepare to overwrite last checksum
-              adjustCrcFilePosition();
-            }
-
-            // The CRC was recalculated for the last partial chunk. Update the
-            // CRC by reading the rest of the chunk, then write it out.
-            if (doCrcRecalc) {
-              // Calculate new crc for this chunk.
-              int bytesToReadForRecalc =
-                  (int)(bytesPerChecksum - partialChunkSizeOnDisk);
-              if (numBytesToDisk < bytesToReadForRecalc) {
-                bytesToReadForRecalc = numBytesToDisk;
-              }
-
-              partialCrc.update(dataBuf.array(), startByteToDisk,
-                  bytesToReadForRecalc);
-              byte[] buf = FSOutputSummer.convertToByteStream(partialCrc,
-                  checksumSize);
-              crcBytes = copyLastChunkChecksum(buf, checksumSize, buf.length);
-              checksumOut.write(buf);
-              if(LOG.isDebugEnabled()) {
-                LOG.debug("Writing out partial crc for data len " + len +
-                    ", skip=" + skip);
-              }
-              skip++; //  For the partial chunk that was just read.
-            }
-
-            // Determine how many checksums need to be skipped up to the last
-            // boundary. The checksum after the boundary was already counted
-            // above. Only count the number of checksums skipped up to the
-            // boundary here.
-            long skippedDataBytes = lastChunkBoundary - firstByteInBlock;
-
-            if (skippedDataBytes > 0) {
-              skip += (int)(skippedDataBytes / bytesPerChecksum) +
-                  ((skippedDataBytes % bytesPerChecksum == 0) ? 0 : 1);
-            }
-            skip *= checksumSize; // Convert to number of bytes
-
-            // write the rest of checksum
-            final int offset = checksumBuf.arrayOffset() +
-                checksumBuf.position() + skip;
-            final int end = offset + checksumLen - skip;
-            // If offset >= end, there is no more checksum to write.
-            // I.e. a partial chunk checksum rewrite happened and there is no
-            // more to write after that.
-            if (offset >= end && doCrcRecalc) {
-              lastCrc = crcBytes;
-            } else {
-              final int remainingBytes = checksumLen - skip;
-              lastCrc = copyLastChunkChecksum(checksumBuf.array(),
-                  checksumSize, end);
-              checksumOut.write(checksumBuf.array(), offset, remainingBytes);
-            }
-          }
-
-          /// flush entire packet, sync if requested
-          flushOrSync(syncBlock, seqno);
-          
-          replicaInfo.setLastChecksumAndDataLen(offsetInBlock, lastCrc);
-
-          datanode.metrics.incrBytesWritten(numBytesToDisk);
-          datanode.metrics.incrTotalWriteTime(duration);
-
-          manageWriterOsCache(offsetInBlock, seqno);
-        }
-      } catch (IOException iex) {
-        // Volume error check moved to FileIoProvider
-        throw iex;
+      if (writeInBackground) {
+        diskWriter.submit(seqno, firstByteInBlock, offsetInBlock, dataBuf,
+            checksumBuf, checksumLen, shouldNotWriteChecksum);
+      } else {
+        writePacketToDisk(seqno, firstByteInBlock, offsetInBlock, dataBuf,
+            checksumBuf, checksumLen, shouldNotWriteChecksum, syncBlock);
       }
     }
 
     // if sync was requested, put in queue for pending acks here
-    // (after the fsync finished)
-    if (responder != null && (syncBlock || shouldVerifyChecksum())) {
+    // (after the fsync finished). Packets written in the background are
+    // queued for acks by the disk writer.
+    if (responder != null && !writeInBackground
+        && (syncBlock || shouldVerifyChecksum())) {
       ((PacketResponder) responder.getRunnable()).enqueue(seqno,
           lastPacketInBlock, offsetInBlock, Status.SUCCESS);
     }
@@ -885,6 +750,178 @@ duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
     return lastPacketInBlock?-1:len;
   }
 
+  /**
+   * Write the data and checksums of a packet to disk, skipping the bytes
+   * which are already on disk.
+   */
+  private void writePacketToDisk(long seqno, long firstByteInBlock,
+      long offsetInBlock, ByteBuffer dataBuf, ByteBuffer checksumBuf,
+      int checksumLen, boolean shouldNotWriteChecksum, boolean syncBlock)
+      throws IOException {
+    final int len = dataBuf.remaining();
+    final long diskStart = System.nanoTime();
+    long onDiskLen = replicaInfo.getBytesOnDisk();
+    if (onDiskLen<offsetInBlock) {
+      // Normally the beginning of an incoming packet is aligned with the
+      // existing data on disk. If the beginning packet data offset is not
+      // checksum chunk aligned, the end of packet will not go beyond the
+      // next chunk boundary.
+      // When a failure-recovery is involved, the client state and the
+      // the datanode state may not exactly agree. I.e. the client may
+      // resend part of data that is already on disk. Correct number of
+      // bytes should be skipped when writing the data and checksum
+      // buffers out to disk.
+      long partialChunkSizeOnDisk = onDiskLen % bytesPerChecksum;
+      long lastChunkBoundary = onDiskLen - partialChunkSizeOnDisk;
+      boolean alignedOnDisk = partialChunkSizeOnDisk == 0;
+      boolean alignedInPacket = firstByteInBlock % bytesPerChecksum == 0;
+
+      // If the end of the on-disk data is not chunk-aligned, the last
+      // checksum needs to be overwritten.
+      boolean overwriteLastCrc = !alignedOnDisk && !shouldNotWriteChecksum;
+      // If the starting offset of the packat data is at the last chunk
+      // boundary of the data on disk, the partial checksum recalculation
+      // can be skipped and the checksum supplied by the client can be used
+      // instead. This reduces disk reads and cpu load.
+      boolean doCrcRecalc = overwriteLastCrc &&
+          (lastChunkBoundary != firstByteInBlock);
+
+      // If this is a partial chunk, then verify that this is the only
+      // chunk in the packet. If the starting offset is not chunk
+      // aligned, the packet should terminate at or before the next
+      // chunk boundary.
+      if (!alignedInPacket && len > bytesPerChecksum) {
+        throw new IOException("Unexpected packet data length for "
+            +  block + " from " + inAddr + ": a partial chunk must be "
+            + " sent in an individual packet (data length = " + len
+            +  " > bytesPerChecksum = " + bytesPerChecksum + ")");
+      }
+
+      // If the last portion of the block file is not a full chunk,
+      // then read in pre-existing partial data chunk and recalculate
+      // the checksum so that the checksum calculation can continue
+      // from the right state. If the client provided the checksum for
+      // the whole chunk, this is not necessary.
+      Checksum partialCrc = null;
+      if (doCrcRecalc) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("receivePacket for " + block 
+              + ": previous write did not end at the chunk boundary."
+              + " onDiskLen=" + onDiskLen);
+        }
+        long offsetInChecksum = BlockMetadataHeader.getHeaderSize() +
+            onDiskLen / bytesPerChecksum * checksumSize;
+        partialCrc = computePartialChunkCrc(onDiskLen, offsetInChecksum);
+      }
+
+      // The data buffer position where write will begin. If the packet
+      // data and on-disk data have no overlap, this will not be at the
+      // beginning of the buffer.
+      int startByteToDisk = (int)(onDiskLen-firstByteInBlock) 
+          + dataBuf.arrayOffset() + dataBuf.position();
+
+      // Actual number of data bytes to write.
+      int numBytesToDisk = (int)(offsetInBlock-onDiskLen);
+      
+      // Write data to disk.
+      long begin = Time.monotonicNow();
+      streams.writeDataToDisk(dataBuf.array(),
+          startByteToDisk, numBytesToDisk);
+      // no-op in prod
+      DataNodeFaultInjector.get().delayWriteToDisk();
+      long duration = Time.monotonicNow() - begin;
+      if (duration > datanodeSlowLogThresholdMs) {
+        datanode.metrics.incrPacketsSlowWriteToDisk();
+        if (LOG.isWarnEnabled()) {
+          LOG.warn("Slow BlockReceiver write data to disk cost: {}ms " +
+                  "(threshold={}ms), volume={}, blockId={}, seqno={}",
+              duration, datanodeSlowLogThresholdMs, getVolumeBaseUri(),
+              replicaInfo.getBlockId(), seqno);
+        }
+      }
+
+      if (duration > maxWriteToDiskMs) {
+        maxWriteToDiskMs = duration;
+      }
+
+      final byte[] lastCrc;
+      if (shouldNotWriteChecksum) {
+        lastCrc = null;
+      } else {
+        int skip = 0;
+        byte[] crcBytes = null;
+
+        // First, prepare to overwrite the partial crc at the end.
+        if (overwriteLastCrc) { // not chunk-aligned on disk
+          // prepare to overwrite last checksum
+          adjustCrcFilePosition();
+        }
+
+        // The CRC was recalculated for the last partial chunk. Update the
+        // CRC by reading the rest of the chunk, then write it out.
+        if (doCrcRecalc) {
+          // Calculate new crc for this chunk.
+          int bytesToReadForRecalc =
+              (int)(bytesPerChecksum - partialChunkSizeOnDisk);
+          if (numBytesToDisk < bytesToReadForRecalc) {
+            bytesToReadForRecalc = numBytesToDisk;
+          }
+
+          partialCrc.update(dataBuf.array(), startByteToDisk,
+              bytesToReadForRecalc);
+          byte[] buf = FSOutputSummer.convertToByteStream(partialCrc,
+              checksumSize);
+          crcBytes = copyLastChunkChecksum(buf, checksumSize, buf.length);
+          checksumOut.write(buf);
+          if(LOG.isDebugEnabled()) {
+            LOG.debug("Writing out partial crc for data len " + len +
+                ", skip=" + skip);
+          }
+          skip++; //  For the partial chunk that was just read.
+        }
+
+        // Determine how many checksums need to be skipped up to the last
+        // boundary. The checksum after the boundary was already counted
+        // above. Only count the number of checksums skipped up to the
+        // boundary here.
+        long skippedDataBytes = lastChunkBoundary - firstByteInBlock;
+
+        if (skippedDataBytes > 0) {
+          skip += (int)(skippedDataBytes / bytesPerChecksum) +
+              ((skippedDataBytes % bytesPerChecksum == 0) ? 0 : 1);
+        }
+        skip *= checksumSize; // Convert to number of bytes
+
+        // write the rest of checksum
+        final int offset = checksumBuf.arrayOffset() +
+            checksumBuf.position() + skip;
+        final int end = offset + checksumLen - skip;
+        // If offset >= end, there is no more checksum to write.
+        // I.e. a partial chunk checksum rewrite happened and there is no
+        // more to write after that.
+        if (offset >= end && doCrcRecalc) {
+          lastCrc = crcBytes;
+        } else {
+          final int remainingBytes = checksumLen - skip;
+          lastCrc = copyLastChunkChecksum(checksumBuf.array(),
+              checksumSize, end);
+          checksumOut.write(checksumBuf.array(), offset, remainingBytes);
+        }
+      }
+
+      /// flush entire packet, sync if requested
+      flushOrSync(syncBlock, seqno);
+      
+      replicaInfo.setLastChecksumAndDataLen(offsetInBlock, lastCrc);
+
+      datanode.metrics.incrBytesWritten(numBytesToDisk);
+      datanode.metrics.incrTotalWriteTime(duration);
+
+      manageWriterOsCache(offsetInBlock, seqno);
+    }
+    datanode.metrics.addReceivePacketDiskNanos(System.nanoTime() - diskStart);
+  }
+
   /**
    * Only tracks the latency of sending packet to the last node in pipeline.
    * This is a conscious design choice.
@@ -1008,6 +1045,11 @@ void receiveBlock(
             new PacketResponder(replyOut, mirrIn, downstreams));
         responder.start(); // start thread to processes responses
       }
+      if (datanode.getDnConf().pipelinedReceiverEnabled) {
+        diskWriter = new DiskWriter(
+            datanode.getDnConf().pipelinedReceiverQueuePackets);
+        diskWriter.start();
+      }
 
       while (receivePacket() >= 0) { /* Receive until the last packet */ }
 
@@ -1055,6 +1097,12 @@ void receiveBlock(
       // Clear the previous interrupt state of this thread.
       Thread.interrupted();
 
+      // Stop writing packets before the block files can be closed below.
+      if (diskWriter != null) {
+        diskWriter.stop();
+        diskWriter = null;
+      }
+
       // If a shutdown for restart was initiated, upstream needs to be notified.
       // There is no need to do anything special if the responder was closed
       // normally.
@@ -1241,6 +1289,177 @@ private ReplicaHandler claimReplicaHandler() {
     return handler;
   }
 
+  /**
+   * Writes packets to disk on a separate thread, so that a slow disk does
+   * not hold up reading packets from upstream and forwarding them to the
+   * mirror. Packets are written, and then queued for acks if the acks
+   * depend on the write, in the order they were submitted. The number of
+   * packets waiting to be written is bounded, so the receiver blocks once
+   * the disk falls too far behind.
+   */
+  private class DiskWriter implements Runnable {
+    /** a packet copied out of the packet receiver, waiting to be written */
+    private final class PendingPacket {
+      private final long seqno;
+      private final long firstByteInBlock;
+      private final long offsetInBlock;
+      private final byte[] buf;
+      private final ByteBuffer dataBuf;
+      private final ByteBuffer checksumBuf;
+      private final int checksumLen;
+      private final boolean shouldNotWriteChecksum;
+
+      private PendingPacket(long seqno, long firstByteInBlock,
+          long offsetInBlock, byte[] buf, ByteBuffer dataBuf,
+          ByteBuffer checksumBuf, int checksumLen,
+          boolean shouldNotWriteChecksum) {
+        this.seqno = seqno;
+        this.firstByteInBlock = firstByteInBlock;
+        this.offsetInBlock = offsetInBlock;
+        this.buf = buf;
+        this.dataBuf = dataBuf;
+        this.checksumBuf = checksumBuf;
+        this.checksumLen = checksumLen;
+        this.shouldNotWriteChecksum = shouldNotWriteChecksum;
+      }
+    }
+
+    private final BlockingQueue<PendingPacket> queue;
+    /** packet buffers which can be reused */
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final Daemon thread;
+    /** number of packets submitted but not yet written */
+    private int pending = 0;
+    /** the first error hit while writing, if any */
+    private volatile Throwable error = null;
+
+    DiskWriter(int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      this.freeBuffers = new ArrayBlockingQueue<>(capacity + 1);
+      this.thread = new Daemon(datanode.threadGroup, this);
+      this.thread.setName(toString());
+    }
+
+    void start() {
+      thread.start();
+    }
+
+    /**
+     * Queue a packet to be written. The data and checksums are copied, since
+     * the packet receiver reuses its buffer for the next packet. Blocks while
+     * the queue is full.
+     */
+    void submit(long seqno, long firstByteInBlock, long offsetInBlock,
+        ByteBuffer data, ByteBuffer checksums, int checksumLen,
+        boolean shouldNotWriteChecksum) throws IOException {
+      checkError();
+      final int checksumBytes = checksums.remaining();
+      final int dataBytes = data.remaining();
+      byte[] buf = freeBuffers.poll();
+      if (buf == null || buf.length < checksumBytes + dataBytes) {
+        buf = new byte[checksumBytes + dataBytes];
+      }
+      checksums.duplicate().get(buf, 0, checksumBytes);
+      data.duplicate().get(buf, checksumBytes, dataBytes);
+      PendingPacket p = new PendingPacket(seqno, firstByteInBlock,
+          offsetInBlock, buf, ByteBuffer.wrap(buf, checksumBytes, dataBytes)
+          .slice(), ByteBuffer.wrap(buf, 0, checksumBytes).slice(),
+          checksumLen, shouldNotWriteChecksum);
+      synchronized (this) {
+        pending++;
+      }
+      final long begin = System.nanoTime();
+      try {
+        queue.put(p);
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while queueing packet "
+            + seqno + " of " + block + " to be written to disk");
+      }
+      datanode.metrics.addReceivePacketDiskQueueNanos(
+          System.nanoTime() - begin);
+    }
+
+    /**
+     * Wait until all the submitted packets have been written.
+     */
+    synchronized void drain() throws IOException {
+      try {
+        while (pending > 0 && error == null) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while waiting for "
+            + pending + " packets of " + block + " to be written to disk");
+      }
+      checkError();
+    }
+
+    private void checkError() throws IOException {
+      if (error != null) {
+        throw new IOException("Failed to write packets of " + block
+            + " to disk", error);
+      }
+    }
+
+    /**
+     * Stop the writer thread, dropping any packets not written yet.
+     */
+    void stop() {
+      thread.interrupt();
+      try {
+        thread.join(datanode.getDnConf().getXceiverStopTimeout());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (thread.isAlive()) {
+        LOG.warn("Join on disk writer thread " + thread + " timed out\n"
+            + StringUtils.getStackTrace(thread));
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          PendingPacket p = queue.take();
+          writePacketToDisk(p.seqno, p.firstByteInBlock, p.offsetInBlock,
+              p.dataBuf, p.checksumBuf, p.checksumLen,
+              p.shouldNotWriteChecksum, false);
+          if (responder != null && shouldVerifyChecksum()) {
+            ((PacketResponder) responder.getRunnable()).enqueue(p.seqno,
+                false, p.offsetInBlock, Status.SUCCESS);
+          }
+          freeBuffers.offer(p.buf);
+          synchronized (this) {
+            pending--;
+            notifyAll();
+          }
+        }
+      } catch (InterruptedException e) {
+        // stopped by the receiver
+      } catch (Throwable t) {
+        error = t;
+        LOG.warn("{}: failed to write to disk", this, t);
+      } finally {
+        // Unblock the receiver if it is waiting for room in the queue or for
+        // the packets left to be written.
+        queue.clear();
+        synchronized (this) {
+          if (pending > 0 && error == null) {
+            error = new InterruptedIOException(this + " was stopped with "
+                + pending + " packets not written");
+          }
+          notifyAll();
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "DiskWriter for " + block;
+    }
+  }
+
   private enum PacketResponderType {
     NON_PIPELINE, LAST_IN_PIPELINE, HAS_DOWNSTREAM_IN_PIPELINE
   }
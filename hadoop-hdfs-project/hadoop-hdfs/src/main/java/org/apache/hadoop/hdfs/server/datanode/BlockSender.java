@@ -28,6 +28,7 @@
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
@@ -44,10 +45,12 @@
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.FsVolumeSpi;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.LengthInputStream;
 import org.apache.hadoop.hdfs.server.datanode.fsdataset.ReplicaInputStreams;
+import org.apache.hadoop.hdfs.server.datanode.metrics.DataNodeMetrics;
 import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.ReadaheadPool.ReadaheadRequest;
+import org.apache.hadoop.io.nativeio.NativeIO;
 import org.apache.hadoop.net.SocketOutputStream;
 import org.apache.hadoop.util.AutoCloseableLock;
 import org.apache.hadoop.util.DataChecksum;
@@ -144,6 +147,13 @@ class BlockSender implements java.io.Closeable {
   private long seqno;
   /** Set to true if transferTo is allowed for sending data to the client */
   private final boolean transferToAllowed;
+  /**
+   * Channel of the meta file, used to memory map the checksums when
+   * sending data with transferTo. Null if the meta file can not be mapped.
+   */
+  private FileChannel checksumChannel;
+  /** Checksums of the requested range, mapped from the meta file */
+  private MappedByteBuffer checksumMap;
   /** Set to true once entire requested byte range has been sent to the client */
   private boolean sentEntireByteRange;
   /** When true, verify checksum while reading from checksum file */
@@ -169,6 +179,14 @@ class BlockSender implements java.io.Closeable {
   
   private long lastCacheDropOffset;
   private final FileIoProvider fileIoProvider;
+
+  /**
+   * The adaptive read-ahead policy, or null if it is disabled or the client
+   * requested an explicit caching strategy.
+   */
+  private final AdaptiveReadaheadPolicy adaptiveReadaheadPolicy;
+  /** Decision of the adaptive read-ahead policy for this read, if any. */
+  private AdaptiveReadaheadPolicy.Decision readaheadDecision;
   
   @VisibleForTesting
   static long CACHE_DROP_INTERVAL_BYTES = 1024 * 1024; // 1MB
@@ -176,7 +194,7 @@ class BlockSender implements java.io.Closeable {
   /**
    * See {{@link BlockSender#isLongRead()}
    */
-  private static final long LONG_READ_THRESHOLD_BYTES = 256 * 1024;
+  static final long LONG_READ_THRESHOLD_BYTES = 256 * 1024;
 
   // The number of bytes per checksum here determines the alignment
   // of reads: we always start reading at a checksum chunk boundary,
@@ -241,6 +259,16 @@ class BlockSender implements java.io.Closeable {
         this.alwaysReadahead = true;
         this.readaheadLength = cachingStrategy.getReadahead().longValue();
       }
+      /*
+       * The adaptive policy only replaces the DataNode defaults. It is not
+       * used if the client asked for a specific caching strategy.
+       */
+      if (cachingStrategy.getDropBehind() == null &&
+          cachingStrategy.getReadahead() == null) {
+        this.adaptiveReadaheadPolicy = datanode.getAdaptiveReadaheadPolicy();
+      } else {
+        this.adaptiveReadaheadPolicy = null;
+      }
       this.datanode = datanode;
       
       if (verifyChecksum) {
@@ -303,6 +331,21 @@ class BlockSender implements java.io.Closeable {
       }
       volumeRef = volume.obtainReference();
 
+      // Serve hot blocks of slow volumes from the read cache.
+      BlockReadCache.CachedReplica cachedReplica = null;
+      final BlockReadCache readCache = datanode.getBlockReadCache();
+      if (readCache != null && replica instanceof FinalizedReplica &&
+          !replica.isOnTransientStorage() &&
+          BlockReadCache.isCacheable(volume.getStorageType())) {
+        cachedReplica = readCache.open(block, (FinalizedReplica) replica);
+        if (cachedReplica != null) {
+          blockIn = cachedReplica.getBlockInputStream();
+          if (!verifyChecksum && !sendChecksum) {
+            IOUtils.closeStream(cachedReplica.getMetaInputStream());
+          }
+        }
+      }
+
       /* 
        * (corruptChecksumOK, meta_file_exist): operation
        * True,   True: will verify checksum  
@@ -316,7 +359,8 @@ class BlockSender implements java.io.Closeable {
         boolean keepMetaInOpen = false;
         try {
           DataNodeFaultInjector.get().throwTooManyOpenFiles();
-          metaIn = datanode.data.getMetaDataInputStream(block);
+          metaIn = cachedReplica != null ? cachedReplica.getMetaInputStream()
+              : datanode.data.getMetaDataInputStream(block);
           if (!corruptChecksumOk || metaIn != null) {
             if (metaIn == null) {
               //need checksum but meta-data not found
@@ -338,6 +382,12 @@ class BlockSender implements java.io.Closeable {
                 metaIn.getLength() >= expectedHeaderSize) {
               checksumIn = new DataInputStream(new BufferedInputStream(
                   metaIn, IO_FILE_BUFFER_SIZE));
+              if (datanode.getDnConf().transferToMmapChecksum &&
+                  replica instanceof FinalizedReplica &&
+                  metaIn.getWrappedStream() instanceof FileInputStream) {
+                checksumChannel =
+                    ((FileInputStream) metaIn.getWrappedStream()).getChannel();
+              }
 
               csum = BlockMetadataHeader.readDataChecksum(checksumIn, block);
               keepMetaInOpen = true;
@@ -431,7 +481,11 @@ class BlockSender implements java.io.Closeable {
       if (DataNode.LOG.isDebugEnabled()) {
         DataNode.LOG.debug("replica=" + replica);
       }
-      blockIn = datanode.data.getBlockInputStream(block, offset); // seek to offset
+      if (cachedReplica != null) {
+        ((FileInputStream) blockIn).getChannel().position(offset);
+      } else {
+        blockIn = datanode.data.getBlockInputStream(block, offset); // seek to offset
+      }
       ris = new ReplicaInputStreams(
           blockIn, checksumIn, volumeRef, fileIoProvider);
     } catch (IOException ioe) {
@@ -479,9 +533,7 @@ private ChunkChecksum getPartialChunkChecksumForFinalized(
    */
   @Override
   public void close() throws IOException {
-    if (ris.getDataInFd() != null &&
-        ((dropCacheBehindAllReads) ||
-         (dropCacheBehindLargeReads && isLongRead()))) {
+    if (ris.getDataInFd() != null && shouldDropCacheBehind()) {
       try {
         ris.dropCacheBehindReads(block.getBlockName(), lastCacheDropOffset,
             offset - lastCacheDropOffset, POSIX_FADV_DONTNEED);
@@ -489,9 +541,25 @@ public void close() throws IOException {
         LOG.warn("Unable to drop cache on file close", e);
       }
     }
+    if (readaheadDecision != null) {
+      long readaheadStart = -1;
+      long readaheadEnd = -1;
+      if (curReadahead != null) {
+        readaheadStart = curReadahead.getOffset();
+        readaheadEnd = readaheadStart + curReadahead.getLength();
+      }
+      adaptiveReadaheadPolicy.onReadEnd(block, offset, readaheadStart,
+          readaheadEnd);
+      readaheadDecision = null;
+    }
     if (curReadahead != null) {
       curReadahead.cancel();
     }
+    if (checksumMap != null) {
+      NativeIO.POSIX.munmap(checksumMap);
+      checksumMap = null;
+    }
+    checksumChannel = null;
 
     try {
       ris.closeStreams();
@@ -575,9 +643,13 @@ private int sendPacket(ByteBuffer pkt, int maxChunks, OutputStream out,
     int headerOff = pkt.position() - headerLen;
     
     int checksumOff = pkt.position();
-    byte[] buf = pkt.array();
-    
-    if (checksumSize > 0 && ris.getChecksumIn() != null) {
+    int dataOff = checksumOff + checksumDataLen;
+    // A direct packet buffer is only used with mapped checksums
+    byte[] buf = pkt.hasArray() ? pkt.array() : null;
+
+    if (checksumMap != null) {
+      putMappedChecksum(pkt, checksumDataLen, lastDataPacket);
+    } else if (checksumSize > 0 && ris.getChecksumIn() != null) {
       readChecksum(buf, checksumOff, checksumDataLen);
 
       // write in progress that we need to use to get last checksum
@@ -589,8 +661,7 @@ private int sendPacket(ByteBuffer pkt, int maxChunks, OutputStream out,
         }
       }
     }
-    
-    int dataOff = checksumOff + checksumDataLen;
+
     if (!transferTo) { // normal transfer
       try {
         ris.readDataFully(buf, dataOff, dataLen);
@@ -610,7 +681,16 @@ private int sendPacket(ByteBuffer pkt, int maxChunks, OutputStream out,
       if (transferTo) {
         SocketOutputStream sockOut = (SocketOutputStream)out;
         // First write header and checksums
-        sockOut.write(buf, headerOff, dataOff - headerOff);
+        if (buf == null) {
+          pkt.limit(dataOff).position(headerOff);
+          while (pkt.hasRemaining()) {
+            if (sockOut.write(pkt) < 0) {
+              throw new IOException("The stream is closed");
+            }
+          }
+        } else {
+          sockOut.write(buf, headerOff, dataOff - headerOff);
+        }
 
         // no need to flush since we know out is not a buffered stream
         FileChannel fileCh = ((FileInputStream)ris.getDataIn()).getChannel();
@@ -678,6 +758,69 @@ private int sendPacket(ByteBuffer pkt, int maxChunks, OutputStream out,
     return dataLen;
   }
   
+  /**
+   * Copy the checksums of the next packet from the memory mapped meta file
+   * into the direct packet buffer, at its current position. This keeps
+   * the checksums off the heap all the way from the page cache to the
+   * socket.
+   *
+   * @param pkt direct packet buffer, positioned after the packet header
+   * @param checksumLen length of checksum to copy
+   * @param lastDataPacket whether this is the last packet with data
+   */
+  private void putMappedChecksum(ByteBuffer pkt, int checksumLen,
+      boolean lastDataPacket) {
+    if (checksumLen <= 0) {
+      return;
+    }
+    ByteBuffer src = checksumMap.duplicate();
+    src.limit(src.position() + checksumLen);
+    int start = pkt.position();
+    pkt.put(src);
+    checksumMap.position(src.position());
+
+    // write in progress that we need to use to get last checksum
+    if (lastDataPacket && lastChunkChecksum != null) {
+      byte[] updatedChecksum = lastChunkChecksum.getChecksum();
+      if (updatedChecksum != null) {
+        int pos = pkt.position();
+        pkt.position(start + checksumLen - checksumSize);
+        pkt.put(updatedChecksum, 0, checksumSize);
+        pkt.position(pos);
+      }
+    }
+  }
+
+  /**
+   * Memory map the checksums of the range [offset, endOffset) from the meta
+   * file, so that sending with transferTo does not copy them through the
+   * heap. The checksums are only mapped if they are all on disk already.
+   *
+   * @return true if the checksums were mapped
+   */
+  private boolean mapChecksums() {
+    if (checksumChannel == null || checksumSize <= 0 ||
+        ris.getChecksumIn() == null) {
+      return false;
+    }
+    long start = BlockMetadataHeader.getHeaderSize() +
+        (offset / chunkSize) * checksumSize;
+    long length = (long) numberOfChunks(endOffset - offset) * checksumSize;
+    try {
+      if (length <= 0 || length > Integer.MAX_VALUE ||
+          start + length > checksumChannel.size()) {
+        return false;
+      }
+      checksumMap = checksumChannel.map(FileChannel.MapMode.READ_ONLY,
+          start, length);
+      return true;
+    } catch (IOException e) {
+      LOG.debug("Unable to mmap the checksums of {}, falling back to " +
+          "reading them through the stream", block, e);
+      return false;
+    }
+  }
+
   /**
    * Read checksum into given buffer
    * @param buf buffer to read the checksum into
@@ -780,7 +923,13 @@ private long doSendBlock(DataOutputStream out, OutputStream baseStream,
     
     lastCacheDropOffset = initialOffset;
 
-    if (isLongRead() && ris.getDataInFd() != null) {
+    if (adaptiveReadaheadPolicy != null) {
+      readaheadDecision = adaptiveReadaheadPolicy.onReadStart(block,
+          initialOffset, endOffset);
+      updateAdaptiveReadaheadMetrics();
+    }
+
+    if (isSequentialRead() && ris.getDataInFd() != null) {
       // Advise that this file descriptor will be accessed sequentially.
       ris.dropCacheBehindReads(block.getBlockName(), 0, 0,
           POSIX_FADV_SEQUENTIAL);
@@ -793,6 +942,7 @@ private long doSendBlock(DataOutputStream out, OutputStream baseStream,
     try {
       int maxChunksPerPacket;
       int pktBufSize = PacketHeader.PKT_MAX_HEADER_LEN;
+      boolean useMappedChecksum = false;
       boolean transferTo = transferToAllowed && !verifyChecksum
           && baseStream instanceof SocketOutputStream
           && ris.getDataIn() instanceof FileInputStream;
@@ -805,6 +955,7 @@ private long doSendBlock(DataOutputStream out, OutputStream baseStream,
         
         // Smaller packet size to only hold checksum when doing transferTo
         pktBufSize += checksumSize * maxChunksPerPacket;
+        useMappedChecksum = isLongRead() && mapChecksums();
       } else {
         maxChunksPerPacket = Math.max(1,
             numberOfChunks(IO_FILE_BUFFER_SIZE));
@@ -812,7 +963,9 @@ private long doSendBlock(DataOutputStream out, OutputStream baseStream,
         pktBufSize += (chunkSize + checksumSize) * maxChunksPerPacket;
       }
 
-      ByteBuffer pktBuf = ByteBuffer.allocate(pktBufSize);
+      ByteBuffer pktBuf = useMappedChecksum ?
+          ByteBuffer.allocateDirect(pktBufSize) :
+          ByteBuffer.allocate(pktBufSize);
 
       while (endOffset > offset && !Thread.currentThread().isInterrupted()) {
         manageOsCache();
@@ -858,17 +1011,16 @@ private void manageOsCache() throws IOException {
     }
 
     // Perform readahead if necessary
-    if ((readaheadLength > 0) && (datanode.readaheadPool != null) &&
-          (alwaysReadahead || isLongRead())) {
+    long length = getReadaheadLength();
+    if ((length > 0) && (datanode.readaheadPool != null)) {
       curReadahead = datanode.readaheadPool.readaheadStream(
-          clientTraceFmt, ris.getDataInFd(), offset, readaheadLength,
+          clientTraceFmt, ris.getDataInFd(), offset, length,
           Long.MAX_VALUE, curReadahead);
     }
 
     // Drop what we've just read from cache, since we aren't
     // likely to need it again
-    if (dropCacheBehindAllReads ||
-        (dropCacheBehindLargeReads && isLongRead())) {
+    if (shouldDropCacheBehind()) {
       long nextCacheDropOffset = lastCacheDropOffset + CACHE_DROP_INTERVAL_BYTES;
       if (offset >= nextCacheDropOffset) {
         long dropLength = offset - lastCacheDropOffset;
@@ -895,6 +1047,64 @@ private boolean isLongRead() {
     return (endOffset - initialOffset) > LONG_READ_THRESHOLD_BYTES;
   }
 
+  /**
+   * Returns true if this read is part of a sequential scan of the block.
+   * Without the adaptive read-ahead policy, only long reads are considered
+   * sequential.
+   */
+  private boolean isSequentialRead() {
+    if (readaheadDecision != null) {
+      return readaheadDecision.isSequential();
+    }
+    return isLongRead();
+  }
+
+  /**
+   * @return the number of bytes to read ahead of the current position,
+   * or 0 if no readahead should be done.
+   */
+  private long getReadaheadLength() {
+    if (readaheadDecision != null) {
+      return readaheadDecision.getReadaheadLength();
+    }
+    return (alwaysReadahead || isLongRead()) ? readaheadLength : 0;
+  }
+
+  /**
+   * Returns true if the pages read should be dropped from the OS buffer
+   * cache.
+   */
+  private boolean shouldDropCacheBehind() {
+    if (readaheadDecision != null) {
+      return readaheadDecision.isDropBehind();
+    }
+    return dropCacheBehindAllReads ||
+        (dropCacheBehindLargeReads && isLongRead());
+  }
+
+  private void updateAdaptiveReadaheadMetrics() {
+    DataNodeMetrics metrics = datanode.getMetrics();
+    if (metrics == null) {
+      return;
+    }
+    if (readaheadDecision.isSequential()) {
+      metrics.incrAdaptiveReadaheadSequentialReads();
+    } else {
+      metrics.incrAdaptiveReadaheadRandomReads();
+    }
+    if (readaheadDecision.isDropBehind()) {
+      metrics.incrAdaptiveReadaheadDropBehindReads();
+    }
+    Boolean hit = readaheadDecision.getReadaheadHit();
+    if (hit != null) {
+      if (hit) {
+        metrics.incrAdaptiveReadaheadHits();
+      } else {
+        metrics.incrAdaptiveReadaheadMisses();
+      }
+    }
+  }
+
   /**
    * Write packet header into {@code pkt},
    * return the length of the header written.
@@ -94,6 +94,9 @@ public class DNConf {
   private final boolean tcpNoDelay;
 
   final boolean transferToAllowed;
+  final boolean transferToMmapChecksum;
+  final boolean pipelinedReceiverEnabled;
+  final int pipelinedReceiverQueuePackets;
   final boolean dropCacheBehindWrites;
   final boolean syncBehindWrites;
   final boolean syncBehindWritesInBackground;
@@ -105,6 +108,14 @@ public class DNConf {
   private final boolean pmemCacheRecoveryEnabled;
 
   final long readaheadLength;
+  final boolean adaptiveReadaheadEnabled;
+  final long adaptiveReadaheadMaxLength;
+  final int adaptiveReadaheadHotScans;
+  final int adaptiveReadaheadTrackedBlocks;
+  final String readCacheDir;
+  final long readCacheCapacity;
+  final int readCachePromoteReads;
+  final int blockChecksumCacheSize;
   final long heartBeatInterval;
   private final long lifelineIntervalMs;
   volatile long blockReportInterval;
@@ -113,6 +124,9 @@ public class DNConf {
   volatile boolean diskStatsEnabled;
   volatile long outliersReportIntervalMs;
   final long ibrInterval;
+  final long ibrCoalesceMinDelay;
+  final long ibrCoalesceMaxDelay;
+  final int ibrCoalesceMaxBlocks;
   volatile long initialBlockReportDelayMs;
   volatile long cacheReportInterval;
   private volatile long datanodeSlowIoWarningThresholdMs;
@@ -168,6 +182,18 @@ public DNConf(final Configurable dn) {
     transferToAllowed = getConf().getBoolean(
         DFS_DATANODE_TRANSFERTO_ALLOWED_KEY,
         DFS_DATANODE_TRANSFERTO_ALLOWED_DEFAULT);
+    transferToMmapChecksum = getConf().getBoolean(
+        DFSConfigKeys.DFS_DATANODE_TRANSFERTO_MMAP_CHECKSUM_KEY,
+        DFSConfigKeys.DFS_DATANODE_TRANSFERTO_MMAP_CHECKSUM_DEFAULT);
+    pipelinedReceiverEnabled = getConf().getBoolean(
+        DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_ENABLED_DEFAULT);
+    pipelinedReceiverQueuePackets = getConf().getInt(
+        DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_QUEUE_PACKETS_KEY,
+        DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_QUEUE_PACKETS_DEFAULT);
+    Preconditions.checkArgument(pipelinedReceiverQueuePackets > 0,
+        DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_QUEUE_PACKETS_KEY +
+        " should be greater than 0");
 
     readaheadLength = getConf().getLong(
         HdfsClientConfigKeys.DFS_DATANODE_READAHEAD_BYTES_KEY,
@@ -186,6 +212,30 @@ public DNConf(final Configurable dn) {
     dropCacheBehindReads = getConf().getBoolean(
         DFSConfigKeys.DFS_DATANODE_DROP_CACHE_BEHIND_READS_KEY,
         DFSConfigKeys.DFS_DATANODE_DROP_CACHE_BEHIND_READS_DEFAULT);
+    adaptiveReadaheadEnabled = getConf().getBoolean(
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_ENABLED_KEY,
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_ENABLED_DEFAULT);
+    adaptiveReadaheadMaxLength = getConf().getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_MAX_BYTES_KEY,
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_MAX_BYTES_DEFAULT);
+    adaptiveReadaheadHotScans = getConf().getInt(
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_HOT_SCANS_KEY,
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_HOT_SCANS_DEFAULT);
+    adaptiveReadaheadTrackedBlocks = getConf().getInt(
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_TRACKED_BLOCKS_KEY,
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_TRACKED_BLOCKS_DEFAULT);
+    readCacheDir = getConf().getTrimmed(
+        DFSConfigKeys.DFS_DATANODE_READ_CACHE_DIR_KEY,
+        DFSConfigKeys.DFS_DATANODE_READ_CACHE_DIR_DEFAULT);
+    readCacheCapacity = getConf().getLongBytes(
+        DFSConfigKeys.DFS_DATANODE_READ_CACHE_CAPACITY_KEY,
+        DFSConfigKeys.DFS_DATANODE_READ_CACHE_CAPACITY_DEFAULT);
+    readCachePromoteReads = getConf().getInt(
+        DFSConfigKeys.DFS_DATANODE_READ_CACHE_PROMOTE_READS_KEY,
+        DFSConfigKeys.DFS_DATANODE_READ_CACHE_PROMOTE_READS_DEFAULT);
+    blockChecksumCacheSize = getConf().getInt(
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_CACHE_SIZE_KEY,
+        DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_CACHE_SIZE_DEFAULT);
     connectToDnViaHostname = getConf().getBoolean(
         DFSConfigKeys.DFS_DATANODE_USE_DN_HOSTNAME,
         DFSConfigKeys.DFS_DATANODE_USE_DN_HOSTNAME_DEFAULT);
@@ -206,6 +256,17 @@ public DNConf(final Configurable dn) {
     this.ibrInterval = getConf().getLong(
         DFSConfigKeys.DFS_BLOCKREPORT_INCREMENTAL_INTERVAL_MSEC_KEY,
         DFSConfigKeys.DFS_BLOCKREPORT_INCREMENTAL_INTERVAL_MSEC_DEFAULT);
+    this.ibrCoalesceMaxDelay = getConf().getLong(
+        DFSConfigKeys.DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_DELAY_MSEC_KEY,
+        DFSConfigKeys.
+            DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_DELAY_MSEC_DEFAULT);
+    this.ibrCoalesceMinDelay = Math.min(ibrCoalesceMaxDelay, getConf().getLong(
+        DFSConfigKeys.DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MIN_DELAY_MSEC_KEY,
+        DFSConfigKeys.
+            DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MIN_DELAY_MSEC_DEFAULT));
+    this.ibrCoalesceMaxBlocks = getConf().getInt(
+        DFSConfigKeys.DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_BLOCKS_KEY,
+        DFSConfigKeys.DFS_BLOCKREPORT_INCREMENTAL_COALESCE_MAX_BLOCKS_DEFAULT);
     this.blockReportSplitThreshold = getConf().getLong(
         DFS_BLOCKREPORT_SPLIT_THRESHOLD_KEY,
         DFS_BLOCKREPORT_SPLIT_THRESHOLD_DEFAULT);
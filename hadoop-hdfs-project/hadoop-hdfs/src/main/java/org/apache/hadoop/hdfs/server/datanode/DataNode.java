@@ -164,6 +164,7 @@
 import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.DFSUtil;
 import org.apache.hadoop.hdfs.DFSUtilClient;
+import org.apache.hadoop.hdfs.ExtendedBlockId;
 import org.apache.hadoop.hdfs.HDFSPolicyProvider;
 import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.hdfs.server.common.DataNodeLockManager.LockLevel;
@@ -452,6 +453,9 @@ public static InetSocketAddress createSocketAddr(String target) {
   private final List<String> usersWithLocalPathAccess;
   private final boolean connectToDnViaHostname;
   ReadaheadPool readaheadPool;
+  private AdaptiveReadaheadPolicy adaptiveReadaheadPolicy;
+  private BlockReadCache blockReadCache;
+  private BlockChecksumCache blockChecksumCache;
   SaslDataTransferClient saslClient;
   SaslDataTransferServer saslServer;
   private ObjectName dataNodeInfoBeanName;
@@ -1957,6 +1961,21 @@ void startDataNode(List<StorageLocation> dataDirectories,
     // Create the ReadaheadPool from the DataNode context so we can
     // exit without having to explicitly shutdown its thread pool.
     readaheadPool = ReadaheadPool.getInstance();
+    if (dnConf.adaptiveReadaheadEnabled) {
+      adaptiveReadaheadPolicy = new AdaptiveReadaheadPolicy(
+          dnConf.readaheadLength, dnConf.adaptiveReadaheadMaxLength,
+          BlockSender.LONG_READ_THRESHOLD_BYTES,
+          dnConf.adaptiveReadaheadHotScans,
+          dnConf.adaptiveReadaheadTrackedBlocks);
+    }
+    if (!dnConf.readCacheDir.isEmpty() && dnConf.readCacheCapacity > 0) {
+      blockReadCache = new BlockReadCache(new File(dnConf.readCacheDir),
+          dnConf.readCacheCapacity, dnConf.readCachePromoteReads, metrics);
+    }
+    if (dnConf.blockChecksumCacheSize > 0) {
+      blockChecksumCache =
+          new BlockChecksumCache(dnConf.blockChecksumCacheSize);
+    }
     saslClient = new SaslDataTransferClient(dnConf.getConf(),
         dnConf.saslPropsResolver, dnConf.trustedChannelResolver);
     saslServer = new SaslDataTransferServer(dnConf, blockPoolTokenSecretManager);
@@ -2567,6 +2586,10 @@ public void shutdown() {
     shutdownPeriodicScanners();
     shutdownDiskBalancer();
 
+    if (blockReadCache != null) {
+      blockReadCache.close();
+    }
+
     // Stop the web server
     if (httpServer != null) {
       try {
@@ -4005,6 +4028,39 @@ public long getBalancerBandwidth() {
     return dxcs.balanceThrottler.getBandwidth();
   }
   
+  /**
+   * @return the adaptive read-ahead policy, or null if it is disabled.
+   */
+  AdaptiveReadaheadPolicy getAdaptiveReadaheadPolicy() {
+    return adaptiveReadaheadPolicy;
+  }
+
+  /**
+   * @return the read cache for hot blocks, or null if it is disabled.
+   */
+  BlockReadCache getBlockReadCache() {
+    return blockReadCache;
+  }
+
+  /**
+   * Drop the copy of a replica from the read cache, if any, when the replica
+   * is removed from the dataset.
+   * @param key the block of the replica.
+   */
+  public void invalidateReadCache(ExtendedBlockId key) {
+    if (blockReadCache != null) {
+      blockReadCache.invalidate(key);
+    }
+  }
+
+  /**
+   * @return the cache of computed block checksums, or null if it is
+   *         disabled.
+   */
+  BlockChecksumCache getBlockChecksumCache() {
+    return blockChecksumCache;
+  }
+
   public DNConf getDnConf() {
     return dnConf;
   }
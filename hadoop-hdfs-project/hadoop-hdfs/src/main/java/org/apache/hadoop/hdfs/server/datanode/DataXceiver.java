@@ -27,6 +27,7 @@
 import org.apache.hadoop.hdfs.DFSUtilClient;
 import org.apache.hadoop.hdfs.ExtendedBlockId;
 import org.apache.hadoop.hdfs.net.Peer;
+import org.apache.hadoop.hdfs.protocol.Block;
 import org.apache.hadoop.hdfs.protocol.BlockChecksumOptions;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
@@ -1010,20 +1011,34 @@ public void blockChecksum(ExtendedBlock block,
         getOutputStream());
     checkAccess(out, true, block, blockToken, Op.BLOCK_CHECKSUM,
         BlockTokenIdentifier.AccessMode.READ);
-    BlockChecksumComputer maker = new ReplicatedBlockChecksumComputer(
-        datanode, block, blockChecksumOptions);
+    final BlockChecksumCache checksumCache = datanode.getBlockChecksumCache();
+    final long genStamp =
+        checksumCache != null ? getFinalizedGenStamp(block) : -1;
+    BlockChecksumCache.Entry checksum = genStamp >= 0 ?
+        checksumCache.get(block, genStamp, blockChecksumOptions) : null;
+    BlockChecksumComputer maker = checksum != null ? null :
+        new ReplicatedBlockChecksumComputer(
+            datanode, block, blockChecksumOptions);
 
     try {
-      maker.compute();
+      if (maker != null) {
+        maker.compute();
+        checksum = new BlockChecksumCache.Entry(maker.getBytesPerCRC(),
+            maker.getCrcPerBlock(), maker.getCrcType(), maker.getOutBytes());
+        // Only cache it if the replica did not change while computing.
+        if (genStamp >= 0 && genStamp == getFinalizedGenStamp(block)) {
+          checksumCache.put(block, genStamp, blockChecksumOptions, checksum);
+        }
+      }
 
       //write reply
       BlockOpResponseProto.newBuilder()
           .setStatus(SUCCESS)
           .setChecksumResponse(OpBlockChecksumResponseProto.newBuilder()
-              .setBytesPerCrc(maker.getBytesPerCRC())
-              .setCrcPerBlock(maker.getCrcPerBlock())
-              .setBlockChecksum(ByteString.copyFrom(maker.getOutBytes()))
-              .setCrcType(PBHelperClient.convert(maker.getCrcType()))
+              .setBytesPerCrc(checksum.getBytesPerCrc())
+              .setCrcPerBlock(checksum.getCrcPerBlock())
+              .setBlockChecksum(ByteString.copyFrom(checksum.getChecksum()))
+              .setCrcType(PBHelperClient.convert(checksum.getCrcType()))
               .setBlockChecksumOptions(
                   PBHelperClient.convert(blockChecksumOptions)))
           .build()
@@ -1042,6 +1057,20 @@ public void blockChecksum(ExtendedBlock block,
     datanode.metrics.addBlockChecksumOp(elapsed());
   }
 
+  /**
+   * @return the generation stamp of the replica of a block if it is
+   *         finalized, or -1.
+   */
+  private long getFinalizedGenStamp(ExtendedBlock block) throws IOException {
+    final Block stored = datanode.data.getStoredBlock(
+        block.getBlockPoolId(), block.getBlockId());
+    if (stored == null || !datanode.data.isValidBlock(
+        new ExtendedBlock(block.getBlockPoolId(), stored))) {
+      return -1;
+    }
+    return stored.getGenerationStamp();
+  }
+
   @Override
   public void blockGroupChecksum(final StripedBlockInfo stripedBlockInfo,
       final Token<BlockTokenIdentifier> blockToken,
@@ -42,6 +42,14 @@
 
 /**
  * Manage Incremental Block Reports (IBRs).
+ * <p>
+ * By default a received block is reported to the NameNode right away. When
+ * coalescing is enabled, received blocks are instead held back for a delay
+ * so that one IBR carries many of them. The delay grows from a minimum to a
+ * maximum with the load on the block report queue of the NameNode, as
+ * reported in each heartbeat response, and the IBR is sent early once
+ * enough blocks are pending. The maximum delay bounds how much later a
+ * closed file becomes visible to the NameNode.
  */
 @InterfaceAudience.Private
 class IncrementalBlockReportManager {
@@ -140,22 +148,57 @@ int putMissing(ReceivedDeletedBlockInfo[] rdbis) {
   private volatile long lastIBR;
   private DataNodeMetrics dnMetrics;
 
+  /** The minimum and maximum time to hold back received blocks. */
+  private final long coalesceMinDelay;
+  private final long coalesceMaxDelay;
+  /** The number of held back blocks which triggers an IBR. */
+  private final int coalesceMaxBlocks;
+  /** The NameNode block report queue load from the last heartbeat. */
+  private volatile int nameNodeLoad = 0;
+  /** The number of received blocks held back. */
+  private int numCoalescedBlocks = 0;
+  /**
+   * The time before which no IBR is sent because received blocks are
+   * being coalesced, or 0 if none are.
+   */
+  private volatile long coalesceDeadline = 0;
+
   IncrementalBlockReportManager(
       final long ibrInterval,
       final DataNodeMetrics dnMetrics) {
+    this(ibrInterval, dnMetrics, 0, 0, 0);
+  }
+
+  IncrementalBlockReportManager(
+      final long ibrInterval,
+      final DataNodeMetrics dnMetrics,
+      final long coalesceMinDelay,
+      final long coalesceMaxDelay,
+      final int coalesceMaxBlocks) {
     this.ibrInterval = ibrInterval;
     this.lastIBR = monotonicNow() - ibrInterval;
     this.dnMetrics = dnMetrics;
+    this.coalesceMinDelay = coalesceMinDelay;
+    this.coalesceMaxDelay = coalesceMaxDelay;
+    this.coalesceMaxBlocks = coalesceMaxBlocks;
   }
 
   boolean sendImmediately() {
-    return readyToSend && monotonicNow() - ibrInterval >= lastIBR;
+    final long now = monotonicNow();
+    return readyToSend && now - ibrInterval >= lastIBR
+        && now >= coalesceDeadline;
   }
 
   synchronized void waitTillNextIBR(long waitTime) {
     if (waitTime > 0 && !sendImmediately()) {
+      long timeout =
+          ibrInterval > 0 && ibrInterval < waitTime ? ibrInterval : waitTime;
+      if (coalesceDeadline > 0) {
+        timeout = Math.min(timeout,
+            Math.max(1, coalesceDeadline - monotonicNow()));
+      }
       try {
-        wait(ibrInterval > 0 && ibrInterval < waitTime? ibrInterval: waitTime);
+        wait(timeout);
       } catch (InterruptedException ie) {
         LOG.warn(getClass().getSimpleName() + " interrupted");
       }
@@ -180,6 +223,8 @@ private synchronized StorageReceivedDeletedBlocks[] generateIBRs() {
     this.dnMetrics.resetBlocksInPendingIBR();
 
     readyToSend = false;
+    numCoalescedBlocks = 0;
+    coalesceDeadline = 0;
     return reports.toArray(new StorageReceivedDeletedBlocks[reports.size()]);
   }
 
@@ -268,15 +313,54 @@ synchronized void notifyNamenodeBlock(ReceivedDeletedBlockInfo rdbi,
       // the report will be sent out in the next heartbeat.
       readyToSend = true;
     } else if (status == BlockStatus.RECEIVED_BLOCK) {
-      // the report is sent right away.
-      triggerIBR(isOnTransientStorage);
+      if (coalesceMaxDelay > 0 && !isOnTransientStorage) {
+        // the report is sent once the coalescing delay elapses.
+        coalesceReceivedBlock();
+      } else {
+        // the report is sent right away.
+        triggerIBR(isOnTransientStorage);
+      }
+    }
+  }
+
+  private void coalesceReceivedBlock() {
+    readyToSend = true;
+    final long now = monotonicNow();
+    if (coalesceDeadline == 0) {
+      coalesceDeadline = now + getCoalesceDelay();
     }
+    if (++numCoalescedBlocks >= coalesceMaxBlocks) {
+      coalesceDeadline = now;
+    }
+    if (sendImmediately()) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * @return how long to hold back received blocks, which grows linearly
+   *         with the load on the NameNode from the minimum to the maximum
+   *         coalescing delay.
+   */
+  @VisibleForTesting
+  long getCoalesceDelay() {
+    return coalesceMinDelay
+        + (coalesceMaxDelay - coalesceMinDelay) * nameNodeLoad / 100;
+  }
+
+  /**
+   * Update the load on the NameNode as reported in a heartbeat response.
+   * @param load how full its block report queue is, in percent.
+   */
+  void setNameNodeLoad(int load) {
+    nameNodeLoad = Math.max(0, Math.min(100, load));
   }
 
   synchronized void triggerIBR(boolean force) {
     readyToSend = true;
     if (force) {
       lastIBR = monotonicNow() - ibrInterval;
+      coalesceDeadline = 0;
     }
     if (sendImmediately()) {
       notifyAll();
@@ -2405,6 +2405,8 @@ public void invalidate(String bpid, ReplicaInfo block) {
     // descriptors (and the client is using ShortCircuitShm), invalidate it.
     datanode.getShortCircuitRegistry().processBlockInvalidation(
         new ExtendedBlockId(block.getBlockId(), bpid));
+    datanode.invalidateReadCache(
+        new ExtendedBlockId(block.getBlockId(), bpid));
 
     // If the block is cached, start uncaching it.
     cacheManager.uncacheBlock(bpid, block.getBlockId());
@@ -2527,6 +2529,8 @@ boolean removeReplicaFromMem(final ExtendedBlock block, final FsVolumeImpl volum
     // descriptors (and the client is using ShortCircuitShm), invalidate it.
     datanode.getShortCircuitRegistry().processBlockInvalidation(
         ExtendedBlockId.fromExtendedBlock(block));
+    // Drop the copy of the replica in the read cache, if any.
+    datanode.invalidateReadCache(ExtendedBlockId.fromExtendedBlock(block));
 
     // If the block is cached, start uncaching it.
     cacheManager.uncacheBlock(bpid, blockId);
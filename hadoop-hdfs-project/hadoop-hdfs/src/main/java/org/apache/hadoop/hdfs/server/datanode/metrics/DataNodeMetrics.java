@@ -101,6 +101,30 @@ public class DataNodeMetrics {
   @Metric MutableRate        ramDiskBlocksLazyPersistWindowMs;
   final MutableQuantiles[]   ramDiskBlocksLazyPersistWindowMsQuantiles;
 
+  // Adaptive readahead metrics
+  @Metric("Number of reads classified as sequential by adaptive readahead")
+  private MutableCounterLong adaptiveReadaheadSequentialReads;
+  @Metric("Number of reads classified as random by adaptive readahead")
+  private MutableCounterLong adaptiveReadaheadRandomReads;
+  @Metric("Number of reads starting inside the previous readahead window")
+  private MutableCounterLong adaptiveReadaheadHits;
+  @Metric("Number of reads starting outside the previous readahead window")
+  private MutableCounterLong adaptiveReadaheadMisses;
+  @Metric("Number of reads dropping their pages from the OS buffer cache")
+  private MutableCounterLong adaptiveReadaheadDropBehindReads;
+
+  // Read cache metrics
+  @Metric("Number of reads served from the read cache")
+  private MutableCounterLong readCacheHits;
+  @Metric("Number of reads of cacheable blocks not in the read cache")
+  private MutableCounterLong readCacheMisses;
+  @Metric("Number of blocks copied to the read cache")
+  private MutableCounterLong readCachePromotions;
+  @Metric("Number of blocks evicted from the read cache")
+  private MutableCounterLong readCacheEvictions;
+  @Metric("Bytes used by blocks in the read cache")
+  private MutableGaugeLong readCacheUsed;
+
   @Metric MutableCounterLong fsyncCount;
 
   @Metric MutableCounterLong volumeFailures;
@@ -144,6 +168,14 @@ public class DataNodeMetrics {
   @Metric MutableRate fsyncNanos;
   final MutableQuantiles[] fsyncNanosQuantiles;
   
+  @Metric("Nanoseconds spent reading received packets from the network")
+  private MutableRate receivePacketNetworkNanos;
+  @Metric("Nanoseconds spent forwarding received packets to the mirror")
+  private MutableRate receivePacketMirrorNanos;
+  @Metric("Nanoseconds spent writing received packets to disk")
+  private MutableRate receivePacketDiskNanos;
+  @Metric("Nanoseconds spent waiting for room in the disk writer queue")
+  private MutableRate receivePacketDiskQueueNanos;
   @Metric MutableRate sendDataPacketBlockedOnNetworkNanos;
   final MutableQuantiles[] sendDataPacketBlockedOnNetworkNanosQuantiles;
   @Metric MutableRate sendDataPacketTransferNanos;
@@ -488,6 +520,22 @@ public void incrBlocksGetLocalPathInfo() {
     blocksGetLocalPathInfo.incr();
   }
 
+  public void addReceivePacketNetworkNanos(long latencyNanos) {
+    receivePacketNetworkNanos.add(latencyNanos);
+  }
+
+  public void addReceivePacketMirrorNanos(long latencyNanos) {
+    receivePacketMirrorNanos.add(latencyNanos);
+  }
+
+  public void addReceivePacketDiskNanos(long latencyNanos) {
+    receivePacketDiskNanos.add(latencyNanos);
+  }
+
+  public void addReceivePacketDiskQueueNanos(long latencyNanos) {
+    receivePacketDiskQueueNanos.add(latencyNanos);
+  }
+
   public void addSendDataPacketBlockedOnNetworkNanos(long latencyNanos) {
     sendDataPacketBlockedOnNetworkNanos.add(latencyNanos);
     for (MutableQuantiles q : sendDataPacketBlockedOnNetworkNanosQuantiles) {
@@ -518,6 +566,46 @@ public void incrRamDiskBlocksReadHits() {
     ramDiskBlocksReadHits.incr();
   }
 
+  public void incrAdaptiveReadaheadSequentialReads() {
+    adaptiveReadaheadSequentialReads.incr();
+  }
+
+  public void incrAdaptiveReadaheadRandomReads() {
+    adaptiveReadaheadRandomReads.incr();
+  }
+
+  public void incrAdaptiveReadaheadHits() {
+    adaptiveReadaheadHits.incr();
+  }
+
+  public void incrAdaptiveReadaheadMisses() {
+    adaptiveReadaheadMisses.incr();
+  }
+
+  public void incrAdaptiveReadaheadDropBehindReads() {
+    adaptiveReadaheadDropBehindReads.incr();
+  }
+
+  public void incrReadCacheHits() {
+    readCacheHits.incr();
+  }
+
+  public void incrReadCacheMisses() {
+    readCacheMisses.incr();
+  }
+
+  public void incrReadCachePromotions() {
+    readCachePromotions.incr();
+  }
+
+  public void incrReadCacheEvictions() {
+    readCacheEvictions.incr();
+  }
+
+  public void setReadCacheUsed(long bytes) {
+    readCacheUsed.set(bytes);
+  }
+
   public void incrRamDiskBlocksEvicted() {
     ramDiskBlocksEvicted.incr();
   }
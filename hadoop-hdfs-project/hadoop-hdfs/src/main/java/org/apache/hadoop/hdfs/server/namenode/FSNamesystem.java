@@ -4456,7 +4456,8 @@ nodeReg, reports, getBlockPoolId(), cacheCapacity, cacheUsed,
       boolean isSlownode = slownodes.contains(nodeReg.getDatanodeUuid());
 
       return new HeartbeatResponse(cmds, haState, rollingUpgradeInfo,
-          blockReportLeaseId, isSlownode);
+          blockReportLeaseId, isSlownode,
+          blockManager.getBlockOpQueueLoad());
     } finally {
       readUnlock("handleHeartbeat");
     }
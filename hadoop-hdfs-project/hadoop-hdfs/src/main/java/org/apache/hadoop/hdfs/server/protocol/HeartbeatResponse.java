@@ -39,6 +39,9 @@ public class HeartbeatResponse {
 
   private final boolean isSlownode;
 
+  /** How full the block report processing queue of the NN is, in percent */
+  private final int blockReportQueueLoad;
+
   public HeartbeatResponse(DatanodeCommand[] cmds,
       NNHAStatusHeartbeat haStatus, RollingUpgradeStatus rollingUpdateStatus,
       long fullBlockReportLeaseId) {
@@ -48,11 +51,20 @@ public HeartbeatResponse(DatanodeCommand[] cmds,
   public HeartbeatResponse(DatanodeCommand[] cmds,
       NNHAStatusHeartbeat haStatus, RollingUpgradeStatus rollingUpdateStatus,
       long fullBlockReportLeaseId, boolean isSlownode) {
+    this(cmds, haStatus, rollingUpdateStatus, fullBlockReportLeaseId,
+        isSlownode, 0);
+  }
+
+  public HeartbeatResponse(DatanodeCommand[] cmds,
+      NNHAStatusHeartbeat haStatus, RollingUpgradeStatus rollingUpdateStatus,
+      long fullBlockReportLeaseId, boolean isSlownode,
+      int blockReportQueueLoad) {
     commands = cmds;
     this.haStatus = haStatus;
     this.rollingUpdateStatus = rollingUpdateStatus;
     this.fullBlockReportLeaseId = fullBlockReportLeaseId;
     this.isSlownode = isSlownode;
+    this.blockReportQueueLoad = blockReportQueueLoad;
   }
   
   public DatanodeCommand[] getCommands() {
@@ -74,4 +86,8 @@ public long getFullBlockReportLeaseId() {
   public boolean getIsSlownode() {
     return isSlownode;
   }
+
+  public int getBlockReportQueueLoad() {
+    return blockReportQueueLoad;
+  }
 }
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Micro-benchmark of the client write path. It writes files from a number
+ * of concurrent streams to a MiniDFSCluster, with packets in heap byte
+ * arrays and with packets in pooled direct buffers, and reports the write
+ * throughput per stream and the garbage collections during the writes.
+ * <p>
+ * Usage: DFSOutputStreamBenchmark [fileSizeMB] [streams] [iterations]
+ */
+public class DFSOutputStreamBenchmark extends Configured implements Tool {
+  private static final long MB = 1024 * 1024;
+
+  @Override
+  public int run(String[] args) throws Exception {
+    long fileSize = (args.length > 0 ? Long.parseLong(args[0]) : 256) * MB;
+    int streams = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+    int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    Configuration conf = new HdfsConfiguration(getConf());
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(1).build();
+    ExecutorService executor = Executors.newFixedThreadPool(streams);
+    try {
+      cluster.waitActive();
+      for (boolean direct : new boolean[] {false, true}) {
+        Configuration clientConf = new Configuration(conf);
+        clientConf.setBoolean(
+            HdfsClientConfigKeys.Write.DIRECT_BUFFER_ENABLED_KEY, direct);
+        try (FileSystem fs =
+            FileSystem.newInstance(cluster.getURI(), clientConf)) {
+          // Warm up the JIT.
+          writeFiles(fs, executor, streams, fileSize);
+          long gcCount = 0;
+          long gcMillis = 0;
+          long wallNanos = 0;
+          for (int i = 0; i < iterations; i++) {
+            long[] gcBefore = getGcStats();
+            long start = System.nanoTime();
+            writeFiles(fs, executor, streams, fileSize);
+            wallNanos += System.nanoTime() - start;
+            long[] gcAfter = getGcStats();
+            gcCount += gcAfter[0] - gcBefore[0];
+            gcMillis += gcAfter[1] - gcBefore[1];
+          }
+          System.out.printf("%s packets: %.1f MB/s per stream, "
+                  + "%d GCs taking %d ms%n", direct ? "direct" : "heap",
+              fileSize * (double) iterations / MB / (wallNanos / 1e9),
+              gcCount, gcMillis);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      cluster.shutdown();
+    }
+    return 0;
+  }
+
+  private static void writeFiles(FileSystem fs, ExecutorService executor,
+      int streams, long fileSize) throws Exception {
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < streams; i++) {
+      final Path path = new Path("/dfsOutputStreamBenchmark/" + i);
+      futures.add(executor.submit(() -> {
+        byte[] buf = new byte[64 * 1024];
+        try (FSDataOutputStream out = fs.create(path, (short) 1)) {
+          for (long written = 0; written < fileSize; written += buf.length) {
+            out.write(buf);
+          }
+        }
+        return null;
+      }));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+  }
+
+  /** @return the number of collections and the time spent in them. */
+  private static long[] getGcStats() {
+    long count = 0;
+    long millis = 0;
+    for (GarbageCollectorMXBean gc :
+        ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return new long[] {count, millis};
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(ToolRunner.run(new HdfsConfiguration(),
+        new DFSOutputStreamBenchmark(), args));
+  }
+}
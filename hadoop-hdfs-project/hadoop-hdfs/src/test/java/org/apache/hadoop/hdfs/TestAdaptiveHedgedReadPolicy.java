@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AdaptiveHedgedReadPolicy}.
+ */
+public class TestAdaptiveHedgedReadPolicy {
+  private static final long DEFAULT_THRESHOLD = 500;
+
+  private static AdaptiveHedgedReadPolicy newPolicy(int maxHedgePercent) {
+    return new AdaptiveHedgedReadPolicy(DEFAULT_THRESHOLD, 90,
+        maxHedgePercent, 20, new DFSHedgedReadMetrics());
+  }
+
+  @Test
+  public void testThresholdFollowsPercentile() {
+    AdaptiveHedgedReadPolicy policy = newPolicy(10);
+    DatanodeInfo dn = DFSTestUtil.getDatanodeInfo("1.1.1.1");
+    // Not enough samples yet.
+    for (int i = 0; i < 4; i++) {
+      policy.addLatency(dn, 1);
+    }
+    assertEquals(DEFAULT_THRESHOLD, policy.getThresholdMillis(dn));
+    // 1..20ms, the 90th percentile is 18ms.
+    for (int i = 1; i <= 20; i++) {
+      policy.addLatency(dn, i);
+    }
+    assertEquals(18, policy.getThresholdMillis(dn));
+    // The window slides, so the old samples age out.
+    for (int i = 0; i < 20; i++) {
+      policy.addLatency(dn, 100);
+    }
+    assertEquals(100, policy.getThresholdMillis(dn));
+    assertEquals(DEFAULT_THRESHOLD,
+        policy.getThresholdMillis(DFSTestUtil.getDatanodeInfo("2.2.2.2")));
+  }
+
+  @Test
+  public void testHedgesAreCappedByBudget() {
+    AdaptiveHedgedReadPolicy policy = newPolicy(10);
+    int hedged = 0;
+    for (int i = 0; i < 1000; i++) {
+      policy.addRead();
+      if (policy.tryAcquireHedge()) {
+        hedged++;
+      }
+    }
+    assertEquals(100, hedged);
+
+    AdaptiveHedgedReadPolicy noHedges = newPolicy(0);
+    noHedges.addRead();
+    assertFalse(noHedges.tryAcquireHedge());
+  }
+
+  @Test
+  public void testSlowReplicasTriedLast() {
+    AdaptiveHedgedReadPolicy policy = newPolicy(10);
+    DatanodeInfo slow = DFSTestUtil.getDatanodeInfo("1.1.1.1");
+    DatanodeInfo fast = DFSTestUtil.getDatanodeInfo("2.2.2.2");
+    DatanodeInfo unknown = DFSTestUtil.getDatanodeInfo("3.3.3.3");
+    DatanodeInfo similar = DFSTestUtil.getDatanodeInfo("4.4.4.4");
+    DatanodeInfo slower = DFSTestUtil.getDatanodeInfo("5.5.5.5");
+    for (int i = 0; i < 20; i++) {
+      policy.addLatency(slow, 200);
+      policy.addLatency(fast, 5);
+      policy.addLatency(similar, 8);
+      policy.addLatency(slower, 400);
+    }
+    assertTrue(policy.getTailLatencyMillis(unknown) < 0);
+    // Nodes which are not slow keep the order from the namenode, even if
+    // they have not been measured or are a bit slower.
+    assertArrayEquals(new Integer[] {1, 2, 3, 4, 0},
+        policy.getReadOrder(
+            new DatanodeInfo[] {slower, similar, unknown, fast, slow}));
+    assertArrayEquals(new Integer[] {0, 1, 2},
+        policy.getReadOrder(new DatanodeInfo[] {similar, unknown, fast}));
+    assertArrayEquals(new Integer[] {0, 1},
+        policy.getReadOrder(new DatanodeInfo[] {unknown, slow}));
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Options.Rename;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.ipc.Client;
+import org.apache.hadoop.util.Time;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the operations of {@link AsyncDistributedFileSystem}.
+ */
+public class TestAsyncDistributedFileSystem {
+  private static final int NUM_FILES = 200;
+  private static final int FILE_LEN = 100000;
+
+  private static MiniDFSCluster cluster;
+  private static DistributedFileSystem fs;
+  private static AsyncDistributedFileSystem afs;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setInt(CommonConfigurationKeys.IPC_CLIENT_ASYNC_CALLS_MAX_KEY,
+        NUM_FILES);
+    conf.setInt(DFSConfigKeys.DFS_LIST_LIMIT, 7);
+    conf.setInt(HdfsClientConfigKeys.Async.IO_THREADPOOL_SIZE_KEY, 4);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+    afs = fs.getAsyncDistributedFileSystem();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  private static Throwable getCause(CompletableFuture<?> future)
+      throws InterruptedException {
+    try {
+      future.get();
+      fail("The future should fail");
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void testNamenodeOperations() throws Exception {
+    Path dir = new Path("/testNamenodeOperations");
+    for (int i = 0; i < NUM_FILES; i++) {
+      assertTrue(fs.mkdirs(new Path(dir, "src" + i)));
+    }
+
+    List<CompletableFuture<Void>> renames = new ArrayList<>();
+    for (int i = 0; i < NUM_FILES; i++) {
+      renames.add(afs.rename(new Path(dir, "src" + i),
+          new Path(dir, "dst" + i), Rename.NONE));
+    }
+    assertFalse(Client.isAsynchronousMode());
+    CompletableFuture.allOf(renames.toArray(new CompletableFuture[0])).get();
+
+    List<CompletableFuture<FileStatus>> statuses = new ArrayList<>();
+    for (int i = 0; i < NUM_FILES; i++) {
+      statuses.add(afs.getFileStatus(new Path(dir, "dst" + i)));
+    }
+    for (int i = 0; i < NUM_FILES; i++) {
+      FileStatus status = statuses.get(i).get();
+      assertTrue(status.isDirectory());
+      assertEquals(fs.makeQualified(new Path(dir, "dst" + i)),
+          status.getPath());
+    }
+
+    // The listing is fetched in batches of DFS_LIST_LIMIT entries.
+    FileStatus[] listing = afs.listStatus(dir).get();
+    assertEquals(NUM_FILES, listing.length);
+    assertArrayEquals(fs.listStatus(dir), listing);
+
+    FsPermission permission = new FsPermission((short) 0700);
+    afs.setPermission(dir, permission).get();
+    assertEquals(permission, fs.getFileStatus(dir).getPermission());
+
+  }
+
+  @Test(timeout = 60000)
+  public void testCompletionLatency() throws Exception {
+    Path dir = new Path("/testCompletionLatency");
+    assertTrue(fs.mkdirs(dir));
+    afs.getFileStatus(dir).get();
+    // The futures are completed when the responses arrive, not when the
+    // calls are next checked, which happens every 100 ms.
+    final int numCalls = 50;
+    long start = Time.monotonicNow();
+    for (int i = 0; i < numCalls; i++) {
+      assertTrue(afs.getFileStatus(dir).get().isDirectory());
+    }
+    long elapsed = Time.monotonicNow() - start;
+    assertTrue("Took " + elapsed + " ms for " + numCalls + " calls",
+        elapsed < numCalls * 50);
+  }
+
+  @Test(timeout = 60000)
+  public void testBlockingCallbackDoesNotDelayOtherCalls() throws Exception {
+    Path dir = new Path("/testBlockingCallback");
+    assertTrue(fs.mkdirs(dir));
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Void> blocked = afs.getFileStatus(dir).thenAccept(s -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    try {
+      assertTrue(afs.getFileStatus(dir).get(10, TimeUnit.SECONDS)
+          .isDirectory());
+    } finally {
+      release.countDown();
+    }
+    blocked.get();
+  }
+
+  @Test(timeout = 60000)
+  public void testFailures() throws Exception {
+    Path missing = new Path("/testFailures/missing");
+    assertTrue(getCause(afs.getFileStatus(missing))
+        instanceof FileNotFoundException);
+    assertTrue(getCause(afs.listStatus(missing))
+        instanceof FileNotFoundException);
+    assertTrue(getCause(afs.open(missing)) instanceof FileNotFoundException);
+    // The exceptions of the NameNode are unwrapped.
+    assertTrue(getCause(afs.rename(missing, new Path("/testFailures/dst")))
+        instanceof FileNotFoundException);
+  }
+
+  @Test(timeout = 120000)
+  public void testStreams() throws Exception {
+    final int numFiles = 8;
+    List<byte[]> data = new ArrayList<>();
+    List<CompletableFuture<Void>> writes = new ArrayList<>();
+    for (int i = 0; i < numFiles; i++) {
+      byte[] bytes = new byte[FILE_LEN];
+      new Random(i).nextBytes(bytes);
+      data.add(bytes);
+      writes.add(afs.create(new Path("/testStreams/" + i))
+          .thenCompose(out -> afs.write(out, bytes, 0, FILE_LEN / 2)
+              .thenCompose(v -> afs.write(out, bytes, FILE_LEN / 2,
+                  FILE_LEN - FILE_LEN / 2))
+              .thenCompose(v -> afs.close(out))));
+    }
+    CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get();
+
+    List<CompletableFuture<byte[]>> reads = new ArrayList<>();
+    for (int i = 0; i < numFiles; i++) {
+      byte[] buf = new byte[FILE_LEN - 1000];
+      reads.add(afs.open(new Path("/testStreams/" + i))
+          .thenCompose(in -> afs.read(in, 1000, buf, 0, buf.length)
+              .thenCompose(n -> afs.close(in).thenApply(v -> {
+                assertEquals(buf.length, n.intValue());
+                return buf;
+              }))));
+    }
+    for (int i = 0; i < numFiles; i++) {
+      assertArrayEquals(
+          Arrays.copyOfRange(data.get(i), 1000, FILE_LEN), reads.get(i).get());
+    }
+  }
+}
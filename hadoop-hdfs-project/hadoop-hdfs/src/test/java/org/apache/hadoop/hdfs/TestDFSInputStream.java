@@ -18,6 +18,7 @@
 package org.apache.hadoop.hdfs;
 
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CLIENT_READ_USE_CACHE_PRIORITY;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -28,14 +29,21 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
@@ -236,6 +244,117 @@ public void testNullCheckSumWhenDNRestarted()
     }
   }
 
+  @Test(timeout=60000)
+  public void testReadVectoredAcrossBlocks() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    final int blockSize = 1024 * 1024;
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, blockSize);
+    conf.setInt(HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_KEY, 4);
+    MiniDFSCluster cluster =
+        new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+    try {
+      DistributedFileSystem fs = cluster.getFileSystem();
+      Path file = new Path("/testReadVectored");
+      byte[] data = new byte[3 * blockSize + 1000];
+      new Random(0xBAD5EEDL).nextBytes(data);
+      try (FSDataOutputStream out = fs.create(file)) {
+        out.write(data);
+      }
+      // Nearby ranges which get merged, ranges on both sides of a block
+      // boundary, one crossing a boundary, and one at the end of the file.
+      long[][] offsetsAndLengths = {{0, 100}, {200, 4000}, {5000, 10},
+          {blockSize - 50, 50}, {blockSize, 50}, {2 * blockSize - 10, 20000},
+          {2 * blockSize + 500000, 7}, {data.length - 1000, 1000}};
+      List<FileRange> ranges = new ArrayList<>();
+      for (long[] r : offsetsAndLengths) {
+        ranges.add(FileRange.createFileRange(r[0], (int) r[1]));
+      }
+      try (FSDataInputStream in = fs.open(file)) {
+        assertTrue(in.hasCapability("in:readvectored"));
+        in.readVectored(ranges, ByteBuffer::allocate);
+        for (FileRange range : ranges) {
+          ByteBuffer buf = range.getData().get();
+          byte[] actual = new byte[buf.remaining()];
+          buf.get(actual);
+          int offset = (int) range.getOffset();
+          byte[] expected = new byte[range.getLength()];
+          System.arraycopy(data, offset, expected, 0, expected.length);
+          assertArrayEquals("range " + range, expected, actual);
+        }
+      }
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
+  @Test(timeout=120000)
+  public void testConcurrentPreadsWhileRefreshing() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    final int blockSize = 1024 * 1024;
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, blockSize);
+    // Fetch the locations of one block at a time, so that the readers keep
+    // adding blocks to the located blocks while they are being replaced.
+    conf.setLong(HdfsClientConfigKeys.Read.PREFETCH_SIZE_KEY, blockSize);
+    MiniDFSCluster cluster =
+        new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+    DFSClientFaultInjector oldFaultInjector = DFSClientFaultInjector.get();
+    try {
+      DistributedFileSystem fs = cluster.getFileSystem();
+      Path file = new Path("/testConcurrentPreads");
+      final byte[] data = new byte[8 * blockSize + 1000];
+      new Random(0xC0FFEEL).nextBytes(data);
+      try (FSDataOutputStream out = fs.create(file)) {
+        out.write(data);
+      }
+      final AtomicInteger acquireFailures = new AtomicInteger();
+      DFSClientFaultInjector.set(new DFSClientFaultInjector() {
+        @Override
+        public void onBlockAcquireFailure(int failures) {
+          acquireFailures.incrementAndGet();
+        }
+      });
+      try (DFSInputStream in = fs.getClient().open(file.toString())) {
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+          final Random random = new Random(t);
+          readers.add(executor.submit(() -> {
+            byte[] buf = new byte[64 * 1024];
+            for (int i = 0; i < 200; i++) {
+              int position = random.nextInt(data.length - buf.length);
+              in.readFully(position, buf);
+              byte[] expected = new byte[buf.length];
+              System.arraycopy(data, position, expected, 0, buf.length);
+              assertArrayEquals("position " + position, expected, buf);
+            }
+            return null;
+          }));
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        Future<?> refresher = executor.submit(() -> {
+          while (!done.get()) {
+            in.openInfo(true);
+          }
+          return null;
+        });
+        try {
+          for (Future<?> reader : readers) {
+            reader.get();
+          }
+        } finally {
+          done.set(true);
+          refresher.get();
+          executor.shutdown();
+        }
+        assertEquals(data.length, in.getFileLength());
+        assertEquals(0, acquireFailures.get());
+      }
+    } finally {
+      DFSClientFaultInjector.set(oldFaultInjector);
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testReadWithPreferredCachingReplica() throws IOException {
     Configuration conf = new Configuration();
@@ -42,6 +42,7 @@
 import org.apache.hadoop.fs.StreamCapabilities.StreamCapability;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.DataStreamer.LastExceptionInStreamer;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
 import org.apache.hadoop.hdfs.protocol.BlockListAsLongs;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
@@ -461,6 +462,31 @@ public void testStreamFlush() throws Exception {
     os.close();
   }
 
+  @Test(timeout=60000)
+  public void testDirectBufferPackets() throws Exception {
+    Configuration conf = new Configuration(cluster.getConfiguration(0));
+    conf.setBoolean(HdfsClientConfigKeys.Write.DIRECT_BUFFER_ENABLED_KEY,
+        true);
+    Path path = new Path("/direct-buffer-file");
+    byte[] data = new byte[5 * 1024 * 1024 / 2 + 123];
+    new Random(0xD1L).nextBytes(data);
+    try (FileSystem fs = FileSystem.newInstance(cluster.getURI(), conf)) {
+      // Small blocks and odd sized writes and flushes, so that there are
+      // partial packets and chunks.
+      try (FSDataOutputStream os = fs.create(path, true, 4096, (short) 3,
+          1024 * 1024)) {
+        int off = 0;
+        while (off < data.length) {
+          int len = Math.min(data.length - off, 100000 + off % 777);
+          os.write(data, off, len);
+          os.hflush();
+          off += len;
+        }
+      }
+      Assert.assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+    }
+  }
+
   @Test
   public void testExceptionInCloseWithRecoverLease() throws Exception {
     Configuration conf = new Configuration();
@@ -25,6 +25,7 @@
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hdfs.MiniDFSCluster.DataNodeProperties;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.protocol.Block;
 import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicy;
 import org.apache.hadoop.hdfs.protocol.LocatedBlock;
@@ -41,6 +42,7 @@
 import org.apache.hadoop.io.erasurecode.rawcoder.NativeRSRawErasureCoderFactory;
 import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureDecoder;
 import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.Time;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -54,11 +56,14 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -332,21 +337,125 @@ public void testStatefulRead() throws Exception {
     testStatefulRead(true, true);
   }
 
-  private void testStatefulRead(boolean useByteBuffer,
-      boolean cellMisalignPacket) throws Exception {
-    final int numBlocks = 2;
-    final int fileSize = numBlocks * blockGroupSize;
-    if (cellMisalignPacket) {
-      conf.setInt(IO_FILE_BUFFER_SIZE_KEY, IO_FILE_BUFFER_SIZE_DEFAULT + 1);
-      tearDown();
-      startUp();
+  @Test
+  public void testStatefulReadAhead() throws Exception {
+    conf.setInt(HdfsClientConfigKeys.StripedRead.READAHEAD_STRIPES_KEY, 3);
+    tearDown();
+    startUp();
+    // Every block group has one stripe after the first to read ahead.
+    try (DFSStripedInputStream in = testStatefulRead(false, false)) {
+      assertEquals(2, in.getReadAheadHits());
     }
-    DFSTestUtil.createStripedFile(cluster, filePath, null, numBlocks,
+    try (DFSStripedInputStream in = testStatefulRead(true, false)) {
+      assertEquals(2, in.getReadAheadHits());
+    }
+  }
+
+  @Test
+  public void testCloseWaitsForReadAhead() throws Exception {
+    conf.setInt(HdfsClientConfigKeys.StripedRead.READAHEAD_STRIPES_KEY, 1);
+    tearDown();
+    startUp();
+    DFSTestUtil.createStripedFile(cluster, filePath, null, 1,
         stripesPerBlock, false, ecPolicy);
-    LocatedBlocks lbs = fs.getClient().namenode.
-        getBlockLocations(filePath.toString(), 0, fileSize);
+    injectDataBlocks(fs.getClient().namenode.getBlockLocations(
+        filePath.toString(), 0, blockGroupSize));
 
-    assert lbs.getLocatedBlocks().size() == numBlocks;
+    // Keep the read ahead of the second stripe busy, even if it is
+    // interrupted.
+    final CountDownLatch readingAhead = new CountDownLatch(1);
+    DFSClientFaultInjector oldInjector = DFSClientFaultInjector.get();
+    DFSClientFaultInjector.set(new DFSClientFaultInjector() {
+      @Override
+      public void onCreateBlockReader(LocatedBlock block, int chunkIndex,
+          long offset, long length) {
+        if (offset > 0) {
+          readingAhead.countDown();
+          long end = Time.monotonicNow() + 1000;
+          while (Time.monotonicNow() < end) {
+            try {
+              Thread.sleep(end - Time.monotonicNow());
+            } catch (InterruptedException e) {
+              // Keep going.
+            }
+          }
+        }
+      }
+    });
+    try {
+      DFSStripedInputStream in = new DFSStripedInputStream(fs.getClient(),
+          filePath.toString(), false, ecPolicy, null);
+      assertEquals(10, in.read(new byte[10], 0, 10));
+      assertTrue(readingAhead.await(30, TimeUnit.SECONDS));
+      in.close();
+      // The decoder is released only after the read ahead is done.
+      assertEquals(0, in.getReadingAheadStripes());
+    } finally {
+      DFSClientFaultInjector.set(oldInjector);
+    }
+  }
+
+  @Test
+  public void testSeekDiscardsReadAheadWithoutError() throws Exception {
+    conf.setInt(HdfsClientConfigKeys.StripedRead.READAHEAD_STRIPES_KEY, 1);
+    tearDown();
+    startUp();
+    DFSTestUtil.createStripedFile(cluster, filePath, null, 2,
+        stripesPerBlock, false, ecPolicy);
+    injectDataBlocks(fs.getClient().namenode.getBlockLocations(
+        filePath.toString(), 0, 2 * blockGroupSize));
+
+    // Keep the first read ahead busy until after the seek. An interrupt
+    // is kept for the rest of the read.
+    final CountDownLatch readingAhead = new CountDownLatch(1);
+    final CountDownLatch seeked = new CountDownLatch(1);
+    DFSClientFaultInjector oldInjector = DFSClientFaultInjector.get();
+    DFSClientFaultInjector.set(new DFSClientFaultInjector() {
+      @Override
+      public void onCreateBlockReader(LocatedBlock block, int chunkIndex,
+          long offset, long length) {
+        if (offset > 0 && readingAhead.getCount() > 0) {
+          readingAhead.countDown();
+          boolean interrupted = false;
+          while (seeked.getCount() > 0) {
+            try {
+              seeked.await();
+            } catch (InterruptedException e) {
+              interrupted = true;
+            }
+          }
+          if (interrupted) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    });
+    GenericTestUtils.LogCapturer logs =
+        GenericTestUtils.LogCapturer.captureLogs(DFSClient.LOG);
+    try (DFSStripedInputStream in = new DFSStripedInputStream(
+        fs.getClient(), filePath.toString(), false, ecPolicy, null)) {
+      assertEquals(10, in.read(new byte[10], 0, 10));
+      assertTrue(readingAhead.await(30, TimeUnit.SECONDS));
+      // The stripe read ahead in the first block group is discarded.
+      in.seek(blockGroupSize);
+      assertEquals(10, in.read(new byte[10], 0, 10));
+      seeked.countDown();
+    } finally {
+      seeked.countDown();
+      DFSClientFaultInjector.set(oldInjector);
+      logs.stopCapturing();
+    }
+    // The discarded read is not interrupted.
+    String output = logs.getOutput();
+    assertFalse(output, output.contains("InterruptedIOException"));
+    assertFalse(output, output.contains("Read request interrupted"));
+    assertFalse(output, output.contains("ERROR"));
+  }
+
+  /**
+   * Add the data blocks of the block groups to the simulated datasets.
+   */
+  private void injectDataBlocks(LocatedBlocks lbs) throws IOException {
     for (LocatedBlock lb : lbs.getLocatedBlocks()) {
       assert lb instanceof LocatedStripedBlock;
       LocatedStripedBlock bg = (LocatedStripedBlock)(lb);
@@ -359,6 +468,24 @@ private void testStatefulRead(boolean useByteBuffer,
             bg.getBlock().getBlockPoolId());
       }
     }
+  }
+
+  private DFSStripedInputStream testStatefulRead(boolean useByteBuffer,
+      boolean cellMisalignPacket) throws Exception {
+    final int numBlocks = 2;
+    final int fileSize = numBlocks * blockGroupSize;
+    if (cellMisalignPacket) {
+      conf.setInt(IO_FILE_BUFFER_SIZE_KEY, IO_FILE_BUFFER_SIZE_DEFAULT + 1);
+      tearDown();
+      startUp();
+    }
+    DFSTestUtil.createStripedFile(cluster, filePath, null, numBlocks,
+        stripesPerBlock, false, ecPolicy);
+    LocatedBlocks lbs = fs.getClient().namenode.
+        getBlockLocations(filePath.toString(), 0, fileSize);
+
+    assert lbs.getLocatedBlocks().size() == numBlocks;
+    injectDataBlocks(lbs);
 
     DFSStripedInputStream in =
         new DFSStripedInputStream(fs.getClient(), filePath.toString(),
@@ -403,6 +530,7 @@ private void testStatefulRead(boolean useByteBuffer,
       assertArrayEquals(expected, readBuffer);
     }
     fs.delete(filePath, true);
+    return in;
   }
 
   @Test
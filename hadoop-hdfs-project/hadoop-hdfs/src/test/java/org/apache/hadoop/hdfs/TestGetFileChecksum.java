@@ -24,7 +24,11 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileChecksum;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.server.datanode.DataNode;
+import org.apache.hadoop.hdfs.server.datanode.DataNodeTestUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -42,6 +46,10 @@ public class TestGetFileChecksum {
   public void setUp() throws Exception {
     conf = new Configuration();
     conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCKSIZE);
+    startCluster();
+  }
+
+  private void startCluster() throws Exception {
     cluster = new MiniDFSCluster.Builder(conf).numDataNodes(REPLICATION)
         .build();
     cluster.waitActive();
@@ -92,4 +100,43 @@ public void testGetFileChecksum() throws Exception {
     testGetFileChecksum(new Path("/foo"), BLOCKSIZE / 4);
     testGetFileChecksum(new Path("/bar"), BLOCKSIZE / 4 - 1);
   }
+
+  @Test
+  public void testParallelBlockChecksums() throws Exception {
+    tearDown();
+    conf.setInt(DFSConfigKeys.DFS_DATANODE_BLOCK_CHECKSUM_CACHE_SIZE_KEY, 100);
+    startCluster();
+    final Path path = new Path("/parallel");
+    final long length = 20 * BLOCKSIZE + BLOCKSIZE / 3;
+    // One replica, so that all clients ask the same datanode.
+    DFSTestUtil.createFile(dfs, path, length, (short) 1, 0L);
+
+    for (String mode : new String[] {"MD5MD5CRC", "COMPOSITE_CRC"}) {
+      Configuration sequentialConf = new Configuration(conf);
+      sequentialConf.set(
+          HdfsClientConfigKeys.DFS_CHECKSUM_COMBINE_MODE_KEY, mode);
+      Configuration parallelConf = new Configuration(sequentialConf);
+      parallelConf.setInt(
+          HdfsClientConfigKeys.DFS_CHECKSUM_PARALLELISM_KEY, 4);
+      try (FileSystem sequential =
+               FileSystem.newInstance(cluster.getURI(), sequentialConf);
+           FileSystem parallel =
+               FileSystem.newInstance(cluster.getURI(), parallelConf)) {
+        Assert.assertEquals(sequential.getFileChecksum(path),
+            parallel.getFileChecksum(path));
+        Assert.assertEquals(sequential.getFileChecksum(path, length - 100),
+            parallel.getFileChecksum(path, length - 100));
+        // The shared pool has grown for the parallel client.
+        Assert.assertTrue(((DistributedFileSystem) parallel).getClient()
+            .getFileChecksumThreadPool().getMaximumPoolSize() >= 4);
+      }
+    }
+
+    // Only the first checksum of each block and length was computed.
+    long hits = 0;
+    for (DataNode dn : cluster.getDataNodes()) {
+      hits += DataNodeTestUtils.getBlockChecksumCacheHits(dn);
+    }
+    Assert.assertEquals(2 * (21 + 20 + 21), hits);
+  }
 }
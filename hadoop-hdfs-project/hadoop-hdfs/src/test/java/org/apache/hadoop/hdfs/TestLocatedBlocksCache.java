@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the located blocks cache shared by the DFSClients of a
+ * {@link ClientContext}.
+ */
+public class TestLocatedBlocksCache {
+  private static final String NN_METRICS = "NameNodeActivity";
+  private static final int FILE_LEN = 5000;
+
+  private MiniDFSCluster cluster;
+  private Configuration conf;
+  private DistributedFileSystem fs;
+  private LocatedBlocksCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    conf = new HdfsConfiguration();
+    conf.set(HdfsClientConfigKeys.DFS_CLIENT_CONTEXT,
+        "testLocatedBlocksCache-" + System.nanoTime());
+    conf.setInt(HdfsClientConfigKeys.Read.LOCATED_BLOCKS_CACHE_SIZE_KEY, 10);
+    conf.setLong(HdfsClientConfigKeys.Read.LOCATED_BLOCKS_CACHE_EXPIRY_MS_KEY,
+        600000);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+    cache = fs.getLocatedBlocksCache();
+    assertNotNull(cache);
+  }
+
+  @After
+  public void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  private static long getBlockLocationsCalls() {
+    return getLongCounter("GetBlockLocations", getMetrics(NN_METRICS));
+  }
+
+  @Test(timeout = 60000)
+  public void testSharedAcrossClients() throws Exception {
+    Path path = new Path("/testShared");
+    DFSTestUtil.createFile(fs, path, FILE_LEN, (short) 1, 0xBEEFL);
+    byte[] expected = DFSTestUtil.readFileAsBytes(fs, path);
+    assertEquals(1, cache.getMissCount());
+
+    long calls = getBlockLocationsCalls();
+    try (FileSystem other = FileSystem.newInstance(cluster.getURI(), conf)) {
+      for (int i = 0; i < 3; i++) {
+        assertArrayEquals(expected, DFSTestUtil.readFileAsBytes(other, path));
+      }
+    }
+    assertEquals(calls, getBlockLocationsCalls());
+    assertEquals(3, cache.getHitCount());
+  }
+
+  @Test(timeout = 60000)
+  public void testInvalidatedOnModification() throws Exception {
+    Path dir = new Path("/testModification");
+    Path path = new Path(dir, "file");
+    DFSTestUtil.createFile(fs, path, FILE_LEN, (short) 1, 0xBEEFL);
+    DFSTestUtil.readFileAsBytes(fs, path);
+    assertEquals(1, cache.size());
+
+    DFSTestUtil.appendFile(fs, path, "more");
+    assertEquals(0, cache.size());
+    assertEquals(FILE_LEN + 4, DFSTestUtil.readFileAsBytes(fs, path).length);
+    assertEquals(1, cache.size());
+
+    fs.delete(dir, true);
+    assertEquals(0, cache.size());
+  }
+
+  @Test(timeout = 60000)
+  public void testUnderConstructionNotCached() throws Exception {
+    Path path = new Path("/testUnderConstruction");
+    try (FSDataOutputStream out = fs.create(path)) {
+      out.write(new byte[FILE_LEN]);
+      out.hflush();
+      assertEquals(FILE_LEN, DFSTestUtil.readFileAsBytes(fs, path).length);
+      assertEquals(0, cache.size());
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testInvalidatedOnRefetch() throws Exception {
+    Path path = new Path("/testRefetch");
+    DFSTestUtil.createFile(fs, path, FILE_LEN, (short) 1, 0xBEEFL);
+    try (DFSInputStream in = fs.getClient().open(path.toString())) {
+      assertEquals(1, cache.size());
+      // A stream fetches the locations again after read errors.
+      in.fetchBlockAt(0);
+      assertEquals(0, cache.size());
+      assertEquals(1, cache.getInvalidationCount());
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testInvalidateOnlyMatchingPaths() {
+    LocatedBlocks blocks = new LocatedBlocks(0, false,
+        Collections.emptyList(), null, true, null, null);
+    String[] paths = {"/dir", "/dir/a", "/dir/sub/b", "/dir2/c", "/dir-d"};
+    for (String path : paths) {
+      cache.put("ns1", "alice", path, blocks);
+      cache.put("ns1", "bob", path, blocks);
+      cache.put("ns2", "alice", path, blocks);
+    }
+    assertEquals(2 * paths.length, cache.size());
+    assertSame(blocks, cache.get("ns1", "bob", "/dir/a"));
+    assertNull(cache.get("ns1", "carol", "/dir/a"));
+
+    // A file is invalidated for all users, but only on its NameNode.
+    cache.invalidate("ns1", "/dir/a", false);
+    assertNull(cache.get("ns1", "alice", "/dir/a"));
+    assertNull(cache.get("ns1", "bob", "/dir/a"));
+    assertSame(blocks, cache.get("ns2", "alice", "/dir/a"));
+    assertSame(blocks, cache.get("ns1", "alice", "/dir/sub/b"));
+
+    // A directory is invalidated with the paths under it, but not the
+    // paths which only start with its name.
+    cache.invalidate("ns1", "/dir", true);
+    assertNull(cache.get("ns1", "alice", "/dir"));
+    assertNull(cache.get("ns1", "alice", "/dir/sub/b"));
+    assertSame(blocks, cache.get("ns1", "alice", "/dir2/c"));
+    assertSame(blocks, cache.get("ns1", "alice", "/dir-d"));
+    assertSame(blocks, cache.get("ns2", "alice", "/dir/sub/b"));
+
+    cache.invalidate("ns2", "/", true);
+    assertEquals(2, cache.size());
+    assertEquals(3, cache.getInvalidationCount());
+  }
+}
@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StreamCapabilities.StreamCapability;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.test.LambdaTestUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests writing the blocks of a file in parallel with
+ * {@link ParallelBlockOutputStream}.
+ */
+public class TestParallelBlockOutputStream {
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private static MiniDFSCluster cluster;
+  private static DistributedFileSystem fs;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCK_SIZE);
+    conf.setInt(HdfsClientConfigKeys.Write.PARALLEL_BLOCKS_KEY, 3);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(3).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  private static byte[] writeFile(Path path, int length) throws IOException {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    try (FSDataOutputStream out = fs.create(path)) {
+      assertFalse(out.hasCapability(StreamCapability.HFLUSH.getValue()));
+      int off = 0;
+      while (off < length) {
+        int len = Math.min(length - off, 77777 + off % 1000);
+        out.write(data, off, len);
+        off += len;
+      }
+      // The data is not visible before the stream is closed.
+      assertEquals(0, fs.getFileStatus(path).getLen());
+    }
+    return data;
+  }
+
+  private static void assertNoParts(Path path) throws IOException {
+    assertEquals(1, fs.listStatus(path.getParent()).length);
+  }
+
+  @Test(timeout = 120000)
+  public void testWriteBlocksInParallel() throws Exception {
+    Path path = new Path("/testParallel/file");
+    byte[] data = writeFile(path, 5 * BLOCK_SIZE + BLOCK_SIZE / 2);
+    assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+    LocatedBlocks blocks = fs.getClient().getLocatedBlocks(
+        path.toString(), 0);
+    assertEquals(6, blocks.locatedBlockCount());
+    assertNoParts(path);
+  }
+
+  @Test(timeout = 60000)
+  public void testWholeBlocks() throws Exception {
+    Path path = new Path("/testWholeBlocks/file");
+    byte[] data = writeFile(path, 2 * BLOCK_SIZE);
+    assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+    assertEquals(2, fs.getClient().getLocatedBlocks(
+        path.toString(), 0).locatedBlockCount());
+    assertNoParts(path);
+  }
+
+  @Test(timeout = 60000)
+  public void testEmptyFile() throws Exception {
+    Path path = new Path("/testEmpty/file");
+    writeFile(path, 0);
+    assertEquals(0, fs.getFileStatus(path).getLen());
+    assertNoParts(path);
+  }
+
+  @Test(timeout = 60000)
+  public void testOtherFlagsWriteSequentially() throws Exception {
+    Path path = new Path("/testSyncBlock/file");
+    try (FSDataOutputStream out = fs.create(path, FsPermission.getFileDefault(),
+        EnumSet.of(CreateFlag.CREATE, CreateFlag.SYNC_BLOCK), 4096,
+        (short) 3, BLOCK_SIZE, null)) {
+      assertTrue(out.hasCapability(StreamCapability.HFLUSH.getValue()));
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testSyncNotSupported() throws Exception {
+    Path path = new Path("/testSync/file");
+    try (FSDataOutputStream out = fs.create(path)) {
+      assertFalse(out.hasCapability(StreamCapability.HSYNC.getValue()));
+      out.write(new byte[BLOCK_SIZE + 1]);
+      LambdaTestUtils.intercept(UnsupportedOperationException.class,
+          out::hflush);
+      LambdaTestUtils.intercept(UnsupportedOperationException.class,
+          out::hsync);
+    }
+    assertEquals(BLOCK_SIZE + 1, fs.getFileStatus(path).getLen());
+    assertNoParts(path);
+  }
+
+  @Test(timeout = 60000)
+  public void testTargetLeaseHeldWhileWriting() throws Exception {
+    Path path = new Path("/testLease/file");
+    try (FSDataOutputStream out = fs.create(path)) {
+      out.write(new byte[BLOCK_SIZE + 1]);
+      assertFalse(fs.isFileClosed(path));
+      // Another client can not take the target over.
+      FileSystem other = FileSystem.newInstance(fs.getUri(), fs.getConf());
+      try {
+        other.append(path).close();
+        fail("append should fail while the target is being written");
+      } catch (IOException e) {
+        GenericTestUtils.assertExceptionContains("currently owned", e);
+      } finally {
+        other.close();
+      }
+    }
+    assertTrue(fs.isFileClosed(path));
+    assertEquals(BLOCK_SIZE + 1, fs.getFileStatus(path).getLen());
+    assertNoParts(path);
+  }
+
+  @Test(timeout = 60000)
+  public void testOtherFilesNotOverwritten() throws Exception {
+    Path path = new Path("/testOtherFiles/file");
+    Path userFile = new Path("/testOtherFiles/.file.part-0");
+    DFSTestUtil.writeFile(fs, userFile, "user data");
+    byte[] data = writeFile(path, BLOCK_SIZE + 1);
+    assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+    assertEquals("user data", DFSTestUtil.readFile(fs, userFile));
+    assertEquals(2, fs.listStatus(path.getParent()).length);
+  }
+
+  @Test(timeout = 60000)
+  public void testPartsDeletedOnFailure() throws Exception {
+    Path path = new Path("/testFailure/file");
+    FSDataOutputStream out = fs.create(path);
+    out.write(new byte[BLOCK_SIZE + 1]);
+    // concat fails without the target.
+    fs.delete(path, false);
+    try {
+      out.close();
+      fail("close should fail without the target");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(0, fs.listStatus(path.getParent()).length);
+  }
+}
@@ -467,6 +467,64 @@ public Void answer(InvocationOnMock invocation) throws Throwable {
     }
   }
 
+  @Test
+  public void testAdaptiveHedgedReads() throws IOException {
+    isHedgedRead = true;
+    Configuration conf = new Configuration();
+    final int fixedSleepIntervalMillis = 20;
+    conf.setInt(HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_KEY, 5);
+    // The fixed threshold alone would never start a hedged read.
+    conf.setLong(HdfsClientConfigKeys.HedgedRead.THRESHOLD_MILLIS_KEY, 50000);
+    conf.setBoolean(HdfsClientConfigKeys.HedgedRead.ADAPTIVE_ENABLED_KEY,
+        true);
+    conf.setInt(HdfsClientConfigKeys.HedgedRead.ADAPTIVE_PERCENTILE_KEY, 50);
+    conf.setInt(HdfsClientConfigKeys.HedgedRead.ADAPTIVE_MAX_PERCENT_KEY, 100);
+    conf.setInt(HdfsClientConfigKeys.HedgedRead.ADAPTIVE_WINDOW_SIZE_KEY, 8);
+
+    DFSClientFaultInjector.set(Mockito.mock(DFSClientFaultInjector.class));
+    DFSClientFaultInjector injector = DFSClientFaultInjector.get();
+    Mockito.doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable {
+        Thread.sleep(fixedSleepIntervalMillis);
+        return null;
+      }
+    }).when(injector).startFetchFromDatanode();
+
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).numDataNodes(3)
+        .format(true).build();
+    DistributedFileSystem fileSys = cluster.getFileSystem();
+    DFSHedgedReadMetrics metrics = fileSys.getClient().getHedgedReadMetrics();
+    metrics.hedgedReadOps.reset();
+    metrics.hedgedReadOpsThrottled.reset();
+    try {
+      Path file = new Path("/adaptiveHedgedRead.dat");
+      writeFile(fileSys, file);
+      pReadFile(fileSys, file);
+      // Half of the reads take longer than the median, so some are hedged
+      // once the latencies have been learned.
+      assertTrue(metrics.getHedgedReadOps() > 0);
+      assertTrue(metrics.getHedgedReadThresholdMillis() < 50000);
+
+      // Without a budget, reads wait for their first request.
+      Configuration conf2 = new Configuration(fileSys.getConf());
+      conf2.setBoolean("fs.hdfs.impl.disable.cache", true);
+      conf2.setInt(HdfsClientConfigKeys.HedgedRead.ADAPTIVE_MAX_PERCENT_KEY, 0);
+      fileSys.close();
+      fileSys = (DistributedFileSystem) FileSystem.get(cluster.getURI(0),
+          conf2);
+      metrics.hedgedReadOps.reset();
+      pReadFile(fileSys, file);
+      assertEquals(0, metrics.getHedgedReadOps());
+      assertTrue(metrics.getHedgedReadOpsThrottled() > 0);
+      cleanupFile(fileSys, file);
+    } finally {
+      fileSys.close();
+      cluster.shutdown();
+      Mockito.reset(injector);
+    }
+  }
+
   private void dfsPreadTest(Configuration conf, boolean disableTransferTo, boolean verifyChecksum)
       throws IOException {
     conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, 4096);
@@ -926,13 +984,31 @@ public Boolean get() {
       // STEP 4: Stop first node in new locations
       cluster.stopDataNode(validDownLocation.getName());
       DFSClient.LOG.info("Starting read");
+      final DFSClientFaultInjector old = DFSClientFaultInjector.get();
+      final AtomicInteger failures = new AtomicInteger();
+      DFSClientFaultInjector.set(new DFSClientFaultInjector() {
+        @Override
+        public void sleepBeforeHedgedGet() {
+          old.sleepBeforeHedgedGet();
+        }
+
+        @Override
+        public void onBlockAcquireFailure(int readFailures) {
+          failures.set(readFailures);
+        }
+      });
       byte[] buf = new byte[1024];
-      int n = din.read(0, buf, 0, data.length());
+      int n;
+      try {
+        n = din.read(0, buf, 0, data.length());
+      } finally {
+        DFSClientFaultInjector.set(old);
+      }
       assertEquals(data.length(), n);
       assertEquals("Data should be read", data, new String(buf, 0, n));
       assertTrue("Read should complete with maximum " + maxFailures
-              + " failures, but completed with " + din.failures,
-          din.failures <= maxFailures);
+              + " failures, but completed with " + failures.get(),
+          failures.get() <= maxFailures);
       DFSClient.LOG.info("Read completed");
     }
   }
@@ -18,17 +18,23 @@
 package org.apache.hadoop.hdfs.client.impl;
 
 import java.util.function.Supplier;
+import org.apache.hadoop.hdfs.ExtendedBlockId;
 import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.client.impl.metrics.BlockReaderIoProvider;
 import org.apache.hadoop.hdfs.client.impl.metrics.BlockReaderLocalMetrics;
+import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitCache;
+import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitReplicaInfo;
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.apache.hadoop.metrics2.lib.MetricsTestHelper;
 import org.apache.hadoop.metrics2.lib.MutableRollingAverages;
 import org.apache.hadoop.test.GenericTestUtils;
 import static org.apache.hadoop.test.MetricsAsserts.getDoubleGauge;
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getLongGauge;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import org.apache.hadoop.util.FakeTimer;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import static org.mockito.ArgumentMatchers.any;
@@ -223,4 +229,33 @@ public Boolean get() {
     assertTrue("Average Latency of Short Circuit Reads lower than expected",
         averageLatency >= expectedAvgLatency);
   }
+
+  @Test(timeout = 300_000)
+  public void testShortCircuitCacheLockMetrics() {
+    BlockReaderLocalMetrics metrics = BlockReaderLocalMetrics.create();
+    ShortCircuitCache cache =
+        new ShortCircuitCache(10, 10000, 10, 10000, 1, 10000, 0, 4);
+    metrics.addShortCircuitCache(cache);
+    for (int i = 0; i < 100; i++) {
+      cache.fetchOrCreate(new ExtendedBlockId(i, "test_bp1"),
+          ShortCircuitReplicaInfo::new);
+    }
+
+    MetricsRecordBuilder rb = getMetrics(
+        SHORT_CIRCUIT_READ_METRIC_REGISTERED_NAME);
+    long acquisitions =
+        getLongCounter("ShortCircuitCacheLockAcquisitions", rb);
+    assertTrue(acquisitions >= 100);
+    assertTrue(getLongCounter("ShortCircuitCacheLockHoldTimeNanos", rb) > 0);
+    assertTrue(getLongGauge("ShortCircuitCacheMaxLockHoldTimeNanos", rb) > 0);
+
+    // The maximum covers the time since the metrics were last read, and the
+    // counts of a closed cache are kept.
+    cache.close();
+    metrics.removeShortCircuitCache(cache);
+    rb = getMetrics(SHORT_CIRCUIT_READ_METRIC_REGISTERED_NAME);
+    assertEquals(0, getLongGauge("ShortCircuitCacheMaxLockHoldTimeNanos", rb));
+    assertTrue(getLongCounter("ShortCircuitCacheLockAcquisitions", rb)
+        >= acquisitions);
+  }
 }
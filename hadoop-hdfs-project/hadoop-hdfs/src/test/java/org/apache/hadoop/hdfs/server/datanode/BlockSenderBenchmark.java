@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.net.SocketOutputStream;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Micro-benchmark of the DataNode block send path. It serves one block
+ * repeatedly with {@link BlockSender} over a loopback socket using
+ * transferTo, and reports the CPU time spent by the sending thread per GB
+ * served, with checksums read through the meta file stream and with
+ * checksums memory mapped from the meta file.
+ * <p>
+ * Usage: BlockSenderBenchmark [blockSizeMB] [iterations]
+ */
+public class BlockSenderBenchmark extends Configured implements Tool {
+  private static final long MB = 1024 * 1024;
+  private static final double GB = 1024.0 * 1024 * 1024;
+
+  @Override
+  public int run(String[] args) throws Exception {
+    long blockSize = (args.length > 0 ? Long.parseLong(args[0]) : 128) * MB;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    for (boolean mmap : new boolean[] {false, true}) {
+      Configuration conf = new HdfsConfiguration(getConf());
+      conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, blockSize);
+      conf.setBoolean(
+          DFSConfigKeys.DFS_DATANODE_TRANSFERTO_MMAP_CHECKSUM_KEY, mmap);
+      MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+          .numDataNodes(1).build();
+      try {
+        cluster.waitActive();
+        FileSystem fs = cluster.getFileSystem();
+        Path path = new Path("/blockSenderBenchmark");
+        DFSTestUtil.createFile(fs, path, blockSize, (short) 1, 0xBEEFL);
+        ExtendedBlock block = DFSTestUtil.getFirstBlock(fs, path);
+        DataNode dn = cluster.getDataNodes().get(0);
+
+        // Warm up the page cache and the JIT.
+        sendBlock(dn, block, blockSize);
+        long cpuNanos = 0;
+        long wallNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+          long start = System.nanoTime();
+          cpuNanos += sendBlock(dn, block, blockSize);
+          wallNanos += System.nanoTime() - start;
+        }
+        double gbServed = blockSize * (double) iterations / GB;
+        System.out.printf("%s checksums: %.1f CPU ms per GB, %.1f MB/s%n",
+            mmap ? "mmap" : "stream", cpuNanos / 1e6 / gbServed,
+            blockSize * (double) iterations / MB / (wallNanos / 1e9));
+      } finally {
+        cluster.shutdown();
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Send the whole block over a loopback connection.
+   *
+   * @return CPU nanoseconds spent by this thread to send the block
+   */
+  private static long sendBlock(DataNode dn, ExtendedBlock block,
+      long length) throws IOException {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    try (ServerSocketChannel server = ServerSocketChannel.open()) {
+      server.bind(new InetSocketAddress("localhost", 0));
+      SocketChannel sender = SocketChannel.open(server.getLocalAddress());
+      SocketChannel receiver = server.accept();
+      Thread drainer = new Thread(() -> {
+        ByteBuffer buf = ByteBuffer.allocateDirect(1024 * 1024);
+        try {
+          while (receiver.read(buf) >= 0) {
+            buf.clear();
+          }
+        } catch (IOException e) {
+          // the sender closed the connection
+        }
+      }, "BlockSenderBenchmark drainer");
+      drainer.start();
+      SocketOutputStream baseStream = new SocketOutputStream(sender, 0);
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(baseStream, 4096));
+      try {
+        BlockSender blockSender = new BlockSender(block, 0, length, false,
+            false, true, dn, null, CachingStrategy.newDefaultStrategy());
+        long start = threadBean.getCurrentThreadCpuTime();
+        blockSender.sendBlock(out, baseStream, null);
+        return threadBean.getCurrentThreadCpuTime() - start;
+      } finally {
+        IOUtils.closeStream(out);
+        drainer.interrupt();
+        IOUtils.cleanupWithLogger(null, sender, receiver);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(ToolRunner.run(new HdfsConfiguration(),
+        new BlockSenderBenchmark(), args));
+  }
+}
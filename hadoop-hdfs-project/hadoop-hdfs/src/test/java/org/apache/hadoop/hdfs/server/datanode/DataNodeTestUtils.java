@@ -123,6 +123,14 @@ public static InterDatanodeProtocol createInterDatanodeProtocolProxy(
    * 
    * @return the fsdataset that stores the blocks
    */
+  /**
+   * @return the number of block checksums served from the cache of the
+   *         datanode, which must be enabled.
+   */
+  public static long getBlockChecksumCacheHits(DataNode dn) {
+    return dn.getBlockChecksumCache().getHitCount();
+  }
+
   public static FsDatasetSpi<?> getFSDataset(DataNode dn) {
     return dn.getFSDataset();
   }
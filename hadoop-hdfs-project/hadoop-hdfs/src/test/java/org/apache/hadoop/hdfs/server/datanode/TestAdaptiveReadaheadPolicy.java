@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AdaptiveReadaheadPolicy}.
+ */
+public class TestAdaptiveReadaheadPolicy {
+  private static final long BASE = 4 * 1024 * 1024;
+  private static final long MAX = 16 * 1024 * 1024;
+  private static final long LONG_READ = 256 * 1024;
+  private static final long MB = 1024 * 1024;
+
+  private static ExtendedBlock block(long id) {
+    return new ExtendedBlock("bp-1", id, 128 * MB, 1001);
+  }
+
+  private static AdaptiveReadaheadPolicy newPolicy(int hotScans,
+      int trackedBlocks) {
+    return new AdaptiveReadaheadPolicy(BASE, MAX, LONG_READ, hotScans,
+        trackedBlocks);
+  }
+
+  @Test
+  public void testRandomReadsDoNotReadahead() {
+    AdaptiveReadaheadPolicy policy = newPolicy(3, 16);
+    AdaptiveReadaheadPolicy.Decision d =
+        policy.onReadStart(block(1), 10 * MB, 10 * MB + 64 * 1024);
+    assertFalse(d.isSequential());
+    assertEquals(0, d.getReadaheadLength());
+    assertFalse(d.isDropBehind());
+    assertNull(d.getReadaheadHit());
+  }
+
+  @Test
+  public void testColdScanDropsBehind() {
+    AdaptiveReadaheadPolicy policy = newPolicy(3, 16);
+    AdaptiveReadaheadPolicy.Decision d =
+        policy.onReadStart(block(1), 0, 128 * MB);
+    assertTrue(d.isSequential());
+    assertEquals(BASE, d.getReadaheadLength());
+    assertTrue(d.isDropBehind());
+  }
+
+  @Test
+  public void testReadaheadGrowsForContinuedScan() {
+    AdaptiveReadaheadPolicy policy = newPolicy(3, 16);
+    ExtendedBlock b = block(1);
+    long expected = BASE;
+    long pos = 0;
+    for (int i = 0; i < 4; i++) {
+      AdaptiveReadaheadPolicy.Decision d =
+          policy.onReadStart(b, pos, pos + 64 * 1024);
+      if (i == 0) {
+        // The first short read cannot be told apart from a random read.
+        assertFalse(d.isSequential());
+      } else {
+        assertTrue(d.isSequential());
+        assertEquals(expected, d.getReadaheadLength());
+        expected = Math.min(expected * 2, MAX);
+      }
+      pos += 64 * 1024;
+      policy.onReadEnd(b, pos, -1, -1);
+    }
+  }
+
+  @Test
+  public void testRandomReadsMakeBlockHot() {
+    AdaptiveReadaheadPolicy policy = newPolicy(3, 16);
+    ExtendedBlock b = block(1);
+    policy.onReadStart(b, 50 * MB, 50 * MB + 4096);
+    policy.onReadEnd(b, 50 * MB + 4096, -1, -1);
+    AdaptiveReadaheadPolicy.Decision d = policy.onReadStart(b, 0, 128 * MB);
+    assertTrue(d.isSequential());
+    assertFalse(d.isDropBehind());
+  }
+
+  @Test
+  public void testRepeatedScansMakeBlockHot() {
+    AdaptiveReadaheadPolicy policy = newPolicy(2, 16);
+    ExtendedBlock b = block(1);
+    assertTrue(policy.onReadStart(b, 0, 128 * MB).isDropBehind());
+    policy.onReadEnd(b, 128 * MB, 124 * MB, 128 * MB);
+    assertFalse(policy.onReadStart(b, 0, 128 * MB).isDropBehind());
+  }
+
+  @Test
+  public void testReadaheadHitsAndMisses() {
+    AdaptiveReadaheadPolicy policy = newPolicy(3, 16);
+    ExtendedBlock b = block(1);
+    policy.onReadStart(b, 0, MB);
+    policy.onReadEnd(b, MB, MB, MB + BASE);
+    assertTrue(policy.onReadStart(b, MB, 2 * MB).getReadaheadHit());
+    policy.onReadEnd(b, 2 * MB, MB, MB + BASE);
+    assertFalse(policy.onReadStart(b, 100 * MB, 101 * MB).getReadaheadHit());
+  }
+
+  @Test
+  public void testTrackedBlocksAreBounded() {
+    AdaptiveReadaheadPolicy policy = newPolicy(3, 4);
+    for (int i = 0; i < 10; i++) {
+      policy.onReadStart(block(i), 0, 4096);
+    }
+    assertEquals(4, policy.getNumTrackedBlocks());
+  }
+}
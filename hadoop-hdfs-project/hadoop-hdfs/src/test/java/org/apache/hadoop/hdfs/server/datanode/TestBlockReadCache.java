@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test promotion, eviction and invalidation of blocks in the DataNode read
+ * cache.
+ */
+public class TestBlockReadCache {
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private File cacheDir;
+  private MiniDFSCluster cluster;
+  private FileSystem fs;
+  private DataNode dn;
+  private BlockReadCache readCache;
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    cacheDir = GenericTestUtils.getTestDir("TestBlockReadCache");
+    conf.set(DFSConfigKeys.DFS_DATANODE_READ_CACHE_DIR_KEY,
+        cacheDir.getAbsolutePath());
+    // Room for two blocks and their meta files.
+    conf.setLong(DFSConfigKeys.DFS_DATANODE_READ_CACHE_CAPACITY_KEY,
+        5 * BLOCK_SIZE / 2);
+    conf.setInt(DFSConfigKeys.DFS_DATANODE_READ_CACHE_PROMOTE_READS_KEY, 2);
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCK_SIZE);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+    dn = cluster.getDataNodes().get(0);
+    readCache = dn.getBlockReadCache();
+  }
+
+  @After
+  public void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  private long getCounter(String name) {
+    return getLongCounter(name, getMetrics(dn.getMetrics().name()));
+  }
+
+  private byte[] createFile(Path path, long len, long seed) throws Exception {
+    DFSTestUtil.createFile(fs, path, len, (short) 1, seed);
+    return DFSTestUtil.readFileAsBytes(fs, path);
+  }
+
+  private void waitForPromotions(long promotions) throws Exception {
+    GenericTestUtils.waitFor(
+        () -> getCounter("ReadCachePromotions") >= promotions, 100, 30000);
+  }
+
+  @Test(timeout = 120000)
+  public void testPromoteAndEvict() throws Exception {
+    Path a = new Path("/a");
+    Path b = new Path("/b");
+    Path c = new Path("/c");
+    // Creating each file reads it once.
+    byte[] dataA = createFile(a, BLOCK_SIZE, 1);
+    byte[] dataB = createFile(b, BLOCK_SIZE, 2);
+    byte[] dataC = createFile(c, BLOCK_SIZE, 3);
+    assertEquals(0, readCache.getNumCachedBlocks());
+
+    assertArrayEquals(dataA, DFSTestUtil.readFileAsBytes(fs, a));
+    waitForPromotions(1);
+    assertEquals(1, readCache.getNumCachedBlocks());
+
+    long hits = getCounter("ReadCacheHits");
+    assertArrayEquals(dataA, DFSTestUtil.readFileAsBytes(fs, a));
+    assertEquals(hits + 1, getCounter("ReadCacheHits"));
+
+    // Promoting two more blocks evicts the least recently read one.
+    assertArrayEquals(dataB, DFSTestUtil.readFileAsBytes(fs, b));
+    waitForPromotions(2);
+    assertArrayEquals(dataC, DFSTestUtil.readFileAsBytes(fs, c));
+    waitForPromotions(3);
+    assertEquals(2, readCache.getNumCachedBlocks());
+    assertEquals(1, getCounter("ReadCacheEvictions"));
+    assertTrue(readCache.getUsed() <= 5 * BLOCK_SIZE / 2);
+
+    hits = getCounter("ReadCacheHits");
+    assertArrayEquals(dataB, DFSTestUtil.readFileAsBytes(fs, b));
+    assertArrayEquals(dataC, DFSTestUtil.readFileAsBytes(fs, c));
+    assertEquals(hits + 2, getCounter("ReadCacheHits"));
+  }
+
+  @Test(timeout = 120000)
+  public void testAppendInvalidatesCachedCopy() throws Exception {
+    Path a = new Path("/a");
+    // Append to a partial block, so the same replica gets a new genstamp.
+    createFile(a, BLOCK_SIZE / 2, 1);
+    DFSTestUtil.readFileAsBytes(fs, a);
+    waitForPromotions(1);
+
+    try (FSDataOutputStream out = fs.append(a)) {
+      out.write(new byte[] {1, 2, 3});
+    }
+    byte[] appended = DFSTestUtil.readFileAsBytes(fs, a);
+    assertEquals(0, readCache.getNumCachedBlocks());
+    assertEquals(BLOCK_SIZE / 2 + 3, appended.length);
+  }
+
+  @Test(timeout = 120000)
+  public void testDeleteDropsCachedCopy() throws Exception {
+    Path a = new Path("/a");
+    createFile(a, BLOCK_SIZE, 1);
+    DFSTestUtil.readFileAsBytes(fs, a);
+    waitForPromotions(1);
+    assertEquals(1, readCache.getNumCachedBlocks());
+
+    fs.delete(a, false);
+    GenericTestUtils.waitFor(() -> readCache.getNumCachedBlocks() == 0,
+        100, 30000);
+    assertEquals(0, readCache.getUsed());
+    File[] files = new File(cacheDir, BlockReadCache.SUBDIR).listFiles();
+    assertEquals(0, files.length);
+  }
+
+  @Test(timeout = 120000)
+  public void testRestartOnlyClearsOwnFiles() throws Exception {
+    Path a = new Path("/a");
+    createFile(a, BLOCK_SIZE, 1);
+    DFSTestUtil.readFileAsBytes(fs, a);
+    waitForPromotions(1);
+    File other = new File(cacheDir, "other");
+    Files.write(other.toPath(), "keep".getBytes(StandardCharsets.UTF_8));
+
+    cluster.restartDataNode(0, true);
+    cluster.waitActive();
+    dn = cluster.getDataNodes().get(0);
+    assertTrue(other.exists());
+    assertEquals(0, dn.getBlockReadCache().getNumCachedBlocks());
+    assertFalse(new File(cacheDir, BlockReadCache.SUBDIR).list().length > 0);
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
+import org.apache.hadoop.test.LambdaTestUtils;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test reading blocks when the DataNode memory maps the checksums of the
+ * meta file on the transferTo path. The client verifies every checksum it
+ * receives, so any misplaced checksum fails the read.
+ */
+public class TestBlockSenderMmapChecksum {
+  private static final int FILE_LEN = 3 * 1024 * 1024 + 1234;
+  private static final Path PATH = new Path("/testMmapChecksum");
+
+  private static MiniDFSCluster cluster;
+  private static FileSystem fs;
+  private static byte[] expected;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_DATANODE_TRANSFERTO_MMAP_CHECKSUM_KEY, true);
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, 2 * 1024 * 1024);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+    expected = writeFile(PATH, 0xFEEDL);
+  }
+
+  /** Write a file of random bytes and return them. */
+  private static byte[] writeFile(Path path, long seed) throws IOException {
+    byte[] data = new byte[FILE_LEN];
+    new Random(seed).nextBytes(data);
+    try (FSDataOutputStream out = fs.create(path, (short) 1)) {
+      out.write(data);
+    }
+    return data;
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testReadWholeFile() throws Exception {
+    assertArrayEquals(expected, DFSTestUtil.readFileAsBytes(fs, PATH));
+  }
+
+  @Test(timeout = 60000)
+  public void testPositionalReads() throws Exception {
+    try (FSDataInputStream in = fs.open(PATH)) {
+      // Unaligned long reads, including one crossing a block boundary and
+      // one ending in the last partial chunk.
+      int[][] ranges = {{777, 1024 * 1024}, {2 * 1024 * 1024 - 4000, 600000},
+          {FILE_LEN - 300001, 300001}};
+      for (int[] range : ranges) {
+        byte[] buf = new byte[range[1]];
+        in.readFully(range[0], buf);
+        assertArrayEquals(
+            Arrays.copyOfRange(expected, range[0], range[0] + range[1]), buf);
+      }
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testCorruptChecksum() throws Exception {
+    Path path = new Path("/testMmapChecksumCorrupt");
+    writeFile(path, 0xBADL);
+    ExtendedBlock block = DFSTestUtil.getFirstBlock(fs, path);
+    File metaFile = cluster.getBlockMetadataFile(0, block);
+    // Flip the checksum of the 100th chunk, past the meta file header.
+    try (RandomAccessFile raf = new RandomAccessFile(metaFile, "rw")) {
+      long offset = BlockMetadataHeader.getHeaderSize() + 100 * 4;
+      raf.seek(offset);
+      int b = raf.read();
+      raf.seek(offset);
+      raf.write(b ^ 0xFF);
+    }
+    LambdaTestUtils.intercept(ChecksumException.class,
+        () -> DFSTestUtil.readFileAsBytes(fs, path));
+  }
+}
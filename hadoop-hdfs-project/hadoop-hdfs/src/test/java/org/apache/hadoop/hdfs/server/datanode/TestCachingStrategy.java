@@ -339,6 +339,57 @@ public void testFadviseSkippedForSmallReads() throws Exception {
     }
   }
   
+  @Test(timeout=120000)
+  public void testAdaptiveDropBehindOnlyForColdScans() throws Exception {
+    // start a cluster
+    LOG.info("testAdaptiveDropBehindOnlyForColdScans");
+    tracker.clear();
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(
+        DFSConfigKeys.DFS_DATANODE_READAHEAD_ADAPTIVE_ENABLED_KEY, true);
+    MiniDFSCluster cluster = null;
+    String COLD_PATH = "/cold";
+    String HOT_PATH = "/hot";
+    int TEST_PATH_LEN = MAX_TEST_FILE_LEN;
+    FSDataInputStream fis = null;
+    try {
+      cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1)
+          .build();
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      createHdfsFile(fs, new Path(COLD_PATH), TEST_PATH_LEN, null);
+      // write the hot file with drop-behind, so that its block is tracked
+      createHdfsFile(fs, new Path(HOT_PATH), TEST_PATH_LEN, true);
+
+      // A scan of a block nobody else reads drops it from the cache.
+      readHdfsFile(fs, new Path(COLD_PATH), Long.MAX_VALUE, null);
+      ExtendedBlock block = cluster.getNameNode().getRpcServer()
+          .getBlockLocations(COLD_PATH, 0, Long.MAX_VALUE).get(0).getBlock();
+      Stats stats = tracker.getStats(cluster.getBlockFile(0, block).getName());
+      Assert.assertNotNull(stats);
+      stats.assertDroppedInRange(0, TEST_PATH_LEN - WRITE_PACKET_SIZE);
+
+      // A block which also serves random reads is kept in the cache.
+      block = cluster.getNameNode().getRpcServer()
+          .getBlockLocations(HOT_PATH, 0, Long.MAX_VALUE).get(0).getBlock();
+      stats = tracker.getStats(cluster.getBlockFile(0, block).getName());
+      Assert.assertNotNull(stats);
+      stats.clear();
+      fis = fs.open(new Path(HOT_PATH));
+      byte buf[] = new byte[17];
+      fis.readFully(TEST_PATH_LEN / 2, buf, 0, buf.length);
+      fis.close();
+      fis = null;
+      readHdfsFile(fs, new Path(HOT_PATH), Long.MAX_VALUE, null);
+      stats.assertNotDroppedInRange(0, TEST_PATH_LEN);
+    } finally {
+      IOUtils.cleanupWithLogger(null, fis);
+      if (cluster != null) {
+        cluster.shutdown();
+      }
+    }
+  }
+
   @Test(timeout=120000)
   public void testNoFadviseAfterWriteThenRead() throws Exception {
     // start a cluster
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.apache.hadoop.hdfs.protocol.Block;
+import org.apache.hadoop.hdfs.server.datanode.metrics.DataNodeMetrics;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeProtocol;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeRegistration;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeStorage;
+import org.apache.hadoop.hdfs.server.protocol.ReceivedDeletedBlockInfo;
+import org.apache.hadoop.hdfs.server.protocol.ReceivedDeletedBlockInfo.BlockStatus;
+import org.apache.hadoop.hdfs.server.protocol.StorageReceivedDeletedBlocks;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * Test coalescing of received blocks in incremental block reports.
+ */
+public class TestIncrementalBlockReportCoalescing {
+  private static final String BPID = "BP-TEST";
+
+  private final DatanodeStorage storage = new DatanodeStorage("storage-1");
+  private DatanodeProtocol namenode;
+
+  @Before
+  public void setUp() {
+    namenode = Mockito.mock(DatanodeProtocol.class);
+  }
+
+  private static IncrementalBlockReportManager newManager(long minDelay,
+      long maxDelay, int maxBlocks) {
+    return new IncrementalBlockReportManager(0,
+        Mockito.mock(DataNodeMetrics.class), minDelay, maxDelay, maxBlocks);
+  }
+
+  private void receive(IncrementalBlockReportManager ibrManager, long blockId,
+      boolean isOnTransientStorage) {
+    ibrManager.notifyNamenodeBlock(new ReceivedDeletedBlockInfo(
+        new Block(blockId, 1024, 1000), BlockStatus.RECEIVED_BLOCK, null),
+        storage, isOnTransientStorage);
+  }
+
+  private void sendIBRs(IncrementalBlockReportManager ibrManager)
+      throws Exception {
+    ibrManager.sendIBRs(namenode, Mockito.mock(DatanodeRegistration.class),
+        BPID, "");
+  }
+
+  @Test(timeout = 60000)
+  public void testReceivedBlocksAreCoalesced() throws Exception {
+    IncrementalBlockReportManager ibrManager = newManager(200, 200, 100);
+    for (int i = 0; i < 3; i++) {
+      receive(ibrManager, i, false);
+    }
+    assertFalse(ibrManager.sendImmediately());
+
+    // The actor thread wakes up once the delay has elapsed.
+    long start = System.nanoTime();
+    ibrManager.waitTillNextIBR(10000);
+    assertTrue((System.nanoTime() - start) / 1000000 < 5000);
+    assertTrue(ibrManager.sendImmediately());
+
+    sendIBRs(ibrManager);
+    ArgumentCaptor<StorageReceivedDeletedBlocks[]> captor =
+        ArgumentCaptor.forClass(StorageReceivedDeletedBlocks[].class);
+    verify(namenode, times(1)).blockReceivedAndDeleted(
+        any(DatanodeRegistration.class), anyString(), captor.capture());
+    assertEquals(3, captor.getValue()[0].getBlocks().length);
+    assertFalse(ibrManager.sendImmediately());
+  }
+
+  @Test
+  public void testMaxBlocksTriggersReport() {
+    IncrementalBlockReportManager ibrManager = newManager(60000, 60000, 4);
+    for (int i = 0; i < 3; i++) {
+      receive(ibrManager, i, false);
+      assertFalse(ibrManager.sendImmediately());
+    }
+    receive(ibrManager, 3, false);
+    assertTrue(ibrManager.sendImmediately());
+  }
+
+  @Test
+  public void testTransientStorageIsNotCoalesced() {
+    IncrementalBlockReportManager ibrManager = newManager(60000, 60000, 100);
+    receive(ibrManager, 1, true);
+    assertTrue(ibrManager.sendImmediately());
+  }
+
+  @Test
+  public void testForcedReportIsNotDelayed() {
+    IncrementalBlockReportManager ibrManager = newManager(60000, 60000, 100);
+    receive(ibrManager, 1, false);
+    assertFalse(ibrManager.sendImmediately());
+    ibrManager.triggerIBR(true);
+    assertTrue(ibrManager.sendImmediately());
+  }
+
+  @Test
+  public void testDelayFollowsNameNodeLoad() {
+    IncrementalBlockReportManager ibrManager = newManager(100, 1100, 100);
+    assertEquals(100, ibrManager.getCoalesceDelay());
+    ibrManager.setNameNodeLoad(50);
+    assertEquals(600, ibrManager.getCoalesceDelay());
+    ibrManager.setNameNodeLoad(250);
+    assertEquals(1100, ibrManager.getCoalesceDelay());
+  }
+
+  @Test
+  public void testNoCoalescingByDefault() {
+    IncrementalBlockReportManager ibrManager = new IncrementalBlockReportManager(
+        0, Mockito.mock(DataNodeMetrics.class));
+    receive(ibrManager, 1, false);
+    assertTrue(ibrManager.sendImmediately());
+  }
+}
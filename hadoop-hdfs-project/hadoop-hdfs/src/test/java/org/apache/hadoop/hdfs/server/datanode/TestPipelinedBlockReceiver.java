@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream;
+import org.apache.hadoop.hdfs.client.HdfsDataOutputStream.SyncFlag;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test writing through a pipeline of DataNodes which write packets to disk
+ * in the background.
+ */
+public class TestPipelinedBlockReceiver {
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private static MiniDFSCluster cluster;
+  private static FileSystem fs;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setBoolean(DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_ENABLED_KEY,
+        true);
+    conf.setInt(
+        DFSConfigKeys.DFS_DATANODE_PIPELINED_RECEIVER_QUEUE_PACKETS_KEY, 2);
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCK_SIZE);
+    cluster = new MiniDFSCluster.Builder(conf).numDataNodes(3).build();
+    cluster.waitActive();
+    fs = cluster.getFileSystem();
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (cluster != null) {
+      cluster.shutdown();
+    }
+  }
+
+  @Test(timeout = 120000)
+  public void testWriteWithFlushAndSync() throws Exception {
+    Path path = new Path("/testPipelinedReceiver");
+    byte[] data = new byte[3 * BLOCK_SIZE + 4567];
+    new Random(0xC0FFEEL).nextBytes(data);
+    try (FSDataOutputStream out = fs.create(path, (short) 3)) {
+      // Mix plain data packets with flushed, synced and partial chunks.
+      int pos = 0;
+      int step = 0;
+      while (pos < data.length) {
+        int len = Math.min(data.length - pos, 100000 + 777 * step);
+        out.write(data, pos, len);
+        pos += len;
+        switch (step++ % 3) {
+        case 0:
+          out.hflush();
+          break;
+        case 1:
+          ((HdfsDataOutputStream) out).hsync(
+              EnumSet.of(SyncFlag.UPDATE_LENGTH));
+          break;
+        default:
+          break;
+        }
+      }
+    }
+    DFSTestUtil.waitReplication(fs, path, (short) 3);
+    assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+    for (DataNode dn : cluster.getDataNodes()) {
+      MetricsRecordBuilder rb = getMetrics(dn.getMetrics().name());
+      assertTrue(getLongCounter("ReceivePacketDiskQueueNanosNumOps", rb) > 0);
+      assertTrue(getLongCounter("ReceivePacketDiskNanosNumOps", rb) > 0);
+    }
+  }
+
+  /**
+   * An unchecked exception in the disk writer fails the replica rather than
+   * leaving the receiver waiting for the packets until the client times out.
+   */
+  @Test(timeout = 30000)
+  public void testRuntimeExceptionInDiskWriter() throws Exception {
+    final AtomicBoolean failed = new AtomicBoolean();
+    DataNodeFaultInjector old = DataNodeFaultInjector.get();
+    DataNodeFaultInjector.set(new DataNodeFaultInjector() {
+      @Override
+      public void delayWriteToDisk() {
+        if (Thread.currentThread().getName().startsWith("DiskWriter for ")
+            && failed.compareAndSet(false, true)) {
+          throw new IllegalStateException("Injected failure");
+        }
+      }
+    });
+    Path path = new Path("/testRuntimeExceptionInDiskWriter");
+    byte[] data = new byte[BLOCK_SIZE / 2];
+    new Random(0xFA11L).nextBytes(data);
+    try (FSDataOutputStream out = fs.create(path, (short) 3)) {
+      out.write(data);
+      out.hflush();
+    } finally {
+      DataNodeFaultInjector.set(old);
+    }
+    assertTrue(failed.get());
+    assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+  }
+}
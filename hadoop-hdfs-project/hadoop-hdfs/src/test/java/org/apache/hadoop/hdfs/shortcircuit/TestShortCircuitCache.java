@@ -34,10 +34,12 @@
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.jcip.annotations.NotThreadSafe;
 import org.apache.commons.collections.map.LinkedMap;
 import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -340,6 +342,100 @@ public ShortCircuitReplicaInfo createShortCircuitReplicaInfo() {
     cache.close();
   }
   
+  @Test(timeout=60000)
+  public void testShardedCache() throws Exception {
+    final int numBlocks = 16;
+    final ShortCircuitCache cache = new ShortCircuitCache(
+        100, 10000000, 10, 10000000, 1, 10000000, 0, 4);
+    Assert.assertEquals(4, cache.getNumShards());
+    final TestFileDescriptorPair[] pairs =
+        new TestFileDescriptorPair[numBlocks];
+    for (int i = 0; i < numBlocks; i++) {
+      pairs[i] = new TestFileDescriptorPair();
+      cache.fetchOrCreate(new ExtendedBlockId(i, "test_bp1"),
+          new SimpleReplicaCreator(i, cache, pairs[i])).getReplica().unref();
+    }
+    // Concurrent readers of replicas in different shards.
+    Thread[] threads = new Thread[8];
+    final AtomicInteger failures = new AtomicInteger();
+    for (int t = 0; t < threads.length; t++) {
+      final int seed = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          int block = (seed * 7 + i) % numBlocks;
+          ShortCircuitReplicaInfo info = cache.fetchOrCreate(
+              new ExtendedBlockId(block, "test_bp1"), () -> {
+                failures.incrementAndGet();
+                return null;
+              });
+          if (info == null || info.getReplica() == null) {
+            failures.incrementAndGet();
+          } else {
+            info.getReplica().unref();
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(0, failures.get());
+    Assert.assertTrue(cache.getLockAcquisitions() > 0);
+    Assert.assertTrue(cache.getAndResetMaxLockHoldTimeNanos() > 0);
+    // Every replica is cached and unreferenced, and the eviction lists of
+    // the shards are visited in order.
+    cache.accept(new CacheVisitor() {
+      @Override
+      public void visit(int numOutstandingMmaps,
+          Map<ExtendedBlockId, ShortCircuitReplica> replicas,
+          Map<ExtendedBlockId, InvalidToken> failedLoads,
+          LinkedMap evictable, LinkedMap evictableMmapped) {
+        Assert.assertEquals(numBlocks, replicas.size());
+        Assert.assertEquals(numBlocks, evictable.size());
+        // Keyed by the eviction time and the shard.
+        long last = Long.MIN_VALUE;
+        for (Object key : evictable.keySet()) {
+          long evictableTimeNs = ((Pair<Long, Integer>) key).getLeft();
+          Assert.assertTrue(evictableTimeNs >= last);
+          last = evictableTimeNs;
+        }
+      }
+    });
+    Assert.assertEquals(numBlocks, cache.getReplicaInfoMapSize());
+    cache.close();
+    for (TestFileDescriptorPair pair : pairs) {
+      pair.close();
+    }
+  }
+
+  @Test(timeout=60000)
+  public void testShardedCacheEviction() throws Exception {
+    // Each of the 2 shards may keep 2 evictable replicas.
+    final ShortCircuitCache cache = new ShortCircuitCache(
+        3, 10000000, 1, 10000000, 1, 10000, 0, 2);
+    final TestFileDescriptorPair[] pairs = new TestFileDescriptorPair[10];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = new TestFileDescriptorPair();
+      cache.fetchOrCreate(new ExtendedBlockId(i, "test_bp1"),
+          new SimpleReplicaCreator(i, cache, pairs[i])).getReplica().unref();
+    }
+    cache.accept(new CacheVisitor() {
+      @Override
+      public void visit(int numOutstandingMmaps,
+          Map<ExtendedBlockId, ShortCircuitReplica> replicas,
+          Map<ExtendedBlockId, InvalidToken> failedLoads,
+          LinkedMap evictable, LinkedMap evictableMmapped) {
+        Assert.assertTrue(evictable.size() <= 4);
+        Assert.assertEquals(evictable.size(), replicas.size());
+      }
+    });
+    cache.close();
+    for (TestFileDescriptorPair pair : pairs) {
+      pair.close();
+    }
+  }
+
   @Test(timeout=60000)
   public void testTimeBasedStaleness() throws Exception {
     // Set up the cache with a short staleness time.
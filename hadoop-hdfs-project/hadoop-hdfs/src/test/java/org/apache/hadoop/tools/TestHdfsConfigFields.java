@@ -42,9 +42,12 @@ public void initializeMemberVariables() {
     xmlFilename = "hdfs-default.xml";
     configurationClasses = new Class[] { HdfsClientConfigKeys.class,
         HdfsClientConfigKeys.Failover.class,
-        HdfsClientConfigKeys.StripedRead.class, DFSConfigKeys.class,
+        HdfsClientConfigKeys.StripedRead.class,
+        HdfsClientConfigKeys.VectoredRead.class,
+        HdfsClientConfigKeys.Async.class, DFSConfigKeys.class,
         HdfsClientConfigKeys.BlockWrite.class, HdfsClientConfigKeys.Write.class,
         HdfsClientConfigKeys.Read.class, HdfsClientConfigKeys.HedgedRead.class,
+        HdfsClientConfigKeys.Read.ShortCircuit.class,
         HdfsClientConfigKeys.ShortCircuit.class,
         HdfsClientConfigKeys.Retry.class, HdfsClientConfigKeys.Mmap.class,
         HdfsClientConfigKeys.BlockWrite.ReplaceDatanodeOnFailure.class };
@@ -105,6 +108,10 @@ public void initializeMemberVariables() {
     configurationPropsToSkipCompare.add(DFSConfigKeys
         .DFS_DATANODE_ENABLE_FILEIO_FAULT_INJECTION_KEY);
 
+    // Short-circuit read metrics sampling is not documented
+    configurationPropsToSkipCompare.add(HdfsClientConfigKeys.Read.ShortCircuit
+        .METRICS_SAMPLING_PERCENTAGE_KEY);
+
     // Allocate
     xmlPropsToSkipCompare = new HashSet<String>();
     xmlPrefixToSkipCompare = new HashSet<String>();
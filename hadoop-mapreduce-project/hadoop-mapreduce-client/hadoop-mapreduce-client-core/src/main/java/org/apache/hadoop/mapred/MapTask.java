@@ -43,6 +43,7 @@
 import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.NormalizedKeyComparator;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
@@ -894,6 +895,7 @@ private long getOutputBytes(List<Statistics> stats) {
     private Class<K> keyClass;
     private Class<V> valClass;
     private RawComparator<K> comparator;
+    private NormalizedKeyComparator<K> normalizer;
     private SerializationFactory serializationFactory;
     private Serializer<K> keySerializer;
     private Serializer<V> valSerializer;
@@ -924,8 +926,9 @@ private long getOutputBytes(List<Statistics> stats) {
     private static final int KEYSTART = 1;         // key offset in acct
     private static final int PARTITION = 2;        // partition offset in acct
     private static final int VALLEN = 3;           // length of value
-    private static final int NMETA = 4;            // num meta ints
-    private static final int METASIZE = NMETA * 4; // size in bytes
+    private static final int NORMKEY = 4;          // normalized key, 2 ints
+    private int nmeta;                             // num meta ints
+    private int metasize;                          // size in bytes
 
     // spill accounting
     private int maxRec;
@@ -1005,9 +1008,22 @@ public void init(MapOutputCollector.Context context
       sorter = ReflectionUtils.newInstance(job.getClass(
                    MRJobConfig.MAP_SORT_CLASS, QuickSort.class,
                    IndexedSorter.class), job);
+      comparator = job.getOutputKeyComparator();
+      if (job.getBoolean(MRJobConfig.MAP_SORT_NORMALIZED_KEYS,
+              MRJobConfig.DEFAULT_MAP_SORT_NORMALIZED_KEYS)
+          && comparator instanceof NormalizedKeyComparator
+          && ((NormalizedKeyComparator<K>)comparator).hasNormalizedKey()) {
+        normalizer = (NormalizedKeyComparator<K>)comparator;
+        nmeta = 6;
+      } else {
+        normalizer = null;
+        nmeta = 4;
+      }
+      metasize = nmeta * 4;
+      metaBufferTmp = new byte[metasize];
       // buffers and accounting
       int maxMemUsage = sortmb << 20;
-      maxMemUsage -= maxMemUsage % METASIZE;
+      maxMemUsage -= maxMemUsage % metasize;
       kvbuffer = new byte[maxMemUsage];
       bufvoid = kvbuffer.length;
       kvmeta = ByteBuffer.wrap(kvbuffer)
@@ -1017,7 +1033,7 @@ public void init(MapOutputCollector.Context context
       bufstart = bufend = bufindex = equator;
       kvstart = kvend = kvindex;
 
-      maxRec = kvmeta.capacity() / NMETA;
+      maxRec = kvmeta.capacity() / nmeta;
       softLimit = (int)(kvbuffer.length * spillper);
       bufferRemaining = softLimit;
       LOG.info(JobContext.IO_SORT_MB + ": " + sortmb);
@@ -1026,7 +1042,6 @@ public void init(MapOutputCollector.Context context
       LOG.info("kvstart = " + kvstart + "; length = " + maxRec);
 
       // k/v serialization
-      comparator = job.getOutputKeyComparator();
       keyClass = (Class<K>)job.getMapOutputKeyClass();
       valClass = (Class<V>)job.getMapOutputValueClass();
       serializationFactory = new SerializationFactory(job);
@@ -1108,7 +1123,7 @@ public synchronized void collect(K key, V value, final int partition
             partition + ")");
       }
       checkSpillException();
-      bufferRemaining -= METASIZE;
+      bufferRemaining -= metasize;
       if (bufferRemaining <= 0) {
         // start spill if the thread is not running and the soft limit has been
         // reached
@@ -1123,13 +1138,13 @@ public synchronized void collect(K key, V value, final int partition
               // created by a reset must be included in "used" bytes
               final int bUsed = distanceTo(kvbidx, bufindex);
               final boolean bufsoftlimit = bUsed >= softLimit;
-              if ((kvbend + METASIZE) % kvbuffer.length !=
-                  equator - (equator % METASIZE)) {
+              if ((kvbend + metasize) % kvbuffer.length !=
+                  equator - (equator % metasize)) {
                 // spill finished, reclaim space
                 resetSpill();
                 bufferRemaining = Math.min(
-                    distanceTo(bufindex, kvbidx) - 2 * METASIZE,
-                    softLimit - bUsed) - METASIZE;
+                    distanceTo(bufindex, kvbidx) - 2 * metasize,
+                    softLimit - bUsed) - metasize;
                 continue;
               } else if (bufsoftlimit && kvindex != kvend) {
                 // spill records, if any collected; check latter, as it may
@@ -1142,9 +1157,9 @@ public synchronized void collect(K key, V value, final int partition
                 // ensure that kvindex >= bufindex
                 final int distkvi = distanceTo(bufindex, kvbidx);
                 final int newPos = (bufindex +
-                  Math.max(2 * METASIZE - 1,
+                  Math.max(2 * metasize - 1,
                           Math.min(distkvi / 2,
-                                   distkvi / (METASIZE + avgRec) * METASIZE)))
+                                   distkvi / (metasize + avgRec) * metasize)))
                   % kvbuffer.length;
                 setEquator(newPos);
                 bufmark = bufindex = newPos;
@@ -1159,7 +1174,7 @@ public synchronized void collect(K key, V value, final int partition
                       // serialization max
                       distanceTo(newPos, serBound),
                       // soft limit
-                      softLimit)) - 2 * METASIZE;
+                      softLimit)) - 2 * metasize;
               }
             }
           } while (false);
@@ -1201,8 +1216,14 @@ public synchronized void collect(K key, V value, final int partition
         kvmeta.put(kvindex + KEYSTART, keystart);
         kvmeta.put(kvindex + VALSTART, valstart);
         kvmeta.put(kvindex + VALLEN, distanceTo(valstart, valend));
+        if (normalizer != null) {
+          final long normkey = normalizer.getNormalizedKey(kvbuffer,
+              keystart, valstart - keystart);
+          kvmeta.put(kvindex + NORMKEY, (int)(normkey >>> 32));
+          kvmeta.put(kvindex + NORMKEY + 1, (int)normkey);
+        }
         // advance kvindex
-        kvindex = (kvindex - NMETA + kvmeta.capacity()) % kvmeta.capacity();
+        kvindex = (kvindex - nmeta + kvmeta.capacity()) % kvmeta.capacity();
       } catch (MapBufferTooSmallException e) {
         LOG.info("Record too large for in-memory buffer: " + e.getMessage());
         spillSingleRecord(key, value, partition);
@@ -1223,10 +1244,10 @@ private TaskAttemptID getTaskID() {
     private void setEquator(int pos) {
       equator = pos;
       // set index prior to first entry, aligned at meta boundary
-      final int aligned = pos - (pos % METASIZE);
+      final int aligned = pos - (pos % metasize);
       // Cast one of the operands to long to avoid integer overflow
       kvindex = (int)
-        (((long)aligned - METASIZE + kvbuffer.length) % kvbuffer.length) / 4;
+        (((long)aligned - metasize + kvbuffer.length) % kvbuffer.length) / 4;
       LOG.info("(EQUATOR) " + pos + " kvi " + kvindex +
           "(" + (kvindex * 4) + ")");
     }
@@ -1239,11 +1260,11 @@ private void setEquator(int pos) {
     private void resetSpill() {
       final int e = equator;
       bufstart = bufend = e;
-      final int aligned = e - (e % METASIZE);
+      final int aligned = e - (e % metasize);
       // set start/end to point to first meta record
       // Cast one of the operands to long to avoid integer overflow
       kvstart = kvend = (int)
-        (((long)aligned - METASIZE + kvbuffer.length) % kvbuffer.length) / 4;
+        (((long)aligned - metasize + kvbuffer.length) % kvbuffer.length) / 4;
       LOG.info("(RESET) equator " + e + " kv " + kvstart + "(" +
         (kvstart * 4) + ")" + " kvi " + kvindex + "(" + (kvindex * 4) + ")");
     }
@@ -1272,12 +1293,13 @@ int distanceTo(final int i, final int j, final int mod) {
      * kvmeta buffer.
      */
     int offsetFor(int metapos) {
-      return metapos * NMETA;
+      return metapos * nmeta;
     }
 
     /**
      * Compare logical range, st i, j MOD offset capacity.
-     * Compare by partition, then by key.
+     * Compare by partition, then by normalized key if the comparator has
+     * one, then by key.
      * @see IndexedSortable#compare
      */
     @Override
@@ -1290,6 +1312,14 @@ public int compare(final int mi, final int mj) {
       if (kvip != kvjp) {
         return kvip - kvjp;
       }
+      // sort by normalized key, if any
+      if (normalizer != null) {
+        final long kvin = getNormalizedKey(kvi);
+        final long kvjn = getNormalizedKey(kvj);
+        if (kvin != kvjn) {
+          return Long.compareUnsigned(kvin, kvjn);
+        }
+      }
       // sort by key
       return comparator.compare(kvbuffer,
           kvmeta.get(kvi + KEYSTART),
@@ -1299,18 +1329,26 @@ public int compare(final int mi, final int mj) {
           kvmeta.get(kvj + VALSTART) - kvmeta.get(kvj + KEYSTART));
     }
 
-    final byte META_BUFFER_TMP[] = new byte[METASIZE];
+    /**
+     * Read the normalized key at the given offset into the kvmeta buffer.
+     */
+    private long getNormalizedKey(final int kvoff) {
+      return ((long)kvmeta.get(kvoff + NORMKEY) << 32)
+          | (kvmeta.get(kvoff + NORMKEY + 1) & 0xFFFFFFFFL);
+    }
+
+    private byte[] metaBufferTmp;
     /**
      * Swap metadata for items i, j
      * @see IndexedSortable#swap
      */
     @Override
     public void swap(final int mi, final int mj) {
-      int iOff = (mi % maxRec) * METASIZE;
-      int jOff = (mj % maxRec) * METASIZE;
-      System.arraycopy(kvbuffer, iOff, META_BUFFER_TMP, 0, METASIZE);
-      System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, METASIZE);
-      System.arraycopy(META_BUFFER_TMP, 0, kvbuffer, jOff, METASIZE);
+      int iOff = (mi % maxRec) * metasize;
+      int jOff = (mj % maxRec) * metasize;
+      System.arraycopy(kvbuffer, iOff, metaBufferTmp, 0, metasize);
+      System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, metasize);
+      System.arraycopy(metaBufferTmp, 0, kvbuffer, jOff, metasize);
     }
 
     /**
@@ -1386,7 +1424,7 @@ public void write(int v)
       @Override
       public void write(byte b[], int off, int len)
           throws IOException {
-        // must always verify the invariant that at least METASIZE bytes are
+        // must always verify the invariant that at least metasize bytes are
         // available beyond kvindex, even when len == 0
         bufferRemaining -= len;
         if (bufferRemaining <= 0) {
@@ -1414,19 +1452,19 @@ public void write(byte b[], int off, int len)
               // either the metadata or the current write. Note that collect
               // ensures its metadata requirement with a zero-length write
               blockwrite = distkvi <= distkve
-                ? distkvi <= len + 2 * METASIZE
-                : distkve <= len || distanceTo(bufend, kvbidx) < 2 * METASIZE;
+                ? distkvi <= len + 2 * metasize
+                : distkve <= len || distanceTo(bufend, kvbidx) < 2 * metasize;
 
               if (!spillInProgress) {
                 if (blockwrite) {
-                  if ((kvbend + METASIZE) % kvbuffer.length !=
-                      equator - (equator % METASIZE)) {
+                  if ((kvbend + metasize) % kvbuffer.length !=
+                      equator - (equator % metasize)) {
                     // spill finished, reclaim space
                     // need to use meta exclusively; zero-len rec & 100% spill
                     // pcnt would fail
                     resetSpill(); // resetSpill doesn't move bufindex, kvindex
                     bufferRemaining = Math.min(
-                        distkvi - 2 * METASIZE,
+                        distkvi - 2 * metasize,
                         softLimit - distanceTo(kvbidx, bufindex)) - len;
                     continue;
                   }
@@ -1498,13 +1536,13 @@ public void flush() throws IOException, ClassNotFoundException,
         checkSpillException();
 
         final int kvbend = 4 * kvend;
-        if ((kvbend + METASIZE) % kvbuffer.length !=
-            equator - (equator % METASIZE)) {
+        if ((kvbend + metasize) % kvbuffer.length !=
+            equator - (equator % metasize)) {
           // spill finished
           resetSpill();
         }
         if (kvindex != kvend) {
-          kvend = (kvindex + NMETA) % kvmeta.capacity();
+          kvend = (kvindex + nmeta) % kvmeta.capacity();
           bufend = bufmark;
           LOG.info("Spilling map output");
           LOG.info("bufstart = " + bufstart + "; bufend = " + bufmark +
@@ -1600,7 +1638,7 @@ private void checkSpillException() throws IOException {
 
     private void startSpill() {
       assert !spillInProgress;
-      kvend = (kvindex + NMETA) % kvmeta.capacity();
+      kvend = (kvindex + nmeta) % kvmeta.capacity();
       bufend = bufmark;
       spillInProgress = true;
       LOG.info("Spilling map output");
@@ -1628,11 +1666,11 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
             mapOutputFile.getSpillFileForWrite(numSpills, size);
         out = rfs.create(filename);
 
-        final int mstart = kvend / NMETA;
+        final int mstart = kvend / nmeta;
         final int mend = 1 + // kvend is a valid record
           (kvstart >= kvend
           ? kvstart
-          : kvmeta.capacity() + kvstart) / NMETA;
+          : kvmeta.capacity() + kvstart) / nmeta;
         sorter.sort(MapOutputBuffer.this, mstart, mend, reporter);
         int spindex = mstart;
         final IndexRecord rec = new IndexRecord();
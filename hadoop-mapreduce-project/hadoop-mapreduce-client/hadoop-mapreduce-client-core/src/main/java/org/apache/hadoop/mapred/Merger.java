@@ -33,6 +33,7 @@
 import org.apache.hadoop.fs.LocalDirAllocator;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.NormalizedKeyComparator;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.compress.CompressionCodec;
 import org.apache.hadoop.mapred.IFile.Reader;
@@ -221,6 +222,7 @@ void writeFile(RawKeyValueIterator records, Writer<K, V> writer,
   public static class Segment<K extends Object, V extends Object> {
     Reader<K, V> reader = null;
     final DataInputBuffer key = new DataInputBuffer();
+    long normalizedKey;
     
     Configuration conf = null;
     FileSystem fs = null;
@@ -392,6 +394,7 @@ void reinitReader(int offset) throws IOException {
     List<Segment<K, V>> segments = new ArrayList<Segment<K,V>>();
     
     RawComparator<K> comparator;
+    private NormalizedKeyComparator<K> normalizer;
     
     private long totalBytesProcessed;
     private float progPerByte;
@@ -418,6 +421,20 @@ private void considerFinalMergeForProgress() {
       includeFinalMerge = true;
     }    
     
+    /**
+     * Get the comparator as a {@link NormalizedKeyComparator}, if its
+     * normalized keys may be used, or null.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K> NormalizedKeyComparator<K> getNormalizer(
+        RawComparator<K> comparator) {
+      if (comparator instanceof NormalizedKeyComparator
+          && ((NormalizedKeyComparator<K>)comparator).hasNormalizedKey()) {
+        return (NormalizedKeyComparator<K>)comparator;
+      }
+      return null;
+    }
+
     Segment<K, V> minSegment;
     Comparator<Segment<K, V>> segmentComparator =   
       new Comparator<Segment<K, V>>() {
@@ -451,6 +468,7 @@ public MergeQueue(Configuration conf, FileSystem fs,
       this.fs = fs;
       this.codec = codec;
       this.comparator = comparator;
+      this.normalizer = getNormalizer(comparator);
       this.reporter = reporter;
       
       if (taskType == TaskType.MAP) {
@@ -481,6 +499,7 @@ public MergeQueue(Configuration conf, FileSystem fs,
       this.conf = conf;
       this.fs = fs;
       this.comparator = comparator;
+      this.normalizer = getNormalizer(comparator);
       this.segments = segments;
       this.reporter = reporter;
       if (taskType == TaskType.MAP) {
@@ -515,9 +534,23 @@ public DataInputBuffer getValue() throws IOException {
       return value;
     }
 
+    /**
+     * Read the next key of the segment and, if the comparator has one, its
+     * normalized key.
+     */
+    private boolean nextRawKey(Segment<K, V> segment) throws IOException {
+      boolean hasNext = segment.nextRawKey();
+      if (hasNext && normalizer != null) {
+        DataInputBuffer key = segment.getKey();
+        segment.normalizedKey = normalizer.getNormalizedKey(key.getData(),
+            key.getPosition(), key.getLength() - key.getPosition());
+      }
+      return hasNext;
+    }
+
     private void adjustPriorityQueue(Segment<K, V> reader) throws IOException{
       long startPos = reader.getReader().bytesRead;
-      boolean hasNext = reader.nextRawKey();
+      boolean hasNext = nextRawKey(reader);
       long endPos = reader.getReader().bytesRead;
       totalBytesProcessed += endPos - startPos;
       mergeProgress.set(Math.min(1.0f, totalBytesProcessed * progPerByte));
@@ -578,6 +611,13 @@ public boolean next() throws IOException {
 
     @SuppressWarnings("unchecked")
     protected boolean lessThan(Object a, Object b) {
+      if (normalizer != null) {
+        long n1 = ((Segment<K, V>)a).normalizedKey;
+        long n2 = ((Segment<K, V>)b).normalizedKey;
+        if (n1 != n2) {
+          return Long.compareUnsigned(n1, n2) < 0;
+        }
+      }
       DataInputBuffer key1 = ((Segment<K, V>)a).getKey();
       DataInputBuffer key2 = ((Segment<K, V>)b).getKey();
       int s1 = key1.getPosition();
@@ -649,7 +689,7 @@ RawKeyValueIterator merge(Class<K> keyClass, Class<V> valueClass,
             // this helps in ensuring we don't use buffers until we need them
             segment.init(readsCounter);
             long startPos = segment.getReader().bytesRead;
-            boolean hasNext = segment.nextRawKey();
+            boolean hasNext = nextRawKey(segment);
             long endPos = segment.getReader().bytesRead;
             
             if (hasNext) {
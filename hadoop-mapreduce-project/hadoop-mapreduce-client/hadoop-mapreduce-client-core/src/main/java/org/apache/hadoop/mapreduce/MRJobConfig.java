@@ -413,6 +413,11 @@ public interface MRJobConfig {
 
   public static final String MAP_SORT_SPILL_PERCENT = "mapreduce.map.sort.spill.percent";
 
+  public static final String MAP_SORT_NORMALIZED_KEYS =
+      "mapreduce.map.sort.normalized.keys";
+
+  public static final boolean DEFAULT_MAP_SORT_NORMALIZED_KEYS = false;
+
   public static final String MAP_INPUT_FILE = "mapreduce.map.input.file";
 
   public static final String MAP_INPUT_PATH = "mapreduce.map.input.length";
@@ -31,6 +31,7 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.TreeMap;
 
 import org.apache.hadoop.conf.Configuration;
@@ -40,6 +41,7 @@
 import org.apache.hadoop.fs.LocalDirAllocator;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.NormalizedKeyComparator;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.Counters.Counter;
@@ -265,6 +267,61 @@ private void readOnDiskMapOutput(Configuration conf, FileSystem fs, Path path,
     }
   }
 
+  @Test
+  public void testMergeKeysWithSharedPrefix() throws IOException {
+    // The keys share their first eight bytes, the normalized key of Text,
+    // so the merge has to fall back to comparing the keys themselves. Some
+    // keys are shorter than the normalized key, and padded.
+    Random r = new Random();
+    long seed = r.nextLong();
+    r.setSeed(seed);
+    List<String> expected = new ArrayList<>();
+    List<Segment<Text, Text>> segments = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      List<String> keys = new ArrayList<>();
+      keys.add("sharedp");
+      keys.add("sharedpr");
+      for (int j = 0; j < 100; j++) {
+        keys.add("sharedprefix" + r.nextInt(1000));
+      }
+      keys.sort(null);
+      expected.addAll(keys);
+      Path file = new Path(new Path(unitTestDir.getAbsolutePath()),
+          "segment" + i);
+      try (FSDataOutputStream out = fs.create(file)) {
+        IFile.Writer<Text, Text> writer = new IFile.Writer<Text, Text>(
+            jobConf, out, Text.class, Text.class, null, null);
+        for (String key : keys) {
+          writer.append(new Text(key), new Text(key));
+        }
+        writer.close();
+      }
+      segments.add(new Segment<Text, Text>(jobConf, fs, file, null, true));
+    }
+    expected.sort(null);
+
+    RawComparator<Text> comparator = new Text.Comparator();
+    Assert.assertTrue(((NormalizedKeyComparator<Text>) comparator)
+        .hasNormalizedKey());
+    Path tmpDir = new Path(jobConf.get("mapreduce.cluster.temp.dir"),
+        "localpath");
+    // A merge factor below the number of segments adds intermediate merges.
+    RawKeyValueIterator mergeQueue = Merger.merge(jobConf, fs, Text.class,
+        Text.class, segments, 2, tmpDir, comparator, getReporter(),
+        new Counter(), new Counter(), new Progress());
+    List<String> merged = new ArrayList<>();
+    Text key = new Text();
+    Text value = new Text();
+    while (mergeQueue.next()) {
+      key.readFields(mergeQueue.getKey());
+      value.readFields(mergeQueue.getValue());
+      Assert.assertEquals(key, value);
+      merged.add(key.toString());
+    }
+    mergeQueue.close();
+    Assert.assertEquals("seed " + seed, expected, merged);
+  }
+
   @Test
   public void testCompressed() throws IOException {
     testMergeShouldReturnProperProgress(getCompressedSegments());
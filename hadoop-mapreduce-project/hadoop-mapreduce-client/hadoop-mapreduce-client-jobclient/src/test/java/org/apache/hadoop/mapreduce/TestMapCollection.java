@@ -22,6 +22,7 @@
 import java.io.DataOutput;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 
@@ -33,14 +34,28 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import static org.junit.Assert.*;
 
+@RunWith(Parameterized.class)
 public class TestMapCollection {
 
   private static final Logger LOG = LoggerFactory.getLogger(
       TestMapCollection.class.getName());
 
+  private final boolean normalizedKeys;
+
+  @Parameterized.Parameters(name = "normalizedKeys={0}")
+  public static Collection<Object[]> getTestParameters() {
+    return Arrays.asList(new Object[][] {{false}, {true}});
+  }
+
+  public TestMapCollection(boolean normalizedKeys) {
+    this.normalizedKeys = normalizedKeys;
+  }
+
   public static abstract class FillWritable implements Writable, Configurable {
     private int len;
     protected boolean disableRead;
@@ -137,7 +152,7 @@ public void setConf(Configuration conf) {
   }
 
   public static class VariableComparator
-      implements RawComparator<KeyWritable>, Configurable {
+      implements NormalizedKeyComparator<KeyWritable>, Configurable {
     private boolean readLen;
     public VariableComparator() { }
     @Override
@@ -169,6 +184,18 @@ public int compare(byte[] b1, int s1, int l1,
       }
       return l1 - l2;
     }
+    @Override
+    public boolean hasNormalizedKey() {
+      return true;
+    }
+    /**
+     * Only a prefix of the order, so that records with equal normalized keys
+     * are still compared.
+     */
+    @Override
+    public long getNormalizedKey(byte[] b, int s, int l) {
+      return l >> 3;
+    }
   }
 
   public static class SpillReducer
@@ -287,7 +314,7 @@ public void close() {
     }
   }
 
-  private static void runTest(String name, int keylen, int vallen,
+  private void runTest(String name, int keylen, int vallen,
       int records, int ioSortMB, float spillPer)
       throws Exception {
     Configuration conf = new Configuration();
@@ -303,8 +330,10 @@ private static void runTest(String name, int keylen, int vallen,
     runTest(name, job);
   }
 
-  private static void runTest(String name, Job job) throws Exception {
+  private void runTest(String name, Job job) throws Exception {
     job.setNumReduceTasks(1);
+    job.getConfiguration().setBoolean(MRJobConfig.MAP_SORT_NORMALIZED_KEYS,
+        normalizedKeys);
     job.getConfiguration().set(MRConfig.FRAMEWORK_NAME, MRConfig.LOCAL_FRAMEWORK_NAME);
     job.getConfiguration().setInt(MRJobConfig.IO_SORT_FACTOR, 1000);
     job.getConfiguration().set("fs.defaultFS", "file:///");
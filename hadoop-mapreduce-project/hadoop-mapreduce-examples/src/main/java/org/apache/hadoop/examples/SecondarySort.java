@@ -27,6 +27,7 @@
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NormalizedKeyComparator;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
@@ -100,7 +101,8 @@ public boolean equals(Object right) {
       }
     }
     /** A Comparator that compares serialized IntPair. */ 
-    public static class Comparator extends WritableComparator {
+    public static class Comparator extends WritableComparator
+        implements NormalizedKeyComparator {
       public Comparator() {
         super(IntPair.class);
       }
@@ -109,6 +111,20 @@ public int compare(byte[] b1, int s1, int l1,
                          byte[] b2, int s2, int l2) {
         return compareBytes(b1, s1, l1, b2, s2, l2);
       }
+
+      /**
+       * The two integers are byte comparable, so their eight bytes are
+       * the whole key.
+       */
+      @Override
+      public long getNormalizedKey(byte[] b, int s, int l) {
+        return normalizeBytes(b, s, l);
+      }
+
+      @Override
+      public boolean hasNormalizedKey() {
+        return getClass() == Comparator.class;
+      }
     }
 
     static {                                        // register this comparator
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.util.DataChecksum;
+
+/**
+ * Throughput of calculating and verifying the chunked checksums of
+ * {@link DataChecksum}, as the DataNode and the clients do for every packet,
+ * on heap or direct buffers. Each operation processes dataSize bytes, so the
+ * MB/s of a thread is the score times dataSize / 2^20.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ChecksumBenchmark {
+
+  @State(Scope.Thread)
+  public static class Chunks {
+
+    @Param({"CRC32", "CRC32C"})
+    private DataChecksum.Type type;
+
+    @Param({"512", "4096", "65536"})
+    private int bytesPerChecksum;
+
+    @Param({"false", "true"})
+    private boolean direct;
+
+    @Param({"1048576"})
+    private int dataSize;
+
+    private DataChecksum checksum;
+    private ByteBuffer data;
+    private ByteBuffer sums;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      checksum = DataChecksum.newDataChecksum(type, bytesPerChecksum);
+      byte[] bytes = new byte[dataSize];
+      new Random(0xC4CL).nextBytes(bytes);
+      int sumsSize = checksum.getChecksumSize(dataSize);
+      if (direct) {
+        data = ByteBuffer.allocateDirect(dataSize);
+        data.put(bytes).flip();
+        sums = ByteBuffer.allocateDirect(sumsSize);
+      } else {
+        data = ByteBuffer.wrap(bytes);
+        sums = ByteBuffer.allocate(sumsSize);
+      }
+      checksum.calculateChunkedSums(data, sums);
+    }
+  }
+
+  @Benchmark
+  public ByteBuffer calculate(Chunks chunks) {
+    chunks.checksum.calculateChunkedSums(chunks.data, chunks.sums);
+    return chunks.sums;
+  }
+
+  @Benchmark
+  public ByteBuffer verify(Chunks chunks) throws ChecksumException {
+    chunks.checksum.verifyChunkedSums(chunks.data, chunks.sums, "benchmark",
+        0);
+    return chunks.sums;
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optionally the bytesPerChecksum values to run.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ChecksumBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    if (args.length > 0) {
+      opts.param("bytesPerChecksum", args);
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.DirectCompressionCodec;
+import org.apache.hadoop.io.compress.DirectCompressor;
+import org.apache.hadoop.io.compress.DirectDecompressionCodec;
+import org.apache.hadoop.io.compress.DirectDecompressor;
+import org.apache.hadoop.io.compress.Lz4Codec;
+import org.apache.hadoop.io.compress.SnappyCodec;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Throughput of compressing and decompressing single blocks with the
+ * byte[] {@link Compressor} and {@link Decompressor} of a codec, as
+ * CompressorStream and DecompressorStream use them, against its
+ * {@link DirectCompressor} and {@link DirectDecompressor} on direct buffers.
+ * Each operation processes one block of blockSize uncompressed bytes, so
+ * the MB/s of a thread is the score times blockSize / 2^20. Codecs whose
+ * native libraries are not loaded fail in their setup.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompressionBenchmark {
+
+  @State(Scope.Thread)
+  public static class Codec {
+
+    @Param({"snappy", "lz4", "zlib", "bzip2", "zstd"})
+    private String codecName;
+
+    @Param({"65536", "262144"})
+    private int blockSize;
+
+    private Compressor compressor;
+    private Decompressor decompressor;
+    private DirectCompressor directCompressor;
+    private DirectDecompressor directDecompressor;
+
+    private byte[] data;
+    private byte[] compressedData;
+    private byte[] buffer;
+    private ByteBuffer directData;
+    private ByteBuffer directCompressedData;
+    private ByteBuffer directBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new Configuration();
+      CompressionCodec codec = ReflectionUtils.newInstance(
+          getCodecClass(codecName), conf);
+      directCompressor =
+          ((DirectCompressionCodec) codec).createDirectCompressor();
+      directDecompressor =
+          ((DirectDecompressionCodec) codec).createDirectDecompressor();
+      if (directCompressor == null || directDecompressor == null) {
+        throw new IllegalStateException(
+            "The native library of " + codecName + " is not loaded");
+      }
+      compressor = codec.createCompressor();
+      decompressor = codec.createDecompressor();
+
+      data = generate(blockSize);
+      int maxLength = directCompressor.maxCompressedLength(blockSize);
+      buffer = new byte[Math.max(maxLength, blockSize)];
+      directData = ByteBuffer.allocateDirect(blockSize);
+      directData.put(data).flip();
+      directCompressedData = ByteBuffer.allocateDirect(maxLength);
+      directCompressor.compress(directData.duplicate(), directCompressedData);
+      directCompressedData.flip();
+      compressedData = new byte[directCompressedData.remaining()];
+      directCompressedData.duplicate().get(compressedData);
+      directBuffer = ByteBuffer.allocateDirect(Math.max(maxLength, blockSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (compressor != null) {
+        compressor.end();
+      }
+      if (decompressor != null) {
+        decompressor.end();
+      }
+    }
+  }
+
+  static Class<? extends CompressionCodec> getCodecClass(String name) {
+    switch (name) {
+    case "snappy":
+      return SnappyCodec.class;
+    case "lz4":
+      return Lz4Codec.class;
+    case "zlib":
+      return DefaultCodec.class;
+    case "bzip2":
+      return BZip2Codec.class;
+    case "zstd":
+      return ZStandardCodec.class;
+    default:
+      throw new IllegalArgumentException("Unknown codec " + name);
+    }
+  }
+
+  /** Text-like data of short words from a small vocabulary. */
+  static byte[] generate(int size) {
+    Random random = new Random(0xC0DECL);
+    String[] words = new String[1024];
+    for (int i = 0; i < words.length; i++) {
+      char[] word = new char[1 + random.nextInt(10)];
+      for (int j = 0; j < word.length; j++) {
+        word[j] = (char) ('a' + random.nextInt(26));
+      }
+      words[i] = new String(word);
+    }
+    byte[] data = new byte[size];
+    int n = 0;
+    while (n < size) {
+      String word = words[random.nextInt(words.length)];
+      for (int i = 0; i < word.length() && n < size; i++) {
+        data[n++] = (byte) word.charAt(i);
+      }
+      if (n < size) {
+        data[n++] = ' ';
+      }
+    }
+    return data;
+  }
+
+  @Benchmark
+  public void compress(Codec codec, Blackhole blackhole) throws IOException {
+    Compressor compressor = codec.compressor;
+    compressor.reset();
+    compressor.setInput(codec.data, 0, codec.data.length);
+    compressor.finish();
+    int n = 0;
+    while (!compressor.finished()) {
+      n += compressor.compress(codec.buffer, 0, codec.buffer.length);
+    }
+    blackhole.consume(n);
+  }
+
+  @Benchmark
+  public void compressDirect(Codec codec, Blackhole blackhole)
+      throws IOException {
+    codec.directData.rewind();
+    codec.directBuffer.clear();
+    codec.directCompressor.compress(codec.directData, codec.directBuffer);
+    blackhole.consume(codec.directBuffer.position());
+  }
+
+  @Benchmark
+  public void decompress(Codec codec, Blackhole blackhole)
+      throws IOException {
+    Decompressor decompressor = codec.decompressor;
+    decompressor.reset();
+    decompressor.setInput(codec.compressedData, 0,
+        codec.compressedData.length);
+    int n = 0;
+    while (n < codec.data.length && !decompressor.finished()) {
+      n += decompressor.decompress(codec.buffer, 0, codec.buffer.length);
+    }
+    blackhole.consume(n);
+  }
+
+  @Benchmark
+  public void decompressDirect(Codec codec, Blackhole blackhole)
+      throws IOException {
+    ((Decompressor) codec.directDecompressor).reset();
+    codec.directCompressedData.rewind();
+    codec.directBuffer.clear();
+    while (codec.directCompressedData.hasRemaining()) {
+      codec.directDecompressor.decompress(codec.directCompressedData,
+          codec.directBuffer);
+    }
+    blackhole.consume(codec.directBuffer.position());
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optionally the codecs to run, of snappy, lz4, zlib, bzip2
+   *             and zstd.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("CompressionBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    if (args.length > 0) {
+      opts.param("codecName", args);
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
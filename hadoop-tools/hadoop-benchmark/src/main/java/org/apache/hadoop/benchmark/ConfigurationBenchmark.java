@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+
+/**
+ * Throughput of reading one {@link Configuration} shared by many threads, as
+ * the daemons and tasks do when they look up their settings on hot paths.
+ * The number of threads defaults to 8, and can be given to main.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class ConfigurationBenchmark {
+
+  private static final String SET_KEY = "benchmark.set.key";
+  private static final String SUBSTITUTED_KEY = "benchmark.substituted.key";
+
+  @State(Scope.Benchmark)
+  public static class Conf {
+    private Configuration conf;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      conf = new Configuration();
+      conf.set(SET_KEY, "value");
+      conf.set(SUBSTITUTED_KEY, "${" + SET_KEY + "}/sub");
+      // Load the resources before measuring.
+      conf.size();
+    }
+  }
+
+  @Benchmark
+  public String get(Conf conf) {
+    return conf.conf.get(SET_KEY);
+  }
+
+  @Benchmark
+  public String getDefault(Conf conf) {
+    return conf.conf.get(CommonConfigurationKeysPublic.FS_DEFAULT_NAME_KEY);
+  }
+
+  @Benchmark
+  public String getMissing(Conf conf) {
+    return conf.conf.get("benchmark.missing.key", "default");
+  }
+
+  @Benchmark
+  public int getInt(Conf conf) {
+    return conf.conf.getInt(
+        CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY, 4096);
+  }
+
+  @Benchmark
+  public String getSubstituted(Conf conf) {
+    return conf.conf.get(SUBSTITUTED_KEY);
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optionally the number of threads.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ConfigurationBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    if (args.length > 0) {
+      opts.threads(Integer.parseInt(args[0]));
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
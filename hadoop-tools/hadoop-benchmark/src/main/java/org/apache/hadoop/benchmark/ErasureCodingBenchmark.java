@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.erasurecode.CodecRegistry;
+import org.apache.hadoop.io.erasurecode.ErasureCodeConstants;
+import org.apache.hadoop.io.erasurecode.ErasureCoderOptions;
+import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureCoderFactory;
+import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureDecoder;
+import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureEncoder;
+
+/**
+ * Throughput of the raw Reed-Solomon coders: the legacy one, the Java one
+ * looking up every byte in the multiplication table, the Java one working on
+ * long words and the native ISA-L one. Each operation encodes the parity
+ * cells of one stripe, or decodes the cells of as many erased data units as
+ * there are parity units, so the MB/s of data of a thread is the score
+ * times numDataUnits * cellSize / 2^20. The native coder fails in its setup
+ * if libhadoop is not loaded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ErasureCodingBenchmark {
+
+  @State(Scope.Thread)
+  public static class Coder {
+
+    @Param({"rs-legacy_java", "rs_java", "rs_java_word", "rs_native"})
+    private String coderName;
+
+    @Param({"6x3", "10x4"})
+    private String schema;
+
+    @Param({"65536", "1048576"})
+    private int cellSize;
+
+    @Param({"false", "true"})
+    private boolean direct;
+
+    private RawErasureEncoder encoder;
+    private RawErasureDecoder decoder;
+    private ByteBuffer[] data;
+    private ByteBuffer[] parity;
+    private ByteBuffer[] decodeInputs;
+    private ByteBuffer[] decodeOutputs;
+    private int[] erasedIndexes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      String[] units = schema.split("x");
+      int numDataUnits = Integer.parseInt(units[0]);
+      int numParityUnits = Integer.parseInt(units[1]);
+      RawErasureCoderFactory factory = CodecRegistry.getInstance()
+          .getCoderByName(coderName.startsWith("rs-legacy") ?
+              ErasureCodeConstants.RS_LEGACY_CODEC_NAME :
+              ErasureCodeConstants.RS_CODEC_NAME, coderName);
+      ErasureCoderOptions options =
+          new ErasureCoderOptions(numDataUnits, numParityUnits);
+      encoder = factory.createEncoder(options);
+      decoder = factory.createDecoder(options);
+
+      Random random = new Random(0xEC);
+      data = new ByteBuffer[numDataUnits];
+      for (int i = 0; i < numDataUnits; i++) {
+        byte[] cell = new byte[cellSize];
+        random.nextBytes(cell);
+        data[i] = allocate(cellSize);
+        data[i].put(cell).flip();
+      }
+      parity = new ByteBuffer[numParityUnits];
+      for (int i = 0; i < numParityUnits; i++) {
+        parity[i] = allocate(cellSize);
+      }
+      encode(this);
+
+      // Erase the first data units, and decode them from the others.
+      decodeInputs = new ByteBuffer[numDataUnits + numParityUnits];
+      erasedIndexes = new int[numParityUnits];
+      decodeOutputs = new ByteBuffer[numParityUnits];
+      for (int i = 0; i < numParityUnits; i++) {
+        erasedIndexes[i] = i;
+        decodeOutputs[i] = allocate(cellSize);
+      }
+      for (int i = numParityUnits; i < numDataUnits; i++) {
+        decodeInputs[i] = data[i];
+      }
+      for (int i = 0; i < numParityUnits; i++) {
+        decodeInputs[numDataUnits + i] = parity[i];
+      }
+    }
+
+    private ByteBuffer allocate(int size) {
+      return direct ? ByteBuffer.allocateDirect(size) :
+          ByteBuffer.allocate(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      if (encoder != null) {
+        encoder.release();
+      }
+      if (decoder != null) {
+        decoder.release();
+      }
+    }
+  }
+
+  private static void encode(Coder coder) throws IOException {
+    for (ByteBuffer cell : coder.parity) {
+      cell.clear();
+    }
+    coder.encoder.encode(coder.data, coder.parity);
+    for (ByteBuffer cell : coder.data) {
+      cell.rewind();
+    }
+  }
+
+  @Benchmark
+  public void encode(Coder coder, Blackhole blackhole) throws IOException {
+    encode(coder);
+    blackhole.consume(coder.parity[0].get(0));
+  }
+
+  @Benchmark
+  public void decode(Coder coder, Blackhole blackhole) throws IOException {
+    for (ByteBuffer cell : coder.decodeOutputs) {
+      cell.clear();
+    }
+    coder.decoder.decode(coder.decodeInputs, coder.erasedIndexes,
+        coder.decodeOutputs);
+    for (ByteBuffer cell : coder.decodeInputs) {
+      if (cell != null) {
+        cell.rewind();
+      }
+    }
+    blackhole.consume(coder.decodeOutputs[0].get(0));
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optionally the coders to run, of rs-legacy_java, rs_java,
+   *             rs_java_word and rs_native.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("ErasureCodingBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    if (args.length > 0) {
+      opts.param("coderName", args);
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
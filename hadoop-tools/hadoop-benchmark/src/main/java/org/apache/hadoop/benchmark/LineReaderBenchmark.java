@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.util.LineReader;
+
+/**
+ * Throughput of splitting log files into lines with {@link LineReader}, as
+ * TextInputFormat does, with the default CR/LF delimiters or a custom one.
+ * Each operation reads 16 MB of log lines, so the MB/s of a thread is 16
+ * times the score.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LineReaderBenchmark {
+
+  private static final int DATA_SIZE = 16 * 1024 * 1024;
+
+  @State(Scope.Thread)
+  public static class Log {
+
+    /** The average length of the lines. */
+    @Param({"80", "160", "1000"})
+    private int lineLength;
+
+    @Param({"default", "custom"})
+    private String delimiter;
+
+    private byte[] data;
+    private byte[] recordDelimiter;
+    private final Text line = new Text();
+
+    @Setup(Level.Trial)
+    public void setup() {
+      data = generate(lineLength);
+      recordDelimiter = delimiter.equals("custom")
+          ? "\n".getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    LineReader open() {
+      ByteArrayInputStream in = new ByteArrayInputStream(data);
+      return recordDelimiter == null
+          ? new LineReader(in) : new LineReader(in, recordDelimiter);
+    }
+  }
+
+  /**
+   * Log lines of a timestamp, a level, a logger and a message of random
+   * words, of lineLength bytes on average.
+   */
+  static byte[] generate(int lineLength) {
+    Random random = new Random(0x10eL);
+    String[] levels = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    String[] loggers = {"org.apache.hadoop.hdfs.server.datanode.DataNode",
+        "org.apache.hadoop.ipc.Server", "org.apache.hadoop.mapred.Task",
+        "org.apache.hadoop.yarn.server.nodemanager.NodeManager"};
+    StringBuilder text = new StringBuilder(DATA_SIZE + 2 * lineLength);
+    while (text.length() < DATA_SIZE) {
+      int start = text.length();
+      text.append(String.format("2024-05-%02d %02d:%02d:%02d,%03d ",
+          1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+          random.nextInt(60), random.nextInt(1000)));
+      text.append(levels[random.nextInt(levels.length)]).append(' ');
+      text.append(loggers[random.nextInt(loggers.length)]).append(": ");
+      int end = start + lineLength / 2 + random.nextInt(lineLength + 1);
+      while (text.length() < end) {
+        for (int i = 1 + random.nextInt(10); i > 0; i--) {
+          text.append((char) ('a' + random.nextInt(26)));
+        }
+        text.append(' ');
+      }
+      text.append('\n');
+    }
+    return text.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public long readLines(Log log) throws IOException {
+    long bytes = 0;
+    try (LineReader reader = log.open()) {
+      for (int n; (n = reader.readLine(log.line)) > 0;) {
+        bytes += n;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optionally the line lengths to run.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("LineReaderBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    if (args.length > 0) {
+      opts.param("lineLength", args);
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
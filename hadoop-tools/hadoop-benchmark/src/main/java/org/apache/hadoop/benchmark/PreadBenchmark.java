@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.HdfsConfiguration;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+
+/**
+ * Throughput of positional reads issued by many threads against a single
+ * shared HDFS input stream, on a MiniDFSCluster. Every thread reads random
+ * aligned ranges of the file, so the benchmark measures how well concurrent
+ * preads on one stream scale with the number of readers.
+ * <p>
+ * The MiniDFSCluster comes from the hadoop-hdfs and hadoop-common test jars,
+ * which are provided dependencies of this module: run it with them, junit
+ * and mockito on the classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PreadBenchmark {
+
+  static final long FILE_SIZE = 64L * 1024 * 1024;
+  static final long BLOCK_SIZE = 8L * 1024 * 1024;
+  static final Path DATA_PATH = new Path("/preadBenchmark");
+
+  @State(Scope.Benchmark)
+  public static class Cluster {
+
+    @Param({"false", "true"})
+    private boolean hedged;
+
+    private File baseDir;
+    private MiniDFSCluster cluster;
+    private FSDataInputStream in;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Configuration conf = new HdfsConfiguration();
+      conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, BLOCK_SIZE);
+      if (hedged) {
+        conf.setInt(
+            HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_KEY, 16);
+        conf.setLong(
+            HdfsClientConfigKeys.HedgedRead.THRESHOLD_MILLIS_KEY, 500);
+      }
+      baseDir = Files.createTempDirectory("preadBenchmark").toFile();
+      cluster = new MiniDFSCluster.Builder(conf, baseDir)
+          .numDataNodes(3).build();
+      cluster.waitActive();
+      FileSystem fs = cluster.getFileSystem();
+      DFSTestUtil.createFile(fs, DATA_PATH, FILE_SIZE, (short) 3, 0xBEEFL);
+      in = fs.open(DATA_PATH);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      try {
+        in.close();
+      } finally {
+        cluster.shutdown();
+        FileUtil.fullyDelete(baseDir);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Reader {
+
+    @Param({"4096", "65536", "1048576"})
+    private int readSize;
+
+    private byte[] buffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      buffer = new byte[readSize];
+    }
+  }
+
+  @Benchmark
+  public void pread(Cluster cluster, Reader reader,
+                    Blackhole blackhole) throws Exception {
+    long slots = FILE_SIZE / reader.readSize;
+    long position = ThreadLocalRandom.current().nextLong(slots)
+        * reader.readSize;
+    cluster.in.readFully(position, reader.buffer);
+    blackhole.consume(reader.buffer);
+  }
+
+  /**
+   * Run the benchmark with 1, 4 and 16 reading threads.
+   * @param args optionally the numbers of threads to run with instead.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    String[] threads = args.length > 0 ? args : new String[] {"1", "4", "16"};
+    for (String count : threads) {
+      OptionsBuilder opts = new OptionsBuilder();
+      opts.include("PreadBenchmark");
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+      opts.threads(Integer.parseInt(count));
+      opts.forks(1);
+      new Runner(opts.build()).run();
+    }
+  }
+}
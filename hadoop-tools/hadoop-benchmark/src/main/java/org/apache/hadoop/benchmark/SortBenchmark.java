@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NormalizedKeyComparator;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+
+/**
+ * Time to sort serialized keys the way the map output buffer does, with
+ * {@link QuickSort} over the offsets of the keys, comparing the keys alone
+ * or their normalized keys first.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SortBenchmark {
+
+  private static final int RECORDS = 1 << 20;
+
+  @State(Scope.Thread)
+  public static class Keys implements IndexedSortable {
+
+    /**
+     * Words of 4 to 12 letters, URLs sharing a long prefix, or longs.
+     */
+    @Param({"text", "url", "long"})
+    private String keyType;
+
+    @Param({"false", "true"})
+    private boolean normalized;
+
+    private NormalizedKeyComparator<?> comparator;
+    private byte[] data;
+    private int[] initialStarts;
+    private int[] initialLengths;
+    private final int[] starts = new int[RECORDS];
+    private final int[] lengths = new int[RECORDS];
+    private final long[] normalizedKeys = new long[RECORDS];
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      Random random = new Random(0x5027L);
+      comparator = (NormalizedKeyComparator<?>) WritableComparator.get(
+          keyType.equals("long") ? LongWritable.class : Text.class);
+      DataOutputBuffer out = new DataOutputBuffer();
+      initialStarts = new int[RECORDS];
+      initialLengths = new int[RECORDS];
+      StringBuilder word = new StringBuilder();
+      for (int i = 0; i < RECORDS; i++) {
+        Writable key;
+        if (keyType.equals("long")) {
+          key = new LongWritable(random.nextLong());
+        } else {
+          word.setLength(0);
+          if (keyType.equals("url")) {
+            word.append("http://www.example.com/");
+          }
+          for (int j = 4 + random.nextInt(9); j > 0; j--) {
+            word.append((char) ('a' + random.nextInt(26)));
+          }
+          key = new Text(word.toString());
+        }
+        initialStarts[i] = out.getLength();
+        key.write(out);
+        initialLengths[i] = out.getLength() - initialStarts[i];
+      }
+      data = new byte[out.getLength()];
+      System.arraycopy(out.getData(), 0, data, 0, data.length);
+    }
+
+    void reset() {
+      System.arraycopy(initialStarts, 0, starts, 0, RECORDS);
+      System.arraycopy(initialLengths, 0, lengths, 0, RECORDS);
+      if (normalized) {
+        for (int i = 0; i < RECORDS; i++) {
+          normalizedKeys[i] =
+              comparator.getNormalizedKey(data, starts[i], lengths[i]);
+        }
+      }
+    }
+
+    @Override
+    public int compare(int i, int j) {
+      if (normalized && normalizedKeys[i] != normalizedKeys[j]) {
+        return Long.compareUnsigned(normalizedKeys[i], normalizedKeys[j]);
+      }
+      return comparator.compare(data, starts[i], lengths[i],
+          data, starts[j], lengths[j]);
+    }
+
+    @Override
+    public void swap(int i, int j) {
+      int start = starts[i];
+      starts[i] = starts[j];
+      starts[j] = start;
+      int length = lengths[i];
+      lengths[i] = lengths[j];
+      lengths[j] = length;
+      long normalizedKey = normalizedKeys[i];
+      normalizedKeys[i] = normalizedKeys[j];
+      normalizedKeys[j] = normalizedKey;
+    }
+  }
+
+  @Benchmark
+  public int sort(Keys keys) {
+    keys.reset();
+    new QuickSort().sort(keys, 0, RECORDS);
+    return keys.starts[0];
+  }
+
+  /**
+   * Run the benchmarks.
+   * @param args optionally the key types to run.
+   * @throws Exception any ex.
+   */
+  public static void main(String[] args) throws Exception {
+    OptionsBuilder opts = new OptionsBuilder();
+    opts.include("SortBenchmark");
+    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g");
+    if (args.length > 0) {
+      opts.param("keyType", args);
+    }
+    opts.forks(1);
+    new Runner(opts.build()).run();
+  }
+}
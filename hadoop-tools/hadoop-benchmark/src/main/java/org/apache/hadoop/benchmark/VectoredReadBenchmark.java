@@ -57,6 +57,7 @@ public class VectoredReadBenchmark {
 
   static final Path DATA_PATH = getTestDataPath();
   static final String DATA_PATH_PROPERTY = "bench.data";
+  static final String HDFS_DATA_PATH_PROPERTY = "bench.hdfs.data";
   static final int READ_SIZE = 64 * 1024;
   static final long SEEK_SIZE = 1024L * 1024;
 
@@ -69,18 +70,30 @@ static Path getTestDataPath() {
   @State(Scope.Thread)
   public static class FileSystemChoice {
 
-    @Param({"local", "raw"})
+    @Param({"local", "raw", "hdfs"})
     private String fileSystemKind;
 
     private Configuration conf;
     private FileSystem fs;
+    private Path path;
 
     @Setup(Level.Trial)
     public void setup() {
       conf = new Configuration();
       try {
-        LocalFileSystem local = FileSystem.getLocal(conf);
-        fs = "raw".equals(fileSystemKind) ? local.getRaw() : local;
+        if ("hdfs".equals(fileSystemKind)) {
+          String value = System.getProperty(HDFS_DATA_PATH_PROPERTY);
+          if (value == null) {
+            throw new IllegalArgumentException(
+                "No HDFS data file set in " + HDFS_DATA_PATH_PROPERTY);
+          }
+          path = new Path(value);
+          fs = path.getFileSystem(conf);
+        } else {
+          LocalFileSystem local = FileSystem.getLocal(conf);
+          fs = "raw".equals(fileSystemKind) ? local.getRaw() : local;
+          path = DATA_PATH;
+        }
       } catch (IOException e) {
         throw new IllegalArgumentException("Can't get filesystem", e);
       }
@@ -104,7 +117,7 @@ public void setup() {
   public void asyncRead(FileSystemChoice fsChoice,
                         BufferChoice bufferChoice,
                         Blackhole blackhole) throws Exception {
-    FSDataInputStream stream = fsChoice.fs.open(DATA_PATH);
+    FSDataInputStream stream = fsChoice.fs.open(fsChoice.path);
     List<FileRange> ranges = new ArrayList<>();
     for(int m=0; m < 100; ++m) {
       FileRange range = FileRange.createFileRange(m * SEEK_SIZE, READ_SIZE);
@@ -218,7 +231,7 @@ public void asyncFileChanArray(BufferChoice bufferChoice,
   @Benchmark
   public void syncRead(FileSystemChoice fsChoice,
                        Blackhole blackhole) throws Exception {
-    FSDataInputStream stream = fsChoice.fs.open(DATA_PATH);
+    FSDataInputStream stream = fsChoice.fs.open(fsChoice.path);
     List<byte[]> result = new ArrayList<>();
     for(int m=0; m < 100; ++m) {
       byte[] buffer = new byte[READ_SIZE];
@@ -231,14 +244,22 @@ public void syncRead(FileSystemChoice fsChoice,
 
   /**
    * Run the benchmarks.
-   * @param args the pathname of a 100MB data file
+   * @param args the pathname of a 100MB data file, and optionally the
+   *             URI of a copy of it in HDFS, e.g. hdfs://nn:8020/taxi.orc
    * @throws Exception any ex.
    */
   public static void main(String[] args) throws Exception {
     OptionsBuilder opts = new OptionsBuilder();
     opts.include("VectoredReadBenchmark");
-    opts.jvmArgs("-server", "-Xms256m", "-Xmx2g",
-        "-D" + DATA_PATH_PROPERTY + "=" + args[0]);
+    if (args.length > 1) {
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g",
+          "-D" + DATA_PATH_PROPERTY + "=" + args[0],
+          "-D" + HDFS_DATA_PATH_PROPERTY + "=" + args[1]);
+    } else {
+      opts.jvmArgs("-server", "-Xms256m", "-Xmx2g",
+          "-D" + DATA_PATH_PROPERTY + "=" + args[0]);
+      opts.param("fileSystemKind", "local", "raw");
+    }
     opts.forks(1);
     new Runner(opts.build()).run();
   }